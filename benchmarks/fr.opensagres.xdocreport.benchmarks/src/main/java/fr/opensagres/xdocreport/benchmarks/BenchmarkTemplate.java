@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.opensagres.xdocreport.benchmarks.model.Developer;
+import fr.opensagres.xdocreport.benchmarks.model.Project;
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.document.images.ByteArrayImageProvider;
+import fr.opensagres.xdocreport.document.images.IImageProvider;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.TemplateEngineKind;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+
+/**
+ * Representative templates used by the benchmarks. Each template is available for Freemarker and Velocity and is
+ * stored as resource in the package of this class.
+ */
+public enum BenchmarkTemplate
+{
+
+    /**
+     * Small docx letter with a single field.
+     */
+    DocxLetter( "DocxHelloWordWithFreemarker.docx", "DocxHelloWordWithVelocity.docx", "word/document.xml" ),
+
+    /**
+     * Docx with a table row looping over the developers.
+     */
+    DocxTable( "DocxProjectWithFreemarkerList.docx", "DocxProjectWithVelocityList.docx", "word/document.xml" ),
+
+    /**
+     * Docx with a table row looping over the developers, each row displaying the photo of the developer.
+     */
+    DocxImages( "DocxProjectWithFreemarkerAndImageList.docx", "DocxProjectWithVelocityAndImageList.docx",
+                "word/document.xml" ),
+
+    /**
+     * Small odt letter with a single field.
+     */
+    OdtLetter( "ODTHelloWordWithFreemarker.odt", "ODTHelloWordWithVelocity.odt", "content.xml" ),
+
+    /**
+     * Pptx slide with a single field (${project.name} is a valid syntax for the both template engines).
+     */
+    PptxSlide( "PPTXHelloWordWithFreemarker.pptx", "PPTXHelloWordWithFreemarker.pptx", "ppt/slides/slide1.xml" );
+
+    private static final String PHOTO_ENTRY_NAME = "word/media/image1.png";
+
+    private final String freemarkerResourceName;
+
+    private final String velocityResourceName;
+
+    private final String mainEntryName;
+
+    private BenchmarkTemplate( String freemarkerResourceName, String velocityResourceName, String mainEntryName )
+    {
+        this.freemarkerResourceName = freemarkerResourceName;
+        this.velocityResourceName = velocityResourceName;
+        this.mainEntryName = mainEntryName;
+    }
+
+    /**
+     * Returns the entry name of the XML file which contains the fields of the template (word/document.xml,
+     * content.xml...).
+     * 
+     * @return
+     */
+    public String getMainEntryName()
+    {
+        return mainEntryName;
+    }
+
+    /**
+     * Returns the content of the template document for the given template engine.
+     * 
+     * @param templateEngineKind
+     * @return
+     * @throws IOException
+     */
+    public byte[] load( TemplateEngineKind templateEngineKind )
+        throws IOException
+    {
+        String resourceName =
+            TemplateEngineKind.Velocity.equals( templateEngineKind ) ? velocityResourceName : freemarkerResourceName;
+        InputStream in = BenchmarkTemplate.class.getResourceAsStream( resourceName );
+        if ( in == null )
+        {
+            throw new IOException( "Cannot find the template " + resourceName );
+        }
+        try
+        {
+            return IOUtils.toByteArray( in );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+        }
+    }
+
+    /**
+     * Load the template document for the given template engine without caching it in the registry and populate its
+     * fields metadata.
+     * 
+     * @param templateEngineKind
+     * @return
+     * @throws IOException
+     * @throws XDocReportException
+     */
+    public IXDocReport loadReport( TemplateEngineKind templateEngineKind )
+        throws IOException, XDocReportException
+    {
+        IXDocReport report =
+            XDocReportRegistry.getRegistry().loadReport( new ByteArrayInputStream( load( templateEngineKind ) ),
+                                                         templateEngineKind, false );
+        populateFieldsMetadata( report.createFieldsMetadata(), templateEngineKind );
+        return report;
+    }
+
+    /**
+     * Merge the template with Freemarker and returns the generated document.
+     * 
+     * @param rows number of developers for the templates which loop over the developers.
+     * @return
+     * @throws IOException
+     * @throws XDocReportException
+     */
+    public byte[] merge( int rows )
+        throws IOException, XDocReportException
+    {
+        IXDocReport report = loadReport( TemplateEngineKind.Freemarker );
+        IContext context = report.createContext();
+        context.putMap( createModel( rows ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( context, out );
+        return out.toByteArray();
+    }
+
+    /**
+     * Populate the fields metadata required by the template for the given template engine.
+     * 
+     * @param metadata
+     * @param templateEngineKind
+     */
+    public void populateFieldsMetadata( FieldsMetadata metadata, TemplateEngineKind templateEngineKind )
+    {
+        switch ( this )
+        {
+            case DocxTable:
+            case DocxImages:
+                if ( TemplateEngineKind.Velocity.equals( templateEngineKind ) )
+                {
+                    metadata.addFieldAsList( "developers.Name" );
+                    metadata.addFieldAsList( "developers.LastName" );
+                    metadata.addFieldAsList( "developers.Mail" );
+                }
+                else
+                {
+                    metadata.addFieldAsList( "developers.name" );
+                    metadata.addFieldAsList( "developers.lastName" );
+                    metadata.addFieldAsList( "developers.mail" );
+                }
+                if ( this == DocxImages )
+                {
+                    metadata.addFieldAsList( "developers.photo" );
+                    metadata.addFieldAsImage( "photo", "developers.photo" );
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Create the Java model to merge with the template.
+     * 
+     * @param rows number of developers for the templates which loop over the developers.
+     * @return
+     * @throws IOException
+     */
+    public Map<String, Object> createModel( int rows )
+        throws IOException
+    {
+        Map<String, Object> model = new HashMap<String, Object>();
+        switch ( this )
+        {
+            case DocxLetter:
+            case OdtLetter:
+                model.put( "name", "world" );
+                break;
+            case PptxSlide:
+                model.put( "project", new Project( "XDocReport" ) );
+                break;
+            case DocxTable:
+            case DocxImages:
+                model.put( "project", new Project( "XDocReport" ) );
+                // the photo of the developers is the image of the template itself.
+                byte[] photo = this == DocxImages ? loadPhoto() : null;
+                List<Developer> developers = new ArrayList<Developer>( rows );
+                for ( int i = 0; i < rows; i++ )
+                {
+                    IImageProvider photoProvider = photo != null ? new ByteArrayImageProvider( photo ) : null;
+                    developers.add( new Developer( "Name" + i, "LastName" + i, "developer" + i + "@xdocreport.org",
+                                                   photoProvider ) );
+                }
+                model.put( "developers", developers );
+                break;
+        }
+        return model;
+    }
+
+    private byte[] loadPhoto()
+        throws IOException
+    {
+        XDocArchive archive = XDocArchive.readZip( new ByteArrayInputStream( load( TemplateEngineKind.Freemarker ) ) );
+        InputStream in = archive.getEntryInputStream( PHOTO_ENTRY_NAME );
+        try
+        {
+            return IOUtils.toByteArray( in );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+        }
+    }
+}
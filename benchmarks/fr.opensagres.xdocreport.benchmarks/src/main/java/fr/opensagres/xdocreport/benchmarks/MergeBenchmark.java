@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.document.IXDocReport;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.TemplateEngineKind;
+
+/**
+ * Benchmark of the merge phase ({@link IXDocReport#process(IContext, java.io.OutputStream)}) of a template already
+ * loaded and preprocessed with Freemarker and Velocity.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MergeBenchmark
+{
+
+    @Param( { "DocxLetter", "DocxTable", "DocxImages", "OdtLetter", "PptxSlide" } )
+    public BenchmarkTemplate template;
+
+    @Param( { "Freemarker", "Velocity" } )
+    public TemplateEngineKind templateEngineKind;
+
+    /**
+     * Number of rows of the table templates.
+     */
+    @Param( { "10000" } )
+    public int rows;
+
+    private IXDocReport report;
+
+    private Map<String, Object> model;
+
+    private int documentLength;
+
+    @Setup
+    public void setup()
+        throws IOException, XDocReportException
+    {
+        documentLength = template.load( templateEngineKind ).length;
+        report = template.loadReport( templateEngineKind );
+        model = template.createModel( rows );
+        // preprocess the template and compile the template engine templates before the measurement.
+        merge();
+    }
+
+    @Benchmark
+    public int merge()
+        throws IOException, XDocReportException
+    {
+        IContext context = report.createContext();
+        context.putMap( model );
+        ByteArrayOutputStream out = new ByteArrayOutputStream( documentLength );
+        report.process( context, out );
+        return out.size();
+    }
+}
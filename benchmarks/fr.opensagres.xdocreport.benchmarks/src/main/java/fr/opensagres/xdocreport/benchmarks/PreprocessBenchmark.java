@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.docx.preprocessor.sax.DocxPreprocessor;
+import fr.opensagres.xdocreport.document.odt.preprocessor.ODTPreprocessor;
+import fr.opensagres.xdocreport.document.preprocessor.sax.SAXXDocPreprocessor;
+import fr.opensagres.xdocreport.template.TemplateEngineKind;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+import fr.opensagres.xdocreport.template.freemarker.FreemarkerDocumentFormatter;
+import fr.opensagres.xdocreport.template.velocity.VelocityDocumentFormatter;
+
+/**
+ * Benchmark of the preprocess phase of the main XML entry of a template with {@link DocxPreprocessor} and
+ * {@link ODTPreprocessor}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class PreprocessBenchmark
+{
+
+    @Param( { "DocxLetter", "DocxTable", "DocxImages", "OdtLetter" } )
+    public BenchmarkTemplate template;
+
+    @Param( { "Freemarker", "Velocity" } )
+    public TemplateEngineKind templateEngineKind;
+
+    private byte[] entry;
+
+    private SAXXDocPreprocessor preprocessor;
+
+    private FieldsMetadata metadata;
+
+    private IDocumentFormatter formatter;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        XDocArchive archive =
+            XDocArchive.readZip( new ByteArrayInputStream( template.load( templateEngineKind ) ) );
+        InputStream in = archive.getEntryInputStream( template.getMainEntryName() );
+        try
+        {
+            entry = IOUtils.toByteArray( in );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+        }
+        preprocessor = template == BenchmarkTemplate.OdtLetter ? new ODTPreprocessor() : new DocxPreprocessor();
+        metadata = new FieldsMetadata( templateEngineKind );
+        template.populateFieldsMetadata( metadata, templateEngineKind );
+        formatter =
+            TemplateEngineKind.Velocity.equals( templateEngineKind ) ? new VelocityDocumentFormatter()
+                            : new FreemarkerDocumentFormatter();
+    }
+
+    @Benchmark
+    public String preprocess()
+        throws XDocReportException, IOException
+    {
+        StringWriter writer = new StringWriter( entry.length );
+        preprocessor.preprocess( template.getMainEntryName(), new ByteArrayInputStream( entry ), writer, metadata,
+                                 formatter, new HashMap<String, Object>() );
+        return writer.toString();
+    }
+}
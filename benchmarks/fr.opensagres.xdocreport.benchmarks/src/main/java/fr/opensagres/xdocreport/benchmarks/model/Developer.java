@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.benchmarks.model;
+
+import fr.opensagres.xdocreport.document.images.IImageProvider;
+
+public class Developer
+{
+
+    private final String name;
+
+    private final String lastName;
+
+    private final String mail;
+
+    private final IImageProvider photo;
+
+    public Developer( String name, String lastName, String mail, IImageProvider photo )
+    {
+        this.name = name;
+        this.lastName = lastName;
+        this.mail = mail;
+        this.photo = photo;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getLastName()
+    {
+        return lastName;
+    }
+
+    public String getMail()
+    {
+        return mail;
+    }
+
+    public IImageProvider getPhoto()
+    {
+        return photo;
+    }
+}
@@ -0,0 +1,425 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded {@link ICacheStorage} implementation which evicts entries :
+ * <ul>
+ * <li>when the number of entries exceeds the max entries (least recently used entry is evicted first).</li>
+ * <li>when the total weight of the entries (computed with {@link ICacheWeigher}) exceeds the max weight (least
+ * recently used entry is evicted first).</li>
+ * <li>when an entry was not accessed since the idle timeout. Expired entries are evicted when the cache is accessed or
+ * when {@link #cleanUp()} is called.</li>
+ * </ul>
+ * A value of 0 (or negative) for max entries, max weight or idle timeout means "no limit". Evicted entries are notified
+ * to the registered {@link ICacheEvictionListener}. An entry which is put in the cache is never evicted by this put :
+ * when its weight exceeds the max weight, it is not cached.
+ * <p>
+ * {@link #get(Object)} doesn't lock the cache (the entries are stored in a {@link ConcurrentHashMap} and the access
+ * order is tracked per entry). Modifications are serialized and a put which exceeds the bounds of the cache sorts the
+ * entries by access order to evict the least recently used ones.
+ * </p>
+ * 
+ * @param <K>
+ * @param <V>
+ */
+public class BoundedCacheStorage<K, V>
+    implements ICacheStorage<K, V>
+{
+
+    private final long maxEntries;
+
+    private final long maxWeight;
+
+    private final long expireAfterAccess;
+
+    private final Map<K, CacheEntry<V>> map = new ConcurrentHashMap<K, CacheEntry<V>>();
+
+    // incremented at each access : the entry with the lowest access order is the least recently used.
+    private final AtomicLong accessCounter = new AtomicLong();
+
+    private final List<ICacheEvictionListener<K, V>> listeners =
+        new CopyOnWriteArrayList<ICacheEvictionListener<K, V>>();
+
+    private volatile ICacheWeigher<? super V> weigher;
+
+    private long totalWeight;
+
+    /**
+     * Create bounded cache.
+     * 
+     * @param maxEntries max number of entries, 0 for no limit.
+     * @param maxWeight max total weight of the entries, 0 for no limit.
+     * @param expireAfterAccess idle timeout in milliseconds, 0 for no limit.
+     */
+    public BoundedCacheStorage( long maxEntries, long maxWeight, long expireAfterAccess )
+    {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.expireAfterAccess = expireAfterAccess;
+    }
+
+    public long getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    public long getExpireAfterAccess()
+    {
+        return expireAfterAccess;
+    }
+
+    /**
+     * Set the weigher used to compute the weight of the values. If no weigher is set, each value weighs 1. The weight
+     * of a value is computed when it is put in the cache.
+     * 
+     * @param weigher
+     */
+    public void setWeigher( ICacheWeigher<? super V> weigher )
+    {
+        this.weigher = weigher;
+    }
+
+    public void addEvictionListener( ICacheEvictionListener<K, V> listener )
+    {
+        listeners.add( listener );
+    }
+
+    public void removeEvictionListener( ICacheEvictionListener<K, V> listener )
+    {
+        listeners.remove( listener );
+    }
+
+    /**
+     * Returns the total weight of the cached entries.
+     * 
+     * @return
+     */
+    public synchronized long getTotalWeight()
+    {
+        return totalWeight;
+    }
+
+    public int size()
+    {
+        return map.size();
+    }
+
+    public V get( K key )
+    {
+        if ( key == null )
+        {
+            return null;
+        }
+        CacheEntry<V> entry = map.get( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+        long now = currentTimeMillis();
+        if ( isExpired( entry, now ) )
+        {
+            List<EvictedEntry<K, V>> evicted = null;
+            synchronized ( this )
+            {
+                // the entry may have been replaced or removed by another thread
+                if ( map.get( key ) == entry )
+                {
+                    map.remove( key );
+                    totalWeight -= entry.weight;
+                    evicted = new ArrayList<EvictedEntry<K, V>>( 1 );
+                    evicted.add( new EvictedEntry<K, V>( key, entry ) );
+                }
+            }
+            notifyEvicted( evicted );
+            return null;
+        }
+        entry.lastAccess = now;
+        entry.accessOrder = accessCounter.incrementAndGet();
+        return entry.value;
+    }
+
+    public void put( K key, V value )
+    {
+        if ( key == null )
+        {
+            return;
+        }
+        if ( value == null )
+        {
+            remove( key );
+            return;
+        }
+        long weight = weigh( value );
+        List<EvictedEntry<K, V>> evicted = null;
+        synchronized ( this )
+        {
+            if ( maxWeight > 0 && weight > maxWeight )
+            {
+                // the value cannot be cached without evicting itself : don't cache it and remove the previous value.
+                CacheEntry<V> old = map.remove( key );
+                if ( old != null )
+                {
+                    totalWeight -= old.weight;
+                }
+                return;
+            }
+            long now = currentTimeMillis();
+            CacheEntry<V> entry = new CacheEntry<V>( value, weight, now, accessCounter.incrementAndGet() );
+            CacheEntry<V> old = map.put( key, entry );
+            if ( old != null )
+            {
+                totalWeight -= old.weight;
+            }
+            totalWeight += entry.weight;
+            evicted = evict( now, key );
+        }
+        notifyEvicted( evicted );
+    }
+
+    public synchronized void remove( K key )
+    {
+        if ( key == null )
+        {
+            return;
+        }
+        CacheEntry<V> entry = map.remove( key );
+        if ( entry != null )
+        {
+            totalWeight -= entry.weight;
+        }
+    }
+
+    public synchronized void clear()
+    {
+        map.clear();
+        totalWeight = 0;
+    }
+
+    public boolean containsKey( K key )
+    {
+        // use get to evict the entry if it is expired (and update the access time like a lookup).
+        return get( key ) != null;
+    }
+
+    /**
+     * Returns a snapshot of the values which are not expired.
+     */
+    public Collection<V> values()
+    {
+        List<V> values = null;
+        List<EvictedEntry<K, V>> evicted = null;
+        synchronized ( this )
+        {
+            evicted = evict( currentTimeMillis(), null );
+            values = new ArrayList<V>( map.size() );
+            for ( CacheEntry<V> entry : map.values() )
+            {
+                values.add( entry.value );
+            }
+        }
+        notifyEvicted( evicted );
+        return Collections.unmodifiableList( values );
+    }
+
+    /**
+     * Evict the expired entries.
+     */
+    public void cleanUp()
+    {
+        List<EvictedEntry<K, V>> evicted = null;
+        synchronized ( this )
+        {
+            evicted = evict( currentTimeMillis(), null );
+        }
+        notifyEvicted( evicted );
+    }
+
+    /**
+     * Returns the current time in milliseconds used to compute the idle time of the entries.
+     * 
+     * @return
+     */
+    protected long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+    private long weigh( V value )
+    {
+        ICacheWeigher<? super V> weigher = this.weigher;
+        if ( weigher == null )
+        {
+            return 1;
+        }
+        long weight = weigher.weigh( value );
+        return weight < 0 ? 0 : weight;
+    }
+
+    private boolean isExpired( CacheEntry<V> entry, long now )
+    {
+        return expireAfterAccess > 0 && now - entry.lastAccess >= expireAfterAccess;
+    }
+
+    /**
+     * Remove the expired entries and the least recently used entries while the cache exceeds its bounds. Must be
+     * called when the lock of the cache is owned.
+     * 
+     * @param now
+     * @param putKey the key of the entry which is put in the cache (never evicted), or null.
+     * @return the evicted entries or null if none entry was evicted.
+     */
+    private List<EvictedEntry<K, V>> evict( long now, K putKey )
+    {
+        List<EvictedEntry<K, V>> evicted = null;
+        if ( expireAfterAccess > 0 )
+        {
+            Iterator<Map.Entry<K, CacheEntry<V>>> it = map.entrySet().iterator();
+            while ( it.hasNext() )
+            {
+                Map.Entry<K, CacheEntry<V>> entry = it.next();
+                if ( isExpired( entry.getValue(), now ) && !entry.getKey().equals( putKey ) )
+                {
+                    it.remove();
+                    totalWeight -= entry.getValue().weight;
+                    if ( evicted == null )
+                    {
+                        evicted = new ArrayList<EvictedEntry<K, V>>();
+                    }
+                    evicted.add( new EvictedEntry<K, V>( entry.getKey(), entry.getValue() ) );
+                }
+            }
+        }
+        if ( !isOverflow() )
+        {
+            return evicted;
+        }
+        // sort the entries from the least recently used (the access order is copied because it is updated by get
+        // without lock).
+        List<EvictedEntry<K, V>> entries = new ArrayList<EvictedEntry<K, V>>( map.size() );
+        for ( Map.Entry<K, CacheEntry<V>> entry : map.entrySet() )
+        {
+            if ( !entry.getKey().equals( putKey ) )
+            {
+                entries.add( new EvictedEntry<K, V>( entry.getKey(), entry.getValue() ) );
+            }
+        }
+        Collections.sort( entries );
+        for ( EvictedEntry<K, V> entry : entries )
+        {
+            if ( !isOverflow() )
+            {
+                break;
+            }
+            map.remove( entry.key );
+            totalWeight -= entry.entry.weight;
+            if ( evicted == null )
+            {
+                evicted = new ArrayList<EvictedEntry<K, V>>();
+            }
+            evicted.add( entry );
+        }
+        return evicted;
+    }
+
+    private boolean isOverflow()
+    {
+        return ( maxEntries > 0 && map.size() > maxEntries ) || ( maxWeight > 0 && totalWeight > maxWeight );
+    }
+
+    private void notifyEvicted( List<EvictedEntry<K, V>> evicted )
+    {
+        if ( evicted == null || listeners.isEmpty() )
+        {
+            return;
+        }
+        for ( EvictedEntry<K, V> entry : evicted )
+        {
+            for ( ICacheEvictionListener<K, V> listener : listeners )
+            {
+                listener.evicted( entry.key, entry.entry.value );
+            }
+        }
+    }
+
+    private static class CacheEntry<V>
+    {
+        private final V value;
+
+        private final long weight;
+
+        private volatile long lastAccess;
+
+        private volatile long accessOrder;
+
+        public CacheEntry( V value, long weight, long lastAccess, long accessOrder )
+        {
+            this.value = value;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+            this.accessOrder = accessOrder;
+        }
+    }
+
+    /**
+     * Entry removed (or candidate to be removed) from the cache, ordered by access order.
+     */
+    private static class EvictedEntry<K, V>
+        implements Comparable<EvictedEntry<K, V>>
+    {
+        private final K key;
+
+        private final CacheEntry<V> entry;
+
+        private final long accessOrder;
+
+        public EvictedEntry( K key, CacheEntry<V> entry )
+        {
+            this.key = key;
+            this.entry = entry;
+            this.accessOrder = entry.accessOrder;
+        }
+
+        public int compareTo( EvictedEntry<K, V> other )
+        {
+            return accessOrder < other.accessOrder ? -1 : ( accessOrder == other.accessOrder ? 0 : 1 );
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.cache;
+
+/**
+ * {@link ICacheStorageFactoryDiscovery} which creates {@link BoundedCacheStorage} configured with the system
+ * properties :
+ * <ul>
+ * <li>{@link #MAX_ENTRIES_PROPERTY} : max number of cached entries.</li>
+ * <li>{@link #MAX_WEIGHT_PROPERTY} : max total weight of the cached entries (for the report cache of the
+ * XDocReportRegistry, the weight is the size in bytes of the document archive).</li>
+ * <li>{@link #EXPIRE_AFTER_ACCESS_PROPERTY} : idle timeout in milliseconds.</li>
+ * </ul>
+ * If none of those properties is set, an unbounded {@link MapCacheStorage} is created.
+ */
+public class BoundedCacheStorageFactoryDiscovery
+    implements ICacheStorageFactoryDiscovery
+{
+
+    public static final String ID = "bounded";
+
+    public static final String MAX_ENTRIES_PROPERTY = "xdocreport.cache.maxEntries";
+
+    public static final String MAX_WEIGHT_PROPERTY = "xdocreport.cache.maxWeight";
+
+    public static final String EXPIRE_AFTER_ACCESS_PROPERTY = "xdocreport.cache.expireAfterAccess";
+
+    public <K, V> ICacheStorage<K, V> createCache()
+    {
+        long maxEntries = Long.getLong( MAX_ENTRIES_PROPERTY, 0 );
+        long maxWeight = Long.getLong( MAX_WEIGHT_PROPERTY, 0 );
+        long expireAfterAccess = Long.getLong( EXPIRE_AFTER_ACCESS_PROPERTY, 0 );
+        if ( maxEntries <= 0 && maxWeight <= 0 && expireAfterAccess <= 0 )
+        {
+            return new MapCacheStorage<K, V>();
+        }
+        return new BoundedCacheStorage<K, V>( maxEntries, maxWeight, expireAfterAccess );
+    }
+
+    public String getId()
+    {
+        return ID;
+    }
+
+    public String getDescription()
+    {
+        return "Bounded cache storage with max entries, max weight and idle timeout.";
+    }
+}
@@ -35,6 +35,8 @@ public class CacheStorageRegistry
 
     private static final CacheStorageRegistry INSTANCE = new CacheStorageRegistry();
 
+    private ICacheStorageFactoryDiscovery cacheStorageFactory;
+
     public CacheStorageRegistry()
     {
         super( ICacheStorageFactoryDiscovery.class );
@@ -48,16 +50,34 @@ public class CacheStorageRegistry
 
     protected boolean registerInstance( ICacheStorageFactoryDiscovery instance )
     {
-        return false;
+        if ( cacheStorageFactory != null )
+        {
+            // the first discovered factory is used.
+            return false;
+        }
+        cacheStorageFactory = instance;
+        return true;
     }
 
     protected void doDispose()
     {
-
+        cacheStorageFactory = null;
     }
 
+    /**
+     * Create a cache storage with the discovered {@link ICacheStorageFactoryDiscovery} or an unbounded
+     * {@link MapCacheStorage} if none factory was discovered.
+     * 
+     * @return
+     */
     public <K, V> ICacheStorage<K, V> createCache()
     {
+        initializeIfNeeded();
+        ICacheStorage<K, V> cache = cacheStorageFactory != null ? cacheStorageFactory.<K, V> createCache() : null;
+        if ( cache != null )
+        {
+            return cache;
+        }
         return new MapCacheStorage<K, V>();
     }
 }
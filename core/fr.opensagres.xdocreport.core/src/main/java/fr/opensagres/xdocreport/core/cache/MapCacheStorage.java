@@ -49,11 +49,12 @@ package fr.opensagres.xdocreport.core.cache;
  * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * {@link ICacheStorage} implementation with {@link Map};
+ * {@link ICacheStorage} implementation with {@link Map}. The map is a {@link ConcurrentHashMap}, so the cache can be
+ * read by several threads without locking. A null key is ignored and a null value removes the entry.
  * 
  * @param <K>
  * @param <V>
@@ -62,20 +63,38 @@ public class MapCacheStorage<K, V>
     implements ICacheStorage<K, V>
 {
 
-    private Map<K, V> map = new HashMap<K, V>();
+    private Map<K, V> map = new ConcurrentHashMap<K, V>();
 
     public V get( K key )
     {
+        if ( key == null )
+        {
+            return null;
+        }
         return map.get( key );
     }
 
     public void put( K key, V value )
     {
+        if ( key == null )
+        {
+            return;
+        }
+        if ( value == null )
+        {
+            // ConcurrentHashMap doesn't accept null value : a null value removes the entry.
+            map.remove( key );
+            return;
+        }
         map.put( key, value );
     }
 
     public void remove( K key )
     {
+        if ( key == null )
+        {
+            return;
+        }
         map.remove( key );
     }
 
@@ -86,6 +105,10 @@ public class MapCacheStorage<K, V>
 
     public boolean containsKey( K key )
     {
+        if ( key == null )
+        {
+            return false;
+        }
         return map.containsKey( key );
     }
 
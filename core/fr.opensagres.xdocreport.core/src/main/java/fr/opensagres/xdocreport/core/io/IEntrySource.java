@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Content of an entry which is not buffered in the {@link XDocArchive} but read from its source (file, URL, byte
+ * array...) each time it's needed. The content is read twice when the archive is zipped (to compute the CRC of the
+ * stored entry and then to write it) unless the source knows its CRC (see {@link #getCrc()}), so a source must be able
+ * to return the same content several times.
+ * 
+ * @see IEntrySourceRegistry
+ */
+public interface IEntrySource
+{
+
+    /**
+     * Returns the length (in bytes) of the content of the entry and -1 if it's unknown.
+     * 
+     * @return
+     */
+    long getLength();
+
+    /**
+     * Returns the CRC-32 of the content of the entry and -1 if it's unknown. When the CRC and the length are known, the
+     * content is read only once when the archive is zipped. The default implementation returns -1.
+     * 
+     * @return
+     * @throws IOException
+     */
+    default long getCrc()
+        throws IOException
+    {
+        return -1;
+    }
+
+    /**
+     * Returns a new {@link InputStream} of the content of the entry.
+     * 
+     * @return
+     * @throws IOException
+     */
+    InputStream getInputStream()
+        throws IOException;
+
+    /**
+     * Write the content of the entry in the given output stream. The output stream must not be closed.
+     * 
+     * @param outputStream
+     * @throws IOException
+     */
+    void write( OutputStream outputStream )
+        throws IOException;
+}
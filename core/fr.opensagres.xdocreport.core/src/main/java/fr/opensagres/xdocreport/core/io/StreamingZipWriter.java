@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.zip.ZipEntry;
+
+import fr.opensagres.xdocreport.core.EncodingConstants;
+import fr.opensagres.xdocreport.core.io.internal.OutputStreamWriterCancelable;
+import fr.opensagres.xdocreport.core.io.internal.RawZipOutputStream;
+
+/**
+ * Writes a {@link XDocArchive} as zip in an output stream by streaming some entries : the {@link Writer} (or
+ * {@link OutputStream}) returned by {@link #getEntryWriter(String)} writes directly in the deflater of the zip entry
+ * instead of buffering the whole content of the entry in the {@link XDocArchive}. It is used to merge an XML entry with
+ * a template engine without keeping the (potentially huge) result of the merge in memory.
+ * <p>
+ * Entries are written in this order :
+ * <ol>
+ * <li>the 'mimetype' entry (ODT spec requires 'mimetype' to be the first entry).</li>
+ * <li>the streamed entries, in the order where {@link #getEntryWriter(String)} is called. Only one streamed entry can be
+ * written at a time.</li>
+ * <li>the other entries of the archive, when {@link #close()} is called (unmodified entries are copied with their
+ * original compressed payload).</li>
+ * </ol>
+ * </p>
+ */
+public class StreamingZipWriter
+    implements IEntryWriterProvider, IEntryOutputStreamProvider
+{
+
+    private final XDocArchive archive;
+
+    private final RawZipOutputStream zipOutputStream;
+
+    public StreamingZipWriter( XDocArchive archive, OutputStream outputStream )
+        throws IOException
+    {
+        this.archive = archive;
+        this.zipOutputStream = new RawZipOutputStream( outputStream );
+        // ODT spec requires 'mimetype' to be the first entry
+        XDocArchive.writeZipEntry( zipOutputStream, archive, XDocArchive.MIMETYPE_ENTRY_NAME, ZipEntry.STORED );
+    }
+
+    /**
+     * Returns an {@link OutputStream} which writes the given entry directly in the zip. The entry is completed when the
+     * stream is closed.
+     * 
+     * @param entryName
+     * @return an {@link OutputStream}
+     */
+    public OutputStream getEntryOutputStream( String entryName )
+    {
+        try
+        {
+            return zipOutputStream.openDeflatedEntry( entryName );
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * Returns a {@link Writer} (UTF-8) which writes the given entry directly in the zip. The entry is completed when
+     * the writer is closed.
+     * 
+     * @param entryName
+     * @return a {@link Writer}
+     */
+    public Writer getEntryWriter( String entryName )
+    {
+        return new OutputStreamWriterCancelable( getEntryOutputStream( entryName ), EncodingConstants.UTF_8 );
+    }
+
+    /**
+     * Returns true if the given entry was already written in the zip.
+     * 
+     * @param entryName
+     * @return
+     */
+    public boolean isWritten( String entryName )
+    {
+        return zipOutputStream.hasEntry( entryName );
+    }
+
+    /**
+     * Write the entries of the archive which were not streamed and close the zip.
+     * 
+     * @throws IOException
+     */
+    public void close()
+        throws IOException
+    {
+        for ( String entryName : archive.getEntryNames() )
+        {
+            if ( !zipOutputStream.hasEntry( entryName ) )
+            {
+                XDocArchive.writeZipEntry( zipOutputStream, archive, entryName, ZipEntry.DEFLATED );
+            }
+        }
+        zipOutputStream.close();
+    }
+}
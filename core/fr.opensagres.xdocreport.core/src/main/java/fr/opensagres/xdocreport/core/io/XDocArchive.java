@@ -32,19 +32,27 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 import fr.opensagres.xdocreport.core.EncodingConstants;
 import fr.opensagres.xdocreport.core.io.internal.OutputStream2InputStream;
 import fr.opensagres.xdocreport.core.io.internal.OutputStreamWriterCancelable;
+import fr.opensagres.xdocreport.core.io.internal.RawZipEntry;
+import fr.opensagres.xdocreport.core.io.internal.RawZipOutputStream;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
 
 /**
@@ -52,25 +60,49 @@ import fr.opensagres.xdocreport.core.utils.StringUtils;
  * zip to transform content stream with {@link IXDocPreprocessor} and {@link ITemplateEngine}.
  */
 public class XDocArchive
-    implements IEntryInputStreamProvider, IEntryReaderProvider, IEntryWriterProvider, IEntryOutputStreamProvider
+    implements IEntryInputStreamProvider, IEntryReaderProvider, IEntryWriterProvider, IEntryOutputStreamProvider,
+    IEntrySourceRegistry
 {
 
-    private static final String MIMETYPE_ENTRY_NAME = "mimetype";
+    static final String MIMETYPE_ENTRY_NAME = "mimetype";
 
     /**
      * Cache entries of the original XML document (odt, docx....). This Map contains a key as entry name (ex : for docx
-     * word/document.xml) and the content of the XML file as array bytes.
+     * word/document.xml) and the content of the XML file as array bytes. Those arrays must be considered as read-only,
+     * because they can be shared between an archive and its copies (see {@link #createCopy()}).
      */
     private Map<String, byte[]> cacheEntries = new LinkedHashMap<String, byte[]>();
 
     /**
-     * Cache entries info.
+     * Cache entries info (the archive can be read by several threads, for instance by template engines which checks
+     * the last modified of the preprocessed entries).
      */
-    private Map<String, IEntryInfo> cacheEntriesInfo = new LinkedHashMap<String, IEntryInfo>();
+    private Map<String, IEntryInfo> cacheEntriesInfo = new ConcurrentHashMap<String, IEntryInfo>();
+
+    /**
+     * Compressed payload of the entries as they were read from the original zip (see {@link #readZip(InputStream)}).
+     * When an entry is not modified, its payload is copied as is by {@link #writeZip(XDocArchive, OutputStream)}
+     * instead of deflating it again. The raw entry is removed as soon as the entry is modified. Each raw entry keeps
+     * only its own payload (the content of the entry itself for a stored entry), not the whole original zip.
+     */
+    private Map<String, RawZipEntry> rawEntries = null;
+
+    /**
+     * Entries whose content is not copied in the cache entries but streamed from their source when the archive is
+     * written (see {@link #setEntrySource(String, IEntrySource)}). Those entries are registered in the cache entries
+     * with a null content to keep the order of the entries.
+     */
+    private Map<String, IEntrySource> sourceEntries = null;
 
     private Map<String, Long> lastModifiedEntries;
 
-    private Map<String, Set<String>> cacheEntriesWilcard = null;
+    /**
+     * SHA-1 digests of the content of the entries, computed lazily by {@link #getEntryDigest(String)} and removed as
+     * soon as the entry is modified.
+     */
+    private Map<String, String> entryDigests = null;
+
+    private volatile Map<String, Set<String>> cacheEntriesWilcard = null;
 
     public XDocArchive()
     {
@@ -90,20 +122,23 @@ public class XDocArchive
     }
 
     /**
-     * Returns the entry names of the XML document archive by using cache entries.
+     * Returns the entry names of the XML document archive by using cache entries. The returned set is a snapshot of the
+     * entry names (entries can be written by several threads when entries are merged in parallel).
      * 
      * @return
      */
-    public Set<String> getEntryNames()
+    public synchronized Set<String> getEntryNames()
     {
-        return cacheEntries.keySet();
+        return Collections.unmodifiableSet( new LinkedHashSet<String>( cacheEntries.keySet() ) );
     }
 
     public Set<String> getEntryNames( final String wildcard )
     {
+        Map<String, Set<String>> cacheEntriesWilcard = this.cacheEntriesWilcard;
         if ( cacheEntriesWilcard == null )
         {
-            cacheEntriesWilcard = new HashMap<String, Set<String>>();
+            cacheEntriesWilcard = new ConcurrentHashMap<String, Set<String>>();
+            this.cacheEntriesWilcard = cacheEntriesWilcard;
         }
 
         Set<String> entryNamesWithWildcard = cacheEntriesWilcard.get( wildcard );
@@ -173,11 +208,29 @@ public class XDocArchive
      */
     public InputStream getEntryInputStream( String entryName )
     {
-        if ( !cacheEntries.containsKey( entryName ) )
+        byte[] content;
+        IEntrySource source;
+        synchronized ( this )
+        {
+            content = cacheEntries.get( entryName );
+            source = content == null ? getEntrySource( entryName ) : null;
+        }
+        if ( source != null )
+        {
+            try
+            {
+                return source.getInputStream();
+            }
+            catch ( IOException e )
+            {
+                throw new RuntimeException( e );
+            }
+        }
+        if ( content == null )
         {
             return null;
         }
-        return new ByteArrayInputStream( (byte[]) cacheEntries.get( entryName ) );
+        return new ByteArrayInputStream( content );
     }
 
     /**
@@ -207,6 +260,123 @@ public class XDocArchive
         return new EntryByteArrayOutputStream( entryName );
     }
 
+    /**
+     * Register the given source as content of the given entry. The content is not copied in the cache entries : it's
+     * read from the source when the entry is read and it's streamed as a stored (not compressed) entry when the archive
+     * is zipped. It's used for the entries which are big and already compressed (like images) to avoid copying them in
+     * memory and deflating them again.
+     * 
+     * @param entryName
+     * @param source
+     */
+    public synchronized void setEntrySource( String entryName, IEntrySource source )
+    {
+        if ( sourceEntries == null )
+        {
+            sourceEntries = new HashMap<String, IEntrySource>();
+        }
+        sourceEntries.put( entryName, source );
+        cacheEntries.put( entryName, null );
+        if ( entryDigests != null )
+        {
+            entryDigests.remove( entryName );
+        }
+        if ( rawEntries != null )
+        {
+            rawEntries.remove( entryName );
+        }
+        if ( isTrackLastModified() )
+        {
+            lastModifiedEntries.put( entryName, System.currentTimeMillis() );
+        }
+        cacheEntriesWilcard = null;
+    }
+
+    /**
+     * Returns the SHA-1 digest (as hexadecimal string) of the content of the given entry and null if the entry doesn't
+     * exist. The digest is computed once and kept until the entry is modified, so it can be used to know cheaply if an
+     * entry changed between two versions of a document archive.
+     * 
+     * @param entryName
+     * @return
+     * @throws IOException
+     */
+    public String getEntryDigest( String entryName )
+        throws IOException
+    {
+        byte[] content;
+        IEntrySource source;
+        synchronized ( this )
+        {
+            String digest = entryDigests != null ? entryDigests.get( entryName ) : null;
+            if ( digest != null )
+            {
+                return digest;
+            }
+            content = cacheEntries.get( entryName );
+            source = content == null ? getEntrySource( entryName ) : null;
+        }
+        if ( content == null && source == null )
+        {
+            return null;
+        }
+        MessageDigest messageDigest;
+        try
+        {
+            messageDigest = MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IOException( e );
+        }
+        if ( content != null )
+        {
+            messageDigest.update( content );
+        }
+        else
+        {
+            source.write( new DigestOutputStream( new SizeOutputStream(), messageDigest ) );
+        }
+        String digest = toHex( messageDigest.digest() );
+        synchronized ( this )
+        {
+            // don't keep the digest if the entry was modified while it was computed.
+            if ( cacheEntries.get( entryName ) == content
+                && ( content != null || getEntrySource( entryName ) == source ) )
+            {
+                if ( entryDigests == null )
+                {
+                    entryDigests = new HashMap<String, String>();
+                }
+                entryDigests.put( entryName, digest );
+            }
+        }
+        return digest;
+    }
+
+    private static String toHex( byte[] bytes )
+    {
+        StringBuilder hex = new StringBuilder( bytes.length * 2 );
+        for ( byte b : bytes )
+        {
+            hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) );
+            hex.append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Returns the source of the given entry if its content is streamed from an {@link IEntrySource} and null
+     * otherwise.
+     * 
+     * @param entryName
+     * @return
+     */
+    private IEntrySource getEntrySource( String entryName )
+    {
+        return sourceEntries != null ? sourceEntries.get( entryName ) : null;
+    }
+
     /**
      * Returns an {@link Writer} from the cache entries for writing the content of the given entry.
      * 
@@ -219,23 +389,34 @@ public class XDocArchive
     }
 
     /**
-     * Create a copy of the {@link XDocArchive}.
+     * Create a copy-on-write copy of the {@link XDocArchive}. The content of each entry is never modified in place (an
+     * entry is always replaced by a new array when the stream returned by {@link #getEntryOutputStream(String)} is
+     * closed), so the copy shares the byte arrays of this archive and only entries which are written in the copy get
+     * their own buffer.
      * 
      * @return
      */
-    public XDocArchive createCopy()
+    public synchronized XDocArchive createCopy()
     {
         // Create new instance of XDocArchive
-        XDocArchive archiveCopy = new XDocArchive();
-        // Loop for cache entries
-        for ( Map.Entry<String, byte[]> entry : cacheEntries.entrySet() )
+        XDocArchive archiveCopy = new XDocArchive( isTrackLastModified() );
+        // Share the (read-only) content of the cache entries
+        archiveCopy.cacheEntries.putAll( cacheEntries );
+        if ( isTrackLastModified() )
+        {
+            archiveCopy.lastModifiedEntries.putAll( lastModifiedEntries );
+        }
+        if ( rawEntries != null )
         {
-            String name = entry.getKey();
-            byte[] entryData = entry.getValue();
-            byte[] entryDataCopy = new byte[entryData.length];
-            System.arraycopy( entryData, 0, entryDataCopy, 0, entryData.length );
-            // modify the cache entries in the new XDocArchive
-            archiveCopy.cacheEntries.put( name, entryDataCopy );
+            archiveCopy.rawEntries = new HashMap<String, RawZipEntry>( rawEntries );
+        }
+        if ( sourceEntries != null )
+        {
+            archiveCopy.sourceEntries = new HashMap<String, IEntrySource>( sourceEntries );
+        }
+        if ( entryDigests != null )
+        {
+            archiveCopy.entryDigests = new HashMap<String, String>( entryDigests );
         }
         return archiveCopy;
     }
@@ -246,7 +427,7 @@ public class XDocArchive
      * @param entryName
      * @return
      */
-    public boolean hasEntry( String entryName )
+    public synchronized boolean hasEntry( String entryName )
     {
         return cacheEntries.containsKey( entryName );
     }
@@ -291,10 +472,12 @@ public class XDocArchive
         // 1) Create instance of XDocArchive which cache each entry of the Zip.
         XDocArchive archive = null;
         ZipInputStream zipInputStream = null;
+        // Keep the zipped content to reuse the compressed payload of the entries which will be not modified.
+        byte[] zip = IOUtils.toByteArray( sourceStream );
         try
         {
             // 2) Load Zip
-            zipInputStream = new ZipInputStream( sourceStream );
+            zipInputStream = new ZipInputStream( new ByteArrayInputStream( zip ) );
             // 3) Loop for each entry of the zip and add to the XDocArchive to
             // cache
             // it.
@@ -324,9 +507,49 @@ public class XDocArchive
         {
             throw new IOException( "InputStream is not a zip." );
         }
+        // 7) Retain the compressed payload of each entry
+        archive.setRawEntries( RawZipEntry.readEntries( zip ) );
         return archive;
     }
 
+    private void setRawEntries( Map<String, RawZipEntry> entries )
+    {
+        if ( entries == null )
+        {
+            return;
+        }
+        rawEntries = new HashMap<String, RawZipEntry>();
+        for ( Map.Entry<String, RawZipEntry> entry : entries.entrySet() )
+        {
+            String entryName = entry.getKey();
+            if ( entryName.indexOf( "\\" ) != -1 )
+            {
+                entryName = StringUtils.replaceAll( entryName, "\\", "/" );
+            }
+            byte[] content = cacheEntries.get( entryName );
+            RawZipEntry rawEntry = entry.getValue();
+            if ( content != null && content.length == rawEntry.getSize() )
+            {
+                // keep only the payload of the entry and not the whole zip : the payload of a stored entry is the
+                // content of the entry, the payload of a deflated entry is copied.
+                byte[] payload = rawEntry.getMethod() == ZipEntry.STORED ? content : rawEntry.copyPayload();
+                rawEntries.put( entryName, rawEntry.withPayload( payload ) );
+            }
+        }
+    }
+
+    /**
+     * Returns the compressed payload of the given entry if the entry was not modified since the zip was read and null
+     * otherwise.
+     * 
+     * @param entryName
+     * @return
+     */
+    RawZipEntry getRawEntry( String entryName )
+    {
+        return rawEntries != null ? rawEntries.get( entryName ) : null;
+    }
+
     /**
      * Set the given input stream in the given entry of the document archive.
      * 
@@ -364,6 +587,12 @@ public class XDocArchive
         {
             throw new IOException( "Cannot find entry name=" + entryName + " in the document archive." );
         }
+        IEntrySource source = archive.getEntrySource( entryName );
+        if ( source != null )
+        {
+            source.write( outputStream );
+            return;
+        }
         outputStream.write( archive.cacheEntries.get( entryName ) );
     }
 
@@ -377,7 +606,24 @@ public class XDocArchive
     public static void writeZip( XDocArchive archive, OutputStream outputStream )
         throws IOException
     {
-        ZipOutputStream zipOutputStream = new ZipOutputStream( outputStream );
+        writeZip( archive, outputStream, true );
+    }
+
+    /**
+     * Write XML document archive in the given output stream.
+     * 
+     * @param archive
+     * @param outputStream
+     * @param compress true if entries must be compressed and false if entries must be stored (a stored zip is
+     *            bigger, but it avoids to deflate and then to inflate the entries when the zip is read just after in
+     *            the same JVM, for instance to convert the document).
+     * @throws IOException
+     */
+    public static void writeZip( XDocArchive archive, OutputStream outputStream, boolean compress )
+        throws IOException
+    {
+        RawZipOutputStream zipOutputStream = new RawZipOutputStream( outputStream );
+        int method = compress ? ZipEntry.DEFLATED : ZipEntry.STORED;
         Set<String> entryNames = archive.getEntryNames();
 
         // ODT spec requires 'mimetype' to be the first entry
@@ -387,14 +633,15 @@ public class XDocArchive
         {
             if ( !MIMETYPE_ENTRY_NAME.equals( entryName ) )
             {
-                writeZipEntry( zipOutputStream, archive, entryName, ZipEntry.DEFLATED );
+                writeZipEntry( zipOutputStream, archive, entryName, method );
             }
         }
         zipOutputStream.close();
     }
 
     /**
-     * Write zip entry.
+     * Write zip entry. If the entry was not modified since the zip was read, the original compressed payload is copied
+     * as is. An entry coming from an {@link IEntrySource} is always stored, whatever the given method.
      * 
      * @param zipOutputStream
      * @param archive
@@ -402,36 +649,70 @@ public class XDocArchive
      * @param method
      * @throws IOException
      */
-    private static void writeZipEntry( ZipOutputStream zipOutputStream, XDocArchive archive, String entryName,
-                                       int method )
+    static void writeZipEntry( RawZipOutputStream zipOutputStream, XDocArchive archive, String entryName, int method )
         throws IOException
     {
-        InputStream entryInputStream = archive.getEntryInputStream( entryName );
-        if ( entryInputStream == null )
+        IEntrySource source = archive.getEntrySource( entryName );
+        if ( source != null )
         {
+            writeSourceEntry( zipOutputStream, entryName, source );
             return;
         }
-        ZipEntry zipEntry = new ZipEntry( entryName );
-
-        zipEntry.setMethod( method );
+        byte[] content = archive.cacheEntries.get( entryName );
+        if ( content == null )
+        {
+            return;
+        }
+        RawZipEntry rawEntry = archive.getRawEntry( entryName );
         if ( method == ZipEntry.STORED )
         {
-            byte[] inputBytes = IOUtils.toByteArray( entryInputStream );
-            CRC32 crc = new CRC32();
-            crc.update( inputBytes );
-            zipEntry.setCrc( crc.getValue() );
-            zipEntry.setSize( inputBytes.length );
-            zipEntry.setCompressedSize( inputBytes.length );
-            zipOutputStream.putNextEntry( zipEntry );
-            IOUtils.write( inputBytes, zipOutputStream );
+            if ( rawEntry != null )
+            {
+                // entry is not modified, reuse the original CRC
+                zipOutputStream.writeStoredEntry( entryName, content, rawEntry.getCrc() );
+            }
+            else
+            {
+                zipOutputStream.writeStoredEntry( entryName, content );
+            }
+            return;
+        }
+        if ( rawEntry != null )
+        {
+            zipOutputStream.writeRawEntry( entryName, rawEntry );
         }
         else
         {
-            zipOutputStream.putNextEntry( zipEntry );
-            IOUtils.copy( entryInputStream, zipOutputStream );
+            zipOutputStream.writeDeflatedEntry( entryName, content );
         }
-        IOUtils.closeQuietly( entryInputStream );
-        zipOutputStream.closeEntry();
+    }
+
+    /**
+     * Stream the content of the given source as a stored zip entry. If the source doesn't know its CRC and its length,
+     * which must be written before the content of a stored entry, the source is read twice : once to compute them and
+     * once to write the content.
+     * 
+     * @param zipOutputStream
+     * @param entryName
+     * @param source
+     * @throws IOException
+     */
+    private static void writeSourceEntry( RawZipOutputStream zipOutputStream, String entryName, IEntrySource source )
+        throws IOException
+    {
+        long crc = source.getCrc();
+        long length = crc != -1 ? source.getLength() : -1;
+        if ( length == -1 )
+        {
+            CRC32 checksum = new CRC32();
+            SizeOutputStream size = new SizeOutputStream();
+            source.write( new CheckedOutputStream( size, checksum ) );
+            crc = checksum.getValue();
+            length = size.getSize();
+        }
+        OutputStream entryOutput = zipOutputStream.openStoredEntry( entryName, crc, length );
+        source.write( entryOutput );
+        entryOutput.close();
     }
 
     /**
@@ -443,9 +724,24 @@ public class XDocArchive
      */
     public static InputStream getInputStream( XDocArchive archive )
         throws IOException
+    {
+        return getInputStream( archive, true );
+    }
+
+    /**
+     * Returns the input stream of the given {@link XDocArchive}.
+     * 
+     * @param archive
+     * @param compress true if entries must be compressed and false if entries must be stored.
+     * @return the input stream of the given {@link XDocArchive}.
+     * @throws IOException
+     * @see #writeZip(XDocArchive, OutputStream, boolean)
+     */
+    public static InputStream getInputStream( XDocArchive archive, boolean compress )
+        throws IOException
     {
         OutputStream2InputStream outputArchiveZipped = new OutputStream2InputStream();
-        XDocArchive.writeZip( archive, outputArchiveZipped );
+        XDocArchive.writeZip( archive, outputArchiveZipped, compress );
         return outputArchiveZipped.getInputStream();
     }
 
@@ -466,13 +762,58 @@ public class XDocArchive
         public void close()
             throws IOException
         {
-            // stream is closed, modify the cache
-            cacheEntries.put( entryName, toByteArray() );
-            if ( isTrackLastModified() )
+            byte[] content = toByteArray();
+            // stream is closed, modify the cache (entries can be written by several threads when entries are merged
+            // in parallel)
+            synchronized ( XDocArchive.this )
             {
-                lastModifiedEntries.put( entryName, System.currentTimeMillis() );
+                cacheEntries.put( entryName, content );
+                if ( sourceEntries != null )
+                {
+                    sourceEntries.remove( entryName );
+                }
+                if ( entryDigests != null )
+                {
+                    entryDigests.remove( entryName );
+                }
+                if ( rawEntries != null )
+                {
+                    // entry is modified, the original compressed payload cannot be used.
+                    rawEntries.remove( entryName );
+                }
+                if ( isTrackLastModified() )
+                {
+                    lastModifiedEntries.put( entryName, System.currentTimeMillis() );
+                }
+                cacheEntriesWilcard = null;
             }
-            cacheEntriesWilcard = null;
+        }
+    }
+
+    /**
+     * An {@link OutputStream} which only counts the written bytes.
+     */
+    private static class SizeOutputStream
+        extends OutputStream
+    {
+
+        private long size;
+
+        @Override
+        public void write( int b )
+        {
+            size++;
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+            size += len;
+        }
+
+        public long getSize()
+        {
+            return size;
         }
     }
 
@@ -481,7 +822,7 @@ public class XDocArchive
         return lastModifiedEntries != null;
     }
 
-    public long getLastModifiedEntry( String entryName )
+    public synchronized long getLastModifiedEntry( String entryName )
     {
         if ( isTrackLastModified() )
         {
@@ -538,6 +879,55 @@ public class XDocArchive
         return info;
     }
 
+    /**
+     * Returns the total length (in bytes) of the uncompressed entries of this archive.
+     * 
+     * @return
+     */
+    public synchronized long getLength()
+    {
+        Map<String, byte[]> cacheEntries = this.cacheEntries;
+        if ( cacheEntries == null )
+        {
+            return 0;
+        }
+        long length = 0;
+        for ( Map.Entry<String, byte[]> entry : cacheEntries.entrySet() )
+        {
+            byte[] content = entry.getValue();
+            if ( content != null )
+            {
+                length += content.length;
+            }
+            else
+            {
+                IEntrySource source = getEntrySource( entry.getKey() );
+                if ( source != null && source.getLength() > 0 )
+                {
+                    length += source.getLength();
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the length (in bytes) of the uncompressed content of the given entry and -1 if the entry doesn't exist.
+     * 
+     * @param entryName
+     * @return
+     */
+    public synchronized long getEntryLength( String entryName )
+    {
+        byte[] content = cacheEntries != null ? cacheEntries.get( entryName ) : null;
+        if ( content == null )
+        {
+            IEntrySource source = getEntrySource( entryName );
+            return source != null ? source.getLength() : -1;
+        }
+        return content.length;
+    }
+
     public void dispose()
     {
         if ( cacheEntries != null )
@@ -550,6 +940,17 @@ public class XDocArchive
             cacheEntriesInfo.clear();
         }
         cacheEntriesInfo = null;
+        if ( rawEntries != null )
+        {
+            rawEntries.clear();
+        }
+        rawEntries = null;
+        if ( sourceEntries != null )
+        {
+            sourceEntries.clear();
+        }
+        sourceEntries = null;
+        entryDigests = null;
         if ( lastModifiedEntries != null )
         {
             lastModifiedEntries.clear();
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.internal;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+/**
+ * Compressed payload of a zip entry as it was read from the original zip. It is used to copy an entry which was not
+ * modified into a new zip without inflating/deflating it again.
+ * <p>
+ * The payload is not copied: {@link RawZipEntry} references a buffer (the whole zip when the entries are read with
+ * {@link #readEntries(byte[])}) with an offset, so this buffer must be considered as read-only. Use
+ * {@link #withPayload(byte[])} to keep only the payload of the entry.
+ * </p>
+ */
+public class RawZipEntry
+{
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+
+    private static final int END_HEADER_SIG = 0x06054b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int END_HEADER_SIZE = 22;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final int method;
+
+    private final long crc;
+
+    private final long size;
+
+    private final long compressedSize;
+
+    private final int dosTime;
+
+    private final byte[] buffer;
+
+    private final int offset;
+
+    public RawZipEntry( int method, long crc, long size, long compressedSize, int dosTime, byte[] buffer, int offset )
+    {
+        this.method = method;
+        this.crc = crc;
+        this.size = size;
+        this.compressedSize = compressedSize;
+        this.dosTime = dosTime;
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the compression method ({@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}).
+     * 
+     * @return
+     */
+    public int getMethod()
+    {
+        return method;
+    }
+
+    public long getCrc()
+    {
+        return crc;
+    }
+
+    /**
+     * Returns the uncompressed size of the entry.
+     * 
+     * @return
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    public long getCompressedSize()
+    {
+        return compressedSize;
+    }
+
+    /**
+     * Returns the last modification date of the entry in MS-DOS format.
+     * 
+     * @return
+     */
+    public int getDosTime()
+    {
+        return dosTime;
+    }
+
+    public byte[] getBuffer()
+    {
+        return buffer;
+    }
+
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * Returns a copy of the compressed payload of this entry.
+     * 
+     * @return
+     */
+    public byte[] copyPayload()
+    {
+        byte[] payload = new byte[(int) compressedSize];
+        System.arraycopy( buffer, offset, payload, 0, payload.length );
+        return payload;
+    }
+
+    /**
+     * Returns a raw entry with the same properties as this entry which references the given payload (which must start
+     * at the offset 0 and must be as long as the compressed payload) instead of the buffer of this entry.
+     * 
+     * @param payload
+     * @return
+     */
+    public RawZipEntry withPayload( byte[] payload )
+    {
+        return new RawZipEntry( method, crc, size, compressedSize, dosTime, payload, 0 );
+    }
+
+    /**
+     * Parse the central directory of the given zip and returns the raw entries by name. Entries which cannot be copied
+     * as is (zip64, encrypted, unknown compression method) are ignored. Returns null if the zip cannot be parsed.
+     * 
+     * @param zip the whole zip content.
+     * @return
+     */
+    public static Map<String, RawZipEntry> readEntries( byte[] zip )
+    {
+        int end = findEndHeader( zip );
+        if ( end == -1 )
+        {
+            return null;
+        }
+        int total = getShort( zip, end + 10 );
+        long centralOffset = getInt( zip, end + 16 );
+        if ( centralOffset >= zip.length )
+        {
+            return null;
+        }
+        Map<String, RawZipEntry> entries = new HashMap<String, RawZipEntry>( total * 2 );
+        int pos = (int) centralOffset;
+        try
+        {
+            for ( int i = 0; i < total; i++ )
+            {
+                if ( pos + CENTRAL_HEADER_SIZE > zip.length || getInt( zip, pos ) != CENTRAL_HEADER_SIG )
+                {
+                    return null;
+                }
+                int flag = getShort( zip, pos + 8 );
+                int method = getShort( zip, pos + 10 );
+                int dosTime = (int) getInt( zip, pos + 12 );
+                long crc = getInt( zip, pos + 16 );
+                long compressedSize = getInt( zip, pos + 20 );
+                long size = getInt( zip, pos + 24 );
+                int nameLength = getShort( zip, pos + 28 );
+                int extraLength = getShort( zip, pos + 30 );
+                int commentLength = getShort( zip, pos + 32 );
+                long localOffset = getInt( zip, pos + 42 );
+                if ( pos + CENTRAL_HEADER_SIZE + nameLength > zip.length )
+                {
+                    return null;
+                }
+                String name = new String( zip, pos + CENTRAL_HEADER_SIZE, nameLength, "UTF-8" );
+                pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+
+                if ( ( flag & 1 ) != 0 || ( method != ZipEntry.STORED && method != ZipEntry.DEFLATED )
+                    || compressedSize == ZIP64_MAGIC || size == ZIP64_MAGIC || localOffset == ZIP64_MAGIC )
+                {
+                    // encrypted, zip64 or not supported compression method
+                    continue;
+                }
+                int local = (int) localOffset;
+                if ( local + LOCAL_HEADER_SIZE > zip.length || getInt( zip, local ) != LOCAL_HEADER_SIG )
+                {
+                    continue;
+                }
+                long dataOffset =
+                    (long) local + LOCAL_HEADER_SIZE + getShort( zip, local + 26 ) + getShort( zip, local + 28 );
+                if ( dataOffset + compressedSize > zip.length )
+                {
+                    continue;
+                }
+                entries.put( name, new RawZipEntry( method, crc, size, compressedSize, dosTime, zip,
+                                                    (int) dataOffset ) );
+            }
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            return null;
+        }
+        return entries;
+    }
+
+    private static int findEndHeader( byte[] zip )
+    {
+        // the end of central directory record is followed by a comment which is 0xFFFF bytes max.
+        int min = Math.max( 0, zip.length - END_HEADER_SIZE - 0xFFFF );
+        for ( int i = zip.length - END_HEADER_SIZE; i >= min; i-- )
+        {
+            if ( getInt( zip, i ) == END_HEADER_SIG )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int getShort( byte[] b, int off )
+    {
+        return ( b[off] & 0xff ) | ( ( b[off + 1] & 0xff ) << 8 );
+    }
+
+    private static long getInt( byte[] b, int off )
+    {
+        return ( getShort( b, off ) | ( (long) getShort( b, off + 2 ) << 16 ) ) & 0xffffffffL;
+    }
+}
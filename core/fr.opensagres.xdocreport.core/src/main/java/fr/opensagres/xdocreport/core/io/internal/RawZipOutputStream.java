@@ -0,0 +1,614 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import fr.opensagres.xdocreport.core.EncodingConstants;
+
+/**
+ * Minimal zip writer which, contrary to {@link java.util.zip.ZipOutputStream}, is able to copy the compressed payload
+ * of a {@link RawZipEntry} as is. Entries are written :
+ * <ul>
+ * <li>stored : CRC and sizes are computed before writing the local header (used for the ODT 'mimetype' entry and for
+ * the entries which are already compressed, like images).</li>
+ * <li>raw : the compressed payload of an entry coming from an other zip is copied without inflating/deflating it.</li>
+ * <li>deflated : the content is compressed while it is written, CRC and sizes are written in a data descriptor after
+ * the compressed data (like {@link java.util.zip.ZipOutputStream} does).</li>
+ * </ul>
+ * Zip64 is not supported.
+ */
+public class RawZipOutputStream
+{
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+
+    private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+
+    private static final int END_HEADER_SIG = 0x06054b50;
+
+    private static final int VERSION = 20;
+
+    /**
+     * General purpose flag : CRC and sizes are written in a data descriptor.
+     */
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+
+    /**
+     * General purpose flag : entry name is encoded with UTF-8.
+     */
+    private static final int FLAG_UTF8 = 1 << 11;
+
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private final CountingOutputStream out;
+
+    private final List<CentralEntry> entries = new ArrayList<CentralEntry>();
+
+    private final Set<String> names = new HashSet<String>();
+
+    private final int currentDosTime;
+
+    private Deflater deflater;
+
+    private OutputStream currentEntry;
+
+    private boolean finished;
+
+    public RawZipOutputStream( OutputStream out )
+    {
+        this.out = new CountingOutputStream( out );
+        this.currentDosTime = toDosTime( System.currentTimeMillis() );
+    }
+
+    /**
+     * Write the given content as a stored (not compressed) entry.
+     * 
+     * @param name
+     * @param content
+     * @throws IOException
+     */
+    public void writeStoredEntry( String name, byte[] content )
+        throws IOException
+    {
+        CRC32 crc = new CRC32();
+        crc.update( content );
+        writeStoredEntry( name, content, crc.getValue() );
+    }
+
+    /**
+     * Write the given content as a stored (not compressed) entry with the given (already computed) CRC.
+     * 
+     * @param name
+     * @param content
+     * @param crc
+     * @throws IOException
+     */
+    public void writeStoredEntry( String name, byte[] content, long crc )
+        throws IOException
+    {
+        CentralEntry entry =
+            putNextEntry( name, ZipEntry.STORED, 0, currentDosTime, crc, content.length, content.length );
+        out.write( content );
+        closeEntry( entry );
+    }
+
+    /**
+     * Open a stored entry with the given (already computed) CRC and size and returns the output stream used to write
+     * the content of the entry. The entry is completed when the returned stream is closed (the zip itself is not
+     * closed). It's used to stream a content which must not be kept in memory.
+     * 
+     * @param name
+     * @param crc
+     * @param size
+     * @return
+     * @throws IOException
+     */
+    public OutputStream openStoredEntry( String name, long crc, long size )
+        throws IOException
+    {
+        if ( size > MAX_VALUE )
+        {
+            throw new ZipException( "Entry is too large (zip64 is not supported)." );
+        }
+        CentralEntry entry = putNextEntry( name, ZipEntry.STORED, 0, currentDosTime, crc, size, size );
+        currentEntry = new StoredEntryOutputStream( entry );
+        return currentEntry;
+    }
+
+    /**
+     * Copy the compressed payload of the given raw entry.
+     * 
+     * @param name
+     * @param raw
+     * @throws IOException
+     */
+    public void writeRawEntry( String name, RawZipEntry raw )
+        throws IOException
+    {
+        CentralEntry entry =
+            putNextEntry( name, raw.getMethod(), 0, raw.getDosTime(), raw.getCrc(), raw.getSize(),
+                          raw.getCompressedSize() );
+        out.write( raw.getBuffer(), raw.getOffset(), (int) raw.getCompressedSize() );
+        closeEntry( entry );
+    }
+
+    /**
+     * Write the given content as a deflated entry.
+     * 
+     * @param name
+     * @param content
+     * @throws IOException
+     */
+    public void writeDeflatedEntry( String name, byte[] content )
+        throws IOException
+    {
+        OutputStream entryOutput = openDeflatedEntry( name );
+        entryOutput.write( content );
+        entryOutput.close();
+    }
+
+    /**
+     * Open a deflated entry and returns the output stream used to write the (uncompressed) content of the entry. The
+     * entry is completed when the returned stream is closed (the zip itself is not closed).
+     * 
+     * @param name
+     * @return
+     * @throws IOException
+     */
+    public OutputStream openDeflatedEntry( String name )
+        throws IOException
+    {
+        CentralEntry entry = putNextEntry( name, ZipEntry.DEFLATED, FLAG_DATA_DESCRIPTOR, currentDosTime, 0, 0, 0 );
+        if ( deflater == null )
+        {
+            deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+        }
+        currentEntry = new DeflatedEntryOutputStream( entry );
+        return currentEntry;
+    }
+
+    /**
+     * Returns true if an entry with the given name was already written.
+     * 
+     * @param name
+     * @return
+     */
+    public boolean hasEntry( String name )
+    {
+        return names.contains( name );
+    }
+
+    /**
+     * Write the central directory. The wrapped output stream is not closed.
+     * 
+     * @throws IOException
+     */
+    public void finish()
+        throws IOException
+    {
+        if ( finished )
+        {
+            return;
+        }
+        if ( currentEntry != null )
+        {
+            currentEntry.close();
+        }
+        long centralOffset = out.getCount();
+        for ( CentralEntry entry : entries )
+        {
+            writeInt( CENTRAL_HEADER_SIG );
+            writeShort( VERSION );
+            writeShort( VERSION );
+            writeShort( entry.flag );
+            writeShort( entry.method );
+            writeInt( entry.dosTime );
+            writeInt( entry.crc );
+            writeInt( entry.compressedSize );
+            writeInt( entry.size );
+            writeShort( entry.name.length );
+            writeShort( 0 ); // extra length
+            writeShort( 0 ); // comment length
+            writeShort( 0 ); // disk number start
+            writeShort( 0 ); // internal file attributes
+            writeInt( 0 ); // external file attributes
+            writeInt( entry.offset );
+            out.write( entry.name );
+        }
+        long centralSize = out.getCount() - centralOffset;
+        if ( centralOffset > MAX_VALUE || centralSize > MAX_VALUE )
+        {
+            throw new ZipException( "Zip is too large (zip64 is not supported)." );
+        }
+        writeInt( END_HEADER_SIG );
+        writeShort( 0 ); // number of this disk
+        writeShort( 0 ); // disk with the central directory
+        writeShort( entries.size() );
+        writeShort( entries.size() );
+        writeInt( centralSize );
+        writeInt( centralOffset );
+        writeShort( 0 ); // comment length
+        out.flush();
+        if ( deflater != null )
+        {
+            deflater.end();
+            deflater = null;
+        }
+        finished = true;
+    }
+
+    /**
+     * Write the central directory and close the wrapped output stream.
+     * 
+     * @throws IOException
+     */
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            finish();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private CentralEntry putNextEntry( String name, int method, int flag, int dosTime, long crc, long size,
+                                       long compressedSize )
+        throws IOException
+    {
+        if ( finished )
+        {
+            throw new ZipException( "Zip is already finished." );
+        }
+        if ( currentEntry != null )
+        {
+            throw new ZipException( "Previous entry is not closed." );
+        }
+        if ( !names.add( name ) )
+        {
+            throw new ZipException( "duplicate entry: " + name );
+        }
+        if ( entries.size() >= MAX_ENTRIES || out.getCount() > MAX_VALUE )
+        {
+            throw new ZipException( "Zip is too large (zip64 is not supported)." );
+        }
+        CentralEntry entry = new CentralEntry();
+        entry.name = name.getBytes( EncodingConstants.UTF_8 );
+        entry.method = method;
+        entry.flag = flag | FLAG_UTF8;
+        entry.dosTime = dosTime;
+        entry.crc = crc;
+        entry.size = size;
+        entry.compressedSize = compressedSize;
+        entry.offset = out.getCount();
+
+        writeInt( LOCAL_HEADER_SIG );
+        writeShort( VERSION );
+        writeShort( entry.flag );
+        writeShort( method );
+        writeInt( dosTime );
+        writeInt( crc );
+        writeInt( compressedSize );
+        writeInt( size );
+        writeShort( entry.name.length );
+        writeShort( 0 ); // extra length
+        out.write( entry.name );
+        return entry;
+    }
+
+    private void closeEntry( CentralEntry entry )
+    {
+        entries.add( entry );
+    }
+
+    private void writeShort( int v )
+        throws IOException
+    {
+        out.write( v & 0xff );
+        out.write( ( v >>> 8 ) & 0xff );
+    }
+
+    private void writeInt( long v )
+        throws IOException
+    {
+        writeShort( (int) ( v & 0xffff ) );
+        writeShort( (int) ( ( v >>> 16 ) & 0xffff ) );
+    }
+
+    private static int toDosTime( long time )
+    {
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis( time );
+        int year = c.get( Calendar.YEAR );
+        if ( year < 1980 )
+        {
+            return ( 1 << 21 ) | ( 1 << 16 );
+        }
+        return ( year - 1980 ) << 25 | ( c.get( Calendar.MONTH ) + 1 ) << 21 | c.get( Calendar.DAY_OF_MONTH ) << 16
+            | c.get( Calendar.HOUR_OF_DAY ) << 11 | c.get( Calendar.MINUTE ) << 5 | c.get( Calendar.SECOND ) >> 1;
+    }
+
+    /**
+     * Entry information written in the central directory.
+     */
+    private static class CentralEntry
+    {
+        byte[] name;
+
+        int method;
+
+        int flag;
+
+        int dosTime;
+
+        long crc;
+
+        long size;
+
+        long compressedSize;
+
+        long offset;
+    }
+
+    /**
+     * Output stream which deflates the content of the current entry and writes the data descriptor when it's closed.
+     */
+    private class DeflatedEntryOutputStream
+        extends OutputStream
+    {
+
+        private final CentralEntry entry;
+
+        private final CRC32 crc = new CRC32();
+
+        private final byte[] buffer = new byte[8192];
+
+        private final byte[] single = new byte[1];
+
+        private long size;
+
+        private boolean closed;
+
+        public DeflatedEntryOutputStream( CentralEntry entry )
+        {
+            this.entry = entry;
+            deflater.reset();
+        }
+
+        @Override
+        public void write( int b )
+            throws IOException
+        {
+            single[0] = (byte) b;
+            write( single, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            if ( closed )
+            {
+                throw new IOException( "Entry " + new String( entry.name, EncodingConstants.UTF_8 ) + " is closed." );
+            }
+            if ( len == 0 )
+            {
+                return;
+            }
+            crc.update( b, off, len );
+            size += len;
+            deflater.setInput( b, off, len );
+            while ( !deflater.needsInput() )
+            {
+                deflate();
+            }
+        }
+
+        @Override
+        public void flush()
+            throws IOException
+        {
+            // do nothing : the compressed data is flushed when the entry is closed.
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+            deflater.finish();
+            while ( !deflater.finished() )
+            {
+                deflate();
+            }
+            entry.crc = crc.getValue();
+            entry.size = size;
+            entry.compressedSize = deflater.getBytesWritten();
+            if ( entry.size > MAX_VALUE || entry.compressedSize > MAX_VALUE )
+            {
+                throw new ZipException( "Entry is too large (zip64 is not supported)." );
+            }
+            writeInt( DATA_DESCRIPTOR_SIG );
+            writeInt( entry.crc );
+            writeInt( entry.compressedSize );
+            writeInt( entry.size );
+            currentEntry = null;
+            closeEntry( entry );
+        }
+
+        private void deflate()
+            throws IOException
+        {
+            int len = deflater.deflate( buffer, 0, buffer.length );
+            if ( len > 0 )
+            {
+                out.write( buffer, 0, len );
+            }
+        }
+    }
+
+    /**
+     * Output stream which writes the content of the current stored entry and checks that the declared size was written
+     * when it's closed.
+     */
+    private class StoredEntryOutputStream
+        extends OutputStream
+    {
+
+        private final CentralEntry entry;
+
+        private long size;
+
+        private boolean closed;
+
+        public StoredEntryOutputStream( CentralEntry entry )
+        {
+            this.entry = entry;
+        }
+
+        @Override
+        public void write( int b )
+            throws IOException
+        {
+            write( new byte[] { (byte) b }, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            if ( closed )
+            {
+                throw new IOException( "Entry " + new String( entry.name, EncodingConstants.UTF_8 ) + " is closed." );
+            }
+            size += len;
+            if ( size > entry.size )
+            {
+                throw new ZipException( "Entry " + new String( entry.name, EncodingConstants.UTF_8 )
+                    + " is larger than its declared size " + entry.size + "." );
+            }
+            out.write( b, off, len );
+        }
+
+        @Override
+        public void flush()
+            throws IOException
+        {
+            out.flush();
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+            currentEntry = null;
+            if ( size != entry.size )
+            {
+                throw new ZipException( "Entry " + new String( entry.name, EncodingConstants.UTF_8 ) + " has "
+                    + size + " bytes instead of its declared size " + entry.size + "." );
+            }
+            closeEntry( entry );
+        }
+    }
+
+    /**
+     * Output stream which counts the written bytes to compute the offset of the entries.
+     */
+    private static class CountingOutputStream
+        extends OutputStream
+    {
+
+        private final OutputStream out;
+
+        private long count;
+
+        public CountingOutputStream( OutputStream out )
+        {
+            this.out = out;
+        }
+
+        @Override
+        public void write( int b )
+            throws IOException
+        {
+            out.write( b );
+            count++;
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            out.write( b, off, len );
+            count += len;
+        }
+
+        @Override
+        public void flush()
+            throws IOException
+        {
+            out.flush();
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            out.close();
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+    }
+}
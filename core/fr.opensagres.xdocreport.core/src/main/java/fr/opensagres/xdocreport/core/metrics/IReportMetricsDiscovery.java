@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.metrics;
+
+import fr.opensagres.xdocreport.core.discovery.IBaseDiscovery;
+
+/**
+ * Discovery of a listener which receives the timings of the report generation phases (ex : to export them to a
+ * metrics system). Implementations are registered with the JDK service loader (file
+ * META-INF/services/fr.opensagres.xdocreport.core.metrics.IReportMetricsDiscovery) or with
+ * {@link ReportMetricsRegistry#addListener(IReportMetricsDiscovery)}.
+ * <p>
+ * This method is called by the threads which generate the reports, it must be thread-safe and fast.
+ * </p>
+ */
+public interface IReportMetricsDiscovery
+    extends IBaseDiscovery
+{
+
+    /**
+     * Called when a phase of the report generation is done (with or without error).
+     * 
+     * @param event
+     */
+    void phaseCompleted( ReportEvent event );
+}
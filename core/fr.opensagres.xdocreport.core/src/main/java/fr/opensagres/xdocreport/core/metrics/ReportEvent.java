@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.metrics;
+
+/**
+ * Event fired when a {@link ReportPhase} of the report generation is done.
+ */
+public class ReportEvent
+{
+
+    private final ReportPhase phase;
+
+    private final String reportId;
+
+    private final String entryName;
+
+    private final long duration;
+
+    private final long length;
+
+    private final boolean failed;
+
+    public ReportEvent( ReportPhase phase, String reportId, String entryName, long duration, long length,
+                        boolean failed )
+    {
+        this.phase = phase;
+        this.reportId = reportId;
+        this.entryName = entryName;
+        this.duration = duration;
+        this.length = length;
+        this.failed = failed;
+    }
+
+    /**
+     * Returns the phase of the report generation.
+     * 
+     * @return
+     */
+    public ReportPhase getPhase()
+    {
+        return phase;
+    }
+
+    /**
+     * Returns the id of the report and null if the report has no id.
+     * 
+     * @return
+     */
+    public String getReportId()
+    {
+        return reportId;
+    }
+
+    /**
+     * Returns the entry name (ex : word/document.xml) for the phases done per entry ({@link ReportPhase#Preprocess},
+     * {@link ReportPhase#Merge}, {@link ReportPhase#Zip} of a single entry) and null otherwise.
+     * 
+     * @return
+     */
+    public String getEntryName()
+    {
+        return entryName;
+    }
+
+    /**
+     * Returns the duration of the phase in nanoseconds.
+     * 
+     * @return
+     */
+    public long getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * Returns the length in bytes of the (uncompressed) content produced by the phase and -1 if it is unknown.
+     * 
+     * @return
+     */
+    public long getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Returns true if the phase failed and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder s = new StringBuilder();
+        s.append( phase );
+        if ( reportId != null )
+        {
+            s.append( " report=" ).append( reportId );
+        }
+        if ( entryName != null )
+        {
+            s.append( " entry=" ).append( entryName );
+        }
+        s.append( " duration=" ).append( duration ).append( "ns" );
+        if ( length != -1 )
+        {
+            s.append( " length=" ).append( length );
+        }
+        if ( failed )
+        {
+            s.append( " failed" );
+        }
+        return s.toString();
+    }
+}
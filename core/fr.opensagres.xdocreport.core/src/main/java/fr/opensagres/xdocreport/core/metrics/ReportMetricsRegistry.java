@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.opensagres.xdocreport.core.logging.LogUtils;
+import fr.opensagres.xdocreport.core.registry.AbstractRegistry;
+
+/**
+ * Registry of {@link IReportMetricsDiscovery}. When none listener is registered, the timings of the report generation
+ * phases are not computed :
+ * 
+ * <pre>
+ * ReportMetricsRegistry metrics = ReportMetricsRegistry.getRegistry();
+ * long startTime = metrics.start();
+ * ...
+ * metrics.phaseCompleted( ReportPhase.Merge, reportId, entryName, startTime, length, failed );
+ * </pre>
+ * 
+ * or with a {@link ReportPhaseTimer} (see {@link #startPhase(ReportPhase, String, String)}).
+ */
+public class ReportMetricsRegistry
+    extends AbstractRegistry<IReportMetricsDiscovery>
+{
+
+    /**
+     * Logger for this class
+     */
+    private static final Logger LOGGER = LogUtils.getLogger( ReportMetricsRegistry.class.getName() );
+
+    /**
+     * Start time returned by {@link #start()} when none listener is registered.
+     */
+    public static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static final ReportMetricsRegistry INSTANCE = new ReportMetricsRegistry();
+
+    private final List<IReportMetricsDiscovery> listeners = new CopyOnWriteArrayList<IReportMetricsDiscovery>();
+
+    public ReportMetricsRegistry()
+    {
+        super( IReportMetricsDiscovery.class );
+    }
+
+    public static ReportMetricsRegistry getRegistry()
+    {
+        return INSTANCE;
+    }
+
+    protected boolean registerInstance( IReportMetricsDiscovery instance )
+    {
+        listeners.add( instance );
+        return true;
+    }
+
+    protected void doDispose()
+    {
+        listeners.clear();
+    }
+
+    /**
+     * Register the given listener.
+     * 
+     * @param listener
+     */
+    public void addListener( IReportMetricsDiscovery listener )
+    {
+        initializeIfNeeded();
+        listeners.add( listener );
+    }
+
+    /**
+     * Unregister the given listener.
+     * 
+     * @param listener
+     */
+    public void removeListener( IReportMetricsDiscovery listener )
+    {
+        listeners.remove( listener );
+    }
+
+    /**
+     * Returns true if at least one listener is registered and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isEnabled()
+    {
+        initializeIfNeeded();
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Returns the start time of a phase or {@link #NOT_STARTED} if none listener is registered.
+     * 
+     * @return
+     */
+    public long start()
+    {
+        return isEnabled() ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Start a timer for the given phase.
+     * 
+     * @param phase the phase.
+     * @param reportId the report id.
+     * @param entryName the entry name or null if the phase is not done per entry.
+     * @return
+     */
+    public ReportPhaseTimer startPhase( ReportPhase phase, String reportId, String entryName )
+    {
+        return new ReportPhaseTimer( this, phase, reportId, entryName );
+    }
+
+    /**
+     * Notify the listeners that the given phase is done. Do nothing if the given start time is {@link #NOT_STARTED}.
+     * 
+     * @param phase the phase.
+     * @param reportId the report id.
+     * @param entryName the entry name or null if the phase is not done per entry.
+     * @param startTime the start time returned by {@link #start()}.
+     * @param length the length in bytes of the content produced by the phase or -1 if it is unknown.
+     * @param failed true if the phase failed and false otherwise.
+     */
+    public void phaseCompleted( ReportPhase phase, String reportId, String entryName, long startTime, long length,
+                                boolean failed )
+    {
+        if ( startTime == NOT_STARTED )
+        {
+            return;
+        }
+        ReportEvent event =
+            new ReportEvent( phase, reportId, entryName, System.nanoTime() - startTime, length, failed );
+        for ( IReportMetricsDiscovery listener : listeners )
+        {
+            try
+            {
+                listener.phaseCompleted( event );
+            }
+            catch ( Throwable e )
+            {
+                // a listener must not break the report generation
+                LOGGER.log( Level.WARNING, "Error while notifying the listener " + listener.getId(), e );
+            }
+        }
+    }
+}
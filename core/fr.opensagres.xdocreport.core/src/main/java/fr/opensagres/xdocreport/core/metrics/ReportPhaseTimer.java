@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.metrics;
+
+/**
+ * Timer of a {@link ReportPhase} created by {@link ReportMetricsRegistry#startPhase(ReportPhase, String, String)}. The
+ * phase is reported as failed if {@link #done(long)} is not called before {@link #stop()} :
+ * 
+ * <pre>
+ * ReportPhaseTimer timer = ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.Merge, reportId, entryName );
+ * try
+ * {
+ *     ...
+ *     timer.done( length );
+ * }
+ * finally
+ * {
+ *     timer.stop();
+ * }
+ * </pre>
+ */
+public class ReportPhaseTimer
+{
+
+    private final ReportMetricsRegistry metrics;
+
+    private final ReportPhase phase;
+
+    private final String reportId;
+
+    private final String entryName;
+
+    private final long startTime;
+
+    private boolean done;
+
+    private long length = -1;
+
+    ReportPhaseTimer( ReportMetricsRegistry metrics, ReportPhase phase, String reportId, String entryName )
+    {
+        this.metrics = metrics;
+        this.phase = phase;
+        this.reportId = reportId;
+        this.entryName = entryName;
+        this.startTime = metrics.start();
+    }
+
+    /**
+     * Returns true if the timings are computed (at least one listener is registered) and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isStarted()
+    {
+        return startTime != ReportMetricsRegistry.NOT_STARTED;
+    }
+
+    /**
+     * Mark the phase as done.
+     */
+    public void done()
+    {
+        done( -1 );
+    }
+
+    /**
+     * Mark the phase as done.
+     * 
+     * @param length the length in bytes of the content produced by the phase or -1 if it is unknown.
+     */
+    public void done( long length )
+    {
+        this.done = true;
+        this.length = length;
+    }
+
+    /**
+     * Notify the listeners that the phase is completed (failed if {@link #done(long)} was not called).
+     */
+    public void stop()
+    {
+        metrics.phaseCompleted( phase, reportId, entryName, startTime, length, !done );
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link BoundedCacheStorage}.
+ */
+public class BoundedCacheStorageTestCase
+    extends TestCase
+{
+
+    public void testMaxEntries()
+    {
+        TestCache cache = new TestCache( 2, 0, 0 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        // "a" is the most recently used
+        assertEquals( "A", cache.get( "a" ) );
+        cache.put( "c", "C" );
+
+        assertEquals( 2, cache.size() );
+        assertFalse( cache.containsKey( "b" ) );
+        assertTrue( cache.containsKey( "a" ) );
+        assertTrue( cache.containsKey( "c" ) );
+        assertEquals( 1, cache.evicted.size() );
+        assertEquals( "b=B", cache.evicted.get( 0 ) );
+    }
+
+    public void testMaxWeight()
+    {
+        TestCache cache = new TestCache( 0, 10, 0 );
+        cache.setWeigher( new ICacheWeigher<String>()
+        {
+            public long weigh( String value )
+            {
+                return value.length();
+            }
+        } );
+        cache.put( "a", "aaaa" );
+        cache.put( "b", "bbbb" );
+        assertEquals( 8, cache.getTotalWeight() );
+        cache.put( "c", "cccc" );
+        assertEquals( 8, cache.getTotalWeight() );
+        assertNull( cache.get( "a" ) );
+        assertEquals( "a=aaaa", cache.evicted.get( 0 ) );
+
+        // replace an entry updates the weight
+        cache.put( "b", "b" );
+        assertEquals( 5, cache.getTotalWeight() );
+
+        // entry heavier than the max weight is not cached and doesn't evict the other entries
+        cache.put( "d", "ddddddddddd" );
+        assertNull( cache.get( "d" ) );
+        assertEquals( 5, cache.getTotalWeight() );
+        assertEquals( 2, cache.size() );
+        assertEquals( 1, cache.evicted.size() );
+
+        // the previous value of an entry replaced with a too heavy value is removed
+        cache.put( "b", "bbbbbbbbbbb" );
+        assertNull( cache.get( "b" ) );
+        assertEquals( 4, cache.getTotalWeight() );
+        assertEquals( 1, cache.evicted.size() );
+    }
+
+    public void testPutDoesntEvictPutEntry()
+    {
+        TestCache cache = new TestCache( 1, 0, 0 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        assertEquals( "B", cache.get( "b" ) );
+        assertNull( cache.get( "a" ) );
+        assertEquals( 1, cache.evicted.size() );
+        assertEquals( "a=A", cache.evicted.get( 0 ) );
+    }
+
+    public void testNullKeyAndValue()
+    {
+        TestCache cache = new TestCache( 0, 0, 0 );
+        cache.put( null, "A" );
+        assertEquals( 0, cache.size() );
+        cache.put( "a", "A" );
+        cache.put( "a", null );
+        assertNull( cache.get( "a" ) );
+        assertEquals( 0, cache.size() );
+        assertEquals( 0, cache.getTotalWeight() );
+    }
+
+    public void testExpireAfterAccess()
+    {
+        TestCache cache = new TestCache( 0, 0, 100 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        cache.time = 60;
+        assertEquals( "A", cache.get( "a" ) );
+        cache.time = 120;
+        // "b" was not accessed since 120ms
+        assertEquals( 1, cache.values().size() );
+        assertEquals( "A", cache.get( "a" ) );
+        assertEquals( 1, cache.evicted.size() );
+        assertEquals( "b=B", cache.evicted.get( 0 ) );
+
+        cache.time = 300;
+        cache.cleanUp();
+        assertEquals( 0, cache.size() );
+        assertEquals( 2, cache.evicted.size() );
+    }
+
+    public void testRemoveAndClearDontNotify()
+    {
+        TestCache cache = new TestCache( 1, 0, 0 );
+        cache.put( "a", "A" );
+        cache.remove( "a" );
+        cache.put( "b", "B" );
+        cache.clear();
+        assertEquals( 0, cache.size() );
+        assertEquals( 0, cache.getTotalWeight() );
+        assertTrue( cache.evicted.isEmpty() );
+    }
+
+    public void testFactoryWithoutLimits()
+    {
+        ICacheStorage<String, String> cache = new BoundedCacheStorageFactoryDiscovery().createCache();
+        assertTrue( cache instanceof MapCacheStorage );
+    }
+
+    private static class TestCache
+        extends BoundedCacheStorage<String, String>
+    {
+
+        private long time = 0;
+
+        private final List<String> evicted = new ArrayList<String>();
+
+        public TestCache( long maxEntries, long maxWeight, long expireAfterAccess )
+        {
+            super( maxEntries, maxWeight, expireAfterAccess );
+            addEvictionListener( new ICacheEvictionListener<String, String>()
+            {
+                public void evicted( String key, String value )
+                {
+                    evicted.add( key + "=" + value );
+                }
+            } );
+        }
+
+        @Override
+        protected long currentTimeMillis()
+        {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.cache;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link MapCacheStorage}.
+ */
+public class MapCacheStorageTestCase
+    extends TestCase
+{
+
+    public void testNullKey()
+    {
+        MapCacheStorage<String, String> cache = new MapCacheStorage<String, String>();
+        cache.put( null, "A" );
+        assertNull( cache.get( null ) );
+        assertFalse( cache.containsKey( null ) );
+        cache.remove( null );
+        assertTrue( cache.values().isEmpty() );
+    }
+
+    public void testNullValueRemovesEntry()
+    {
+        MapCacheStorage<String, String> cache = new MapCacheStorage<String, String>();
+        cache.put( "a", "A" );
+        assertEquals( "A", cache.get( "a" ) );
+        cache.put( "a", null );
+        assertNull( cache.get( "a" ) );
+        assertFalse( cache.containsKey( "a" ) );
+        cache.put( "b", null );
+        assertTrue( cache.values().isEmpty() );
+    }
+}
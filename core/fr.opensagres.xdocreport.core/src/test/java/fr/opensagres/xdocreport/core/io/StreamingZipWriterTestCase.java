@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.core.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link StreamingZipWriter}.
+ */
+public class StreamingZipWriterTestCase
+    extends TestCase
+{
+
+    public void testStreamEntry()
+        throws IOException
+    {
+        InputStream input = StreamingZipWriterTestCase.class.getResourceAsStream( "empty.odt" );
+        XDocArchive archive = XDocArchive.readZip( input );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingZipWriter zipWriter = new StreamingZipWriter( archive, out );
+        assertTrue( zipWriter.isWritten( "mimetype" ) );
+
+        // stream the content.xml entry
+        Writer contentWriter = zipWriter.getEntryWriter( "content.xml" );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            contentWriter.write( "<row>" + i + "</row>" );
+        }
+        contentWriter.close();
+        assertTrue( zipWriter.isWritten( "content.xml" ) );
+
+        // entry added in the archive after the streaming
+        Writer imageWriter = archive.getEntryWriter( "Pictures/image.png" );
+        imageWriter.write( "image" );
+        imageWriter.close();
+
+        zipWriter.close();
+
+        // the archive is not modified by the streamed entry
+        assertFalse( IOUtils.toString( archive.getEntryReader( "content.xml" ) ).contains( "<row>" ) );
+
+        ZipInputStream zipInput = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+        ZipEntry entry = zipInput.getNextEntry();
+        assertEquals( "mimetype", entry.getName() );
+        assertEquals( "application/vnd.oasis.opendocument.text", IOUtils.toString( zipInput ) );
+        entry = zipInput.getNextEntry();
+        assertEquals( "content.xml", entry.getName() );
+        String content = IOUtils.toString( zipInput );
+        assertTrue( content.startsWith( "<row>0</row>" ) );
+        assertTrue( content.endsWith( "<row>999</row>" ) );
+        int count = 2;
+        boolean hasImage = false;
+        while ( ( entry = zipInput.getNextEntry() ) != null )
+        {
+            if ( "Pictures/image.png".equals( entry.getName() ) )
+            {
+                hasImage = true;
+                assertEquals( "image", IOUtils.toString( zipInput ) );
+            }
+            count++;
+        }
+        zipInput.close();
+        assertTrue( hasImage );
+        assertEquals( archive.getEntryNames().size(), count );
+    }
+}
@@ -24,14 +24,25 @@
  */
 package fr.opensagres.xdocreport.core.io;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Enumeration;
 import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 import java.util.logging.Logger;
 
 import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.io.internal.RawZipEntry;
 import fr.opensagres.xdocreport.core.logging.LogUtils;
 
 /**
@@ -132,6 +143,269 @@ public class XDocArchiveTestCase
         contentWriter.close();
     }
 
+    public void testCreateCopy()
+        throws IOException
+    {
+        XDocArchive archive = new XDocArchive();
+        Writer contentWriter = archive.getEntryWriter( "content.xml" );
+        contentWriter.write( "bla bla bla" );
+        contentWriter.close();
+        Writer stylesWriter = archive.getEntryWriter( "styles.xml" );
+        stylesWriter.write( "styles" );
+        stylesWriter.close();
+
+        XDocArchive copy = archive.createCopy();
+        assertEquals( archive.getEntryNames(), copy.getEntryNames() );
+
+        // modify the copy
+        contentWriter = copy.getEntryWriter( "content.xml" );
+        contentWriter.write( "bla bla bla2" );
+        contentWriter.close();
+
+        // original archive is not modified
+        assertEquals( "bla bla bla", IOUtils.toString( archive.getEntryReader( "content.xml" ) ) );
+        assertEquals( "bla bla bla2", IOUtils.toString( copy.getEntryReader( "content.xml" ) ) );
+        assertEquals( "styles", IOUtils.toString( copy.getEntryReader( "styles.xml" ) ) );
+
+        // dispose the copy doesn't dispose the original archive
+        copy.dispose();
+        assertEquals( "styles", IOUtils.toString( archive.getEntryReader( "styles.xml" ) ) );
+    }
+
+    public void testWriteZip()
+        throws IOException
+    {
+        InputStream input = XDocArchiveTestCase.class.getResourceAsStream( "empty.odt" );
+        XDocArchive archive = XDocArchive.readZip( input );
+
+        // modify an entry, the other entries are copied with their original compressed payload.
+        Writer contentWriter = archive.getEntryWriter( "content.xml" );
+        contentWriter.write( "<content/>" );
+        contentWriter.close();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XDocArchive.writeZip( archive, out );
+
+        XDocArchive archive2 = XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+        assertEquals( archive.getEntryNames(), archive2.getEntryNames() );
+        for ( String entryName : archive.getEntryNames() )
+        {
+            assertEquals( IOUtils.toString( archive.getEntryInputStream( entryName ) ),
+                          IOUtils.toString( archive2.getEntryInputStream( entryName ) ) );
+        }
+        assertEquals( "<content/>", IOUtils.toString( archive2.getEntryReader( "content.xml" ) ) );
+
+        // check the central directory with ZipFile
+        File file = File.createTempFile( "xdocarchive", ".odt" );
+        try
+        {
+            OutputStream fileOut = new FileOutputStream( file );
+            fileOut.write( out.toByteArray() );
+            fileOut.close();
+            ZipFile zipFile = new ZipFile( file );
+            try
+            {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                ZipEntry first = entries.nextElement();
+                assertEquals( "mimetype", first.getName() );
+                assertEquals( ZipEntry.STORED, first.getMethod() );
+                int count = 1;
+                while ( entries.hasMoreElements() )
+                {
+                    ZipEntry entry = entries.nextElement();
+                    assertEquals( IOUtils.toString( archive.getEntryInputStream( entry.getName() ) ),
+                                  IOUtils.toString( zipFile.getInputStream( entry ) ) );
+                    count++;
+                }
+                assertEquals( archive.getEntryNames().size(), count );
+            }
+            finally
+            {
+                zipFile.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    public void testRawEntriesDoNotKeepTheZip()
+        throws IOException
+    {
+        InputStream input = XDocArchiveTestCase.class.getResourceAsStream( "empty.odt" );
+        XDocArchive archive = XDocArchive.readZip( input );
+
+        // each raw entry references only its own payload and not the whole original zip
+        int rawEntries = 0;
+        for ( String entryName : archive.getEntryNames() )
+        {
+            RawZipEntry rawEntry = archive.getRawEntry( entryName );
+            if ( rawEntry != null )
+            {
+                assertEquals( 0, rawEntry.getOffset() );
+                assertEquals( rawEntry.getCompressedSize(), rawEntry.getBuffer().length );
+                rawEntries++;
+            }
+        }
+        assertTrue( rawEntries > 0 );
+    }
+
+    public void testGetInputStreamWithStoredEntries()
+        throws IOException
+    {
+        InputStream input = XDocArchiveTestCase.class.getResourceAsStream( "Issue234.docx" );
+        XDocArchive archive = XDocArchive.readZip( input );
+        Writer documentWriter = archive.getEntryWriter( "word/document.xml" );
+        documentWriter.write( "<document/>" );
+        documentWriter.close();
+
+        ZipInputStream zipInput = new ZipInputStream( XDocArchive.getInputStream( archive, false ) );
+        ZipEntry entry = null;
+        int count = 0;
+        while ( ( entry = zipInput.getNextEntry() ) != null )
+        {
+            assertEquals( ZipEntry.STORED, entry.getMethod() );
+            assertEquals( IOUtils.toString( archive.getEntryInputStream( entry.getName() ) ),
+                          IOUtils.toString( zipInput ) );
+            count++;
+        }
+        zipInput.close();
+        assertEquals( archive.getEntryNames().size(), count );
+    }
+
+    public void testWriteZipWithEntrySourceCrc()
+        throws IOException
+    {
+        final byte[] image = new byte[] { (byte) 0x89, 'P', 'N', 'G', 1, 2, 3, 4, 5 };
+        final CRC32 crc = new CRC32();
+        crc.update( image );
+        final int[] nbWrites = new int[1];
+        IEntrySource source = new IEntrySource()
+        {
+            public long getLength()
+            {
+                return image.length;
+            }
+
+            public long getCrc()
+            {
+                return crc.getValue();
+            }
+
+            public InputStream getInputStream()
+            {
+                return new ByteArrayInputStream( image );
+            }
+
+            public void write( OutputStream outputStream )
+                throws IOException
+            {
+                nbWrites[0]++;
+                outputStream.write( image );
+            }
+        };
+        XDocArchive archive = new XDocArchive();
+        archive.setEntrySource( "word/media/image1.png", source );
+
+        // the CRC is known, the source is read once
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XDocArchive.writeZip( archive, out );
+        assertEquals( 1, nbWrites[0] );
+
+        // the zip input stream checks the CRC of the entry
+        ZipInputStream zipInput = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+        ZipEntry entry = zipInput.getNextEntry();
+        assertEquals( "word/media/image1.png", entry.getName() );
+        assertEquals( crc.getValue(), entry.getCrc() );
+        assertEquals( image.length, IOUtils.toByteArray( zipInput ).length );
+        zipInput.close();
+    }
+
+    public void testWriteZipWithEntrySource()
+        throws IOException
+    {
+        InputStream input = XDocArchiveTestCase.class.getResourceAsStream( "Issue234.docx" );
+        XDocArchive archive = XDocArchive.readZip( input );
+        final byte[] image = new byte[] { (byte) 0x89, 'P', 'N', 'G', 1, 2, 3, 4, 5 };
+        IEntrySource source = new IEntrySource()
+        {
+            public long getLength()
+            {
+                return image.length;
+            }
+
+            public InputStream getInputStream()
+            {
+                return new ByteArrayInputStream( image );
+            }
+
+            public void write( OutputStream outputStream )
+                throws IOException
+            {
+                outputStream.write( image );
+            }
+        };
+        archive.setEntrySource( "word/media/image1.png", source );
+        assertTrue( archive.hasEntry( "word/media/image1.png" ) );
+        assertEquals( image.length, archive.getEntryLength( "word/media/image1.png" ) );
+        assertEquals( "\u0089PNG\u0001\u0002\u0003\u0004\u0005",
+                      new String( IOUtils.toByteArray( archive.getEntryInputStream( "word/media/image1.png" ) ),
+                                  "ISO-8859-1" ) );
+
+        // the copy shares the source
+        XDocArchive copy = archive.createCopy();
+        assertTrue( copy.hasEntry( "word/media/image1.png" ) );
+
+        // the image is stored even if the other entries are compressed
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XDocArchive.writeZip( copy, out );
+        ZipInputStream zipInput = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) );
+        ZipEntry entry = null;
+        boolean found = false;
+        while ( ( entry = zipInput.getNextEntry() ) != null )
+        {
+            if ( "word/media/image1.png".equals( entry.getName() ) )
+            {
+                found = true;
+                assertEquals( ZipEntry.STORED, entry.getMethod() );
+                byte[] content = IOUtils.toByteArray( zipInput );
+                assertEquals( image.length, content.length );
+                for ( int i = 0; i < image.length; i++ )
+                {
+                    assertEquals( image[i], content[i] );
+                }
+            }
+        }
+        zipInput.close();
+        assertTrue( found );
+
+        // an entry written with an output stream replaces the source
+        OutputStream entryOutput = archive.getEntryOutputStream( "word/media/image1.png" );
+        entryOutput.write( new byte[] { 1 } );
+        entryOutput.close();
+        assertEquals( 1, archive.getEntryLength( "word/media/image1.png" ) );
+        assertEquals( image.length, copy.getEntryLength( "word/media/image1.png" ) );
+    }
+
+    public void testEntryDigest()
+        throws IOException
+    {
+        XDocArchive archive = new XDocArchive();
+        XDocArchive.setEntry( archive, "a.xml", new ByteArrayInputStream( "<a/>".getBytes( "UTF-8" ) ) );
+        assertNull( archive.getEntryDigest( "b.xml" ) );
+
+        String digest = archive.getEntryDigest( "a.xml" );
+        assertEquals( 40, digest.length() );
+        XDocArchive copy = archive.createCopy();
+        assertEquals( digest, copy.getEntryDigest( "a.xml" ) );
+
+        // the digest changes when the entry is modified
+        XDocArchive.setEntry( copy, "a.xml", new ByteArrayInputStream( "<b/>".getBytes( "UTF-8" ) ) );
+        assertFalse( digest.equals( copy.getEntryDigest( "a.xml" ) ) );
+        assertEquals( digest, archive.getEntryDigest( "a.xml" ) );
+    }
+
     /**
      * docx with entry name with '\'.
      * 
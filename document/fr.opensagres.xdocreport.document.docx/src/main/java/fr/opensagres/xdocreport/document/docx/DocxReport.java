@@ -36,6 +36,7 @@ import static fr.opensagres.xdocreport.document.docx.DocxConstants.WORD_RELS_XML
 import static fr.opensagres.xdocreport.document.docx.DocxConstants.WORD_STYLES_XML_ENTRY;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -73,6 +74,7 @@ import fr.opensagres.xdocreport.document.docx.preprocessor.sax.styles.DocxStyles
 import fr.opensagres.xdocreport.document.docx.template.DocxContextHelper;
 import fr.opensagres.xdocreport.document.images.IImageRegistry;
 import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
 
 /**
  * MS Word DOCX report.
@@ -88,6 +90,20 @@ public class DocxReport
         WORD_ENDNOTES_XML_ENTRY,
         WORD_NUMBERING_XML_ENTRY };
 
+    private static final String WORD_HEADER_PREFIX = "word/header";
+
+    private static final String WORD_FOOTER_PREFIX = "word/footer";
+
+    private static final String ALL_ENTRY_NAMES_HYPERLINKS_STATE = "allEntryNamesHyperlinks";
+
+    private static final String MODIFIED_ENTRY_NAMES_HYPERLINKS_STATE = "modifiedEntryNamesHyperlinks";
+
+    private static final String DEFAULT_STYLE_STATE = "defaultStyle";
+
+    private static final String INITIAL_FOOTNOTE_INFO_MAP_STATE = "initialFootNoteInfoMap";
+
+    private static final String INITIAL_ENDNOTE_INFO_MAP_STATE = "initialEndNoteInfoMap";
+
     private Set<String> allEntryNamesHyperlinks;
 
     private Set<String> modifiedEntryNamesHyperlinks;
@@ -219,6 +235,33 @@ public class DocxReport
         }
     }
 
+    @Override
+    protected boolean savePreprocessingState( Map<String, Serializable> state )
+    {
+        if ( !super.savePreprocessingState( state ) )
+        {
+            return false;
+        }
+        state.put( ALL_ENTRY_NAMES_HYPERLINKS_STATE, new HashSet<String>( allEntryNamesHyperlinks ) );
+        state.put( MODIFIED_ENTRY_NAMES_HYPERLINKS_STATE, new HashSet<String>( modifiedEntryNamesHyperlinks ) );
+        state.put( DEFAULT_STYLE_STATE, defaultStyle );
+        state.put( INITIAL_FOOTNOTE_INFO_MAP_STATE, initialFootNoteInfoMap );
+        state.put( INITIAL_ENDNOTE_INFO_MAP_STATE, initialEndNoteInfoMap );
+        return true;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    @Override
+    protected void restorePreprocessingState( Map<String, Serializable> state )
+    {
+        super.restorePreprocessingState( state );
+        this.allEntryNamesHyperlinks = (Set<String>) state.get( ALL_ENTRY_NAMES_HYPERLINKS_STATE );
+        this.modifiedEntryNamesHyperlinks = (Set<String>) state.get( MODIFIED_ENTRY_NAMES_HYPERLINKS_STATE );
+        this.defaultStyle = (DefaultStyle) state.get( DEFAULT_STYLE_STATE );
+        this.initialFootNoteInfoMap = (InitialNoteInfoMap) state.get( INITIAL_FOOTNOTE_INFO_MAP_STATE );
+        this.initialEndNoteInfoMap = (InitialNoteInfoMap) state.get( INITIAL_ENDNOTE_INFO_MAP_STATE );
+    }
+
     @Override
     protected void onBeforeProcessTemplateEngine( IContext context, XDocArchive outputArchive )
         throws XDocReportException
@@ -248,6 +291,40 @@ public class DocxReport
         }
     }
 
+    /**
+     * The document, headers and footers can be merged in parallel when merging them doesn't fill a registry shared by
+     * those entries : the ids allocated by the image, numbering and notes registries would depend on the order in which
+     * the threads merge the entries, and the same context would generate different documents. So the entries are
+     * merged in parallel only if the fields metadata doesn't declare image or text styling fields and if the notes
+     * don't contain fields. The hyperlink registries are created per entry, so they don't prevent the parallel merge.
+     * The other entries (relationships, notes, numbering...) are merged sequentially after.
+     */
+    @Override
+    protected boolean isParallelizableEntry( String entryName )
+    {
+        return ( WORD_DOCUMENT_XML_ENTRY.equals( entryName ) || entryName.startsWith( WORD_HEADER_PREFIX )
+            || entryName.startsWith( WORD_FOOTER_PREFIX ) ) && !hasSharedRegistries();
+    }
+
+    /**
+     * Returns true if the document, headers and footers fill registries shared by those entries while they are merged
+     * and false otherwise.
+     * 
+     * @return
+     */
+    private boolean hasSharedRegistries()
+    {
+        FieldsMetadata fieldsMetadata = getFieldsMetadata();
+        if ( fieldsMetadata != null
+            && ( fieldsMetadata.hasFieldsAsImage() || !fieldsMetadata.getFieldsAsTextStyling().isEmpty() ) )
+        {
+            // images and text styling (numbering, styles) registries
+            return true;
+        }
+        // notes registries
+        return initialFootNoteInfoMap != null || initialEndNoteInfoMap != null;
+    }
+
     @Override
     protected void onAfterProcessTemplateEngine( IContext context, XDocArchive outputArchive )
         throws XDocReportException
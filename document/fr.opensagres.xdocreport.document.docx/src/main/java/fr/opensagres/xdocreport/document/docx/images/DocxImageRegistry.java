@@ -40,6 +40,7 @@ public class DocxImageRegistry
     extends AbstractImageRegistry
 {
 
+    // DecimalFormat is not thread-safe : getSize(float) is synchronized because entries can be merged in parallel.
 	private DecimalFormat df = new DecimalFormat("#");
 	
     public static final String MEDIA_PATH = "media/";
@@ -64,7 +65,7 @@ public class DocxImageRegistry
     }
 
     @Override
-	public String getSize( float sizeAsPixel )
+	public synchronized String getSize( float sizeAsPixel )
     {
         float sizeAsDxa = (sizeAsPixel / 96) * 914400;
         String s = df.format(sizeAsDxa);
@@ -26,6 +26,7 @@ package fr.opensagres.xdocreport.document.docx.preprocessor.sax.contenttypes;
 
 import java.util.Map;
 
+import fr.opensagres.xdocreport.document.preprocessor.ISelfContainedPreprocessor;
 import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
 import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedDocumentContentHandler;
 import fr.opensagres.xdocreport.document.preprocessor.sax.SAXXDocPreprocessor;
@@ -41,6 +42,7 @@ import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
  */
 public class DocxContentTypesPreprocessor
     extends SAXXDocPreprocessor
+    implements ISelfContainedPreprocessor
 {
 
     public static final IXDocPreprocessor INSTANCE = new DocxContentTypesPreprocessor();
@@ -86,7 +86,7 @@ public class HyperlinkRegistry
      * @param targetMode
      * @return
      */
-    public String registerHyperlink( String target, String targetMode )
+    public synchronized String registerHyperlink( String target, String targetMode )
     {
         if ( hyperlinks == null )
         {
@@ -113,7 +113,7 @@ public class HyperlinkRegistry
      * 
      * @return
      */
-    public List<HyperlinkInfo> getHyperlinks()
+    public synchronized List<HyperlinkInfo> getHyperlinks()
     {
         return hyperlinks;
     }
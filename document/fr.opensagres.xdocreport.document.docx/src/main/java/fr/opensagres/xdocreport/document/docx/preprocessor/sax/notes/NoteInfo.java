@@ -24,12 +24,17 @@
  */
 package fr.opensagres.xdocreport.document.docx.preprocessor.sax.notes;
 
+import java.io.Serializable;
+
 /**
  * Information about a footnote or endnote (id + content of the note).
  */
 public class NoteInfo
+    implements Serializable
 {
 
+    private static final long serialVersionUID = -5417712861330274805L;
+
     public static final String CONTEXT_KEY = "___NoEscapeNoteInfo";
 
     public static final String ID_PROPERTY = "id";
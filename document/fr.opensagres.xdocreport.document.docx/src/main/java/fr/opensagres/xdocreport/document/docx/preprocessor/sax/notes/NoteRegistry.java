@@ -54,7 +54,7 @@ public class NoteRegistry
      * @throws XDocReportException
      * @throws IOException
      */
-    public String registerNote( String id, Object content )
+    public synchronized String registerNote( String id, Object content )
         throws XDocReportException, IOException
     {
         if ( notesMap == null )
@@ -79,7 +79,7 @@ public class NoteRegistry
      * @param id
      * @return
      */
-    public List<NoteInfo> getNotes( String id )
+    public synchronized List<NoteInfo> getNotes( String id )
     {
         if ( notesMap == null )
         {
@@ -701,6 +701,8 @@ public class DocxDocumentHandler
         {
             int abstractNumId = styleGen.getAbstractNumIdForList( true, defaultStyle );
             int numId = getNumberingRegistry().addNum( abstractNumId, getMaxNumId(), true ).getNumId();
+            // each list has its own numbering, the result cannot be reused for another list.
+            setTransformResultCacheable( false );
             // numbersStack.push( numId );
             currentNumId = numId;
         }
@@ -721,6 +723,8 @@ public class DocxDocumentHandler
         {
             int abstractNumId = styleGen.getAbstractNumIdForList( false, defaultStyle );
             int numId = getNumberingRegistry().addNum( abstractNumId, getMaxNumId(), false ).getNumId();
+            // each list has its own numbering, the result cannot be reused for another list.
+            setTransformResultCacheable( false );
             // numbersStack.push( numId );
             currentNumId = numId;
         }
@@ -846,6 +850,8 @@ public class DocxDocumentHandler
             LOGGER.log(Level.WARNING, "Could not register image!", e);
             return;
         }
+        // the drawing ids are computed from the image id, don't reuse this result for another image.
+        setTransformResultCacheable(false);
 
         final String relId = imageProviderInfo.getImageId();
         // FIXME this is a bad hack: it "knows" the xdocreport_ prefix and just starts numbering at 5000 to avoid collisions with IDs already used in the template
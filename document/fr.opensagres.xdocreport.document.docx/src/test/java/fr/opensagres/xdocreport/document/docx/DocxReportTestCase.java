@@ -6,10 +6,12 @@ import java.io.InputStream;
 
 import org.junit.Test;
 
+import fr.opensagres.xdocreport.core.document.SyntaxKind;
 import fr.opensagres.xdocreport.document.IXDocReport;
 import fr.opensagres.xdocreport.document.docx.discovery.DocXReportFactoryDiscoveryTestCase;
 import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
 import fr.opensagres.xdocreport.template.ITemplateEngine;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
 import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
 import junit.framework.TestCase;
 
@@ -41,6 +43,35 @@ public class DocxReportTestCase extends TestCase
         }
     }
 
+    public void testParallelizableEntries()
+    {
+        DocxReport report = new DocxReport();
+        report.setFieldsMetadata( new FieldsMetadata() );
+        assertTrue( report.isParallelizableEntry( "word/document.xml" ) );
+        assertTrue( report.isParallelizableEntry( "word/header1.xml" ) );
+        assertTrue( report.isParallelizableEntry( "word/footer2.xml" ) );
+        assertFalse( report.isParallelizableEntry( "word/_rels/document.xml.rels" ) );
+        assertFalse( report.isParallelizableEntry( "word/numbering.xml" ) );
+        assertFalse( report.isParallelizableEntry( "word/footnotes.xml" ) );
+    }
+
+    public void testNotParallelizableWithSharedRegistries()
+    {
+        // the ids of the images depend on the order in which the entries are merged
+        DocxReport report = new DocxReport();
+        FieldsMetadata fieldsMetadata = new FieldsMetadata();
+        fieldsMetadata.addFieldAsImage( "logo" );
+        report.setFieldsMetadata( fieldsMetadata );
+        assertFalse( report.isParallelizableEntry( "word/document.xml" ) );
+        assertFalse( report.isParallelizableEntry( "word/header1.xml" ) );
+
+        // the numbering of the text styling too
+        fieldsMetadata = new FieldsMetadata();
+        fieldsMetadata.addFieldAsTextStyling( "comments", SyntaxKind.Html );
+        report.setFieldsMetadata( fieldsMetadata );
+        assertFalse( report.isParallelizableEntry( "word/document.xml" ) );
+    }
+
     private ITemplateEngine createTemplateEngine()
     {
         IDocumentFormatter documentFormatter = createNiceMock(IDocumentFormatter.class);
@@ -92,6 +92,23 @@ public class DocxDocumentHandlerTestCase
         Assert.assertEquals( "", handler.getTextEnd() );
     }
 
+    @Test
+    public void testSpecialCharacterInCDATA()
+        throws Exception
+    {
+        IContext context = new MockContext();
+        BufferedElement parent = null;
+
+        ITextStylingTransformer formatter = HTMLTextStylingTransformer.INSTANCE;
+        IDocumentHandler handler = new DocxDocumentHandler( parent, context, "word/document.xml" );
+        formatter.transform( "&eacute;<![CDATA[&eacute;]]>", handler );
+
+        Assert.assertEquals( "", handler.getTextBefore() );
+        Assert.assertEquals( "<w:r><w:t xml:space=\"preserve\" >é</w:t></w:r><w:r><w:t xml:space=\"preserve\" >&amp;eacute;</w:t></w:r>",
+                             handler.getTextBody() );
+        Assert.assertEquals( "", handler.getTextEnd() );
+    }
+
     @Test
     public void testBoldWithB()
         throws Exception
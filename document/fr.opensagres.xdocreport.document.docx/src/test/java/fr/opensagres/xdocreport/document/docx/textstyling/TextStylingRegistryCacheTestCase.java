@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.docx.textstyling;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.document.DocumentKind;
+import fr.opensagres.xdocreport.core.document.SyntaxKind;
+import fr.opensagres.xdocreport.document.DocumentContextHelper;
+import fr.opensagres.xdocreport.document.registry.TextStylingRegistry;
+import fr.opensagres.xdocreport.document.textstyling.ITransformResult;
+import fr.opensagres.xdocreport.template.IContext;
+
+/**
+ * Test case for the cache of the text styling transform results of a report generation.
+ */
+public class TextStylingRegistryCacheTestCase
+{
+
+    private static final String ENTRY_NAME = "word/document.xml";
+
+    @Test
+    public void testSameContentIsTransformedOnce()
+        throws Exception
+    {
+        TextStylingRegistry registry = TextStylingRegistry.getRegistry();
+        IContext context = new MockContext();
+        DocumentContextHelper.putTransformResultCache( context, registry.createTransformResultCache() );
+
+        ITransformResult result1 = transform( registry, "<b>text</b> &eacute;", context );
+        ITransformResult result2 = transform( registry, "<b>text</b> &eacute;", context );
+        ITransformResult result3 = transform( registry, "<i>text</i>", context );
+
+        Assert.assertSame( result1, result2 );
+        Assert.assertEquals( "<w:r><w:rPr><w:b /></w:rPr><w:t xml:space=\"preserve\" >text</w:t></w:r><w:r><w:t xml:space=\"preserve\" > </w:t></w:r><w:r><w:t xml:space=\"preserve\" >é</w:t></w:r>",
+                             result1.getTextBody() );
+        Assert.assertNotSame( result1, result3 );
+    }
+
+    @Test
+    public void testListIsNotCached()
+        throws Exception
+    {
+        TextStylingRegistry registry = TextStylingRegistry.getRegistry();
+        IContext context = new MockContext();
+        DocumentContextHelper.putTransformResultCache( context, registry.createTransformResultCache() );
+
+        ITransformResult result1 = transform( registry, "<ul><li>item</li></ul>", context );
+        ITransformResult result2 = transform( registry, "<ul><li>item</li></ul>", context );
+
+        Assert.assertNotSame( result1, result2 );
+        // each list has its own numbering
+        Assert.assertFalse( result1.getTextEnd().equals( result2.getTextEnd() ) );
+    }
+
+    @Test
+    public void testWithoutCache()
+        throws Exception
+    {
+        TextStylingRegistry registry = TextStylingRegistry.getRegistry();
+        IContext context = new MockContext();
+
+        ITransformResult result1 = transform( registry, "<b>text</b>", context );
+        ITransformResult result2 = transform( registry, "<b>text</b>", context );
+
+        Assert.assertNotSame( result1, result2 );
+        Assert.assertEquals( result1.getTextBody(), result2.getTextBody() );
+    }
+
+    private static ITransformResult transform( TextStylingRegistry registry, String content, IContext context )
+    {
+        return registry.transform( content, SyntaxKind.Html.name(), false, DocumentKind.DOCX.name(), null, context,
+                                   ENTRY_NAME );
+    }
+}
@@ -26,6 +26,7 @@ package fr.opensagres.xdocreport.document.odt.preprocessor;
 
 import java.util.Map;
 
+import fr.opensagres.xdocreport.document.preprocessor.ISelfContainedPreprocessor;
 import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
 import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedDocumentContentHandler;
 import fr.opensagres.xdocreport.document.preprocessor.sax.SAXXDocPreprocessor;
@@ -37,6 +38,7 @@ import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
  */
 public class ODTManifestXMLProcessor
     extends SAXXDocPreprocessor
+    implements ISelfContainedPreprocessor
 {
 
     public static final IXDocPreprocessor INSTANCE = new ODTManifestXMLProcessor();
@@ -29,6 +29,7 @@ import static fr.opensagres.xdocreport.document.pptx.PPTXConstants.MIME_MAPPING;
 import static fr.opensagres.xdocreport.document.pptx.PPTXConstants.PRESENTATION_PRESENTATION_XML_ENTRY;
 import static fr.opensagres.xdocreport.document.pptx.PPTXConstants.PRESENTATION_SLIDES_XML_ENTRY;
 import fr.opensagres.xdocreport.converter.MimeMapping;
+import fr.opensagres.xdocreport.core.cache.BoundedCacheStorage;
 import fr.opensagres.xdocreport.core.document.DocumentKind;
 import fr.opensagres.xdocreport.core.io.IEntryOutputStreamProvider;
 import fr.opensagres.xdocreport.core.io.IEntryReaderProvider;
@@ -48,6 +49,10 @@ public class PPTXReport
 
     private static final String PPT_REGEXP = "ppt*";
 
+    private static final String SLIDE_ENTRY_PREFIX = "ppt/slides/slide";
+
+    private static final String XML_EXTENSION = ".xml";
+
     private static final long serialVersionUID = -8323654563409226895L;
 
     private static final String[] DEFAULT_XML_ENTRIES = { PRESENTATION_PRESENTATION_XML_ENTRY,
@@ -70,6 +75,35 @@ public class PPTXReport
         return DEFAULT_XML_ENTRIES;
     }
 
+    /**
+     * The slides are independent, so they can be merged in parallel. The state shared by the slides while they are
+     * merged is thread-safe :
+     * <ul>
+     * <li>the image registry is synchronized.</li>
+     * <li>the buffered elements cache of the text styling is filled by the preprocessing and only read while
+     * merging.</li>
+     * <li>the cache of the text styling transform results is a synchronized {@link BoundedCacheStorage}.</li>
+     * </ul>
+     * The presentation and the other entries are merged sequentially after the slides.
+     */
+    @Override
+    protected boolean isParallelizableEntry( String entryName )
+    {
+        return isSlide( entryName );
+    }
+
+    /**
+     * Returns true if the given entry is a slide (ppt/slides/slide*.xml) and false otherwise.
+     * 
+     * @param entryName
+     * @return
+     */
+    static boolean isSlide( String entryName )
+    {
+        return entryName.startsWith( SLIDE_ENTRY_PREFIX ) && entryName.endsWith( XML_EXTENSION )
+            && entryName.indexOf( '/', SLIDE_ENTRY_PREFIX.length() ) == -1;
+    }
+
     public MimeMapping getMimeMapping()
     {
         return MIME_MAPPING;
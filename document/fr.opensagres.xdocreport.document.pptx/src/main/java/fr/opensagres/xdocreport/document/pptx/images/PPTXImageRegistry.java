@@ -42,6 +42,7 @@ public class PPTXImageRegistry
     extends AbstractImageRegistry
 {
 
+    // DecimalFormat is not thread-safe : getSize(float) is synchronized because entries can be merged in parallel.
 	private DecimalFormat df = new DecimalFormat("#");
 	
     private static final String IMAGE_BASE_PATH = "media/";
@@ -64,7 +65,7 @@ public class PPTXImageRegistry
     }
 
     @Override
-	public String getSize( float sizeAsPixel )
+	public synchronized String getSize( float sizeAsPixel )
     {
         float sizeAsDxa = (sizeAsPixel / 96) * 914400;
         String s = df.format(sizeAsDxa);
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.pptx;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.DocumentContextHelper;
+import fr.opensagres.xdocreport.document.images.ByteArrayImageProvider;
+import fr.opensagres.xdocreport.document.images.IImageRegistry;
+import fr.opensagres.xdocreport.document.images.ImageProviderInfo;
+import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
+import fr.opensagres.xdocreport.template.FieldsExtractor;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * Test case for the parallel merge of the slides of {@link PPTXReport}.
+ */
+public class PPTXReportTestCase
+    extends TestCase
+{
+
+    private static final int NB_SLIDES = 8;
+
+    public void testParallelizableEntries()
+    {
+        PPTXReport report = new PPTXReport();
+        assertTrue( report.isParallelizableEntry( "ppt/slides/slide1.xml" ) );
+        assertTrue( report.isParallelizableEntry( "ppt/slides/slide12.xml" ) );
+        assertFalse( report.isParallelizableEntry( "ppt/presentation.xml" ) );
+        assertFalse( report.isParallelizableEntry( "ppt/slides/_rels/slide1.xml.rels" ) );
+        assertFalse( report.isParallelizableEntry( "ppt/slideLayouts/slideLayout1.xml" ) );
+        assertFalse( report.isParallelizableEntry( "[Content_Types].xml" ) );
+    }
+
+    public void testParallelMergeOfSlides()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 3 );
+        try
+        {
+            SlideTemplateEngine sequentialEngine = new SlideTemplateEngine();
+            XDocArchive sequential = process( null, sequentialEngine );
+            SlideTemplateEngine parallelEngine = new SlideTemplateEngine();
+            XDocArchive parallel = process( executor, parallelEngine );
+
+            // the presentation is never merged while slides are merged.
+            assertFalse( sequentialEngine.presentationMergedWithSlides );
+            assertFalse( parallelEngine.presentationMergedWithSlides );
+            // the slides share the image registry : the same image is registered once with the same id.
+            for ( int i = 1; i <= NB_SLIDES; i++ )
+            {
+                String entryName = "ppt/slides/slide" + i + ".xml";
+                assertEquals( read( sequential, entryName ), read( parallel, entryName ) );
+            }
+            assertEquals( read( sequential, "ppt/presentation.xml" ), read( parallel, "ppt/presentation.xml" ) );
+            assertEquals( "<slide1>world xdocreport_0</slide1>", read( parallel, "ppt/slides/slide1.xml" ) );
+            assertEquals( 1, parallel.getEntryNames( "media/*" ).size() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static XDocArchive process( ExecutorService executor, SlideTemplateEngine templateEngine )
+        throws Exception
+    {
+        XDocArchive archive = new XDocArchive();
+        setEntry( archive, "[Content_Types].xml",
+                  "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\" />" );
+        setEntry( archive, "ppt/presentation.xml", "<presentation>${name}</presentation>" );
+        for ( int i = 1; i <= NB_SLIDES; i++ )
+        {
+            setEntry( archive, "ppt/slides/slide" + i + ".xml", "<slide" + i + ">${name} ${image}</slide" + i + ">" );
+        }
+
+        PPTXReport report = new PPTXReport()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void registerPreprocessors()
+            {
+            }
+        };
+        report.setId( "pptx" );
+        report.setTemplateEngine( templateEngine );
+        report.setProcessExecutor( executor );
+        report.setDocumentArchive( archive );
+
+        IContext context = report.createContext();
+        context.put( "name", "world" );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( context, out );
+        return XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+    }
+
+    private static void setEntry( XDocArchive archive, String entryName, String content )
+        throws IOException
+    {
+        XDocArchive.setEntry( archive, entryName, new ByteArrayInputStream( content.getBytes( "UTF-8" ) ) );
+    }
+
+    private static String read( XDocArchive archive, String entryName )
+        throws IOException
+    {
+        return IOUtils.toString( archive.getEntryReader( entryName ) );
+    }
+
+    /**
+     * Template engine which replaces ${name} and ${image} (with the id of an image registered in the image registry)
+     * and checks that the presentation is not merged at the same time as the slides.
+     */
+    private static class SlideTemplateEngine
+        extends AbstractTemplateEngine
+    {
+
+        private final AtomicInteger mergingSlides = new AtomicInteger();
+
+        private volatile boolean presentationMergedWithSlides;
+
+        private final byte[] image;
+
+        public SlideTemplateEngine()
+            throws IOException
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write( new BufferedImage( 1, 1, BufferedImage.TYPE_INT_RGB ), "png", out );
+            this.image = out.toByteArray();
+        }
+
+        @Override
+        protected void processWithCache( String templateName, IContext context, Writer writer )
+            throws XDocReportException, IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void processNoCache( String templateName, IContext context, Reader reader, Writer writer )
+            throws XDocReportException, IOException
+        {
+            // template name is $reportId!$entryName
+            String entryName = templateName.substring( templateName.lastIndexOf( '!' ) + 1 );
+            String content = IOUtils.toString( reader );
+            boolean slide = PPTXReport.isSlide( entryName );
+            if ( slide )
+            {
+                mergingSlides.incrementAndGet();
+            }
+            else if ( mergingSlides.get() > 0 )
+            {
+                presentationMergedWithSlides = true;
+            }
+            try
+            {
+                if ( content.contains( "${image}" ) )
+                {
+                    IImageRegistry imageRegistry = DocumentContextHelper.getImageRegistry( context );
+                    ImageProviderInfo info =
+                        imageRegistry.registerImage( new ByteArrayImageProvider( image ), "image", context );
+                    content = content.replace( "${image}", info.getImageId() );
+                    Thread.sleep( 10 );
+                }
+                writer.write( content.replace( "${name}", String.valueOf( context.get( "name" ) ) ) );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                if ( slide )
+                {
+                    mergingSlides.decrementAndGet();
+                }
+            }
+        }
+
+        public String getKind()
+        {
+            return "mock";
+        }
+
+        public String getId()
+        {
+            return "mock";
+        }
+
+        public IContext createContext()
+        {
+            return createContext( new HashMap<String, Object>() );
+        }
+
+        public IContext createContext( final Map<String, Object> contextMap )
+        {
+            return new IContext()
+            {
+                public Object put( String key, Object value )
+                {
+                    return contextMap.put( key, value );
+                }
+
+                public Object get( String key )
+                {
+                    return contextMap.get( key );
+                }
+
+                public void putMap( Map<String, Object> map )
+                {
+                    contextMap.putAll( map );
+                }
+
+                public Map<String, Object> getContextMap()
+                {
+                    return contextMap;
+                }
+            };
+        }
+
+        public void extractFields( Reader reader, String entryName, FieldsExtractor extractor )
+            throws XDocReportException
+        {
+        }
+
+        public IDocumentFormatter getDocumentFormatter()
+        {
+            return null;
+        }
+
+        public void process( String templateName, IContext context, Writer writer )
+            throws IOException, XDocReportException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean isFieldNameStartsWithUpperCase()
+        {
+            return false;
+        }
+    }
+}
@@ -29,13 +29,28 @@ import static fr.opensagres.xdocreport.core.utils.StringUtils.EMPTY_STRING_ARRAY
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,21 +59,32 @@ import fr.opensagres.xdocreport.converter.IConverter;
 import fr.opensagres.xdocreport.converter.Options;
 import fr.opensagres.xdocreport.converter.XDocConverterException;
 import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.cache.ICacheStorage;
 import fr.opensagres.xdocreport.core.io.IEntryOutputStreamProvider;
 import fr.opensagres.xdocreport.core.io.IEntryReaderProvider;
 import fr.opensagres.xdocreport.core.io.IEntryWriterProvider;
+import fr.opensagres.xdocreport.core.io.StreamingZipWriter;
 import fr.opensagres.xdocreport.core.io.XDocArchive;
 import fr.opensagres.xdocreport.core.logging.LogUtils;
+import fr.opensagres.xdocreport.core.metrics.ReportMetricsRegistry;
+import fr.opensagres.xdocreport.core.metrics.ReportPhase;
+import fr.opensagres.xdocreport.core.metrics.ReportPhaseTimer;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
+import fr.opensagres.xdocreport.document.batch.BatchResult;
+import fr.opensagres.xdocreport.document.batch.IBatchOutputStreamProvider;
 import fr.opensagres.xdocreport.document.dump.DumperOptions;
 import fr.opensagres.xdocreport.document.dump.DumperRegistry;
 import fr.opensagres.xdocreport.document.dump.IDumper;
 import fr.opensagres.xdocreport.document.images.DefaultImageHandler;
 import fr.opensagres.xdocreport.document.images.IImageRegistry;
+import fr.opensagres.xdocreport.document.preprocessor.IPreprocessedTemplateStore;
+import fr.opensagres.xdocreport.document.preprocessor.ISelfContainedPreprocessor;
 import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
+import fr.opensagres.xdocreport.document.preprocessor.PreprocessedTemplate;
 import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedElement;
 import fr.opensagres.xdocreport.document.registry.TextStylingRegistry;
 import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.document.textstyling.ITransformResult;
 import fr.opensagres.xdocreport.template.FieldsExtractor;
 import fr.opensagres.xdocreport.template.IContext;
 import fr.opensagres.xdocreport.template.ITemplateEngine;
@@ -103,9 +129,11 @@ public abstract class AbstractXDocReport
     private XDocArchive originalArchive = null;
 
     /**
-     * Zipped XML Document (odt, docx) which is the original XML Document preprocessed.
+     * Zipped XML Document (odt, docx) which is the original XML Document preprocessed. Once the preprocessing is done,
+     * this archive is never modified (the preprocessing is done in a copy which is published when it's done), so it can
+     * be shared by several threads which generate reports.
      */
-    private XDocArchive preprocessedArchive = null;
+    private volatile XDocArchive preprocessedArchive = null;
 
     /**
      * XML entries which define XML document to merge with Java model with template engine.
@@ -120,13 +148,41 @@ public abstract class AbstractXDocReport
     /**
      * True if preprocessing was done et false otherwise.
      */
-    private boolean preprocessed;
+    private volatile boolean preprocessed;
 
     /**
      * Cache or not for original document archive.
      */
     private boolean cacheOriginalDocument = false;
 
+    /**
+     * True if the merged XML entries must be written directly in the zip of the output stream and false otherwise.
+     */
+    private boolean streamingProcess = false;
+
+    /**
+     * True if the preprocessing must reuse the result of the previous preprocessing for the entries which didn't change
+     * when a new version of the document archive is loaded.
+     */
+    private boolean incrementalPreprocessing = false;
+
+    /**
+     * State of the last preprocessing, used by the incremental preprocessing (null if incremental preprocessing is
+     * disabled or if no preprocessing was done).
+     */
+    private transient PreprocessingState preprocessingState = null;
+
+    /**
+     * Store used to load the preprocessed template instead of preprocessing it (null if preprocessed templates are not
+     * stored).
+     */
+    private transient IPreprocessedTemplateStore preprocessedTemplateStore = null;
+
+    /**
+     * Executor used to merge the XML entries in parallel (null to merge the entries sequentially).
+     */
+    private transient Executor processExecutor = null;
+
     /**
      * Custom data.
      */
@@ -176,7 +232,18 @@ public abstract class AbstractXDocReport
             preprocessed = false;
         }
         // Load zipped XML Document (odt, docx...)
-        setDocumentArchive( XDocArchive.readZip( sourceStream ) );
+        ReportPhaseTimer timer = ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.Load, getId(), null );
+        XDocArchive documentArchive = null;
+        try
+        {
+            documentArchive = XDocArchive.readZip( sourceStream );
+            timer.done( documentArchive.getLength() );
+        }
+        finally
+        {
+            timer.stop();
+        }
+        setDocumentArchive( documentArchive );
     }
 
     /*
@@ -184,7 +251,7 @@ public abstract class AbstractXDocReport
      * @see fr.opensagres.xdocreport.core.document.IXDocReport#setDocumentArchive (fr.opensagres
      * .xdocreport.core.document.XDocArchive)
      */
-    public void setDocumentArchive( XDocArchive documentArchive )
+    public synchronized void setDocumentArchive( XDocArchive documentArchive )
         throws IOException, XDocReportException
     {
         this.lastModified = System.currentTimeMillis();
@@ -256,6 +323,7 @@ public abstract class AbstractXDocReport
             preprocessors.put( entryName, entryPreprocessors );
         }
         entryPreprocessors.add( preprocessor );
+        preprocessingState = null;
     }
 
     /**
@@ -266,6 +334,7 @@ public abstract class AbstractXDocReport
     public void removePreprocessor( String entryName )
     {
         preprocessors.remove( entryName );
+        preprocessingState = null;
     }
 
     /**
@@ -274,6 +343,7 @@ public abstract class AbstractXDocReport
     public void removeAllPreprocessors()
     {
         preprocessors.clear();
+        preprocessingState = null;
     }
 
     /**
@@ -317,10 +387,29 @@ public abstract class AbstractXDocReport
         doPreprocessorIfNeeded();
     }
 
+    public void warmup()
+        throws XDocReportException, IOException
+    {
+        // 1) Execute preprocessors (threads which process the report at the same time wait for the end of the
+        // preprocessing).
+        doPreprocessorIfNeeded();
+        // 2) Compile the template of each XML entries (threads which merge an entry at the same time wait for the end
+        // of its compilation).
+        ITemplateEngine templateEngine = internalGetTemplateEngine();
+        for ( String entryName : getEntryNamesToMerge( internalGetDocumentArchive() ) )
+        {
+            templateEngine.compile( getId(), entryName );
+        }
+    }
+
     /**
      * Execute processors registered to modify entry names of the original document archive. Processors use
      * {@link FieldsMetadata} and {@link IDocumentFormatter} (coming from {@link ITemplateEngine#getDocumentFormatter()}
      * to manage lazy loop for table row.
+     * <p>
+     * When several threads call this method at the same time, the preprocessing is done only once : the other threads
+     * wait for the end of the preprocessing.
+     * </p>
      * 
      * @throws XDocReportException
      * @throws IOException
@@ -333,11 +422,342 @@ public abstract class AbstractXDocReport
             // preprocessing is already done
             return;
         }
-        if ( templateEngine == null )
+        synchronized ( this )
+        {
+            if ( preprocessed )
+            {
+                // preprocessing was done by an other thread
+                return;
+            }
+            if ( templateEngine == null )
+            {
+                // template engine is not set, so preprocessing cannot be done
+                return;
+            }
+            // Preprocess a copy of the archive and publish it when preprocessing is done, to avoid that threads which
+            // use the current archive see a partially preprocessed archive.
+            XDocArchive sourceArchive = internalGetDocumentArchive();
+            XDocArchive archive = null;
+            PreprocessingState previousState = this.preprocessingState;
+            PreprocessingState state = null;
+            if ( incrementalPreprocessing )
+            {
+                state = new PreprocessingState( sourceArchive, templateEngine, getPreprocessingFingerprint() );
+                Set<String> changedEntryNames = state.getChangedEntryNames( previousState );
+                if ( changedEntryNames != null )
+                {
+                    archive = reusePreprocessing( previousState.preprocessedArchive, sourceArchive, changedEntryNames );
+                    if ( archive == null )
+                    {
+                        archive = sourceArchive.createCopy();
+                        doPreprocessor( archive, previousState.preprocessedArchive, changedEntryNames );
+                    }
+                }
+            }
+            if ( archive == null )
+            {
+                String templateKey = getPreprocessedTemplateKey( sourceArchive );
+                archive = loadPreprocessedTemplate( templateKey );
+                if ( archive == null )
+                {
+                    archive = sourceArchive.createCopy();
+                    doPreprocessor( archive, null, null );
+                    savePreprocessedTemplate( templateKey, archive );
+                }
+            }
+            if ( state != null )
+            {
+                state.preprocessedArchive = archive;
+            }
+            this.preprocessingState = state;
+            this.preprocessedArchive = archive;
+            // Preprocessing is done
+            this.preprocessed = true;
+        }
+    }
+
+    /**
+     * Returns the preprocessed archive built from the previous preprocessed archive if the changed entries are not read
+     * by the preprocessing and null otherwise. In this case the preprocessing is not executed at all (the state
+     * computed by the previous preprocessing is kept).
+     * 
+     * @param previousArchive the previous preprocessed archive.
+     * @param sourceArchive the new version of the archive to preprocess.
+     * @param changedEntryNames the entries which changed since the previous preprocessing.
+     * @return
+     * @throws IOException
+     */
+    private XDocArchive reusePreprocessing( XDocArchive previousArchive, XDocArchive sourceArchive,
+                                            Set<String> changedEntryNames )
+        throws IOException
+    {
+        for ( String entryName : changedEntryNames )
+        {
+            if ( !sourceArchive.hasEntry( entryName ) || isPreprocessingInput( entryName, sourceArchive ) )
+            {
+                return null;
+            }
+        }
+        XDocArchive archive = previousArchive.createCopy();
+        for ( String entryName : changedEntryNames )
+        {
+            XDocArchive.setEntry( archive, entryName, sourceArchive.getEntryInputStream( entryName ) );
+        }
+        return archive;
+    }
+
+    /**
+     * Returns true if the given entry is read by the preprocessing and false otherwise. By default, an entry is read by
+     * the preprocessing if a preprocessor is registered for it (with its name or with a wildcard). This method must be
+     * overridden if a preprocessor (or {@link #onBeforePreprocessing(Map, XDocArchive)}) reads other entries.
+     * 
+     * @param entryName
+     * @param archive
+     * @return
+     */
+    protected boolean isPreprocessingInput( String entryName, XDocArchive archive )
+    {
+        for ( String preprocessorName : preprocessors.keySet() )
+        {
+            if ( preprocessorName.equals( entryName ) || archive.getEntryNames( preprocessorName ).contains( entryName ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a string which changes when the configuration used by the preprocessing (fields metadata) changes. The
+     * custom formatters of the fields metadata are compared by instance.
+     * 
+     * @return
+     */
+    private String getPreprocessingFingerprint()
+    {
+        FieldsMetadata fieldsMetadata = this.fieldsMetadata;
+        if ( fieldsMetadata == null )
+        {
+            return "";
+        }
+        StringBuilder fingerprint = new StringBuilder( fieldsMetadata.toString() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.getBeforeTableToken() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.getAfterTableToken() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.getBeforeRowToken() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.getAfterRowToken() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.getBeforeTableCellToken() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.getAfterTableCellToken() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.isEvaluateEngineOnlyForFields() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.getBehaviour() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.isUseImageSize() );
+        fingerprint.append( '\0' ).append( fieldsMetadata.getCustomFormatter() );
+        return fingerprint.toString();
+    }
+
+    /**
+     * Returns the key of the preprocessed template in the {@link IPreprocessedTemplateStore} and null if there is no
+     * store or if the preprocessing cannot be stored (custom formatters cannot be compared between 2 JVM). The key is
+     * computed with the digest of the entries of the given archive, the template engine, the preprocessors (and the
+     * version of their jar, so a template preprocessed by another version of XDocReport is not loaded) and the fields
+     * metadata.
+     * 
+     * @param sourceArchive
+     * @return
+     * @throws IOException
+     */
+    private String getPreprocessedTemplateKey( XDocArchive sourceArchive )
+        throws IOException
+    {
+        if ( preprocessedTemplateStore == null )
+        {
+            return null;
+        }
+        if ( fieldsMetadata != null && fieldsMetadata.getCustomFormatter() != null
+            && !fieldsMetadata.getCustomFormatter().isEmpty() )
+        {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        key.append( getClass().getName() ).append( '\0' ).append( getVersion( getClass() ) );
+        key.append( '\0' ).append( getVersion( AbstractXDocReport.class ) );
+        key.append( '\0' ).append( templateEngine.getClass().getName() );
+        key.append( '\0' ).append( templateEngine.getKind() );
+        key.append( '\0' ).append( templateEngine.getId() );
+        for ( Entry<String, Collection<IXDocPreprocessor>> entry : preprocessors.entrySet() )
+        {
+            key.append( '\0' ).append( entry.getKey() );
+            for ( IXDocPreprocessor preprocessor : entry.getValue() )
+            {
+                key.append( '\0' ).append( preprocessor.getClass().getName() );
+                key.append( '\0' ).append( getVersion( preprocessor.getClass() ) );
+            }
+        }
+        key.append( '\0' ).append( getPreprocessingFingerprint() );
+        for ( String entryName : new TreeSet<String>( sourceArchive.getEntryNames() ) )
+        {
+            key.append( '\0' ).append( entryName ).append( '=' ).append( sourceArchive.getEntryDigest( entryName ) );
+        }
+        try
+        {
+            byte[] digest = MessageDigest.getInstance( "SHA-1" ).digest( key.toString().getBytes( "UTF-8" ) );
+            StringBuilder hex = new StringBuilder( digest.length * 2 );
+            for ( byte b : digest )
+            {
+                hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+            }
+            return hex.toString();
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            return null;
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the version of the given class : the implementation version of its jar or else the location of its jar
+     * (which contains the version of the jar when it's deployed with Maven).
+     * 
+     * @param clazz
+     * @return
+     */
+    private static String getVersion( Class<?> clazz )
+    {
+        Package classPackage = clazz.getPackage();
+        if ( classPackage != null && classPackage.getImplementationVersion() != null )
+        {
+            return classPackage.getImplementationVersion();
+        }
+        try
+        {
+            CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+            if ( codeSource != null && codeSource.getLocation() != null )
+            {
+                return codeSource.getLocation().toExternalForm();
+            }
+        }
+        catch ( SecurityException e )
+        {
+            // the location of the jar is not available.
+        }
+        return "";
+    }
+
+    /**
+     * Load the preprocessed template with the given key from the {@link IPreprocessedTemplateStore} and restore the
+     * state of the preprocessing.
+     * 
+     * @param templateKey
+     * @return the preprocessed archive and null if the template was not stored.
+     */
+    private XDocArchive loadPreprocessedTemplate( String templateKey )
+    {
+        if ( templateKey == null )
+        {
+            return null;
+        }
+        try
+        {
+            PreprocessedTemplate template = preprocessedTemplateStore.load( templateKey );
+            if ( template == null )
+            {
+                return null;
+            }
+            restorePreprocessingState( template.getState() );
+            if ( LOGGER.isLoggable( Level.FINE ) )
+            {
+                LOGGER.fine( "Preprocessed template of the report " + getId() + " loaded from the store." );
+            }
+            return template.getPreprocessedArchive();
+        }
+        catch ( IOException e )
+        {
+            if ( LOGGER.isLoggable( Level.WARNING ) )
+            {
+                LOGGER.log( Level.WARNING, "Error while loading the preprocessed template of the report " + getId(),
+                            e );
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Store the given preprocessed archive and the state of the preprocessing in the
+     * {@link IPreprocessedTemplateStore}.
+     * 
+     * @param templateKey
+     * @param preprocessedArchive
+     */
+    private void savePreprocessedTemplate( String templateKey, XDocArchive preprocessedArchive )
+    {
+        if ( templateKey == null )
         {
-            // template engine is not set, so preprocessing cannot be done
             return;
         }
+        Map<String, Serializable> state = new HashMap<String, Serializable>();
+        if ( !savePreprocessingState( state ) )
+        {
+            // the state of the preprocessing cannot be stored
+            return;
+        }
+        try
+        {
+            preprocessedTemplateStore.save( templateKey, new PreprocessedTemplate( preprocessedArchive, state ) );
+        }
+        catch ( IOException e )
+        {
+            if ( LOGGER.isLoggable( Level.WARNING ) )
+            {
+                LOGGER.log( Level.WARNING, "Error while storing the preprocessed template of the report " + getId(),
+                            e );
+            }
+        }
+    }
+
+    /**
+     * Fill the given map with the state computed by the preprocessing which is required to generate the reports. This
+     * method must be overridden if the report keeps a state computed by the preprocessing (ex : in
+     * {@link #onAfterPreprocessing(Map, XDocArchive)}).
+     * 
+     * @param state
+     * @return true if the state can be stored and false otherwise (ex : the {@link BufferedElement} of the text styling
+     *         cannot be stored).
+     */
+    protected boolean savePreprocessingState( Map<String, Serializable> state )
+    {
+        return elementsCache == null || elementsCache.isEmpty();
+    }
+
+    /**
+     * Restore the state of the preprocessing filled by {@link #savePreprocessingState(Map)}.
+     * 
+     * @param state
+     */
+    protected void restorePreprocessingState( Map<String, Serializable> state )
+    {
+        if ( fieldsMetadata != null && fieldsMetadata.getFieldsAsTextStyling().size() > 0 )
+        {
+            elementsCache = new HashMap<String, BufferedElement>();
+        }
+    }
+
+    /**
+     * Execute the registered preprocessors.
+     * 
+     * @param preprocessedArchive the archive to preprocess.
+     * @param previousArchive the previous preprocessed archive (null if preprocessing is not incremental).
+     * @param changedEntryNames the entries which changed since the previous preprocessing (null if preprocessing is not
+     *            incremental).
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private void doPreprocessor( XDocArchive preprocessedArchive, XDocArchive previousArchive,
+                                 Set<String> changedEntryNames )
+        throws XDocReportException, IOException
+    {
         Map<String, Object> sharedContext = new HashMap<String, Object>();
         if ( fieldsMetadata != null && fieldsMetadata.getFieldsAsTextStyling().size() > 0 )
         {
@@ -356,12 +776,16 @@ public abstract class AbstractXDocReport
                 Collection<IXDocPreprocessor> entryPreprocessors = entry.getValue();
                 if ( preprocessedArchive.hasEntry( preprocessorName ) )
                 {
+                    if ( reusePreprocessing( preprocessorName, entryPreprocessors, preprocessedArchive,
+                                             previousArchive, changedEntryNames ) )
+                    {
+                        continue;
+                    }
                     for ( IXDocPreprocessor preprocessor : entryPreprocessors )
                     {
                         // XML Document contains a XML file which must be
                         // preprocessed
-                        preprocessor.preprocess( preprocessorName, preprocessedArchive, fieldsMetadata, formatter,
-                                                 sharedContext );
+                        preprocess( preprocessor, preprocessorName, preprocessedArchive, formatter, sharedContext );
                     }
                 }
                 else
@@ -372,11 +796,15 @@ public abstract class AbstractXDocReport
                     {
                         for ( String entryNameFromWilcard : entriesNameFromWilcard )
                         {
+                            if ( reusePreprocessing( entryNameFromWilcard, entryPreprocessors, preprocessedArchive,
+                                                     previousArchive, changedEntryNames ) )
+                            {
+                                continue;
+                            }
                             for ( IXDocPreprocessor preprocessor : entryPreprocessors )
                             {
-                                preprocessor.preprocess( entryNameFromWilcard, preprocessedArchive, fieldsMetadata,
-
-                                formatter, sharedContext );
+                                preprocess( preprocessor, entryNameFromWilcard, preprocessedArchive, formatter,
+                                            sharedContext );
                             }
                         }
                     }
@@ -399,13 +827,71 @@ public abstract class AbstractXDocReport
         finally
         {
             onAfterPreprocessing( sharedContext, preprocessedArchive );
-            // Preprocessing is done
-            preprocessed = true;
             sharedContext.clear();
             sharedContext = null;
         }
     }
 
+    /**
+     * Copy the previous preprocessed content of the given entry if the entry didn't change and if all its preprocessors
+     * are {@link ISelfContainedPreprocessor}.
+     * 
+     * @param entryName
+     * @param entryPreprocessors
+     * @param preprocessedArchive
+     * @param previousArchive
+     * @param changedEntryNames
+     * @return true if the previous preprocessed content was reused and false otherwise.
+     * @throws IOException
+     */
+    private boolean reusePreprocessing( String entryName, Collection<IXDocPreprocessor> entryPreprocessors,
+                                        XDocArchive preprocessedArchive, XDocArchive previousArchive,
+                                        Set<String> changedEntryNames )
+        throws IOException
+    {
+        if ( previousArchive == null || changedEntryNames.contains( entryName ) || !previousArchive.hasEntry( entryName ) )
+        {
+            return false;
+        }
+        for ( IXDocPreprocessor preprocessor : entryPreprocessors )
+        {
+            if ( !( preprocessor instanceof ISelfContainedPreprocessor ) )
+            {
+                return false;
+            }
+        }
+        XDocArchive.setEntry( preprocessedArchive, entryName, previousArchive.getEntryInputStream( entryName ) );
+        return true;
+    }
+
+    /**
+     * Execute the given preprocessor for the given entry and notify the {@link ReportMetricsRegistry}.
+     * 
+     * @param preprocessor
+     * @param entryName
+     * @param preprocessedArchive
+     * @param formatter
+     * @param sharedContext
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private void preprocess( IXDocPreprocessor preprocessor, String entryName, XDocArchive preprocessedArchive,
+                             IDocumentFormatter formatter, Map<String, Object> sharedContext )
+        throws XDocReportException, IOException
+    {
+        ReportPhaseTimer timer =
+            ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.Preprocess, getId(), entryName );
+        try
+        {
+            preprocessor.preprocess( entryName, preprocessedArchive, fieldsMetadata, formatter, sharedContext );
+            timer.done( preprocessedArchive.getEntryLength( entryName ) );
+        }
+        finally
+        {
+            timer.stop();
+        }
+    }
+
     /**
      * On before preprocessing.
      * 
@@ -484,6 +970,159 @@ public abstract class AbstractXDocReport
         process( context, null, out );
     }
 
+    /*
+     * (non-Javadoc)
+     * @see fr.opensagres.xdocreport.document.IXDocReport#processAll(java.util.Iterator,
+     * fr.opensagres.xdocreport.document.batch.IBatchOutputStreamProvider, java.util.concurrent.Executor, int)
+     */
+    public BatchResult processAll( Iterator<IContext> contexts, IBatchOutputStreamProvider outputStreamProvider,
+                                   Executor executor, int nbThreads )
+        throws XDocReportException, IOException
+    {
+        // preprocess once for the whole batch
+        doPreprocessorIfNeeded();
+        BatchResult result = new BatchResult();
+        BatchWorker worker = new BatchWorker( contexts, outputStreamProvider, result );
+        if ( nbThreads <= 1 || executor == null )
+        {
+            worker.run();
+            return result;
+        }
+        // the current thread is one of the workers
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>( nbThreads - 1 );
+        try
+        {
+            for ( int i = 1; i < nbThreads; i++ )
+            {
+                FutureTask<Void> task = new FutureTask<Void>( worker, null );
+                try
+                {
+                    executor.execute( task );
+                    tasks.add( task );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    // no more thread available, the batch is generated by the started workers.
+                    break;
+                }
+            }
+            worker.run();
+            for ( FutureTask<Void> task : tasks )
+            {
+                // run the worker if it is not started yet (the executor can be busy), it ends as soon as there are no
+                // more contexts.
+                task.run();
+                task.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new XDocReportException( e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new XDocReportException( cause );
+        }
+        finally
+        {
+            // stop the other workers if the batch fails (ex : the iterator throws an exception).
+            worker.stop();
+        }
+        return result;
+    }
+
+    /**
+     * Worker which generates the documents of a batch : each worker takes the next context of the batch until there
+     * are no more contexts, so only the contexts which are being processed are consumed from the iterator.
+     */
+    private class BatchWorker
+        implements Runnable
+    {
+
+        private final Iterator<IContext> contexts;
+
+        private final IBatchOutputStreamProvider outputStreamProvider;
+
+        private final BatchResult result;
+
+        private int nextIndex = 0;
+
+        private volatile boolean stopped = false;
+
+        public BatchWorker( Iterator<IContext> contexts, IBatchOutputStreamProvider outputStreamProvider,
+                            BatchResult result )
+        {
+            this.contexts = contexts;
+            this.outputStreamProvider = outputStreamProvider;
+            this.result = result;
+        }
+
+        public void run()
+        {
+            while ( !stopped )
+            {
+                int index;
+                IContext context;
+                synchronized ( this )
+                {
+                    if ( stopped )
+                    {
+                        return;
+                    }
+                    try
+                    {
+                        if ( !contexts.hasNext() )
+                        {
+                            return;
+                        }
+                        context = contexts.next();
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        // the iterator fails, stop the batch
+                        stopped = true;
+                        throw e;
+                    }
+                    index = nextIndex++;
+                }
+                process( index, context );
+            }
+        }
+
+        private void process( int index, IContext context )
+        {
+            try
+            {
+                OutputStream out = outputStreamProvider.getOutputStream( index, context );
+                try
+                {
+                    AbstractXDocReport.this.process( context, out );
+                }
+                finally
+                {
+                    out.close();
+                }
+                result.addProcessed();
+            }
+            catch ( Exception e )
+            {
+                LOGGER.log( Level.SEVERE, "Error while generating the document [" + index + "] of the batch", e );
+                result.addError( index, context, e );
+            }
+        }
+
+        public void stop()
+        {
+            stopped = true;
+        }
+    }
+
     /**
      * Generate report by merging Java model frm the context with XML Document (odt, docx...) preprocessed and store the
      * result into output stream.
@@ -508,30 +1147,41 @@ public abstract class AbstractXDocReport
             // docx..) only if preprocessing was not done.
             doPreprocessorIfNeeded();
 
-            // 4) Copy original archive to returns
-            outputArchive = internalGetDocumentArchive().createCopy();
-
-            // 5) Loop for each entries (XML file from the zipped XML
-            // document (odt, docx...)
-            // to merge it with Java model from the context with template
-            // engine (freemarker, velocity).
-            processTemplateEngine( context, outputArchive );
-
-            doPostprocessIfNeeded( outputArchive );
+            // 4) Copy original archive to returns
+            outputArchive = internalGetDocumentArchive().createCopy();
 
-            if ( StringUtils.isNotEmpty( entryName ) )
+            if ( streamingProcess && StringUtils.isEmpty( entryName ) )
             {
-                if ( !outputArchive.hasEntry( entryName ) )
+                // 5) Loop for each entries (XML file from the zipped XML
+                // document (odt, docx...)
+                // to merge it with Java model from the context with template
+                // engine (freemarker, velocity) and write the result directly in the zip of the output stream.
+                StreamingZipWriter zipWriter = new StreamingZipWriter( outputArchive, out );
+                processTemplateEngine( context, outputArchive, zipWriter );
+
+                doPostprocessIfNeeded( outputArchive );
+
+                // 6) save the other entries of the document archive into ouput stream
+                ReportPhaseTimer timer =
+                    ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.Zip, getId(), null );
+                try
                 {
-                    throw new XDocReportException( "No entry for the entry name=" + entryName );
+                    zipWriter.close();
+                    // the merged entries are already written in the zip
+                    timer.done();
+                }
+                finally
+                {
+                    timer.stop();
                 }
-                // 6) save the merged XML entry into ouput stream
-                XDocArchive.writeEntry( outputArchive, entryName, out );
             }
             else
             {
-                // 6) save the merged XML document archive into ouput stream
-                XDocArchive.writeZip( outputArchive, out );
+                processTemplateEngine( context, outputArchive );
+
+                doPostprocessIfNeeded( outputArchive );
+
+                saveOutputArchive( outputArchive, entryName, out );
             }
             // 7) End process report generation
             if ( LOGGER.isLoggable( Level.FINE ) )
@@ -574,6 +1224,46 @@ public abstract class AbstractXDocReport
         }
     }
 
+    /**
+     * Save the merged XML document archive (or the given entry of this archive) into ouput stream.
+     * 
+     * @param outputArchive
+     * @param entryName
+     * @param out
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private void saveOutputArchive( XDocArchive outputArchive, String entryName, OutputStream out )
+        throws XDocReportException, IOException
+    {
+        boolean singleEntry = StringUtils.isNotEmpty( entryName );
+        ReportPhaseTimer timer =
+            ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.Zip, getId(), singleEntry ? entryName : null );
+        try
+        {
+            if ( singleEntry )
+            {
+                if ( !outputArchive.hasEntry( entryName ) )
+                {
+                    throw new XDocReportException( "No entry for the entry name=" + entryName );
+                }
+                // 6) save the merged XML entry into ouput stream
+                XDocArchive.writeEntry( outputArchive, entryName, out );
+                timer.done( outputArchive.getEntryLength( entryName ) );
+            }
+            else
+            {
+                // 6) save the merged XML document archive into ouput stream
+                XDocArchive.writeZip( outputArchive, out );
+                timer.done( outputArchive.getLength() );
+            }
+        }
+        finally
+        {
+            timer.stop();
+        }
+    }
+
     protected void doPostprocessIfNeeded( XDocArchive outputArchive )
     {
         // Empty default impl to avoid breaking compat
@@ -633,6 +1323,7 @@ public abstract class AbstractXDocReport
         }
         // force the preprocessing (see http://code.google.com/p/xdocreport/issues/detail?id=186)
         doPreprocessorIfNeeded();
+        XDocArchive preprocessedArchive = internalGetDocumentArchive();
         // Loop for each entries (XML file from the zipped XML
         // document (odt, docx...) to extract declared fields .
         String[] xmlEntries = internalGetXMLEntries();
@@ -699,15 +1390,26 @@ public abstract class AbstractXDocReport
             // engine (freemarker, velocity).
             processTemplateEngine( context, outputArchive );
 
-            if ( converter.canSupportEntries() )
+            ReportPhaseTimer timer =
+                ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.Convert, getId(), null );
+            try
             {
-                converter.convert( outputArchive, out, options );
+                if ( converter.canSupportEntries() )
+                {
+                    converter.convert( outputArchive, out, options );
+                }
+                else
+                {
+                    // Converter cannot supper input entries provider,
+                    // rebuild a zip and set it as input stream. The zip is read just after by the converter, so
+                    // entries are stored (not compressed) to avoid to deflate them and then to inflate them.
+                    converter.convert( XDocArchive.getInputStream( outputArchive, false ), out, options );
+                }
+                timer.done();
             }
-            else
+            finally
             {
-                // Converter cannot supper input entries provider,
-                // rebuild a zip and set it as input stream.
-                converter.convert( XDocArchive.getInputStream( outputArchive ), out, options );
+                timer.stop();
             }
 
             // 7) End process report generation
@@ -758,32 +1460,254 @@ public abstract class AbstractXDocReport
     private void processTemplateEngine( final IContext context, XDocArchive outputArchive )
         throws XDocReportException, IOException
     {
-        String[] xmlEntries = internalGetXMLEntries();
+        processTemplateEngine( context, outputArchive, outputArchive );
+    }
+
+    /**
+     * Merge each XML entries of the given archive with the Java model from the context and write the result with the
+     * given writer provider.
+     * 
+     * @param context
+     * @param outputArchive
+     * @param writerProvider
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private void processTemplateEngine( final IContext context, XDocArchive outputArchive,
+                                        IEntryWriterProvider writerProvider )
+        throws XDocReportException, IOException
+    {
+        List<String> entryNames = getEntryNamesToMerge( outputArchive );
 
         onBeforeProcessTemplateEngine( context, outputArchive );
-        String entryName = null;
-        for ( int i = 0; i < xmlEntries.length; i++ )
+        Executor executor = this.processExecutor;
+        if ( executor != null )
+        {
+            // 5.1) merge the independent XML entries in parallel, the other entries are merged after.
+            entryNames = processTemplateEngineInParallel( executor, context, outputArchive, entryNames );
+        }
+        for ( String entryName : entryNames )
+        {
+            // 5.2) merge current XML file with Java model from the
+            // context with template engine (freemarker, velocity).
+            processEntry( templateEngine, getId(), entryName, outputArchive, writerProvider, context );
+        }
+        onAfterProcessTemplateEngine( context, outputArchive );
+    }
+
+    /**
+     * Merge the given XML entry with the template engine and notify the {@link ReportMetricsRegistry}.
+     * 
+     * @param templateEngine
+     * @param reportId
+     * @param entryName
+     * @param outputArchive
+     * @param writerProvider
+     * @param context
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private void processEntry( ITemplateEngine templateEngine, String reportId, String entryName,
+                               XDocArchive outputArchive, IEntryWriterProvider writerProvider, IContext context )
+        throws XDocReportException, IOException
+    {
+        ReportPhaseTimer timer =
+            ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.Merge, reportId, entryName );
+        try
+        {
+            templateEngine.process( reportId, entryName, outputArchive, writerProvider, context );
+            // when the entry is written directly in the zip (streaming process), its length is unknown.
+            timer.done( writerProvider == outputArchive ? outputArchive.getEntryLength( entryName ) : -1 );
+        }
+        finally
+        {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the names of the XML entries to merge (wildcard XML entries are replaced with the matching entries) in
+     * the order of the XML entries.
+     * 
+     * @param outputArchive
+     * @return
+     * @throws XDocReportException
+     */
+    private List<String> getEntryNamesToMerge( XDocArchive outputArchive )
+        throws XDocReportException
+    {
+        String[] xmlEntries = internalGetXMLEntries();
+        List<String> entryNames = new ArrayList<String>( xmlEntries.length );
+        for ( String entryName : xmlEntries )
         {
-            entryName = xmlEntries[i];
             if ( outputArchive.hasEntry( entryName ) )
             {
-                // 5.1) merge current XML file with Java model from the
-                // context with template engine (freemarker, velocity).
-                templateEngine.process( getId(), entryName, outputArchive, outputArchive, context );
+                entryNames.add( entryName );
             }
             else
             {
                 // Test if it's wilcard?
-                Set<String> entriesNameFromWilcard = internalGetDocumentArchive().getEntryNames( entryName );
-                for ( String entryNameFromWilcard : entriesNameFromWilcard )
+                entryNames.addAll( internalGetDocumentArchive().getEntryNames( entryName ) );
+            }
+        }
+        return entryNames;
+    }
+
+    /**
+     * Merge in parallel with the given executor the entries which are parallelizable (see
+     * {@link #isParallelizableEntry(String)}) and returns the other entries which must be merged sequentially after.
+     * <p>
+     * Each parallel entry is merged with its own context which is a copy of the given context : the shared registries
+     * (image registry, hyperlink registry...) which are registered in the context before the merge are shared, and the
+     * values put in the context by an entry are copied in the given context when all the entries are merged.
+     * </p>
+     * 
+     * @param executor
+     * @param context
+     * @param outputArchive
+     * @param entryNames
+     * @return
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private List<String> processTemplateEngineInParallel( Executor executor, IContext context,
+                                                          final XDocArchive outputArchive, List<String> entryNames )
+        throws XDocReportException, IOException
+    {
+        List<String> parallelEntryNames = new ArrayList<String>();
+        List<String> sequentialEntryNames = new ArrayList<String>();
+        for ( String entryName : entryNames )
+        {
+            if ( isParallelizableEntry( entryName ) )
+            {
+                parallelEntryNames.add( entryName );
+            }
+            else
+            {
+                sequentialEntryNames.add( entryName );
+            }
+        }
+        if ( parallelEntryNames.size() < 2 )
+        {
+            // nothing to parallelize
+            return entryNames;
+        }
+
+        final ITemplateEngine templateEngine = this.templateEngine;
+        final String reportId = getId();
+        Map<String, Object> contextMap = new HashMap<String, Object>( context.getContextMap() );
+        List<FutureTask<IContext>> tasks = new ArrayList<FutureTask<IContext>>( parallelEntryNames.size() );
+        for ( final String entryName : parallelEntryNames )
+        {
+            final IContext entryContext = templateEngine.createContext( new HashMap<String, Object>( contextMap ) );
+            TemplateContextHelper.putContext( entryContext );
+            tasks.add( new FutureTask<IContext>( new Callable<IContext>()
+            {
+                public IContext call()
+                    throws Exception
+                {
+                    processEntry( templateEngine, reportId, entryName, outputArchive, outputArchive, entryContext );
+                    return entryContext;
+                }
+            } ) );
+        }
+        // the first entry is merged by the current thread
+        for ( int i = 1; i < tasks.size(); i++ )
+        {
+            try
+            {
+                executor.execute( tasks.get( i ) );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                tasks.get( i ).run();
+            }
+        }
+        tasks.get( 0 ).run();
+
+        // wait for the end of the merge of all entries
+        Throwable error = null;
+        for ( FutureTask<IContext> task : tasks )
+        {
+            try
+            {
+                // merge the entry if it is not started yet : the executor can be busy (ex : when it is shared with the
+                // workers of a batch, see processAll) and must not be waited for.
+                task.run();
+                IContext entryContext = task.get();
+                if ( error == null )
+                {
+                    // copy the values (ex : registry created lazily) put by the entry in the context.
+                    for ( Entry<String, Object> entry : entryContext.getContextMap().entrySet() )
+                    {
+                        if ( !contextMap.containsKey( entry.getKey() ) )
+                        {
+                            context.put( entry.getKey(), entry.getValue() );
+                        }
+                    }
+                }
+            }
+            catch ( ExecutionException e )
+            {
+                if ( error == null )
                 {
-                    // 5.2) merge current XML file with Java model from the
-                    // context with template engine (freemarker, velocity).
-                    templateEngine.process( getId(), entryNameFromWilcard, outputArchive, outputArchive, context );
+                    error = e.getCause();
+                    // cancel the entries which are not started
+                    for ( FutureTask<IContext> other : tasks )
+                    {
+                        other.cancel( false );
+                    }
                 }
             }
+            catch ( CancellationException e )
+            {
+                // task cancelled because another entry failed
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new XDocReportException( e );
+            }
         }
-        onAfterProcessTemplateEngine( context, outputArchive );
+        if ( error != null )
+        {
+            if ( error instanceof XDocReportException )
+            {
+                throw (XDocReportException) error;
+            }
+            if ( error instanceof IOException )
+            {
+                throw (IOException) error;
+            }
+            if ( error instanceof RuntimeException )
+            {
+                throw (RuntimeException) error;
+            }
+            if ( error instanceof Error )
+            {
+                throw (Error) error;
+            }
+            throw new XDocReportException( error );
+        }
+        return sequentialEntryNames;
+    }
+
+    /**
+     * Returns true if the given XML entry can be merged in parallel with the other parallelizable entries when a
+     * process executor is set (see {@link #setProcessExecutor(Executor)}) and false otherwise. An entry which uses
+     * information registered while merging another entry (ex : for docx, "word/_rels/document.xml.rels" uses the
+     * hyperlinks registered while merging "word/document.xml") must not be parallelizable : the not parallelizable
+     * entries are merged sequentially after the parallelizable entries.
+     * <p>
+     * By default, none entry is parallelizable.
+     * </p>
+     * 
+     * @param entryName the entry name (never a wildcard).
+     * @return
+     */
+    protected boolean isParallelizableEntry( String entryName )
+    {
+        return false;
     }
 
     /**
@@ -797,8 +1721,14 @@ public abstract class AbstractXDocReport
         throws XDocReportException
     {
 
-        // 1) Register text styling registry
+        // 1) Register text styling registry and the cache of the text styling transformations of this generation
         DocumentContextHelper.putTextStylingRegistry( context, TextStylingRegistry.getRegistry() );
+        ICacheStorage<String, ITransformResult> transformResultCache =
+            TextStylingRegistry.getRegistry().createTransformResultCache();
+        if ( transformResultCache != null )
+        {
+            DocumentContextHelper.putTransformResultCache( context, transformResultCache );
+        }
 
         // 2) Register ImageRegistry if needed
         IImageRegistry imageRegistry = createImageRegistry( outputArchive, outputArchive, outputArchive );
@@ -813,7 +1743,17 @@ public abstract class AbstractXDocReport
             }
             if ( fieldsMetadata != null && fieldsMetadata.hasFieldsAsImage() )
             {
-                imageRegistry.preProcess();
+                ReportPhaseTimer timer =
+                    ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.ImageRegistry, getId(), null );
+                try
+                {
+                    imageRegistry.preProcess();
+                    timer.done();
+                }
+                finally
+                {
+                    timer.stop();
+                }
             }
         }
 
@@ -843,7 +1783,17 @@ public abstract class AbstractXDocReport
         IImageRegistry imageRegistry = DocumentContextHelper.getImageRegistry( context );
         if ( imageRegistry != null )
         {
-            imageRegistry.postProcess();
+            ReportPhaseTimer timer =
+                ReportMetricsRegistry.getRegistry().startPhase( ReportPhase.ImageRegistry, getId(), null );
+            try
+            {
+                imageRegistry.postProcess();
+                timer.done();
+            }
+            finally
+            {
+                timer.stop();
+            }
         }
     }
 
@@ -874,6 +1824,7 @@ public abstract class AbstractXDocReport
     private XDocArchive internalGetDocumentArchive()
         throws XDocReportException
     {
+        XDocArchive preprocessedArchive = this.preprocessedArchive;
         if ( preprocessedArchive == null )
         {
             throw new XDocReportException(
@@ -981,6 +1932,102 @@ public abstract class AbstractXDocReport
         }
     }
 
+    /**
+     * Set true if the preprocessing of a new version of the document archive (see {@link #load(InputStream)}) must
+     * reuse the result of the previous preprocessing for the entries which didn't change, and false otherwise. The
+     * entries are compared with their digest (see {@link XDocArchive#getEntryDigest(String)}) :
+     * <ul>
+     * <li>if only entries which are not read by the preprocessing changed (ex : docProps/app.xml, images...), the
+     * preprocessing is not executed.</li>
+     * <li>otherwise, the preprocessors are executed except the {@link ISelfContainedPreprocessor} whose entry didn't
+     * change.</li>
+     * </ul>
+     * The whole preprocessing is executed when the template engine, the preprocessors or the fields metadata change.
+     * 
+     * @param incrementalPreprocessing
+     */
+    public void setIncrementalPreprocessing( boolean incrementalPreprocessing )
+    {
+        this.incrementalPreprocessing = incrementalPreprocessing;
+        if ( !incrementalPreprocessing )
+        {
+            this.preprocessingState = null;
+        }
+    }
+
+    /**
+     * Returns true if the preprocessing of a new version of the document archive reuses the result of the previous
+     * preprocessing for the entries which didn't change and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isIncrementalPreprocessing()
+    {
+        return incrementalPreprocessing;
+    }
+
+    /**
+     * Set the store used to load the preprocessed template instead of preprocessing it, and to store the result of the
+     * preprocessing. The template is searched in the store with a key computed with the content of the document
+     * archive, the template engine, the preprocessors and the fields metadata. The preprocessing of templates which use
+     * text styling or custom formatters is not stored.
+     * 
+     * @param preprocessedTemplateStore the store and null to disable it.
+     */
+    public void setPreprocessedTemplateStore( IPreprocessedTemplateStore preprocessedTemplateStore )
+    {
+        this.preprocessedTemplateStore = preprocessedTemplateStore;
+    }
+
+    /**
+     * Returns the store used to load the preprocessed template and null if there is no store.
+     * 
+     * @return
+     */
+    public IPreprocessedTemplateStore getPreprocessedTemplateStore()
+    {
+        return preprocessedTemplateStore;
+    }
+
+    public void setStreamingProcess( boolean streamingProcess )
+    {
+        this.streamingProcess = streamingProcess;
+    }
+
+    /**
+     * Returns true if the merged XML entries are written directly in the zip of the output stream by
+     * {@link #process(IContext, OutputStream)} and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isStreamingProcess()
+    {
+        return streamingProcess;
+    }
+
+    public void setProcessExecutor( Executor processExecutor )
+    {
+        this.processExecutor = processExecutor;
+    }
+
+    public Executor getProcessExecutor()
+    {
+        return processExecutor;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see fr.opensagres.xdocreport.document.IXDocReport#dispose()
+     */
+    public synchronized void dispose()
+    {
+        // The archives are not disposed (but only dereferenced) because they can be used by a thread which is
+        // processing this report.
+        this.originalArchive = null;
+        this.preprocessedArchive = null;
+        this.preprocessed = false;
+    }
+
     /**
      * Returns default entries which define XML document to use for conversion.
      * 
@@ -1050,4 +2097,64 @@ public abstract class AbstractXDocReport
     {
         return DumperRegistry.getRegistry().findDumper( options.getKind() );
     }
+
+    /**
+     * State of a preprocessing : digests of the entries of the preprocessed archive (before the preprocessing) and
+     * configuration used by the preprocessing.
+     */
+    private static class PreprocessingState
+    {
+
+        private final Map<String, String> entryDigests;
+
+        private final ITemplateEngine templateEngine;
+
+        private final String fingerprint;
+
+        private XDocArchive preprocessedArchive;
+
+        public PreprocessingState( XDocArchive sourceArchive, ITemplateEngine templateEngine, String fingerprint )
+            throws IOException
+        {
+            this.entryDigests = new HashMap<String, String>();
+            for ( String entryName : sourceArchive.getEntryNames() )
+            {
+                entryDigests.put( entryName, sourceArchive.getEntryDigest( entryName ) );
+            }
+            this.templateEngine = templateEngine;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * Returns the entries which changed (modified, added or removed) since the given previous preprocessing and
+         * null if the previous preprocessing cannot be reused.
+         * 
+         * @param previousState
+         * @return
+         */
+        public Set<String> getChangedEntryNames( PreprocessingState previousState )
+        {
+            if ( previousState == null || previousState.preprocessedArchive == null
+                || previousState.templateEngine != templateEngine || !previousState.fingerprint.equals( fingerprint ) )
+            {
+                return null;
+            }
+            Set<String> changedEntryNames = new HashSet<String>();
+            for ( Entry<String, String> entry : entryDigests.entrySet() )
+            {
+                if ( !entry.getValue().equals( previousState.entryDigests.get( entry.getKey() ) ) )
+                {
+                    changedEntryNames.add( entry.getKey() );
+                }
+            }
+            for ( String entryName : previousState.entryDigests.keySet() )
+            {
+                if ( !entryDigests.containsKey( entryName ) )
+                {
+                    changedEntryNames.add( entryName );
+                }
+            }
+            return changedEntryNames;
+        }
+    }
 }
@@ -26,10 +26,12 @@ package fr.opensagres.xdocreport.document;
 
 import java.util.Map;
 
+import fr.opensagres.xdocreport.core.cache.ICacheStorage;
 import fr.opensagres.xdocreport.document.images.IImageHandler;
 import fr.opensagres.xdocreport.document.images.IImageRegistry;
 import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedElement;
 import fr.opensagres.xdocreport.document.registry.TextStylingRegistry;
+import fr.opensagres.xdocreport.document.textstyling.ITransformResult;
 import fr.opensagres.xdocreport.template.IContext;
 import fr.opensagres.xdocreport.template.TemplateContextHelper;
 
@@ -43,6 +45,8 @@ public class DocumentContextHelper
 
     private static final String IMAGE_HANDLER_KEY = "___imageHandler";
 
+    private static final String TRANSFORM_RESULT_CACHE_KEY = "___transformResultCache";
+
     /**
      * Register the given elements cache in the given context.
      * 
@@ -115,4 +119,27 @@ public class DocumentContextHelper
     {
         return (IImageHandler) context.get( IMAGE_HANDLER_KEY );
     }
+
+    /**
+     * Register the given cache of text styling transform results in the given context.
+     * 
+     * @param context
+     * @param cache
+     */
+    public static void putTransformResultCache( IContext context, ICacheStorage<String, ITransformResult> cache )
+    {
+        context.put( TRANSFORM_RESULT_CACHE_KEY, cache );
+    }
+
+    /**
+     * Retrieves the cache of text styling transform results from the given context.
+     * 
+     * @param context
+     * @return
+     */
+    @SuppressWarnings( "unchecked" )
+    public static ICacheStorage<String, ITransformResult> getTransformResultCache( IContext context )
+    {
+        return (ICacheStorage<String, ITransformResult>) context.get( TRANSFORM_RESULT_CACHE_KEY );
+    }
 }
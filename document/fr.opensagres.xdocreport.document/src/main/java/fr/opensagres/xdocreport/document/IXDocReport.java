@@ -28,7 +28,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
 
 import fr.opensagres.xdocreport.converter.IConverter;
 import fr.opensagres.xdocreport.converter.MimeMapping;
@@ -36,8 +39,12 @@ import fr.opensagres.xdocreport.converter.Options;
 import fr.opensagres.xdocreport.converter.XDocConverterException;
 import fr.opensagres.xdocreport.core.XDocReportException;
 import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.core.logging.LogUtils;
+import fr.opensagres.xdocreport.document.batch.BatchResult;
+import fr.opensagres.xdocreport.document.batch.IBatchOutputStreamProvider;
 import fr.opensagres.xdocreport.document.dump.DumperOptions;
 import fr.opensagres.xdocreport.document.dump.IDumper;
+import fr.opensagres.xdocreport.document.preprocessor.IPreprocessedTemplateStore;
 import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
 import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
 import fr.opensagres.xdocreport.template.FieldsExtractor;
@@ -220,6 +227,80 @@ public interface IXDocReport
     void process( IContext context, OutputStream out )
         throws XDocReportException, IOException;
 
+    /**
+     * Generate one document for each context of the given iterator and write it in the output stream returned by the
+     * given provider. The template is preprocessed once for the whole batch and the documents are generated by
+     * nbThreads threads (the current thread included) which take the contexts from the iterator one by one, so the
+     * iterator can be backed by a large (lazy) data source. The other threads are taken from the process executor (see
+     * {@link #setProcessExecutor(Executor)}) : if there is no process executor, the documents are generated by the
+     * current thread. Each document is generated with {@link #process(IContext, OutputStream)} : apart from the
+     * preprocessing of the template, no state is shared between the documents of the batch. The error of a document
+     * doesn't stop the batch : it is reported in the returned {@link BatchResult}.
+     * 
+     * @param contexts the contexts of the Java model (one per document).
+     * @param outputStreamProvider provider of the output streams where documents must be saved.
+     * @param nbThreads number of threads used to generate the documents (1 to use only the current thread).
+     * @return the result of the batch.
+     * @throws XDocReportException if the template cannot be preprocessed or if the batch is interrupted.
+     * @throws IOException
+     * @see #processAll(Iterator, IBatchOutputStreamProvider, Executor, int)
+     */
+    default BatchResult processAll( Iterator<IContext> contexts, IBatchOutputStreamProvider outputStreamProvider,
+                                    int nbThreads )
+        throws XDocReportException, IOException
+    {
+        return processAll( contexts, outputStreamProvider, getProcessExecutor(), nbThreads );
+    }
+
+    /**
+     * Generate one document for each context of the given iterator and write it in the output stream returned by the
+     * given provider. The documents are generated by nbThreads threads : the current thread and nbThreads - 1 threads
+     * of the given executor (the executor is not shut down, so it can be shared by several batches). An exception
+     * thrown by the iterator stops the batch. The default implementation ignores the executor and the number of threads
+     * and generates the documents one by one in the current thread with {@link #process(IContext, OutputStream)}.
+     * 
+     * @param contexts the contexts of the Java model (one per document).
+     * @param outputStreamProvider provider of the output streams where documents must be saved.
+     * @param executor the executor used to run the other threads (null to use only the current thread).
+     * @param nbThreads number of threads used to generate the documents (1 to use only the current thread).
+     * @return the result of the batch.
+     * @throws XDocReportException if the template cannot be preprocessed or if the batch is interrupted.
+     * @throws IOException
+     */
+    default BatchResult processAll( Iterator<IContext> contexts, IBatchOutputStreamProvider outputStreamProvider,
+                                    Executor executor, int nbThreads )
+        throws XDocReportException, IOException
+    {
+        BatchResult result = new BatchResult();
+        int index = 0;
+        while ( contexts.hasNext() )
+        {
+            IContext context = contexts.next();
+            try
+            {
+                OutputStream out = outputStreamProvider.getOutputStream( index, context );
+                try
+                {
+                    process( context, out );
+                }
+                finally
+                {
+                    out.close();
+                }
+                result.addProcessed();
+            }
+            catch ( Exception e )
+            {
+                LogUtils.getLogger( IXDocReport.class.getName() ).log( Level.SEVERE,
+                                                                       "Error while generating the document [" + index
+                                                                           + "] of the batch", e );
+                result.addError( index, context, e );
+            }
+            index++;
+        }
+        return result;
+    }
+
     /**
      * Merge the docx, odt document with Java model from the context Map and register the result to the output stream.
      * 
@@ -350,6 +431,116 @@ public interface IXDocReport
      */
     void setCacheOriginalDocument( boolean cacheOriginalDocument );
 
+    /**
+     * Set true if {@link #process(IContext, OutputStream)} must write the merged XML entries directly in the zip of the
+     * output stream (instead of buffering them) and false otherwise. In streaming mode, the memory used by the report
+     * generation is bounded by the size of the template and not by the size of the generated document, but the output
+     * stream can contain a partial zip if an error occurs while merging. The streaming mode is a hint : the default
+     * implementation ignores it and the report is processed with the buffered mode.
+     * 
+     * @param streamingProcess
+     */
+    default void setStreamingProcess( boolean streamingProcess )
+    {
+        if ( streamingProcess )
+        {
+            LogUtils.getLogger( IXDocReport.class.getName() ).fine( "Streaming process is not supported by "
+                                                                        + getClass().getName() + ", it is ignored." );
+        }
+    }
+
+    /**
+     * Returns true if the merged XML entries are written directly in the zip of the output stream and false otherwise.
+     * 
+     * @return
+     */
+    default boolean isStreamingProcess()
+    {
+        return false;
+    }
+
+    /**
+     * Set true if the preprocessing of a new version of the document archive loaded with {@link #load(InputStream)}
+     * must reuse the result of the previous preprocessing for the entries which didn't change, and false otherwise. The
+     * incremental preprocessing is a hint : the default implementation ignores it and the whole document archive is
+     * preprocessed.
+     * 
+     * @param incrementalPreprocessing
+     */
+    default void setIncrementalPreprocessing( boolean incrementalPreprocessing )
+    {
+        if ( incrementalPreprocessing )
+        {
+            LogUtils.getLogger( IXDocReport.class.getName() ).fine( "Incremental preprocessing is not supported by "
+                                                                        + getClass().getName() + ", it is ignored." );
+        }
+    }
+
+    /**
+     * Returns true if the preprocessing of a new version of the document archive reuses the result of the previous
+     * preprocessing for the entries which didn't change and false otherwise.
+     * 
+     * @return
+     */
+    default boolean isIncrementalPreprocessing()
+    {
+        return false;
+    }
+
+    /**
+     * Set the store used to load the preprocessed template instead of preprocessing it (null to disable it). The
+     * {@link XDocReportRegistry} sets its store to each report it creates. The default implementation ignores the
+     * store and the template is preprocessed.
+     * 
+     * @param preprocessedTemplateStore
+     */
+    default void setPreprocessedTemplateStore( IPreprocessedTemplateStore preprocessedTemplateStore )
+    {
+        if ( preprocessedTemplateStore != null )
+        {
+            LogUtils.getLogger( IXDocReport.class.getName() ).fine( "Preprocessed template store is not supported by "
+                                                                        + getClass().getName() + ", it is ignored." );
+        }
+    }
+
+    /**
+     * Returns the store used to load the preprocessed template and null if there is no store.
+     * 
+     * @return
+     */
+    default IPreprocessedTemplateStore getPreprocessedTemplateStore()
+    {
+        return null;
+    }
+
+    /**
+     * Set the executor used to merge in parallel the XML entries which are independent (ex : for docx, the document,
+     * headers and footers when they don't use images, text styling or notes with fields, for pptx the slides). If the
+     * executor is null (default), the XML entries are merged sequentially. The thread which calls process is used too
+     * to merge entries and waits for the end of the merge of all entries. The executor is a hint : the default
+     * implementation ignores it and the XML entries are merged sequentially.
+     * 
+     * @param processExecutor
+     */
+    default void setProcessExecutor( Executor processExecutor )
+    {
+        if ( processExecutor != null )
+        {
+            LogUtils.getLogger( IXDocReport.class.getName() ).fine( "Parallel process is not supported by "
+                                                                        + getClass().getName() + ", it is ignored." );
+        }
+    }
+
+    /**
+     * Returns the executor used to merge in parallel the XML entries and null if XML entries are merged sequentially.
+     * 
+     * @return
+     */
+    default Executor getProcessExecutor()
+    {
+        return null;
+    }
+
     /**
      * Returns true if report was processed and false otherwise.
      * 
@@ -407,6 +598,22 @@ public interface IXDocReport
     void preprocess()
         throws XDocReportException, IOException;
 
+    /**
+     * Force the preprocessing step and compile the template of each XML entries (including the entries matched by a
+     * wildcard), so the first generation of the report doesn't pay the cost of the preprocessing and of the parsing of
+     * the templates. The templates are compiled only if the report is cached in the {@link XDocReportRegistry}. Threads
+     * which generate the report during the warmup wait for the end of the preprocessing and of the compilation of the
+     * entries they need instead of doing them again. The default implementation only forces the preprocessing step.
+     * 
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    default void warmup()
+        throws XDocReportException, IOException
+    {
+        preprocess();
+    }
+
     /**
      * Returns the dumper for the given options.
      * 
@@ -440,4 +647,14 @@ public interface IXDocReport
     void dump( IContext context, DumperOptions options, OutputStream out )
         throws IOException, XDocReportException;
 
+    /**
+     * Release the document archives (original and preprocessed) loaded by this report. The report must be loaded again
+     * before being processed. The {@link XDocReportRegistry} doesn't call this method when the report is evicted from
+     * its cache, because the report may still be used by the callers which got it : this method must be called only
+     * when the report is no longer used. The default implementation does nothing.
+     */
+    default void dispose()
+    {
+    }
+
 }
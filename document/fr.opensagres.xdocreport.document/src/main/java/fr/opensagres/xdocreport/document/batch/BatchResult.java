@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import fr.opensagres.xdocreport.template.IContext;
+
+/**
+ * Result of a batch generation : number of generated documents and errors of the documents which failed.
+ */
+public class BatchResult
+{
+
+    private int processedCount;
+
+    private final List<BatchError> errors = new ArrayList<BatchError>();
+
+    /**
+     * Called when a document of the batch is generated.
+     */
+    public synchronized void addProcessed()
+    {
+        processedCount++;
+    }
+
+    /**
+     * Called when the generation of a document of the batch failed.
+     * 
+     * @param index
+     * @param context
+     * @param exception
+     */
+    public synchronized void addError( int index, IContext context, Throwable exception )
+    {
+        errors.add( new BatchError( index, context, exception ) );
+    }
+
+    /**
+     * Returns the number of documents which are generated without error.
+     * 
+     * @return
+     */
+    public synchronized int getProcessedCount()
+    {
+        return processedCount;
+    }
+
+    /**
+     * Returns the number of documents which failed.
+     * 
+     * @return
+     */
+    public synchronized int getErrorCount()
+    {
+        return errors.size();
+    }
+
+    /**
+     * Returns the errors of the documents which failed sorted by index.
+     * 
+     * @return
+     */
+    public synchronized List<BatchError> getErrors()
+    {
+        List<BatchError> sortedErrors = new ArrayList<BatchError>( errors );
+        Collections.sort( sortedErrors, new Comparator<BatchError>()
+        {
+            public int compare( BatchError e1, BatchError e2 )
+            {
+                return e1.getIndex() < e2.getIndex() ? -1 : ( e1.getIndex() == e2.getIndex() ? 0 : 1 );
+            }
+        } );
+        return sortedErrors;
+    }
+
+    public synchronized boolean hasErrors()
+    {
+        return !errors.isEmpty();
+    }
+}
@@ -26,12 +26,19 @@ package fr.opensagres.xdocreport.document.images;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import fr.opensagres.xdocreport.core.XDocReportException;
 import fr.opensagres.xdocreport.core.io.IEntryOutputStreamProvider;
 import fr.opensagres.xdocreport.core.io.IEntryReaderProvider;
+import fr.opensagres.xdocreport.core.io.IEntrySource;
+import fr.opensagres.xdocreport.core.io.IEntrySourceRegistry;
 import fr.opensagres.xdocreport.core.io.IEntryWriterProvider;
 import fr.opensagres.xdocreport.core.io.IOUtils;
 import fr.opensagres.xdocreport.document.DocumentContextHelper;
@@ -49,8 +56,21 @@ public abstract class AbstractImageRegistry
 
     private static final String XDOCREPORT_PREFIX = "xdocreport_";
 
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     private List<ImageProviderInfo> imageProviderInfos;
 
+    /**
+     * Registered image infos by image key, used to store an image only once in the document when it is used several
+     * times.
+     */
+    private Map<String, ImageProviderInfo> imageProviderInfosByKey;
+
+    /**
+     * Digests of the byte array images already computed (by byte array instance).
+     */
+    private Map<byte[], String> digestsByByteArray;
+
     protected final IEntryReaderProvider readerProvider;
 
     protected final IEntryWriterProvider writerProvider;
@@ -86,10 +106,99 @@ public abstract class AbstractImageRegistry
         {
             return processNullImage( fieldName, imageProvider );
         }
-        // 3) Image provider is OK, create image info.
-        ImageProviderInfo info = createImageProviderInfo( imageProvider );
-        getImageProviderInfos().add( info );
-        return info;
+        // 3) Image provider is OK, create image info (entries can be merged in parallel, so the image id must be computed
+        // and registered atomically).
+        String imageKey = getImageKey( imageProvider );
+        synchronized ( this )
+        {
+            if ( imageKey != null )
+            {
+                ImageProviderInfo existingInfo = getImageProviderInfosByKey().get( imageKey );
+                if ( existingInfo != null )
+                {
+                    // The same image is already registered : reuse the image entry (and relationship id), but keep the
+                    // current image provider to compute the width/height of this image usage.
+                    return new ImageProviderInfo( imageProvider, existingInfo.getImageId(),
+                                                  existingInfo.getImageBasePath(), existingInfo.getImageFileName() );
+                }
+            }
+            ImageProviderInfo info = createImageProviderInfo( imageProvider );
+            getImageProviderInfos().add( info );
+            if ( imageKey != null )
+            {
+                getImageProviderInfosByKey().put( imageKey, info );
+            }
+            return info;
+        }
+    }
+
+    /**
+     * Returns the key which identifies the content of the given image provider or null if the image must not be
+     * shared with other images of the document. Images with the same key are stored only once in the document.
+     * 
+     * @param imageProvider
+     * @return
+     */
+    protected String getImageKey( IImageProvider imageProvider )
+    {
+        String key = null;
+        if ( imageProvider instanceof IIdentifiableImageProvider )
+        {
+            key = ( (IIdentifiableImageProvider) imageProvider ).getImageKey();
+        }
+        if ( key == null && imageProvider instanceof ByteArrayImageProvider )
+        {
+            key = getDigest( ( (ByteArrayImageProvider) imageProvider ).getImageByteArray() );
+        }
+        if ( key == null )
+        {
+            return null;
+        }
+        // the image format is used in the image file name.
+        return imageProvider.getImageFormat() + ":" + key;
+    }
+
+    private synchronized String getDigest( byte[] imageByteArray )
+    {
+        if ( imageByteArray == null )
+        {
+            return null;
+        }
+        if ( digestsByByteArray == null )
+        {
+            digestsByByteArray = new IdentityHashMap<byte[], String>();
+        }
+        String digest = digestsByByteArray.get( imageByteArray );
+        if ( digest == null )
+        {
+            try
+            {
+                byte[] hash = MessageDigest.getInstance( "SHA-1" ).digest( imageByteArray );
+                char[] hex = new char[hash.length * 2];
+                for ( int i = 0; i < hash.length; i++ )
+                {
+                    hex[i * 2] = HEX_DIGITS[( hash[i] >> 4 ) & 0x0F];
+                    hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0x0F];
+                }
+                digest = "sha1:" + new String( hex );
+            }
+            catch ( NoSuchAlgorithmException e )
+            {
+                // should never occur, SHA-1 is available on every JVM : don't share the image.
+                return null;
+            }
+            digestsByByteArray.put( imageByteArray, digest );
+        }
+        return digest;
+    }
+
+    private synchronized Map<String, ImageProviderInfo> getImageProviderInfosByKey()
+    {
+        if ( imageProviderInfosByKey == null )
+        {
+            imageProviderInfosByKey = new HashMap<String, ImageProviderInfo>();
+        }
+        return imageProviderInfosByKey;
     }
 
     private ImageProviderInfo processNullImage( String fieldName, IImageProvider imageProvider )
@@ -164,7 +273,7 @@ public abstract class AbstractImageRegistry
         return null;
     }
 
-    public List<ImageProviderInfo> getImageProviderInfos()
+    public synchronized List<ImageProviderInfo> getImageProviderInfos()
     {
         if ( imageProviderInfos == null )
         {
@@ -192,7 +301,7 @@ public abstract class AbstractImageRegistry
         // Do nothing
     }
 
-    public void postProcess()
+    public synchronized void postProcess()
         throws XDocReportException
     {
         if ( imageProviderInfos != null )
@@ -207,6 +316,8 @@ public abstract class AbstractImageRegistry
             imageProviderInfos.clear();
             imageProviderInfos = null;
         }
+        imageProviderInfosByKey = null;
+        digestsByByteArray = null;
     }
 
     protected void saveBinaryImages()
@@ -222,6 +333,16 @@ public abstract class AbstractImageRegistry
         throws XDocReportException
     {
         String entryName = getImageEntryName( imageProviderInfo );
+        if ( outputStreamProvider instanceof IEntrySourceRegistry )
+        {
+            IEntrySource source = getImageEntrySource( imageProviderInfo.getImageProvider() );
+            if ( source != null )
+            {
+                // the image is streamed from its source when the document archive is written.
+                ( (IEntrySourceRegistry) outputStreamProvider ).setEntrySource( entryName, source );
+                return;
+            }
+        }
         OutputStream out = outputStreamProvider.getEntryOutputStream( entryName );
         try
         {
@@ -237,6 +358,29 @@ public abstract class AbstractImageRegistry
         }
     }
 
+    /**
+     * Returns the source used to stream the content of the given image when the document archive is written and null if
+     * the image must be copied in the document archive. Only images which return the same content each time they are
+     * read (file, classpath resource, byte array) can be streamed.
+     * 
+     * @param imageProvider
+     * @return
+     */
+    protected IEntrySource getImageEntrySource( IImageProvider imageProvider )
+    {
+        if ( imageProvider instanceof ByteArrayImageProvider )
+        {
+            byte[] imageByteArray = ( (ByteArrayImageProvider) imageProvider ).getImageByteArray();
+            return imageByteArray != null ? new ImageEntrySource( imageByteArray ) : null;
+        }
+        if ( imageProvider instanceof IIdentifiableImageProvider
+            && ( (IIdentifiableImageProvider) imageProvider ).getImageKey() != null )
+        {
+            return new ImageEntrySource( imageProvider );
+        }
+        return null;
+    }
+
     protected String getImageEntryName( ImageProviderInfo imageProviderInfo )
     {
         return imageProviderInfo.getImageBasePath() + imageProviderInfo.getImageFileName();
@@ -27,6 +27,7 @@ package fr.opensagres.xdocreport.document.images;
 import fr.opensagres.xdocreport.core.io.IOUtils;
 import fr.opensagres.xdocreport.core.logging.LogUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -47,11 +48,28 @@ public abstract class AbstractInputStreamImageProvider
     public void write( OutputStream outputStream )
         throws IOException
     {
+        String imageKey = getImageCacheKey();
+        ImageCache cache = ImageCache.getInstance();
+        byte[] content = cache.getImageContent( imageKey );
+        if ( content != null )
+        {
+            outputStream.write( content );
+            return;
+        }
         InputStream inputStream = null;
         try
         {
             inputStream = getInputStream();
-            IOUtils.copy( inputStream, outputStream );
+            if ( imageKey != null && cache.isImageContentCacheEnabled() )
+            {
+                content = IOUtils.toByteArray( inputStream );
+                cache.putImageContent( imageKey, content );
+                outputStream.write( content );
+            }
+            else
+            {
+                IOUtils.copy( inputStream, outputStream );
+            }
         }
         finally
         {
@@ -59,14 +77,34 @@ public abstract class AbstractInputStreamImageProvider
         }
     }
 
+    /**
+     * Returns the key of the image in the {@link ImageCache} or null if the image cannot be cached.
+     * 
+     * @return
+     */
+    protected String getImageCacheKey()
+    {
+        if ( this instanceof IIdentifiableImageProvider )
+        {
+            return ( (IIdentifiableImageProvider) this ).getImageKey();
+        }
+        return null;
+    }
+
     protected abstract InputStream getInputStream()
         throws IOException;
 
     protected boolean doIsValid()
     {
+        if ( ImageCache.getInstance().getImageContent( getImageCacheKey() ) != null )
+        {
+            return true;
+        }
+        InputStream inputStream = null;
         try
         {
-            return getInputStream() != null;
+            inputStream = getInputStream();
+            return inputStream != null;
         }
         catch ( IOException e )
         {
@@ -76,18 +114,31 @@ public abstract class AbstractInputStreamImageProvider
             }
             return false;
         }
+        finally
+        {
+            IOUtils.closeQuietly( inputStream );
+        }
     }
 
     @Override
     protected IImageInfo loadImageInfo()
         throws IOException
     {
+        String imageKey = getImageCacheKey();
+        ImageCache cache = ImageCache.getInstance();
+        IImageInfo cachedImageInfo = cache.getImageInfo( imageKey );
+        if ( cachedImageInfo != null )
+        {
+            return cachedImageInfo;
+        }
         SimpleImageInfo imageInfo = new SimpleImageInfo();
-        imageInfo.setInput(getInputStream());
+        byte[] content = cache.getImageContent( imageKey );
+        imageInfo.setInput( content != null ? new ByteArrayInputStream( content ) : getInputStream() );
         if (!imageInfo.check())
         {
             throw new IOException("Unable to read image info.");
         }
+        cache.putImageInfo( imageKey, imageInfo );
         return imageInfo;
     }
 }
@@ -26,6 +26,7 @@ package fr.opensagres.xdocreport.document.images;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 
 import fr.opensagres.xdocreport.core.document.ImageFormat;
 
@@ -34,6 +35,7 @@ import fr.opensagres.xdocreport.core.document.ImageFormat;
  */
 public class ClassPathImageProvider
     extends AbstractInputStreamImageProvider
+    implements IIdentifiableImageProvider
 {
 
     private final ClassLoader classLoader;
@@ -44,6 +46,9 @@ public class ClassPathImageProvider
 
     private final ImageFormat imageFormat;
 
+    // URL of the resource, resolved once because getResource() searches the class path for each call.
+    private volatile String imageKey;
+
     public ClassPathImageProvider( ClassLoader classLoader, String resourceName )
     {
         this( classLoader, resourceName, false );
@@ -87,4 +92,19 @@ public class ClassPathImageProvider
     {
         return imageFormat;
     }
+
+    public String getImageKey()
+    {
+        String imageKey = this.imageKey;
+        if ( imageKey == null )
+        {
+            URL url = clazz != null ? clazz.getResource( resourceName ) : classLoader.getResource( resourceName );
+            if ( url != null )
+            {
+                imageKey = url.toExternalForm();
+                this.imageKey = imageKey;
+            }
+        }
+        return imageKey;
+    }
 }
@@ -28,20 +28,31 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import fr.opensagres.xdocreport.core.document.ImageFormat;
+import fr.opensagres.xdocreport.core.io.IOUtils;
 
 /**
  * Image provider implementation with image input stream coming from {@link File}.
  */
 public class FileImageProvider
     extends AbstractInputStreamImageProvider
+    implements IIdentifiableImageProvider
 {
 
     private final File imageFile;
 
     private final ImageFormat imageFormat;
 
+    // CRC-32 of the file content, kept with the length and the last modification date of the file it was computed for.
+    private long crc = -1;
+
+    private long crcLength;
+
+    private long crcLastModified;
+
     public FileImageProvider( File imageFile )
     {
         this( imageFile, false );
@@ -61,8 +72,52 @@ public class FileImageProvider
         return new FileInputStream( imageFile );
     }
 
+    /**
+     * Returns the CRC-32 of the file content. It is computed once and computed again only if the file is modified.
+     * 
+     * @return
+     * @throws IOException
+     */
+    public synchronized long getCrc()
+        throws IOException
+    {
+        long length = imageFile.length();
+        long lastModified = imageFile.lastModified();
+        if ( crc == -1 || length != crcLength || lastModified != crcLastModified )
+        {
+            CRC32 checksum = new CRC32();
+            InputStream inputStream = new CheckedInputStream( getInputStream(), checksum );
+            try
+            {
+                byte[] buffer = new byte[4096];
+                while ( inputStream.read( buffer ) != -1 )
+                {
+                    // the checksum is updated while reading
+                }
+            }
+            finally
+            {
+                IOUtils.closeQuietly( inputStream );
+            }
+            crc = checksum.getValue();
+            crcLength = length;
+            crcLastModified = lastModified;
+        }
+        return crc;
+    }
+
+    public File getImageFile()
+    {
+        return imageFile;
+    }
+
     public ImageFormat getImageFormat()
     {
         return imageFormat;
     }
+
+    public String getImageKey()
+    {
+        return "file:" + imageFile.getAbsolutePath() + ":" + imageFile.lastModified();
+    }
 }
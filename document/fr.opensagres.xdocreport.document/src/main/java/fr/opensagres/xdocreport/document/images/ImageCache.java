@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.images;
+
+import fr.opensagres.xdocreport.core.cache.BoundedCacheStorage;
+import fr.opensagres.xdocreport.core.cache.ICacheWeigher;
+import fr.opensagres.xdocreport.core.document.ImageFormat;
+
+/**
+ * Cache shared by the image providers which are able to identify their image (see
+ * {@link IIdentifiableImageProvider#getImageKey()}) to avoid reading the same image for each generated report :
+ * <ul>
+ * <li>the image info (format, width, height) is cached if {@link #MAX_ENTRIES_PROPERTY} is set with the max number of
+ * cached images.</li>
+ * <li>the image content is cached if {@link #MAX_BYTES_PROPERTY} is set with the max total size in bytes of the cached
+ * images.</li>
+ * </ul>
+ * The cache is disabled by default. It can also be enabled with {@link #setInstance(ImageCache)}.
+ */
+public class ImageCache
+{
+
+    public static final String MAX_ENTRIES_PROPERTY = "xdocreport.images.cache.maxEntries";
+
+    public static final String MAX_BYTES_PROPERTY = "xdocreport.images.cache.maxBytes";
+
+    private static volatile ImageCache instance =
+        new ImageCache( Integer.getInteger( MAX_ENTRIES_PROPERTY, 0 ), Long.getLong( MAX_BYTES_PROPERTY, 0 ) );
+
+    public static ImageCache getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Set the cache shared by the image providers. A null cache disables the cache.
+     * 
+     * @param cache
+     */
+    public static void setInstance( ImageCache cache )
+    {
+        instance = cache != null ? cache : new ImageCache( 0, 0 );
+    }
+
+    private final BoundedCacheStorage<String, IImageInfo> imageInfos;
+
+    private final BoundedCacheStorage<String, byte[]> imageContents;
+
+    private final long maxBytes;
+
+    public ImageCache( int maxEntries, long maxBytes )
+    {
+        this.imageInfos = maxEntries > 0 ? new BoundedCacheStorage<String, IImageInfo>( maxEntries, 0, 0 ) : null;
+        this.maxBytes = maxBytes;
+        if ( maxBytes > 0 )
+        {
+            this.imageContents = new BoundedCacheStorage<String, byte[]>( 0, maxBytes, 0 );
+            this.imageContents.setWeigher( new ICacheWeigher<byte[]>()
+            {
+                public long weigh( byte[] value )
+                {
+                    return value.length;
+                }
+            } );
+        }
+        else
+        {
+            this.imageContents = null;
+        }
+    }
+
+    /**
+     * Returns the cached image info of the image with the given key or null.
+     * 
+     * @param imageKey
+     * @return
+     */
+    public IImageInfo getImageInfo( String imageKey )
+    {
+        if ( imageInfos == null || imageKey == null )
+        {
+            return null;
+        }
+        return imageInfos.get( imageKey );
+    }
+
+    /**
+     * Cache the format, width and height of the given image info.
+     * 
+     * @param imageKey
+     * @param imageInfo
+     */
+    public void putImageInfo( String imageKey, IImageInfo imageInfo )
+    {
+        if ( imageInfos == null || imageKey == null || imageInfo == null )
+        {
+            return;
+        }
+        // don't keep the image info which can refer to the image stream.
+        imageInfos.put( imageKey,
+                        new CachedImageInfo( imageInfo.getWidth(), imageInfo.getHeight(), imageInfo.getMimeType() ) );
+    }
+
+    /**
+     * Returns true if the image content can be cached.
+     * 
+     * @return
+     */
+    public boolean isImageContentCacheEnabled()
+    {
+        return imageContents != null;
+    }
+
+    /**
+     * Returns the cached content of the image with the given key or null.
+     * 
+     * @param imageKey
+     * @return
+     */
+    public byte[] getImageContent( String imageKey )
+    {
+        if ( imageContents == null || imageKey == null )
+        {
+            return null;
+        }
+        return imageContents.get( imageKey );
+    }
+
+    /**
+     * Cache the given image content if it is smaller than the max bytes of the cache. The content must not be modified
+     * after.
+     * 
+     * @param imageKey
+     * @param content
+     */
+    public void putImageContent( String imageKey, byte[] content )
+    {
+        if ( imageContents == null || imageKey == null || content == null || content.length > maxBytes )
+        {
+            return;
+        }
+        imageContents.put( imageKey, content );
+    }
+
+    /**
+     * Remove all cached images.
+     */
+    public void clear()
+    {
+        if ( imageInfos != null )
+        {
+            imageInfos.clear();
+        }
+        if ( imageContents != null )
+        {
+            imageContents.clear();
+        }
+    }
+
+    private static class CachedImageInfo
+        implements IImageInfo
+    {
+
+        private final int width;
+
+        private final int height;
+
+        private final ImageFormat mimeType;
+
+        public CachedImageInfo( int width, int height, ImageFormat mimeType )
+        {
+            this.width = width;
+            this.height = height;
+            this.mimeType = mimeType;
+        }
+
+        public int getHeight()
+        {
+            return height;
+        }
+
+        public int getWidth()
+        {
+            return width;
+        }
+
+        public ImageFormat getMimeType()
+        {
+            return mimeType;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.images;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import fr.opensagres.xdocreport.core.io.IEntrySource;
+
+/**
+ * {@link IEntrySource} which reads the content of an image entry from its image provider (file, classpath resource) or
+ * from the byte array of the image, when the document archive is written.
+ */
+class ImageEntrySource
+    implements IEntrySource
+{
+
+    private final IImageProvider imageProvider;
+
+    private final byte[] imageByteArray;
+
+    public ImageEntrySource( IImageProvider imageProvider )
+    {
+        this.imageProvider = imageProvider;
+        this.imageByteArray = null;
+    }
+
+    public ImageEntrySource( byte[] imageByteArray )
+    {
+        this.imageProvider = null;
+        this.imageByteArray = imageByteArray;
+    }
+
+    public long getLength()
+    {
+        if ( imageByteArray != null )
+        {
+            return imageByteArray.length;
+        }
+        if ( imageProvider instanceof FileImageProvider )
+        {
+            return ( (FileImageProvider) imageProvider ).getImageFile().length();
+        }
+        return -1;
+    }
+
+    public long getCrc()
+        throws IOException
+    {
+        if ( imageProvider instanceof FileImageProvider )
+        {
+            return ( (FileImageProvider) imageProvider ).getCrc();
+        }
+        return -1;
+    }
+
+    public InputStream getInputStream()
+        throws IOException
+    {
+        if ( imageByteArray != null )
+        {
+            return new ByteArrayInputStream( imageByteArray );
+        }
+        if ( imageProvider instanceof AbstractInputStreamImageProvider )
+        {
+            AbstractInputStreamImageProvider provider = (AbstractInputStreamImageProvider) imageProvider;
+            byte[] content = ImageCache.getInstance().getImageContent( provider.getImageCacheKey() );
+            return content != null ? new ByteArrayInputStream( content ) : provider.getInputStream();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageProvider.write( out );
+        return new ByteArrayInputStream( out.toByteArray() );
+    }
+
+    public void write( OutputStream outputStream )
+        throws IOException
+    {
+        if ( imageByteArray != null )
+        {
+            outputStream.write( imageByteArray );
+        }
+        else
+        {
+            imageProvider.write( outputStream );
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.preprocessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.core.io.internal.ByteArrayOutputStream;
+import fr.opensagres.xdocreport.core.logging.LogUtils;
+
+/**
+ * {@link IPreprocessedTemplateStore} which stores each preprocessed template in a file of a directory. The file contains
+ * the state of the preprocessing (serialized with Java serialization) and the preprocessed archive (as zip, with
+ * compressed entries which are copied as is in the generated reports). Files are written in a temporary file which
+ * is renamed when it's complete, so several JVM can share the same directory. Only the classes of the state of the
+ * preprocessing are read from the files (see {@link #addAllowedClass(Class)}), a file which contains another class
+ * is ignored.
+ */
+public class FilePreprocessedTemplateStore
+    implements IPreprocessedTemplateStore
+{
+
+    private static final Logger LOGGER = LogUtils.getLogger( FilePreprocessedTemplateStore.class.getName() );
+
+    /**
+     * Version of the file format (files with an other version are ignored).
+     */
+    private static final int VERSION = 1;
+
+    private static final String FILE_EXTENSION = ".xdocp";
+
+    /**
+     * Classes of the state of the preprocessing of the reports (see DocxReport#savePreprocessingState) and of the zip.
+     */
+    private static final String[] DEFAULT_ALLOWED_CLASSES = { "[B", "java.lang.String", "java.lang.Number",
+        "java.lang.Integer", "java.util.HashMap", "java.util.HashSet",
+        "fr.opensagres.xdocreport.document.docx.preprocessor.DefaultStyle",
+        "fr.opensagres.xdocreport.document.docx.preprocessor.sax.notes.InitialNoteInfoMap",
+        "fr.opensagres.xdocreport.document.docx.preprocessor.sax.notes.NoteInfo" };
+
+    private final File directory;
+
+    private final Set<String> allowedClasses =
+        Collections.synchronizedSet( new HashSet<String>( Arrays.asList( DEFAULT_ALLOWED_CLASSES ) ) );
+
+    public FilePreprocessedTemplateStore( File directory )
+    {
+        this.directory = directory;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Allow the given class to be read from the stored files. This method must be called when a report stores other
+     * classes in the state of its preprocessing.
+     * 
+     * @param clazz
+     */
+    public void addAllowedClass( Class<?> clazz )
+    {
+        allowedClasses.add( clazz.getName() );
+    }
+
+    public PreprocessedTemplate load( String key )
+        throws IOException
+    {
+        File file = getFile( key );
+        if ( !file.exists() )
+        {
+            return null;
+        }
+        ObjectInputStream in = null;
+        try
+        {
+            in = new StateObjectInputStream( new FileInputStream( file ) );
+            if ( in.readInt() != VERSION )
+            {
+                return null;
+            }
+            @SuppressWarnings( "unchecked" )
+            Map<String, Serializable> state = (Map<String, Serializable>) in.readObject();
+            byte[] zip = (byte[]) in.readObject();
+            return new PreprocessedTemplate( XDocArchive.readZip( new ByteArrayInputStream( zip ) ), state );
+        }
+        catch ( Exception e )
+        {
+            // the file is corrupted or was written by an other version of XDocReport, the template will be
+            // preprocessed and stored again.
+            if ( LOGGER.isLoggable( Level.WARNING ) )
+            {
+                LOGGER.log( Level.WARNING, "Cannot read the preprocessed template " + file, e );
+            }
+            return null;
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+        }
+    }
+
+    public void save( String key, PreprocessedTemplate template )
+        throws IOException
+    {
+        if ( !directory.exists() && !directory.mkdirs() && !directory.exists() )
+        {
+            throw new IOException( "Cannot create the directory " + directory );
+        }
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        XDocArchive.writeZip( template.getPreprocessedArchive(), zip );
+
+        File tempFile = File.createTempFile( key, ".tmp", directory );
+        ObjectOutputStream out = null;
+        try
+        {
+            out = new ObjectOutputStream( new FileOutputStream( tempFile ) );
+            out.writeInt( VERSION );
+            out.writeObject( template.getState() );
+            out.writeObject( zip.toByteArray() );
+            out.close();
+            out = null;
+            File file = getFile( key );
+            if ( !tempFile.renameTo( file ) )
+            {
+                // the file was perhaps stored by an other JVM at the same time.
+                file.delete();
+                if ( !tempFile.renameTo( file ) && !file.exists() )
+                {
+                    throw new IOException( "Cannot rename " + tempFile + " to " + file );
+                }
+            }
+        }
+        finally
+        {
+            IOUtils.closeQuietly( out );
+            tempFile.delete();
+        }
+    }
+
+    private File getFile( String key )
+    {
+        return new File( directory, key + FILE_EXTENSION );
+    }
+
+    /**
+     * {@link ObjectInputStream} which reads only the allowed classes, so a file cannot be used to instantiate arbitrary
+     * classes.
+     */
+    private class StateObjectInputStream
+        extends ObjectInputStream
+    {
+
+        public StateObjectInputStream( InputStream in )
+            throws IOException
+        {
+            super( in );
+        }
+
+        @Override
+        protected Class<?> resolveClass( ObjectStreamClass desc )
+            throws IOException, ClassNotFoundException
+        {
+            if ( !allowedClasses.contains( desc.getName() ) )
+            {
+                throw new InvalidClassException( desc.getName(), "Class not allowed in a preprocessed template" );
+            }
+            return super.resolveClass( desc );
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass( String[] interfaces )
+            throws IOException, ClassNotFoundException
+        {
+            throw new InvalidClassException( "Proxy classes are not allowed in a preprocessed template" );
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.preprocessor;
+
+import java.io.IOException;
+
+/**
+ * Store of the preprocessed templates, used to avoid preprocessing again a template which was already preprocessed (by
+ * an other JVM or before a restart). Templates are stored with a key computed from the content of the template, the
+ * template engine, the preprocessors and the fields metadata, so a stored template is never updated : a new version of
+ * the template is stored with an other key.
+ */
+public interface IPreprocessedTemplateStore
+{
+
+    /**
+     * Returns the preprocessed template stored with the given key and null if there is no template for this key (or if
+     * the stored template cannot be read).
+     * 
+     * @param key
+     * @return
+     * @throws IOException
+     */
+    PreprocessedTemplate load( String key )
+        throws IOException;
+
+    /**
+     * Store the given preprocessed template with the given key.
+     * 
+     * @param key
+     * @param template
+     * @throws IOException
+     */
+    void save( String key, PreprocessedTemplate template )
+        throws IOException;
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.preprocessor;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+
+/**
+ * Result of the preprocessing of a template : the preprocessed archive and the state computed by the preprocessing
+ * which is required to generate the reports (ex : for docx, the entries which have dynamic hyperlinks).
+ * 
+ * @see IPreprocessedTemplateStore
+ */
+public class PreprocessedTemplate
+{
+
+    private final XDocArchive preprocessedArchive;
+
+    private final Map<String, Serializable> state;
+
+    public PreprocessedTemplate( XDocArchive preprocessedArchive, Map<String, Serializable> state )
+    {
+        this.preprocessedArchive = preprocessedArchive;
+        this.state = state;
+    }
+
+    /**
+     * Returns the preprocessed archive.
+     * 
+     * @return
+     */
+    public XDocArchive getPreprocessedArchive()
+    {
+        return preprocessedArchive;
+    }
+
+    /**
+     * Returns the state computed by the preprocessing.
+     * 
+     * @return
+     */
+    public Map<String, Serializable> getState()
+    {
+        return state;
+    }
+}
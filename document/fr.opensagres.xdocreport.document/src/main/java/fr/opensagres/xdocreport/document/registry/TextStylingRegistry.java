@@ -24,15 +24,17 @@
  */
 package fr.opensagres.xdocreport.document.registry;
 
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
+import fr.opensagres.xdocreport.core.cache.BoundedCacheStorage;
+import fr.opensagres.xdocreport.core.cache.ICacheStorage;
 import fr.opensagres.xdocreport.core.registry.AbstractRegistry;
 import fr.opensagres.xdocreport.document.DocumentContextHelper;
 import fr.opensagres.xdocreport.document.discovery.ITextStylingDocumentHandlerFactoryDiscovery;
 import fr.opensagres.xdocreport.document.preprocessor.sax.BufferedElement;
+import fr.opensagres.xdocreport.document.textstyling.AbstractDocumentHandler;
 import fr.opensagres.xdocreport.document.textstyling.BasicTransformResult;
 import fr.opensagres.xdocreport.document.textstyling.IDocumentHandler;
 import fr.opensagres.xdocreport.document.textstyling.ITextStylingTransformer;
@@ -50,6 +52,18 @@ public class TextStylingRegistry
     extends AbstractRegistry<ITextStylingDocumentHandlerFactoryDiscovery>
 {
 
+    /**
+     * System property to set the max number of text styling transform results cached for a report generation. 0
+     * disables the cache.
+     */
+    public static final String TRANSFORM_RESULT_CACHE_MAX_ENTRIES_PROPERTY =
+        "xdocreport.textstyling.cache.maxEntries";
+
+    private static final int TRANSFORM_RESULT_CACHE_MAX_ENTRIES =
+        Integer.getInteger( TRANSFORM_RESULT_CACHE_MAX_ENTRIES_PROPERTY, 1000 );
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
     private static final TextStylingRegistry INSTANCE = new TextStylingRegistry();
 
     private final Map<String, ITextStylingDocumentHandlerFactoryDiscovery> documentHandlers =
@@ -107,16 +121,37 @@ public class TextStylingRegistry
                     if ( templateEngine != null )
                     {
                         StringWriter newContent = new StringWriter();
-                        templateEngine.process( entryName, context, new StringReader( initialContent ), newContent );
+                        templateEngine.process( entryName, context, initialContent, newContent );
                         content = newContent.toString();
                     }
                 }
 
+                // 2) Search the result of the same transformation in the current report generation.
+                ICacheStorage<String, ITransformResult> cache = DocumentContextHelper.getTransformResultCache( context );
+                String key = null;
+                if ( cache != null )
+                {
+                    key = getTransformResultKey( content, syntaxKind, documentKind, elementId, entryName );
+                    ITransformResult result = cache.get( key );
+                    if ( result != null )
+                    {
+                        return result;
+                    }
+                }
+
                 // Transformer found, create an instance of document handler
                 // (docx, odt, etc).
                 IDocumentHandler visitor = createDocumentHandler( documentKind, elementId, context, entryName );
                 // 3) Process the transformation.
-                return transformer.transform( content, visitor );
+                ITransformResult result = transformer.transform( content, visitor );
+                if ( cache != null && visitor instanceof AbstractDocumentHandler
+                    && ( (AbstractDocumentHandler) visitor ).isTransformResultCacheable() )
+                {
+                    result =
+                        new BasicTransformResult( result.getTextBefore(), result.getTextBody(), result.getTextEnd() );
+                    cache.put( key, result );
+                }
+                return result;
             }
             catch ( Throwable e )
             {
@@ -128,6 +163,35 @@ public class TextStylingRegistry
         return new BasicTransformResult( initialContent );
     }
 
+    /**
+     * Create the cache of the text styling transform results for a report generation or null if this cache is
+     * disabled. This cache must be registered in the context with
+     * {@link DocumentContextHelper#putTransformResultCache(IContext, ICacheStorage)} for each report generation,
+     * because the transform results can refer to the generated document (ex : relationship id of an hyperlink).
+     * 
+     * @return
+     */
+    public ICacheStorage<String, ITransformResult> createTransformResultCache()
+    {
+        if ( TRANSFORM_RESULT_CACHE_MAX_ENTRIES <= 0 )
+        {
+            return null;
+        }
+        return new BoundedCacheStorage<String, ITransformResult>( TRANSFORM_RESULT_CACHE_MAX_ENTRIES, 0, 0 );
+    }
+
+    private static String getTransformResultKey( String content, String syntaxKind, String documentKind,
+                                                 String elementId, String entryName )
+    {
+        StringBuilder key = new StringBuilder( content.length() + 64 );
+        key.append( syntaxKind ).append( KEY_SEPARATOR );
+        key.append( documentKind ).append( KEY_SEPARATOR );
+        key.append( entryName ).append( KEY_SEPARATOR );
+        key.append( elementId ).append( KEY_SEPARATOR );
+        key.append( content );
+        return key.toString();
+    }
+
     /**
      * Create an instance of document handler for the given document kind.
      * 
@@ -26,6 +26,7 @@ package fr.opensagres.xdocreport.document.registry;
 
 import static java.text.MessageFormat.format;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
@@ -34,12 +35,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import fr.opensagres.xdocreport.converter.MimeMapping;
 import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.cache.BoundedCacheStorage;
 import fr.opensagres.xdocreport.core.cache.CacheStorageRegistry;
+import fr.opensagres.xdocreport.core.cache.ICacheEvictionListener;
 import fr.opensagres.xdocreport.core.cache.ICacheStorage;
+import fr.opensagres.xdocreport.core.cache.ICacheWeigher;
 import fr.opensagres.xdocreport.core.io.IEntryInfo;
 import fr.opensagres.xdocreport.core.io.XDocArchive;
 import fr.opensagres.xdocreport.core.logging.LogUtils;
@@ -47,9 +53,12 @@ import fr.opensagres.xdocreport.core.registry.AbstractRegistry;
 import fr.opensagres.xdocreport.core.utils.StringUtils;
 import fr.opensagres.xdocreport.document.IXDocReport;
 import fr.opensagres.xdocreport.document.discovery.IXDocReportFactoryDiscovery;
+import fr.opensagres.xdocreport.document.preprocessor.FilePreprocessedTemplateStore;
+import fr.opensagres.xdocreport.document.preprocessor.IPreprocessedTemplateStore;
 import fr.opensagres.xdocreport.template.ITemplateEngine;
 import fr.opensagres.xdocreport.template.TemplateEngineKind;
 import fr.opensagres.xdocreport.template.cache.ITemplateCacheInfoProvider;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
 
 /**
  * Registry for loading and cahing {@link IXDocReport} instances.
@@ -69,6 +78,11 @@ public class XDocReportRegistry
      */
     private static final Logger LOGGER = LogUtils.getLogger( AbstractRegistry.class.getName() );
 
+    /**
+     * System property with the directory of the {@link FilePreprocessedTemplateStore} used by the loaded reports.
+     */
+    public static final String PREPROCESSED_TEMPLATE_STORE_DIR_PROPERTY = "xdocreport.preprocessed.store.dir";
+
     private static final String FILES_TYPE_ERROR =
         "Impossible to create report for the input stream. The report loader supports only [{0}] files type.";
 
@@ -82,20 +96,47 @@ public class XDocReportRegistry
      */
     private final ICacheStorage<String, IXDocReport> cachedReports;
     private Timer cleanupTimer;
+
+    /**
+     * Store of the preprocessed templates set to the created reports (null if preprocessed templates are not stored).
+     */
+    private transient IPreprocessedTemplateStore preprocessedTemplateStore;
+
+    /**
+     * Executor used to warm up the reports in the background (null to warm up the reports in the thread which loads
+     * them).
+     */
+    private transient Executor warmupExecutor;
+
     public XDocReportRegistry()
     {
         super( IXDocReportFactoryDiscovery.class );
         this.cachedReports = createCache();
+        String storeDir = System.getProperty( PREPROCESSED_TEMPLATE_STORE_DIR_PROPERTY );
+        if ( StringUtils.isNotEmpty( storeDir ) )
+        {
+            this.preprocessedTemplateStore = new FilePreprocessedTemplateStore( new File( storeDir ) );
+        }
     }
 
     /**
-     * Create the storage cache to store instances of IXDocReport.
+     * Create the storage cache to store instances of IXDocReport. When the cache is a {@link BoundedCacheStorage}, the
+     * reports are weighed with the size of their document archive and the compiled templates of the evicted reports
+     * are removed from their template engine. The evicted reports are not disposed because they may still be used by
+     * the callers which got them before the eviction.
      * 
      * @return
      */
     protected ICacheStorage<String, IXDocReport> createCache()
     {
-        return CacheStorageRegistry.getRegistry().createCache();
+        ICacheStorage<String, IXDocReport> cache = CacheStorageRegistry.getRegistry().createCache();
+        if ( cache instanceof BoundedCacheStorage )
+        {
+            BoundedCacheStorage<String, IXDocReport> boundedCache = (BoundedCacheStorage<String, IXDocReport>) cache;
+            boundedCache.setWeigher( ReportWeigher.INSTANCE );
+            boundedCache.addEvictionListener( ReportEvictionListener.INSTANCE );
+        }
+        return cache;
     }
 
     public static XDocReportRegistry getRegistry()
@@ -265,6 +306,93 @@ public class XDocReportRegistry
         return loadReport( sourceStream, reportId, templateEngineKind.name(), null, cacheReport );
     }
 
+    /**
+     * Load report with the given fields metadata and warm it up (see {@link IXDocReport#warmup()}) with the warmup
+     * executor (see {@link #setWarmupExecutor(Executor)}). The fields metadata must be given at load because the
+     * preprocessing done by the warmup uses it.
+     * 
+     * @param sourceStream
+     * @param reportId
+     * @param templateEngineKind
+     * @param fieldsMetadata
+     * @param cacheReport
+     * @return
+     * @throws IOException
+     * @throws XDocReportException
+     */
+    public IXDocReport loadReportAndWarmup( InputStream sourceStream, String reportId,
+                                            TemplateEngineKind templateEngineKind, FieldsMetadata fieldsMetadata,
+                                            boolean cacheReport )
+        throws IOException, XDocReportException
+    {
+        IXDocReport report = loadReport( sourceStream, reportId, templateEngineKind.name(), null, false );
+        report.setFieldsMetadata( fieldsMetadata );
+        if ( cacheReport )
+        {
+            registerReport( report );
+        }
+        warmupReport( report );
+        return report;
+    }
+
+    /**
+     * Warm up the given report (see {@link IXDocReport#warmup()}) in the background with the warmup executor or in the
+     * current thread if there is no warmup executor. Errors of a warmup done in the background are logged, and will be
+     * thrown again by the generation of the report.
+     * 
+     * @param report
+     * @throws IOException
+     * @throws XDocReportException
+     */
+    public void warmupReport( final IXDocReport report )
+        throws IOException, XDocReportException
+    {
+        Executor executor = this.warmupExecutor;
+        if ( executor == null )
+        {
+            report.warmup();
+            return;
+        }
+        executor.execute( new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    report.warmup();
+                }
+                catch ( Throwable e )
+                {
+                    if ( LOGGER.isLoggable( Level.WARNING ) )
+                    {
+                        LOGGER.log( Level.WARNING, "Error while warming up the report " + report.getId(), e );
+                    }
+                }
+            }
+        } );
+    }
+
+    /**
+     * Set the executor used to warm up the reports in the background (see {@link #warmupReport(IXDocReport)}).
+     * 
+     * @param warmupExecutor the executor and null to warm up the reports in the thread which loads them.
+     */
+    public void setWarmupExecutor( Executor warmupExecutor )
+    {
+        this.warmupExecutor = warmupExecutor;
+    }
+
+    /**
+     * Returns the executor used to warm up the reports in the background and null if the reports are warmed up in the
+     * thread which loads them.
+     * 
+     * @return
+     */
+    public Executor getWarmupExecutor()
+    {
+        return warmupExecutor;
+    }
+
     /**
      * Load report.
      *
@@ -364,6 +492,29 @@ public class XDocReportRegistry
         return report;
     }
 
+    /**
+     * Set the store used by the created reports to load their preprocessed template instead of preprocessing it after
+     * a restart of the JVM (see {@link IXDocReport#setPreprocessedTemplateStore(IPreprocessedTemplateStore)}). By
+     * default, a {@link FilePreprocessedTemplateStore} is used if the system property
+     * {@link #PREPROCESSED_TEMPLATE_STORE_DIR_PROPERTY} is set.
+     * 
+     * @param preprocessedTemplateStore the store and null to disable it.
+     */
+    public void setPreprocessedTemplateStore( IPreprocessedTemplateStore preprocessedTemplateStore )
+    {
+        this.preprocessedTemplateStore = preprocessedTemplateStore;
+    }
+
+    /**
+     * Returns the store of the preprocessed templates used by the created reports and null if there is no store.
+     * 
+     * @return
+     */
+    public IPreprocessedTemplateStore getPreprocessedTemplateStore()
+    {
+        return preprocessedTemplateStore;
+    }
+
     public IXDocReport createReport( InputStream sourceStream )
         throws IOException, XDocReportException
     {
@@ -383,6 +534,11 @@ public class XDocReportRegistry
                 IXDocReport report = discovery.createReport();
                 if ( report != null )
                 {
+                    if ( preprocessedTemplateStore != null )
+                    {
+                        // the reports which don't support the store ignore it.
+                        report.setPreprocessedTemplateStore( preprocessedTemplateStore );
+                    }
                     report.setDocumentArchive( documentArchive );
                 }
                 return report;
@@ -439,6 +595,12 @@ public class XDocReportRegistry
         {
             checkReportId( reportId );
         }
+        IXDocReport previousReport = cachedReports.get( reportId );
+        if ( previousReport != null && previousReport != report )
+        {
+            // report is reloaded, the compiled templates of the previous report must not be used.
+            removeTemplatesFromCache( previousReport );
+        }
         cachedReports.put( report.getId(), report );
     }
 
@@ -489,9 +651,11 @@ public class XDocReportRegistry
      */
     public void unregisterReport( String reportId )
     {
-        if ( existsReport( reportId ) )
+        IXDocReport report = cachedReports.get( reportId );
+        if ( report != null )
         {
             cachedReports.remove( reportId );
+            removeTemplatesFromCache( report );
         }
     }
 
@@ -505,6 +669,21 @@ public class XDocReportRegistry
         if ( report != null )
         {
             cachedReports.remove( report.getId() );
+            removeTemplatesFromCache( report );
+        }
+    }
+
+    /**
+     * Remove the compiled templates of the given report from the cache of its template engine.
+     * 
+     * @param report
+     */
+    private static void removeTemplatesFromCache( IXDocReport report )
+    {
+        ITemplateEngine templateEngine = report.getTemplateEngine();
+        if ( templateEngine != null && report.getId() != null )
+        {
+            templateEngine.removeTemplatesFromCache( report.getId() );
         }
     }
 
@@ -557,6 +736,10 @@ public class XDocReportRegistry
      */
     public void clear()
     {
+        for ( IXDocReport report : new ArrayList<IXDocReport>( cachedReports.values() ) )
+        {
+            removeTemplatesFromCache( report );
+        }
         cachedReports.clear();
     }
 
@@ -618,7 +801,8 @@ public class XDocReportRegistry
         	this.cleanupTimer.cancel();	
     	}
         this.reportFactoryDiscoveries.clear();
-        this.cachedReports.clear();
+        // remove the compiled templates of the cached reports from their template engine.
+        clear();
     }
 
     @Override
@@ -627,4 +811,45 @@ public class XDocReportRegistry
         reportFactoryDiscoveries.add( instance );
         return true;
     }
+
+    /**
+     * Weigh a report with the size of its document archive. The preprocessed archive shares the unchanged entries
+     * with the original archive, so only one archive is weighed.
+     */
+    private static class ReportWeigher
+        implements ICacheWeigher<IXDocReport>
+    {
+
+        private static final ReportWeigher INSTANCE = new ReportWeigher();
+
+        public long weigh( IXDocReport report )
+        {
+            XDocArchive archive = report.getOriginalDocumentArchive();
+            if ( archive == null )
+            {
+                archive = report.getPreprocessedDocumentArchive();
+            }
+            return archive != null ? archive.getLength() : 0;
+        }
+    }
+
+    /**
+     * Remove the compiled templates of the evicted reports. The evicted reports are not disposed : the callers which
+     * got them from the registry can still process them (the templates are compiled again).
+     */
+    private static class ReportEvictionListener
+        implements ICacheEvictionListener<String, IXDocReport>
+    {
+
+        private static final ReportEvictionListener INSTANCE = new ReportEvictionListener();
+
+        public void evicted( String reportId, IXDocReport report )
+        {
+            if ( LOGGER.isLoggable( Level.FINE ) )
+            {
+                LOGGER.fine( "Evict report with id=" + reportId + " from the cache." );
+            }
+            removeTemplatesFromCache( report );
+        }
+    }
 }
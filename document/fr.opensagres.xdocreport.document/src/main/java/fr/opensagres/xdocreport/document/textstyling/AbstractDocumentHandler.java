@@ -66,6 +66,8 @@ public abstract class AbstractDocumentHandler
 
     private Stack<Writer> tempWriterStack;
 
+    private boolean transformResultCacheable;
+
     public AbstractDocumentHandler( BufferedElement parent, IContext context, String entryName )
     {
         this.parent = parent;
@@ -74,6 +76,7 @@ public abstract class AbstractDocumentHandler
         this.listStack = new Stack<Boolean>();
         this.entryName = entryName;
         this.tablesStack = null;
+        this.transformResultCacheable = true;
     }
 
     public void handleString( String s )
@@ -224,6 +227,28 @@ public abstract class AbstractDocumentHandler
         return context;
     }
 
+    /**
+     * Returns true if the result of the transformation depends only on the transformed content and can be reused for
+     * the same content in the same report generation, and false if the transformation modifies the generated document
+     * in a way which must be done for each transformation (ex : docx numbering of a list).
+     * 
+     * @return
+     */
+    public boolean isTransformResultCacheable()
+    {
+        return transformResultCacheable;
+    }
+
+    /**
+     * Set false when the transformation must not be reused for the same content.
+     * 
+     * @param transformResultCacheable
+     */
+    protected void setTransformResultCacheable( boolean transformResultCacheable )
+    {
+        this.transformResultCacheable = transformResultCacheable;
+    }
+
     public String getTextBefore()
     {
         if ( beforeWriter != null )
@@ -28,18 +28,29 @@ public class BasicTransformResult
     implements ITransformResult
 {
 
+    private static final String EMPTY_STRING = "";
+
+    private final String textBefore;
+
     private final String content;
 
-    private static final String EMPTY_STRING = "";
+    private final String textEnd;
 
     public BasicTransformResult( String content )
     {
+        this( EMPTY_STRING, content, EMPTY_STRING );
+    }
+
+    public BasicTransformResult( String textBefore, String content, String textEnd )
+    {
+        this.textBefore = textBefore;
         this.content = content;
+        this.textEnd = textEnd;
     }
 
     public String getTextBefore()
     {
-        return EMPTY_STRING;
+        return textBefore;
     }
 
     public String getTextBody()
@@ -49,7 +60,7 @@ public class BasicTransformResult
 
     public String getTextEnd()
     {
-        return EMPTY_STRING;
+        return textEnd;
     }
 
 }
@@ -25,17 +25,22 @@
 package fr.opensagres.xdocreport.document.textstyling.html;
 
 import java.io.StringReader;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
 import org.xml.sax.ContentHandler;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
-import org.xml.sax.helpers.XMLReaderFactory;
+import org.xml.sax.helpers.DefaultHandler;
 
 import fr.opensagres.xdocreport.core.logging.LogUtils;
 import fr.opensagres.xdocreport.core.utils.StringEscapeUtils;
-import fr.opensagres.xdocreport.core.utils.StringUtils;
 import fr.opensagres.xdocreport.document.textstyling.AbstractTextStylingTransformer;
 import fr.opensagres.xdocreport.document.textstyling.IDocumentHandler;
 import fr.opensagres.xdocreport.document.textstyling.ITextStylingTransformer;
@@ -50,19 +55,31 @@ public class HTMLTextStylingTransformer
 
     public static final ITextStylingTransformer INSTANCE = new HTMLTextStylingTransformer();
 
-    private static final String START_XML = "<?xml version=\"1.0\" ?>"
-        + StringEscapeUtils.Entities.HTML40.generateDocType( "entities" ) + "<root>";
+    private static final String START_XML = "<?xml version=\"1.0\" ?>";
+
+    private static final String START_ROOT = "<root>";
 
     private static final String END_XML = "</root>";
 
+    private static final String NBSP = "nbsp";
+
+    private static final StringEscapeUtils.Entities HTML40 = StringEscapeUtils.Entities.HTML40;
+
+    // max length of an entity name (ex : &thetasym;)
+    private static final int MAX_ENTITY_LENGTH = 10;
+
     /**
-     * Logger for this class
+     * SAX parser of the current thread (creating a parser with {@link SAXParserFactory} is costly, so it is reused for
+     * each transformation).
      */
-    private static final Logger LOGGER = LogUtils.getLogger( HTMLTextStylingTransformer.class.getName() );
+    private static final ThreadLocal<XMLReader> XML_READER = new ThreadLocal<XMLReader>();
 
-    private static final String[] searchList = { "\r", "\n", "\t", "&nbsp;" };
+    private static final ContentHandler NO_CONTENT_HANDLER = new DefaultHandler();
 
-    private static final String[] replacementList = { "", "", "", " " };
+    /**
+     * Logger for this class
+     */
+    private static final Logger LOGGER = LogUtils.getLogger( HTMLTextStylingTransformer.class.getName() );
 
     @Override
     protected void doTransform( String content, IDocumentHandler documentHandler )
@@ -76,18 +93,125 @@ public class HTMLTextStylingTransformer
         // pre-process content : can be used to integrate a markup based html generator like markdown
         content = generateXhtmlFromContent( content );
 
-        // remove special characters \n, \r
-        String xml = StringUtils.replaceEach( content, searchList, replacementList );
-        // add root element if xml doesn't contain xml root element.
-        xml = new StringBuilder( START_XML ).append( xml ).append( END_XML ).toString();
+        // remove special characters \n, \r and add root element (and the used HTML entities).
+        String xml = toXML( content );
 
         if ( LOGGER.isLoggable( Level.FINE ) )
         {
             LOGGER.fine( xml );
         }
-        XMLReader xmlReader = XMLReaderFactory.createXMLReader();
+        // the parser is removed from the thread while parsing, so a nested transformation (or a parser in a bad state
+        // after an error) uses another parser.
+        XMLReader xmlReader = XML_READER.get();
+        XML_READER.remove();
+        if ( xmlReader == null )
+        {
+            xmlReader = createXMLReader();
+        }
         xmlReader.setContentHandler( getContentHandler(documentHandler) );
         xmlReader.parse( new InputSource( new StringReader( xml ) ) );
+        // don't keep a reference to the document handler (and the context) in the thread.
+        xmlReader.setContentHandler( NO_CONTENT_HANDLER );
+        XML_READER.set( xmlReader );
+    }
+
+    /**
+     * Create the SAX parser used to parse the HTML content.
+     * 
+     * @return
+     * @throws SAXException
+     */
+    protected XMLReader createXMLReader()
+        throws SAXException
+    {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware( true );
+        try
+        {
+            return factory.newSAXParser().getXMLReader();
+        }
+        catch ( ParserConfigurationException e )
+        {
+            throw new SAXException( e );
+        }
+    }
+
+    /**
+     * Returns the XML to parse for the given HTML content : the special characters \r, \n, \t are removed, &amp;nbsp;
+     * is replaced with a space and the content is wrapped in a root element. The HTML entities used in the content are
+     * declared in the DOCTYPE (declaring the whole HTML entities table would force the parser to read it for each
+     * content).
+     * 
+     * @param content
+     * @return
+     */
+    protected String toXML( String content )
+    {
+        int length = content.length();
+        StringBuilder xml = new StringBuilder( length + START_ROOT.length() + END_XML.length() );
+        Set<String> entityNames = null;
+        int i = 0;
+        while ( i < length )
+        {
+            char c = content.charAt( i );
+            switch ( c )
+            {
+                case '\r':
+                case '\n':
+                case '\t':
+                    break;
+                case '&':
+                    String entityName = getEntityName( content, i );
+                    if ( NBSP.equals( entityName ) )
+                    {
+                        xml.append( ' ' );
+                        i += entityName.length() + 2;
+                        continue;
+                    }
+                    if ( entityName != null && HTML40.entityValue( entityName ) != -1 )
+                    {
+                        if ( entityNames == null )
+                        {
+                            entityNames = new LinkedHashSet<String>();
+                        }
+                        entityNames.add( entityName );
+                    }
+                    xml.append( c );
+                    break;
+                default:
+                    xml.append( c );
+            }
+            i++;
+        }
+        xml.append( END_XML );
+
+        // add XML declaration, DOCTYPE and root element.
+        StringBuilder start = new StringBuilder( START_XML );
+        if ( entityNames != null )
+        {
+            start.append( "<!DOCTYPE entities [" );
+            for ( String entityName : entityNames )
+            {
+                start.append( "<!ENTITY " ).append( entityName ).append( " \"&#" );
+                start.append( HTML40.entityValue( entityName ) ).append( ";\">" );
+            }
+            start.append( " ]>" );
+        }
+        start.append( START_ROOT );
+        return xml.insert( 0, start ).toString();
+    }
+
+    /**
+     * Returns the name of the entity which starts at the given index or null if there is not an entity.
+     */
+    private static String getEntityName( String content, int start )
+    {
+        int end = content.indexOf( ';', start + 1 );
+        if ( end == -1 || end - start - 1 > MAX_ENTITY_LENGTH )
+        {
+            return null;
+        }
+        return content.substring( start + 1, end );
     }
 
     protected ContentHandler getContentHandler(IDocumentHandler documentHandler) {
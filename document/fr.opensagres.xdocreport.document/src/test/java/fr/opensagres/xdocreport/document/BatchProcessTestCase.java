@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.batch.BatchResult;
+import fr.opensagres.xdocreport.document.batch.IBatchOutputStreamProvider;
+import fr.opensagres.xdocreport.template.IContext;
+
+/**
+ * Test case for {@link IXDocReport#processAll(Iterator, IBatchOutputStreamProvider, Executor, int)}.
+ */
+public class BatchProcessTestCase
+    extends TestCase
+{
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        executor = Executors.newFixedThreadPool( 2 );
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        executor.shutdown();
+    }
+
+    public void testSequentialBatch()
+        throws Exception
+    {
+        checkBatch( createReport(), null, 1 );
+    }
+
+    public void testParallelBatch()
+        throws Exception
+    {
+        checkBatch( createReport(), executor, 4 );
+    }
+
+    public void testParallelBatchWithProcessExecutor()
+        throws Exception
+    {
+        // the executor is shared by the workers of the batch and the parallel merge of the entries
+        IXDocReport report = createReport();
+        report.setProcessExecutor( executor );
+        checkBatch( report, null, 4 );
+        assertFalse( executor.isShutdown() );
+    }
+
+    public void testIteratorError()
+        throws Exception
+    {
+        IXDocReport report = createReport();
+        final IContext context = report.createContext();
+        context.put( "name", "n" );
+        final AtomicInteger count = new AtomicInteger();
+        Iterator<IContext> contexts = new Iterator<IContext>()
+        {
+            public boolean hasNext()
+            {
+                return true;
+            }
+
+            public IContext next()
+            {
+                if ( count.incrementAndGet() == 5 )
+                {
+                    throw new IllegalStateException( "Cannot read the next context" );
+                }
+                return context;
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        try
+        {
+            report.processAll( contexts, new IBatchOutputStreamProvider()
+            {
+                public OutputStream getOutputStream( int index, IContext context )
+                    throws IOException
+                {
+                    return new ByteArrayOutputStream();
+                }
+            }, executor, 3 );
+            fail( "The error of the iterator must stop the batch" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "Cannot read the next context", e.getMessage() );
+        }
+        // the workers are stopped : the iterator is not read anymore
+        assertEquals( 5, count.get() );
+    }
+
+    private void checkBatch( IXDocReport report, Executor executor, int nbThreads )
+        throws Exception
+    {
+        List<IContext> contexts = new ArrayList<IContext>();
+        for ( int i = 0; i < 20; i++ )
+        {
+            IContext context = report.createContext();
+            // the document 7 fails
+            context.put( "name", i == 7 ? "FAIL" : "n" + i );
+            contexts.add( context );
+        }
+
+        final Map<Integer, ByteArrayOutputStream> outputs = new ConcurrentHashMap<Integer, ByteArrayOutputStream>();
+        BatchResult result = report.processAll( contexts.iterator(), new IBatchOutputStreamProvider()
+        {
+            public OutputStream getOutputStream( int index, IContext context )
+                throws IOException
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                outputs.put( index, out );
+                return out;
+            }
+        }, executor, nbThreads );
+
+        assertEquals( 19, result.getProcessedCount() );
+        assertEquals( 1, result.getErrorCount() );
+        assertEquals( 7, result.getErrors().get( 0 ).getIndex() );
+        assertTrue( result.getErrors().get( 0 ).getException() instanceof XDocReportException );
+        for ( int i = 0; i < 20; i++ )
+        {
+            if ( i != 7 )
+            {
+                XDocArchive archive =
+                    XDocArchive.readZip( new ByteArrayInputStream( outputs.get( i ).toByteArray() ) );
+                assertEquals( "a:n" + i, IOUtils.toString( archive.getEntryReader( "a.xml" ) ) );
+            }
+        }
+    }
+
+    private static IXDocReport createReport()
+        throws Exception
+    {
+        XDocArchive archive = new XDocArchive();
+        XDocArchive.setEntry( archive, "a.xml", new ByteArrayInputStream( "a:${name}".getBytes( "UTF-8" ) ) );
+        XDocArchive.setEntry( archive, "b.xml", new ByteArrayInputStream( "b".getBytes( "UTF-8" ) ) );
+        XDocArchive.setEntry( archive, "c.xml", new ByteArrayInputStream( "c".getBytes( "UTF-8" ) ) );
+
+        MockXDocReport report = new MockXDocReport();
+        report.setId( "batch" );
+        report.setTemplateEngine( new MockTemplateEngine() );
+        report.setDocumentArchive( archive );
+        return report;
+    }
+}
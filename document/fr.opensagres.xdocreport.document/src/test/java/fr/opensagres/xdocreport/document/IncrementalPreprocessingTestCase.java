@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.preprocessor.ISelfContainedPreprocessor;
+import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * Test case for the incremental preprocessing (see {@link AbstractXDocReport#setIncrementalPreprocessing(boolean)}).
+ */
+public class IncrementalPreprocessingTestCase
+    extends TestCase
+{
+
+    private CountingPreprocessor aPreprocessor;
+
+    private CountingPreprocessor bPreprocessor;
+
+    private MockXDocReport report;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        aPreprocessor = new CountingPreprocessor();
+        bPreprocessor = new SelfContainedCountingPreprocessor();
+        report = new MockXDocReport();
+        report.setIncrementalPreprocessing( true );
+        report.addPreprocessor( "a.xml", aPreprocessor );
+        report.addPreprocessor( "b.xml", bPreprocessor );
+        report.setTemplateEngine( new MockTemplateEngine() );
+        report.setDocumentArchive( createArchive( "a", "b", "c" ) );
+        report.preprocess();
+        assertPreprocessed( "A", "B", "c" );
+        assertCounts( 1, 1 );
+    }
+
+    public void testNothingChanged()
+        throws Exception
+    {
+        report.setDocumentArchive( createArchive( "a", "b", "c" ) );
+        report.preprocess();
+        assertPreprocessed( "A", "B", "c" );
+        assertCounts( 1, 1 );
+    }
+
+    public void testEntryNotPreprocessedChanged()
+        throws Exception
+    {
+        report.setDocumentArchive( createArchive( "a", "b", "c2" ) );
+        report.preprocess();
+        assertPreprocessed( "A", "B", "c2" );
+        assertCounts( 1, 1 );
+    }
+
+    public void testEntryPreprocessedChanged()
+        throws Exception
+    {
+        // b.xml is self contained : its previous result is reused
+        report.setDocumentArchive( createArchive( "a2", "b", "c" ) );
+        report.preprocess();
+        assertPreprocessed( "A2", "B", "c" );
+        assertCounts( 2, 1 );
+
+        // a.xml is not self contained : it's preprocessed as soon as an entry read by the preprocessing changed
+        report.setDocumentArchive( createArchive( "a2", "b2", "c" ) );
+        report.preprocess();
+        assertPreprocessed( "A2", "B2", "c" );
+        assertCounts( 3, 2 );
+    }
+
+    public void testFieldsMetadataChanged()
+        throws Exception
+    {
+        report.createFieldsMetadata().addFieldAsList( "developers.Name" );
+        report.setDocumentArchive( createArchive( "a", "b", "c" ) );
+        report.preprocess();
+        assertPreprocessed( "A", "B", "c" );
+        assertCounts( 2, 2 );
+    }
+
+    public void testIncrementalPreprocessingDisabled()
+        throws Exception
+    {
+        report.setIncrementalPreprocessing( false );
+        report.setDocumentArchive( createArchive( "a", "b", "c" ) );
+        report.preprocess();
+        assertPreprocessed( "A", "B", "c" );
+        assertCounts( 2, 2 );
+    }
+
+    private void assertPreprocessed( String a, String b, String c )
+        throws IOException
+    {
+        XDocArchive archive = report.getPreprocessedDocumentArchive();
+        assertEquals( a, IOUtils.toString( archive.getEntryReader( "a.xml" ) ) );
+        assertEquals( b, IOUtils.toString( archive.getEntryReader( "b.xml" ) ) );
+        assertEquals( c, IOUtils.toString( archive.getEntryReader( "c.xml" ) ) );
+    }
+
+    private void assertCounts( int aCount, int bCount )
+    {
+        assertEquals( aCount, aPreprocessor.count );
+        assertEquals( bCount, bPreprocessor.count );
+    }
+
+    private static XDocArchive createArchive( String a, String b, String c )
+        throws IOException
+    {
+        XDocArchive archive = new XDocArchive();
+        XDocArchive.setEntry( archive, "a.xml", new ByteArrayInputStream( a.getBytes( "UTF-8" ) ) );
+        XDocArchive.setEntry( archive, "b.xml", new ByteArrayInputStream( b.getBytes( "UTF-8" ) ) );
+        XDocArchive.setEntry( archive, "c.xml", new ByteArrayInputStream( c.getBytes( "UTF-8" ) ) );
+        return archive;
+    }
+
+    /**
+     * Preprocessor which upper cases the content of the entry.
+     */
+    private static class CountingPreprocessor
+        implements IXDocPreprocessor
+    {
+
+        int count;
+
+        public void preprocess( String entryName, XDocArchive outputArchive, FieldsMetadata fieldsMetadata,
+                                IDocumentFormatter formatter, Map<String, Object> sharedContext )
+            throws XDocReportException, IOException
+        {
+            count++;
+            String content = IOUtils.toString( outputArchive.getEntryReader( entryName ) );
+            Writer writer = outputArchive.getEntryWriter( entryName );
+            writer.write( content.toUpperCase() );
+            writer.close();
+        }
+
+        public boolean create( String entryName, XDocArchive outputArchive, FieldsMetadata fieldsMetadata,
+                               IDocumentFormatter formatter, Map<String, Object> sharedContext )
+        {
+            return false;
+        }
+    }
+
+    private static class SelfContainedCountingPreprocessor
+        extends CountingPreprocessor
+        implements ISelfContainedPreprocessor
+    {
+
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
+import fr.opensagres.xdocreport.template.FieldsExtractor;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * Template engine which replaces ${name} and ${merged} (the names of the merged entries registered in the
+ * context).
+ */
+public class MockTemplateEngine
+    extends AbstractTemplateEngine
+{
+
+    @Override
+    protected void processWithCache( String templateName, IContext context, Writer writer )
+        throws XDocReportException, IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void processNoCache( String templateName, IContext context, Reader reader, Writer writer )
+        throws XDocReportException, IOException
+    {
+        // template name is $reportId!$entryName
+        String entryName = templateName.substring( templateName.lastIndexOf( '!' ) + 1 );
+        String content = IOUtils.toString( reader );
+        if ( "FAIL".equals( content ) || "FAIL".equals( context.get( "name" ) ) )
+        {
+            throw new XDocReportException( "Cannot merge " + entryName );
+        }
+        if ( content.contains( "${merged}" ) )
+        {
+            content = content.replace( "${merged}", context.get( "a.xml" ) + "," + context.get( "b.xml" ) );
+        }
+        content = content.replace( "${name}", String.valueOf( context.get( "name" ) ) );
+        // register a value in the context like a lazily created registry
+        context.put( entryName, entryName );
+        writer.write( content );
+    }
+
+    public String getKind()
+    {
+        return "mock";
+    }
+
+    public String getId()
+    {
+        return "mock";
+    }
+
+    public IContext createContext()
+    {
+        return createContext( new HashMap<String, Object>() );
+    }
+
+    public IContext createContext( final Map<String, Object> contextMap )
+    {
+        return new IContext()
+        {
+            public Object put( String key, Object value )
+            {
+                return contextMap.put( key, value );
+            }
+
+            public Object get( String key )
+            {
+                return contextMap.get( key );
+            }
+
+            public void putMap( Map<String, Object> map )
+            {
+                contextMap.putAll( map );
+            }
+
+            public Map<String, Object> getContextMap()
+            {
+                return contextMap;
+            }
+        };
+    }
+
+    public void extractFields( Reader reader, String entryName, FieldsExtractor extractor )
+        throws XDocReportException
+    {
+    }
+
+    public IDocumentFormatter getDocumentFormatter()
+    {
+        return null;
+    }
+
+    public void process( String templateName, IContext context, Writer writer )
+        throws IOException, XDocReportException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isFieldNameStartsWithUpperCase()
+    {
+        return false;
+    }
+}
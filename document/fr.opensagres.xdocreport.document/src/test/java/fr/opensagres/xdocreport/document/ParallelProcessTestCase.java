@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.converter.MimeMapping;
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IEntryOutputStreamProvider;
+import fr.opensagres.xdocreport.core.io.IEntryReaderProvider;
+import fr.opensagres.xdocreport.core.io.IEntryWriterProvider;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.images.IImageRegistry;
+import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
+import fr.opensagres.xdocreport.template.FieldsExtractor;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * Test case for the parallel merge of the XML entries (see {@link IXDocReport#setProcessExecutor(java.util.concurrent.Executor)}).
+ */
+public class ParallelProcessTestCase
+    extends TestCase
+{
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        executor = Executors.newFixedThreadPool( 2 );
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        executor.shutdown();
+    }
+
+    public void testSameResultAsSequentialProcess()
+        throws Exception
+    {
+        XDocArchive sequential = process( null, "name" );
+        XDocArchive parallel = process( executor, "name" );
+
+        for ( String entryName : new String[] { "a.xml", "b.xml", "c.xml" } )
+        {
+            assertEquals( read( sequential, entryName ), read( parallel, entryName ) );
+        }
+        assertEquals( "a:world", read( parallel, "a.xml" ) );
+        // c.xml is not parallelizable, it is merged after a.xml and b.xml and sees the values they registered.
+        assertEquals( "c:a.xml,b.xml", read( parallel, "c.xml" ) );
+    }
+
+    public void testErrorInParallelEntry()
+        throws Exception
+    {
+        try
+        {
+            process( executor, "FAIL" );
+            fail( "Merge of b.xml must fail" );
+        }
+        catch ( XDocReportException e )
+        {
+            assertEquals( "Cannot merge b.xml", e.getMessage() );
+        }
+    }
+
+    private static XDocArchive process( ExecutorService executor, String bContent )
+        throws Exception
+    {
+        XDocArchive archive = new XDocArchive();
+        XDocArchive.setEntry( archive, "a.xml", new ByteArrayInputStream( "a:${name}".getBytes( "UTF-8" ) ) );
+        XDocArchive.setEntry( archive, "b.xml", new ByteArrayInputStream( bContent.getBytes( "UTF-8" ) ) );
+        XDocArchive.setEntry( archive, "c.xml", new ByteArrayInputStream( "c:${merged}".getBytes( "UTF-8" ) ) );
+
+        MockXDocReport report = new MockXDocReport();
+        report.setId( "test" );
+        report.setTemplateEngine( new MockTemplateEngine() );
+        report.setProcessExecutor( executor );
+        report.setDocumentArchive( archive );
+
+        IContext context = report.createContext();
+        context.put( "name", "world" );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( context, out );
+        return XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+    }
+
+    private static String read( XDocArchive archive, String entryName )
+        throws IOException
+    {
+        return IOUtils.toString( archive.getEntryReader( entryName ) );
+    }
+
+    private static class MockXDocReport
+        extends AbstractXDocReport
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        public String getKind()
+        {
+            return "mock";
+        }
+
+        public MimeMapping getMimeMapping()
+        {
+            return null;
+        }
+
+        @Override
+        protected String[] getDefaultXMLEntries()
+        {
+            return new String[] { "a.xml", "b.xml", "c.xml" };
+        }
+
+        @Override
+        protected void registerPreprocessors()
+        {
+        }
+
+        @Override
+        protected IImageRegistry createImageRegistry( IEntryReaderProvider readerProvider,
+                                                      IEntryWriterProvider writerProvider,
+                                                      IEntryOutputStreamProvider outputStreamProvider )
+        {
+            return null;
+        }
+
+        @Override
+        protected boolean isParallelizableEntry( String entryName )
+        {
+            return !"c.xml".equals( entryName );
+        }
+    }
+
+    /**
+     * Template engine which replaces ${name} and ${merged} (the names of the merged entries registered in the
+     * context).
+     */
+    private static class MockTemplateEngine
+        extends AbstractTemplateEngine
+    {
+
+        @Override
+        protected void processWithCache( String templateName, IContext context, Writer writer )
+            throws XDocReportException, IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void processNoCache( String templateName, IContext context, Reader reader, Writer writer )
+            throws XDocReportException, IOException
+        {
+            // template name is $reportId!$entryName
+            String entryName = templateName.substring( templateName.lastIndexOf( '!' ) + 1 );
+            String content = IOUtils.toString( reader );
+            if ( "FAIL".equals( content ) )
+            {
+                throw new XDocReportException( "Cannot merge " + entryName );
+            }
+            if ( content.contains( "${merged}" ) )
+            {
+                content = content.replace( "${merged}", context.get( "a.xml" ) + "," + context.get( "b.xml" ) );
+            }
+            content = content.replace( "${name}", String.valueOf( context.get( "name" ) ) );
+            // register a value in the context like a lazily created registry
+            context.put( entryName, entryName );
+            writer.write( content );
+        }
+
+        public String getKind()
+        {
+            return "mock";
+        }
+
+        public String getId()
+        {
+            return "mock";
+        }
+
+        public IContext createContext()
+        {
+            return createContext( new HashMap<String, Object>() );
+        }
+
+        public IContext createContext( final Map<String, Object> contextMap )
+        {
+            return new IContext()
+            {
+                public Object put( String key, Object value )
+                {
+                    return contextMap.put( key, value );
+                }
+
+                public Object get( String key )
+                {
+                    return contextMap.get( key );
+                }
+
+                public void putMap( Map<String, Object> map )
+                {
+                    contextMap.putAll( map );
+                }
+
+                public Map<String, Object> getContextMap()
+                {
+                    return contextMap;
+                }
+            };
+        }
+
+        public void extractFields( Reader reader, String entryName, FieldsExtractor extractor )
+            throws XDocReportException
+        {
+        }
+
+        public IDocumentFormatter getDocumentFormatter()
+        {
+            return null;
+        }
+
+        public void process( String templateName, IContext context, Writer writer )
+            throws IOException, XDocReportException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean isFieldNameStartsWithUpperCase()
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.preprocessor.FilePreprocessedTemplateStore;
+import fr.opensagres.xdocreport.document.preprocessor.IXDocPreprocessor;
+import fr.opensagres.xdocreport.document.preprocessor.PreprocessedTemplate;
+import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
+
+/**
+ * Test case for the store of preprocessed templates (see
+ * {@link AbstractXDocReport#setPreprocessedTemplateStore(fr.opensagres.xdocreport.document.preprocessor.IPreprocessedTemplateStore)}
+ * ).
+ */
+public class PreprocessedTemplateStoreTestCase
+    extends TestCase
+{
+
+    private File directory;
+
+    private FilePreprocessedTemplateStore store;
+
+    private CountingPreprocessor preprocessor;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        directory = File.createTempFile( "xdocreport", "store" );
+        directory.delete();
+        store = new FilePreprocessedTemplateStore( directory );
+        preprocessor = new CountingPreprocessor();
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testPreprocessedTemplateLoadedFromStore()
+        throws Exception
+    {
+        // first report : the template is preprocessed and stored
+        MockXDocReport report = createReport( "a" );
+        report.preprocess();
+        assertPreprocessed( report, "A" );
+        assertEquals( 1, preprocessor.count );
+        assertEquals( 1, directory.listFiles().length );
+
+        // second report (ex : after a restart of the JVM) : the preprocessed template is loaded from the store
+        report = createReport( "a" );
+        report.preprocess();
+        assertPreprocessed( report, "A" );
+        assertEquals( 1, preprocessor.count );
+    }
+
+    public void testTemplateChanged()
+        throws Exception
+    {
+        createReport( "a" ).preprocess();
+        MockXDocReport report = createReport( "a2" );
+        report.preprocess();
+        assertPreprocessed( report, "A2" );
+        assertEquals( 2, preprocessor.count );
+        assertEquals( 2, directory.listFiles().length );
+    }
+
+    public void testFieldsMetadataChanged()
+        throws Exception
+    {
+        createReport( "a" ).preprocess();
+        FieldsMetadata fieldsMetadata = new FieldsMetadata();
+        fieldsMetadata.addFieldAsList( "developers.Name" );
+        createReport( "a", fieldsMetadata ).preprocess();
+        assertEquals( 2, preprocessor.count );
+    }
+
+    public void testCorruptedStoredTemplate()
+        throws Exception
+    {
+        createReport( "a" ).preprocess();
+        File storedTemplate = directory.listFiles()[0];
+        FileOutputStream out = new FileOutputStream( storedTemplate );
+        out.write( "corrupted".getBytes( "UTF-8" ) );
+        out.close();
+
+        MockXDocReport report = createReport( "a" );
+        report.preprocess();
+        assertPreprocessed( report, "A" );
+        assertEquals( 2, preprocessor.count );
+    }
+
+    public void testAllowedClasses()
+        throws Exception
+    {
+        XDocArchive archive = new XDocArchive();
+        XDocArchive.setEntry( archive, "a.xml", new ByteArrayInputStream( "A".getBytes( "UTF-8" ) ) );
+        Map<String, Serializable> state = new HashMap<String, Serializable>();
+        HashSet<String> entryNames = new HashSet<String>();
+        entryNames.add( "a.xml" );
+        state.put( "entryNames", entryNames );
+        store.save( "allowed", new PreprocessedTemplate( archive, state ) );
+
+        PreprocessedTemplate template = store.load( "allowed" );
+        assertNotNull( template );
+        assertEquals( entryNames, template.getState().get( "entryNames" ) );
+        assertEquals( "A", IOUtils.toString( template.getPreprocessedArchive().getEntryReader( "a.xml" ) ) );
+
+        // a class which is not allowed is not read
+        state.put( "date", new Date() );
+        store.save( "notAllowed", new PreprocessedTemplate( archive, state ) );
+        assertNull( store.load( "notAllowed" ) );
+
+        store.addAllowedClass( Date.class );
+        assertNotNull( store.load( "notAllowed" ) );
+    }
+
+    private MockXDocReport createReport( String content )
+        throws IOException, XDocReportException
+    {
+        return createReport( content, null );
+    }
+
+    private MockXDocReport createReport( String content, FieldsMetadata fieldsMetadata )
+        throws IOException, XDocReportException
+    {
+        MockXDocReport report = new MockXDocReport();
+        report.setFieldsMetadata( fieldsMetadata );
+        report.setPreprocessedTemplateStore( store );
+        report.addPreprocessor( "a.xml", preprocessor );
+        report.setTemplateEngine( new MockTemplateEngine() );
+        XDocArchive archive = new XDocArchive();
+        XDocArchive.setEntry( archive, "a.xml", new ByteArrayInputStream( content.getBytes( "UTF-8" ) ) );
+        report.setDocumentArchive( archive );
+        return report;
+    }
+
+    private static void assertPreprocessed( MockXDocReport report, String content )
+        throws IOException
+    {
+        XDocArchive archive = report.getPreprocessedDocumentArchive();
+        assertEquals( content, IOUtils.toString( archive.getEntryReader( "a.xml" ) ) );
+    }
+
+    /**
+     * Preprocessor which upper cases the content of the entry.
+     */
+    private static class CountingPreprocessor
+        implements IXDocPreprocessor
+    {
+
+        int count;
+
+        public void preprocess( String entryName, XDocArchive outputArchive, FieldsMetadata fieldsMetadata,
+                                IDocumentFormatter formatter, Map<String, Object> sharedContext )
+            throws XDocReportException, IOException
+        {
+            count++;
+            String content = IOUtils.toString( outputArchive.getEntryReader( entryName ) );
+            Writer writer = outputArchive.getEntryWriter( entryName );
+            writer.write( content.toUpperCase() );
+            writer.close();
+        }
+
+        public boolean create( String entryName, XDocArchive outputArchive, FieldsMetadata fieldsMetadata,
+                               IDocumentFormatter formatter, Map<String, Object> sharedContext )
+        {
+            return false;
+        }
+    }
+}
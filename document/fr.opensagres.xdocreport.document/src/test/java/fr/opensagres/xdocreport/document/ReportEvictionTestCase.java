@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.cache.BoundedCacheStorageFactoryDiscovery;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.IContext;
+
+/**
+ * Test case for the eviction of the reports from a bounded cache of the {@link XDocReportRegistry}.
+ */
+public class ReportEvictionTestCase
+    extends TestCase
+{
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        System.setProperty( BoundedCacheStorageFactoryDiscovery.MAX_ENTRIES_PROPERTY, "1" );
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        System.clearProperty( BoundedCacheStorageFactoryDiscovery.MAX_ENTRIES_PROPERTY );
+    }
+
+    public void testEvictedReportCanBeProcessed()
+        throws Exception
+    {
+        XDocReportRegistry registry = new XDocReportRegistry();
+        IXDocReport report1 = createReport( "report1" );
+        registry.registerReport( report1 );
+        assertSame( report1, registry.getReport( "report1" ) );
+
+        // report1 is evicted, but it is not disposed because the caller still uses it
+        registry.registerReport( createReport( "report2" ) );
+        assertNull( registry.getReport( "report1" ) );
+        assertNotNull( registry.getReport( "report2" ) );
+
+        IContext context = report1.createContext();
+        context.put( "name", "world" );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report1.process( context, out );
+        XDocArchive result = XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+        assertEquals( "a:world", IOUtils.toString( result.getEntryReader( "a.xml" ) ) );
+    }
+
+    private static IXDocReport createReport( String id )
+        throws Exception
+    {
+        XDocArchive archive = new XDocArchive();
+        XDocArchive.setEntry( archive, "a.xml", new ByteArrayInputStream( "a:${name}".getBytes( "UTF-8" ) ) );
+        MockXDocReport report = new MockXDocReport();
+        report.setId( id );
+        report.setTemplateEngine( new MockTemplateEngine() );
+        report.setDocumentArchive( archive );
+        return report;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.core.metrics.IReportMetricsDiscovery;
+import fr.opensagres.xdocreport.core.metrics.ReportEvent;
+import fr.opensagres.xdocreport.core.metrics.ReportMetricsRegistry;
+import fr.opensagres.xdocreport.core.metrics.ReportPhase;
+import fr.opensagres.xdocreport.template.IContext;
+
+/**
+ * Test case for the events sent to the {@link ReportMetricsRegistry} while generating a report.
+ */
+public class ReportMetricsTestCase
+    extends TestCase
+{
+
+    private final List<ReportEvent> events = new ArrayList<ReportEvent>();
+
+    private final IReportMetricsDiscovery listener = new IReportMetricsDiscovery()
+    {
+
+        public String getId()
+        {
+            return "test";
+        }
+
+        public String getDescription()
+        {
+            return "Collect the events";
+        }
+
+        public synchronized void phaseCompleted( ReportEvent event )
+        {
+            events.add( event );
+        }
+    };
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        ReportMetricsRegistry.getRegistry().addListener( listener );
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        ReportMetricsRegistry.getRegistry().removeListener( listener );
+    }
+
+    public void testNotStartedWithoutListener()
+    {
+        ReportMetricsRegistry.getRegistry().removeListener( listener );
+        assertEquals( ReportMetricsRegistry.NOT_STARTED, ReportMetricsRegistry.getRegistry().start() );
+    }
+
+    public void testPhases()
+        throws Exception
+    {
+        IXDocReport report = createReport( "b" );
+        events.clear();
+
+        IContext context = report.createContext();
+        context.put( "name", "world" );
+        report.process( context, new ByteArrayOutputStream() );
+
+        assertEquals( 4, events.size() );
+        assertEvent( events.get( 0 ), ReportPhase.Merge, "a.xml", "a:world".length(), false );
+        assertEvent( events.get( 1 ), ReportPhase.Merge, "b.xml", "b".length(), false );
+        assertEvent( events.get( 2 ), ReportPhase.Merge, "c.xml", "c:a.xml,b.xml".length(), false );
+        assertEvent( events.get( 3 ), ReportPhase.Zip, null, "a:world".length() + "b".length()
+            + "c:a.xml,b.xml".length(), false );
+    }
+
+    public void testLoad()
+        throws Exception
+    {
+        IXDocReport report = createReport( "b" );
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        report.save( ProcessState.ORIGINAL, zip );
+        events.clear();
+
+        report.load( new ByteArrayInputStream( zip.toByteArray() ) );
+
+        assertEvent( events.get( 0 ), ReportPhase.Load, null, "a:${name}".length() + "b".length()
+            + "c:${merged}".length(), false );
+    }
+
+    public void testFailedPhase()
+        throws Exception
+    {
+        IXDocReport report = createReport( "FAIL" );
+        events.clear();
+        try
+        {
+            report.process( report.createContext(), new ByteArrayOutputStream() );
+            fail( "Merge of b.xml must fail" );
+        }
+        catch ( XDocReportException e )
+        {
+            // expected
+        }
+        assertEquals( 2, events.size() );
+        assertEvent( events.get( 1 ), ReportPhase.Merge, "b.xml", 0, true );
+    }
+
+    private static void assertEvent( ReportEvent event, ReportPhase phase, String entryName, long length,
+                                     boolean failed )
+    {
+        assertEquals( phase, event.getPhase() );
+        assertEquals( "metrics", event.getReportId() );
+        assertEquals( entryName, event.getEntryName() );
+        assertEquals( failed, event.isFailed() );
+        if ( !failed )
+        {
+            assertEquals( length, event.getLength() );
+        }
+        assertTrue( event.getDuration() >= 0 );
+    }
+
+    private static IXDocReport createReport( String bContent )
+        throws Exception
+    {
+        XDocArchive archive = new XDocArchive();
+        XDocArchive.setEntry( archive, "a.xml", new ByteArrayInputStream( "a:${name}".getBytes( "UTF-8" ) ) );
+        XDocArchive.setEntry( archive, "b.xml", new ByteArrayInputStream( bContent.getBytes( "UTF-8" ) ) );
+        XDocArchive.setEntry( archive, "c.xml", new ByteArrayInputStream( "c:${merged}".getBytes( "UTF-8" ) ) );
+
+        MockXDocReport report = new MockXDocReport();
+        report.setId( "metrics" );
+        report.setCacheOriginalDocument( true );
+        report.setTemplateEngine( new MockTemplateEngine() );
+        report.setDocumentArchive( archive );
+        return report;
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
+import fr.opensagres.xdocreport.template.IContext;
+
+/**
+ * Test case for the warmup of a report (see {@link IXDocReport#warmup()}).
+ */
+public class WarmupTestCase
+    extends TestCase
+{
+
+    private XDocReportRegistry registry;
+
+    private CompilingTemplateEngine templateEngine;
+
+    private MockXDocReport report;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        registry = new XDocReportRegistry();
+        templateEngine = new CompilingTemplateEngine();
+        templateEngine.setTemplateCacheInfoProvider( registry );
+        report = new MockXDocReport();
+        report.setId( "warmup" );
+        // c.xml is replaced with a wildcard entry
+        report.setXMLEntries( new String[] { "a.xml", "b.xml", "word/header*.xml" } );
+        XDocArchive archive = new XDocArchive( true );
+        setEntry( archive, "a.xml", "a ${name}" );
+        setEntry( archive, "b.xml", "b ${name}" );
+        setEntry( archive, "word/header1.xml", "header1 ${name}" );
+        setEntry( archive, "word/header2.xml", "header2 ${name}" );
+        report.setDocumentArchive( archive );
+        report.setTemplateEngine( templateEngine );
+        registry.registerReport( report );
+    }
+
+    public void testWarmupCompilesAllEntries()
+        throws Exception
+    {
+        report.warmup();
+        assertEquals( 4, templateEngine.compilations.size() );
+        assertEquals( Integer.valueOf( 1 ), templateEngine.compilations.get( "warmup!a.xml" ) );
+        assertEquals( Integer.valueOf( 1 ), templateEngine.compilations.get( "warmup!word/header2.xml" ) );
+
+        // generation uses the compiled templates
+        IContext context = report.createContext();
+        context.put( "name", "XDocReport" );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.process( context, out );
+        XDocArchive result = XDocArchive.readZip( new ByteArrayInputStream( out.toByteArray() ) );
+        assertEquals( "header1 XDocReport", IOUtils.toString( result.getEntryReader( "word/header1.xml" ) ) );
+        assertEquals( 4, templateEngine.compilations.size() );
+        assertEquals( Integer.valueOf( 1 ), templateEngine.compilations.get( "warmup!a.xml" ) );
+
+        // a new version of the template is compiled again
+        XDocArchive archive = report.getPreprocessedDocumentArchive();
+        Thread.sleep( 5 );
+        setEntry( archive, "a.xml", "a2 ${name}" );
+        report.warmup();
+        assertEquals( Integer.valueOf( 2 ), templateEngine.compilations.get( "warmup!a.xml" ) );
+        assertEquals( Integer.valueOf( 1 ), templateEngine.compilations.get( "warmup!b.xml" ) );
+    }
+
+    public void testConcurrentCompilation()
+        throws Exception
+    {
+        final CountDownLatch compilationStarted = new CountDownLatch( 1 );
+        templateEngine.compilationStarted = compilationStarted;
+        templateEngine.endCompilation = new CountDownLatch( 1 );
+        final Throwable[] errors = new Throwable[2];
+        Thread warmup = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    report.warmup();
+                }
+                catch ( Throwable e )
+                {
+                    errors[0] = e;
+                }
+            }
+        };
+        warmup.start();
+        assertTrue( compilationStarted.await( 10, TimeUnit.SECONDS ) );
+
+        // a first generation starts while a.xml is compiled by the warmup : it waits for the end of the compilation
+        Thread process = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    IContext context = report.createContext();
+                    context.put( "name", "XDocReport" );
+                    report.process( context, new ByteArrayOutputStream() );
+                }
+                catch ( Throwable e )
+                {
+                    errors[1] = e;
+                }
+            }
+        };
+        process.start();
+        process.join( 100 );
+        assertTrue( process.isAlive() );
+
+        templateEngine.endCompilation.countDown();
+        warmup.join( 10000 );
+        process.join( 10000 );
+        assertNull( errors[0] );
+        assertNull( errors[1] );
+        assertEquals( Integer.valueOf( 1 ), templateEngine.compilations.get( "warmup!a.xml" ) );
+        assertEquals( Integer.valueOf( 1 ), templateEngine.compilations.get( "warmup!b.xml" ) );
+    }
+
+    public void testWarmupWithoutTemplateCache()
+        throws Exception
+    {
+        registry.unregisterReport( report );
+        report.warmup();
+        assertTrue( templateEngine.compilations.isEmpty() );
+    }
+
+    public void testUnregisterRemovesCompiledTemplates()
+        throws Exception
+    {
+        report.warmup();
+        assertEquals( 4, templateEngine.templates.size() );
+
+        registry.unregisterReport( report );
+        assertTrue( templateEngine.templates.isEmpty() );
+
+        // the report is compiled again when it's registered again
+        registry.registerReport( report );
+        report.warmup();
+        assertEquals( Integer.valueOf( 2 ), templateEngine.compilations.get( "warmup!a.xml" ) );
+    }
+
+    public void testDisposeRemovesCompiledTemplates()
+        throws Exception
+    {
+        report.warmup();
+        assertEquals( 4, templateEngine.templates.size() );
+
+        registry.dispose();
+        assertTrue( templateEngine.templates.isEmpty() );
+        assertNull( registry.getReport( "warmup" ) );
+    }
+
+    private static void setEntry( XDocArchive archive, String entryName, String content )
+        throws IOException
+    {
+        XDocArchive.setEntry( archive, entryName, new ByteArrayInputStream( content.getBytes( "UTF-8" ) ) );
+    }
+
+    /**
+     * Template engine which counts the compilations of the templates and keeps the compiled templates.
+     */
+    private static class CompilingTemplateEngine
+        extends MockTemplateEngine
+    {
+
+        final Map<String, Integer> compilations = new HashMap<String, Integer>();
+
+        final Map<String, String> templates = new HashMap<String, String>();
+
+        CountDownLatch compilationStarted;
+
+        CountDownLatch endCompilation;
+
+        @Override
+        protected void compileWithCache( String templateName )
+            throws XDocReportException, IOException
+        {
+            if ( compilationStarted != null )
+            {
+                compilationStarted.countDown();
+                try
+                {
+                    endCompilation.await( 10, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new XDocReportException( e );
+                }
+            }
+            String reportId = templateName.substring( 0, templateName.indexOf( '!' ) );
+            String entryName = templateName.substring( templateName.indexOf( '!' ) + 1 );
+            String content = IOUtils.toString( getTemplateCacheInfoProvider().getTemplateCacheInfo( reportId,
+                                                                                                   entryName ).getReader() );
+            synchronized ( this )
+            {
+                Integer count = compilations.get( templateName );
+                compilations.put( templateName, count == null ? 1 : count + 1 );
+                templates.put( templateName, content );
+            }
+        }
+
+        @Override
+        protected synchronized void removeTemplateFromCache( String templateName )
+        {
+            templates.remove( templateName );
+        }
+
+        @Override
+        protected void processWithCache( String templateName, IContext context, Writer writer )
+            throws XDocReportException, IOException
+        {
+            String content;
+            synchronized ( this )
+            {
+                content = templates.get( templateName );
+            }
+            writer.write( content.replace( "${name}", String.valueOf( context.get( "name" ) ) ) );
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.*;
+import java.util.zip.CRC32;
 
 public class FileImageProviderTestCase
 {
@@ -178,6 +179,32 @@ public class FileImageProviderTestCase
         Assert.assertEquals( 1000f, imageProvider.getHeight(null).floatValue(), 0 );
     }
 
+    @Test
+    public void crcIsComputedOnce()
+        throws Exception
+    {
+        File file = new File( "src/test/resources/fr/opensagres/xdocreport/document/images/logo.png" );
+        final int[] nbInputStreams = new int[1];
+        FileImageProvider imageProvider = new FileImageProvider( file )
+        {
+            @Override
+            protected InputStream getInputStream()
+                throws IOException
+            {
+                nbInputStreams[0]++;
+                return super.getInputStream();
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageProvider.write( out );
+        CRC32 crc = new CRC32();
+        crc.update( out.toByteArray() );
+
+        Assert.assertEquals( crc.getValue(), imageProvider.getCrc() );
+        Assert.assertEquals( crc.getValue(), imageProvider.getCrc() );
+        Assert.assertEquals( 2, nbInputStreams[0] );
+    }
+
     @Test
     public void checkIfInputStreamIsClosedAfterLoadingImageInfo() throws Exception {
         File file = new File("src/test/resources/fr/opensagres/xdocreport/document/images/logo.png");
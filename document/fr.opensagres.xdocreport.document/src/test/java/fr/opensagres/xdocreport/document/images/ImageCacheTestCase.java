@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.images;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.document.ImageFormat;
+
+public class ImageCacheTestCase
+{
+
+    @After
+    public void disableCache()
+    {
+        ImageCache.setInstance( null );
+    }
+
+    @Test
+    public void disabledByDefault()
+        throws Exception
+    {
+        File file = new File( "src/test/resources/fr/opensagres/xdocreport/document/images/logo.png" );
+
+        CountingFileImageProvider imageProvider1 = new CountingFileImageProvider( file );
+        Assert.assertEquals( 220f, imageProvider1.getWidth( null ).floatValue(), 0 );
+        Assert.assertEquals( 1, imageProvider1.nbInputStreams );
+
+        CountingFileImageProvider imageProvider2 = new CountingFileImageProvider( file );
+        Assert.assertEquals( 220f, imageProvider2.getWidth( null ).floatValue(), 0 );
+        Assert.assertEquals( 1, imageProvider2.nbInputStreams );
+    }
+
+    @Test
+    public void imageInfoIsLoadedOnce()
+        throws Exception
+    {
+        ImageCache.setInstance( new ImageCache( 10, 0 ) );
+        File file = new File( "src/test/resources/fr/opensagres/xdocreport/document/images/logo.png" );
+
+        CountingFileImageProvider imageProvider1 = new CountingFileImageProvider( file );
+        Assert.assertEquals( 220f, imageProvider1.getWidth( null ).floatValue(), 0 );
+        Assert.assertEquals( 1, imageProvider1.nbInputStreams );
+
+        // another provider (ex : for another report) of the same file uses the cached image info
+        CountingFileImageProvider imageProvider2 = new CountingFileImageProvider( file );
+        Assert.assertEquals( 220f, imageProvider2.getWidth( null ).floatValue(), 0 );
+        Assert.assertEquals( 200f, imageProvider2.getHeight( null ).floatValue(), 0 );
+        Assert.assertEquals( ImageFormat.png, imageProvider2.getImageInfo().getMimeType() );
+        Assert.assertEquals( 0, imageProvider2.nbInputStreams );
+    }
+
+    @Test
+    public void imageContentIsBounded()
+    {
+        ImageCache cache = new ImageCache( 10, 4 );
+        Assert.assertTrue( cache.isImageContentCacheEnabled() );
+
+        cache.putImageContent( "a", new byte[] { 1, 2, 3 } );
+        Assert.assertArrayEquals( new byte[] { 1, 2, 3 }, cache.getImageContent( "a" ) );
+
+        // too big
+        cache.putImageContent( "b", new byte[] { 1, 2, 3, 4, 5 } );
+        Assert.assertNull( cache.getImageContent( "b" ) );
+
+        // evicts "a"
+        cache.putImageContent( "c", new byte[] { 1, 2 } );
+        Assert.assertNull( cache.getImageContent( "a" ) );
+        Assert.assertNotNull( cache.getImageContent( "c" ) );
+    }
+
+    @Test
+    public void disabledCache()
+    {
+        ImageCache cache = new ImageCache( 0, 0 );
+        Assert.assertFalse( cache.isImageContentCacheEnabled() );
+
+        cache.putImageContent( "a", new byte[] { 1, 2, 3 } );
+        Assert.assertNull( cache.getImageContent( "a" ) );
+    }
+
+    private static class CountingFileImageProvider
+        extends FileImageProvider
+    {
+
+        private int nbInputStreams;
+
+        public CountingFileImageProvider( File imageFile )
+        {
+            super( imageFile, true );
+        }
+
+        @Override
+        protected InputStream getInputStream()
+            throws IOException
+        {
+            nbInputStreams++;
+            return super.getInputStream();
+        }
+    }
+}
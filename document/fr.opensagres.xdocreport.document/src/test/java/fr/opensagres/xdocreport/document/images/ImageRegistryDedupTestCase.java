@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.document.images;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fr.opensagres.xdocreport.core.io.IEntryOutputStreamProvider;
+import fr.opensagres.xdocreport.core.io.IOUtils;
+import fr.opensagres.xdocreport.core.io.XDocArchive;
+
+public class ImageRegistryDedupTestCase
+{
+
+    @Test
+    public void sameByteArrayContentIsStoredOnce()
+        throws Exception
+    {
+        byte[] logo = IOUtils.toByteArray( ImageRegistryDedupTestCase.class.getResourceAsStream( "logo.png" ) );
+        byte[] logoCopy = IOUtils.toByteArray( ImageRegistryDedupTestCase.class.getResourceAsStream( "logo.png" ) );
+        byte[] photo = IOUtils.toByteArray( ImageRegistryDedupTestCase.class.getResourceAsStream( "AngeloZERR.jpg" ) );
+
+        MockImageRegistry registry = new MockImageRegistry();
+        ImageProviderInfo info1 = registry.registerImage( new ByteArrayImageProvider( logo ), "logo", null );
+        ImageProviderInfo info2 = registry.registerImage( new ByteArrayImageProvider( logoCopy ), "logo", null );
+        ImageProviderInfo info3 = registry.registerImage( new ByteArrayImageProvider( photo ), "photo", null );
+
+        Assert.assertEquals( info1.getImageId(), info2.getImageId() );
+        Assert.assertEquals( info1.getImageFileName(), info2.getImageFileName() );
+        Assert.assertFalse( info1.getImageId().equals( info3.getImageId() ) );
+        Assert.assertEquals( 2, registry.getImageProviderInfos().size() );
+
+        registry.postProcess();
+        Assert.assertEquals( 2, registry.entries.size() );
+        Assert.assertArrayEquals( logo, registry.entries.get( "media/" + info1.getImageFileName() ).toByteArray() );
+    }
+
+    @Test
+    public void keepImageProviderOfEachUsage()
+        throws Exception
+    {
+        byte[] logo = IOUtils.toByteArray( ImageRegistryDedupTestCase.class.getResourceAsStream( "logo.png" ) );
+
+        MockImageRegistry registry = new MockImageRegistry();
+        IImageProvider small = new ByteArrayImageProvider( logo );
+        small.setSize( 10f, 10f );
+        IImageProvider big = new ByteArrayImageProvider( logo );
+        big.setSize( 100f, 100f );
+        ImageProviderInfo info1 = registry.registerImage( small, "logo", null );
+        ImageProviderInfo info2 = registry.registerImage( big, "logo", null );
+
+        Assert.assertEquals( info1.getImageId(), info2.getImageId() );
+        Assert.assertEquals( "10.0", registry.getWidth( info1, null ) );
+        Assert.assertEquals( "100.0", registry.getWidth( info2, null ) );
+    }
+
+    @Test
+    public void sameFileIsStoredOnce()
+        throws Exception
+    {
+        File file = new File( ImageRegistryDedupTestCase.class.getResource( "logo.png" ).toURI() );
+
+        MockImageRegistry registry = new MockImageRegistry();
+        ImageProviderInfo info1 = registry.registerImage( new FileImageProvider( file ), "logo", null );
+        ImageProviderInfo info2 = registry.registerImage( new FileImageProvider( file ), "logo", null );
+        ImageProviderInfo info3 =
+            registry.registerImage( new ClassPathImageProvider( ImageRegistryDedupTestCase.class, "logo.png" ), "logo",
+                                    null );
+        ImageProviderInfo info4 =
+            registry.registerImage( new ClassPathImageProvider( ImageRegistryDedupTestCase.class, "logo.png" ), "logo",
+                                    null );
+
+        Assert.assertEquals( info1.getImageId(), info2.getImageId() );
+        Assert.assertEquals( info3.getImageId(), info4.getImageId() );
+        Assert.assertEquals( 2, registry.getImageProviderInfos().size() );
+    }
+
+    @Test
+    public void imagesAreStreamedFromTheirSource()
+        throws Exception
+    {
+        File file = new File( ImageRegistryDedupTestCase.class.getResource( "logo.png" ).toURI() );
+        byte[] logo = IOUtils.toByteArray( ImageRegistryDedupTestCase.class.getResourceAsStream( "logo.png" ) );
+        byte[] photo = IOUtils.toByteArray( ImageRegistryDedupTestCase.class.getResourceAsStream( "AngeloZERR.jpg" ) );
+
+        XDocArchive archive = new XDocArchive();
+        MockImageRegistry registry = new MockImageRegistry( archive );
+        ImageProviderInfo info1 = registry.registerImage( new FileImageProvider( file ), "logo", null );
+        ImageProviderInfo info2 = registry.registerImage( new ByteArrayImageProvider( photo ), "photo", null );
+        registry.postProcess();
+
+        String entryName1 = "media/" + info1.getImageFileName();
+        String entryName2 = "media/" + info2.getImageFileName();
+        Assert.assertEquals( logo.length, archive.getEntryLength( entryName1 ) );
+        Assert.assertArrayEquals( logo, IOUtils.toByteArray( archive.getEntryInputStream( entryName1 ) ) );
+        Assert.assertArrayEquals( photo, IOUtils.toByteArray( archive.getEntryInputStream( entryName2 ) ) );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XDocArchive.writeEntry( archive, entryName1, out );
+        Assert.assertArrayEquals( logo, out.toByteArray() );
+    }
+
+    private static class MockImageRegistry
+        extends AbstractImageRegistry
+    {
+
+        private final Map<String, ByteArrayOutputStream> entries;
+
+        public MockImageRegistry()
+        {
+            this( new HashMap<String, ByteArrayOutputStream>() );
+        }
+
+        public MockImageRegistry( IEntryOutputStreamProvider outputStreamProvider )
+        {
+            super( null, null, outputStreamProvider, null );
+            this.entries = null;
+        }
+
+        private MockImageRegistry( final Map<String, ByteArrayOutputStream> entries )
+        {
+            super( null, null, new IEntryOutputStreamProvider()
+            {
+                public OutputStream getEntryOutputStream( String entryName )
+                {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    entries.put( entryName, out );
+                    return out;
+                }
+            }, null );
+            this.entries = entries;
+        }
+
+        @Override
+        protected String getImageBasePath()
+        {
+            return "media/";
+        }
+
+        @Override
+        protected String getPath( ImageProviderInfo info )
+        {
+            return info.getImageId();
+        }
+
+        @Override
+        public String getSize( float sizeAsPixel )
+        {
+            return String.valueOf( sizeAsPixel );
+        }
+
+        @Override
+        public Float getSize( String sizeAsDxa )
+        {
+            return null;
+        }
+    }
+}
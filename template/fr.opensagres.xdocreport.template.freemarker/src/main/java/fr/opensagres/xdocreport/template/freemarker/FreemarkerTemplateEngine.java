@@ -36,6 +36,7 @@ import java.util.Map;
 
 import fr.opensagres.xdocreport.core.EncodingConstants;
 import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.cache.BoundedCacheStorage;
 import fr.opensagres.xdocreport.core.io.IOUtils;
 import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
 import fr.opensagres.xdocreport.template.FieldsExtractor;
@@ -45,7 +46,9 @@ import fr.opensagres.xdocreport.template.config.ITemplateEngineConfiguration;
 import fr.opensagres.xdocreport.template.formatter.IDocumentFormatter;
 import fr.opensagres.xdocreport.template.freemarker.cache.XDocReportEntryTemplateLoader;
 import fr.opensagres.xdocreport.template.freemarker.internal.XDocFreemarkerContext;
+import freemarker.cache.MruCacheStorage;
 import freemarker.cache.MultiTemplateLoader;
+import freemarker.cache.SoftCacheStorage;
 import freemarker.cache.TemplateLoader;
 import freemarker.core.Environment;
 import freemarker.core.TemplateElement;
@@ -63,18 +66,38 @@ public class FreemarkerTemplateEngine
     implements FreemarkerConstants
 {
 
+    /**
+     * System property to enable the production mode by default (see {@link #setProductionMode(boolean)}).
+     */
+    public static final String PRODUCTION_MODE_PROPERTY = "xdocreport.template.freemarker.production";
+
+    /**
+     * System property to set the number of templates strongly referenced by the template cache in production mode
+     * (the other templates are softly referenced).
+     */
+    public static final String TEMPLATE_CACHE_STRONG_SIZE_PROPERTY = "xdocreport.template.freemarker.cache.strongSize";
+
+    private static final int DEFAULT_TEMPLATE_CACHE_STRONG_SIZE = 256;
+
     private static final String DOLLAR_VARIABLE = "DollarVariable";
 
-    private static Configuration DEFAULT_FREEMARKER_CONFIGURATION = null;
+    private static volatile Configuration DEFAULT_FREEMARKER_CONFIGURATION = null;
+
+    private static volatile Configuration PRODUCTION_FREEMARKER_CONFIGURATION = null;
 
     private FreemarkerDocumentFormatter formatter = new FreemarkerDocumentFormatter();
 
-    private Configuration freemarkerConfiguration = null;
+    private volatile Configuration freemarkerConfiguration = null;
+
+    private boolean productionMode = Boolean.getBoolean( PRODUCTION_MODE_PROPERTY );
 
     private boolean forceModifyReader = false;
 
     private final List<TemplateLoader> templateLoaders;
 
+    // compiled inline templates (ex : text styling content with directives) by template content.
+    private final BoundedCacheStorage<String, Template> inlineTemplates = createInlineTemplateCache();
+
     public FreemarkerTemplateEngine()
     {
         this.templateLoaders = new ArrayList<TemplateLoader>();
@@ -112,6 +135,27 @@ public class FreemarkerTemplateEngine
         process( context, writer, template );
     }
 
+    @Override
+    protected void compileWithCache( String templateName )
+        throws XDocReportException, IOException
+    {
+        // the template is parsed and put in the template cache of freemarker
+        getFreemarkerConfiguration().getTemplate( templateName );
+    }
+
+    @Override
+    protected void removeTemplateFromCache( String templateName )
+    {
+        try
+        {
+            getFreemarkerConfiguration().removeTemplateFromCache( templateName );
+        }
+        catch ( IOException e )
+        {
+            // the template is not in the cache
+        }
+    }
+
     @Override
     protected void processNoCache( String templateName, IContext context, Reader reader, Writer writer )
         throws XDocReportException, IOException
@@ -122,6 +166,57 @@ public class FreemarkerTemplateEngine
         process( context, writer, template );
     }
 
+    @Override
+    protected void processInline( String templateName, IContext context, String content, Writer writer )
+        throws XDocReportException, IOException
+    {
+        Template template = getInlineTemplate( templateName, content );
+        if ( template == null )
+        {
+            super.processInline( templateName, context, content, writer );
+            return;
+        }
+        // Merge template with Java model
+        process( context, writer, template );
+    }
+
+    /**
+     * Returns the compiled template of the given content from the cache or parse it (a Freemarker template can be
+     * processed by several threads). Returns null if the cache is disabled.
+     * 
+     * @param templateName
+     * @param content
+     * @return
+     * @throws IOException
+     */
+    Template getInlineTemplate( String templateName, String content )
+        throws IOException
+    {
+        if ( inlineTemplates == null )
+        {
+            return null;
+        }
+        Template template = inlineTemplates.get( content );
+        if ( template == null )
+        {
+            template = new Template( templateName, getReader( new StringReader( content ) ),
+                                     getFreemarkerConfiguration() );
+            inlineTemplates.put( content, template );
+        }
+        return template;
+    }
+
+    /**
+     * Clear the compiled inline templates, because they depend on the configuration.
+     */
+    private void clearInlineTemplates()
+    {
+        if ( inlineTemplates != null )
+        {
+            inlineTemplates.clear();
+        }
+    }
+
     /**
      * Returns Reader to use for process template merge.
      * 
@@ -170,33 +265,114 @@ public class FreemarkerTemplateEngine
 
     public Configuration getFreemarkerConfiguration()
     {
+        Configuration freemarkerConfiguration = this.freemarkerConfiguration;
         if ( freemarkerConfiguration == null )
         {
-            return getDefaultConfiguration();
+            return getDefaultConfiguration( productionMode );
         }
         return freemarkerConfiguration;
     }
 
     public void setFreemarkerConfiguration( Configuration freemarkerConfiguration )
     {
+        initializeConfiguration( freemarkerConfiguration, productionMode );
+        // publish the configuration when it's initialized.
         this.freemarkerConfiguration = freemarkerConfiguration;
+        clearInlineTemplates();
+    }
+
+    /**
+     * Initialize the given configuration to load the templates from the XDocReport registry.
+     * 
+     * @param freemarkerConfiguration
+     * @param productionMode
+     */
+    private void initializeConfiguration( Configuration freemarkerConfiguration, boolean productionMode )
+    {
         // Force square bracket syntax to write [#list instead of <#list.
         // Square bracket is used because <#list is not well XML.
-        this.freemarkerConfiguration.setTagSyntax( Configuration.SQUARE_BRACKET_TAG_SYNTAX );
+        freemarkerConfiguration.setTagSyntax( Configuration.SQUARE_BRACKET_TAG_SYNTAX );
         // Force template loader with XDocReportEntryLoader to use
         // XDocReportRegistry.
-        this.freemarkerConfiguration.setTemplateLoader( new MultiTemplateLoader(
-                                                                                 templateLoaders.toArray( new TemplateLoader[0] ) ) );
+        freemarkerConfiguration.setTemplateLoader( new MultiTemplateLoader(
+                                                                            templateLoaders.toArray( new TemplateLoader[0] ) ) );
+        configureTemplateCache( freemarkerConfiguration, productionMode );
+        freemarkerConfiguration.setLocalizedLookup( false );
+    }
+
+    /**
+     * Configure the template cache of the given configuration according the production mode.
+     * 
+     * @param freemarkerConfiguration
+     * @param productionMode
+     */
+    private static void configureTemplateCache( Configuration freemarkerConfiguration, boolean productionMode )
+    {
+        String updateDelay = "0";
+        if ( productionMode )
+        {
+            // templates are removed from the cache when the report is reloaded or removed from the registry, so their
+            // modification is never checked and they are kept in memory.
+            int strongSize =
+                Integer.getInteger( TEMPLATE_CACHE_STRONG_SIZE_PROPERTY, DEFAULT_TEMPLATE_CACHE_STRONG_SIZE );
+            freemarkerConfiguration.setCacheStorage( new MruCacheStorage( strongSize, Integer.MAX_VALUE ) );
+            updateDelay = String.valueOf( Integer.MAX_VALUE );
+        }
         // as soon as report changes when source (odt, docx,...) change,
         // template entry must be refreshed.
         try
         {
-            this.freemarkerConfiguration.setSetting( Configuration.TEMPLATE_UPDATE_DELAY_KEY, "0" );
+            freemarkerConfiguration.setSetting( Configuration.TEMPLATE_UPDATE_DELAY_KEY, updateDelay );
         }
         catch ( TemplateException e )
         {
         }
-        this.freemarkerConfiguration.setLocalizedLookup( false );
+    }
+
+    /**
+     * Set true to use the production mode and false otherwise (false by default, or the value of the system property
+     * {@link #PRODUCTION_MODE_PROPERTY}). In production mode :
+     * <ul>
+     * <li>the modification of the templates is not checked at each merge : the compiled templates of a report are
+     * removed from the cache when the report is reloaded or removed from the XDocReportRegistry, or when an entry of
+     * the report is modified.</li>
+     * <li>the template cache keeps strongly the last used templates (see
+     * {@link #TEMPLATE_CACHE_STRONG_SIZE_PROPERTY}).</li>
+     * <li>the object wrapper of the default configuration caches the wrapped objects of the Java model.</li>
+     * </ul>
+     * The engines which don't set their own configuration share a default configuration per mode, so the production
+     * mode of an engine doesn't change the other engines. The configuration set with
+     * {@link #setFreemarkerConfiguration(Configuration)} belongs to the engine : only its template cache is configured
+     * according the production mode (its object wrapper is not changed).
+     * 
+     * @param productionMode
+     */
+    public void setProductionMode( boolean productionMode )
+    {
+        boolean wasProductionMode = this.productionMode;
+        this.productionMode = productionMode;
+        Configuration freemarkerConfiguration = this.freemarkerConfiguration;
+        if ( freemarkerConfiguration != null )
+        {
+            if ( wasProductionMode && !productionMode )
+            {
+                // restore the default cache storage of Freemarker.
+                freemarkerConfiguration.setCacheStorage( new SoftCacheStorage() );
+            }
+            configureTemplateCache( freemarkerConfiguration, productionMode );
+        }
+        // the inline templates are compiled with the configuration of the mode.
+        clearInlineTemplates();
+    }
+
+    /**
+     * Returns true if the production mode is used and false otherwise.
+     * 
+     * @return
+     */
+    public boolean isProductionMode()
+    {
+        return productionMode;
     }
 
     public void extractFields( Reader reader, String entryName, FieldsExtractor extractor )
@@ -242,21 +418,47 @@ public class FreemarkerTemplateEngine
     }
 
     /**
-     * Get the default Freemarker configuration
+     * Get the default Freemarker configuration of the given mode.
      * 
+     * @param productionMode
      * @return
      */
-    private Configuration getDefaultConfiguration()
+    private Configuration getDefaultConfiguration( boolean productionMode )
     {
-        if ( DEFAULT_FREEMARKER_CONFIGURATION == null )
+        Configuration configuration =
+            productionMode ? PRODUCTION_FREEMARKER_CONFIGURATION : DEFAULT_FREEMARKER_CONFIGURATION;
+        if ( configuration == null )
         {
-            DEFAULT_FREEMARKER_CONFIGURATION = new Configuration();
-            DEFAULT_FREEMARKER_CONFIGURATION.setDefaultEncoding( EncodingConstants.UTF_8.name() );
-            DEFAULT_FREEMARKER_CONFIGURATION.setOutputEncoding( EncodingConstants.UTF_8.name() );
-            DEFAULT_FREEMARKER_CONFIGURATION.setObjectWrapper( new DefaultObjectWrapper() );
-            setFreemarkerConfiguration( DEFAULT_FREEMARKER_CONFIGURATION );
+            synchronized ( FreemarkerTemplateEngine.class )
+            {
+                configuration = productionMode ? PRODUCTION_FREEMARKER_CONFIGURATION : DEFAULT_FREEMARKER_CONFIGURATION;
+                if ( configuration == null )
+                {
+                    configuration = new Configuration();
+                    configuration.setDefaultEncoding( EncodingConstants.UTF_8.name() );
+                    configuration.setOutputEncoding( EncodingConstants.UTF_8.name() );
+                    DefaultObjectWrapper objectWrapper = new DefaultObjectWrapper();
+                    if ( productionMode )
+                    {
+                        // reuse the template models of the objects of the Java model (the introspection of the classes
+                        // is cached by the object wrapper which is shared by all the reports).
+                        objectWrapper.setUseCache( true );
+                    }
+                    configuration.setObjectWrapper( objectWrapper );
+                    initializeConfiguration( configuration, productionMode );
+                    // publish the default configuration when it's initialized.
+                    if ( productionMode )
+                    {
+                        PRODUCTION_FREEMARKER_CONFIGURATION = configuration;
+                    }
+                    else
+                    {
+                        DEFAULT_FREEMARKER_CONFIGURATION = configuration;
+                    }
+                }
+            }
         }
-        return DEFAULT_FREEMARKER_CONFIGURATION;
+        return configuration;
     }
 
     @Override
@@ -267,6 +469,7 @@ public class FreemarkerTemplateEngine
         {
             formatter.setConfiguration( configuration );
         }
+        clearInlineTemplates();
     }
 
     private boolean isEscapeTemplate()
@@ -278,6 +481,7 @@ public class FreemarkerTemplateEngine
     public void setForceModifyReader( boolean forceModifyReader )
     {
         this.forceModifyReader = forceModifyReader;
+        clearInlineTemplates();
     }
 
     public boolean isForceModifyReader()
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.freemarker;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.freemarker.discovery.FreemarkerTemplateEngineDiscovery;
+import freemarker.template.Template;
+
+/**
+ * Test case for the compiled inline templates (ex : text styling content with directives) cached by the Freemarker
+ * template engine.
+ */
+public class FreemarkerTemplateEngineInlineTemplateTestCase
+    extends TestCase
+{
+
+    private static final String CONTENT = "<b>Project: ${project.name}</b>";
+
+    public void testCompiledOnce()
+        throws Exception
+    {
+        FreemarkerTemplateEngine templateEngine =
+            (FreemarkerTemplateEngine) new FreemarkerTemplateEngineDiscovery().createTemplateEngine();
+
+        assertEquals( "<b>Project: XDocReport0</b>", process( templateEngine, 0 ) );
+        Template template = templateEngine.getInlineTemplate( "word/document.xml", CONTENT );
+        assertEquals( "<b>Project: XDocReport1</b>", process( templateEngine, 1 ) );
+        assertSame( template, templateEngine.getInlineTemplate( "word/document.xml", CONTENT ) );
+        assertNotSame( template, templateEngine.getInlineTemplate( "word/document.xml", "${project.name}" ) );
+    }
+
+    public void testClearedWhenConfigurationChanges()
+        throws Exception
+    {
+        FreemarkerTemplateEngine templateEngine =
+            (FreemarkerTemplateEngine) new FreemarkerTemplateEngineDiscovery().createTemplateEngine();
+        Template template = templateEngine.getInlineTemplate( "word/document.xml", CONTENT );
+
+        templateEngine.setForceModifyReader( true );
+        assertNotSame( template, templateEngine.getInlineTemplate( "word/document.xml", CONTENT ) );
+    }
+
+    private static String process( FreemarkerTemplateEngine templateEngine, int index )
+        throws Exception
+    {
+        IContext context = templateEngine.createContext();
+        context.put( "project.name", "XDocReport" + index );
+        StringWriter writer = new StringWriter();
+        templateEngine.process( "word/document.xml", context, CONTENT, writer );
+        return writer.toString();
+    }
+}
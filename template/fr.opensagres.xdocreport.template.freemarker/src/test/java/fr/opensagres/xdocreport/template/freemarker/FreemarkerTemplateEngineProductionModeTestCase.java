@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.freemarker;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+import fr.opensagres.xdocreport.template.IContext;
+import freemarker.ext.beans.BeansWrapper;
+import freemarker.template.Configuration;
+
+/**
+ * Test case for the production mode of the Freemarker template engine (see
+ * {@link FreemarkerTemplateEngine#setProductionMode(boolean)}).
+ */
+public class FreemarkerTemplateEngineProductionModeTestCase
+    extends TestCase
+{
+
+    public void testProductionModeUsesItsOwnConfiguration()
+        throws Exception
+    {
+        FreemarkerTemplateEngine templateEngine = new FreemarkerTemplateEngine();
+        FreemarkerTemplateEngine productionTemplateEngine = new FreemarkerTemplateEngine();
+        productionTemplateEngine.setProductionMode( true );
+        assertTrue( productionTemplateEngine.isProductionMode() );
+
+        Configuration configuration = templateEngine.getFreemarkerConfiguration();
+        Configuration productionConfiguration = productionTemplateEngine.getFreemarkerConfiguration();
+        assertNotSame( configuration, productionConfiguration );
+        assertSame( configuration, new FreemarkerTemplateEngine().getFreemarkerConfiguration() );
+
+        // only the object wrapper of the production mode caches the wrapped objects
+        assertFalse( ( (BeansWrapper) configuration.getObjectWrapper() ).getUseCache() );
+        assertTrue( ( (BeansWrapper) productionConfiguration.getObjectWrapper() ).getUseCache() );
+
+        assertEquals( "Project: XDocReport", process( templateEngine ) );
+        assertEquals( "Project: XDocReport", process( productionTemplateEngine ) );
+
+        // back to the default mode
+        productionTemplateEngine.setProductionMode( false );
+        assertSame( configuration, productionTemplateEngine.getFreemarkerConfiguration() );
+    }
+
+    public void testProductionModeWithOwnConfiguration()
+        throws Exception
+    {
+        FreemarkerTemplateEngine templateEngine = new FreemarkerTemplateEngine();
+        Configuration configuration = new Configuration();
+        templateEngine.setFreemarkerConfiguration( configuration );
+        templateEngine.setProductionMode( true );
+
+        // the configuration of the engine is kept
+        assertSame( configuration, templateEngine.getFreemarkerConfiguration() );
+        assertEquals( "Project: XDocReport", process( templateEngine ) );
+
+        // the default configuration of the other engines is not changed
+        Configuration defaultConfiguration = new FreemarkerTemplateEngine().getFreemarkerConfiguration();
+        assertNotSame( configuration, defaultConfiguration );
+        assertFalse( ( (BeansWrapper) defaultConfiguration.getObjectWrapper() ).getUseCache() );
+    }
+
+    private static String process( FreemarkerTemplateEngine templateEngine )
+        throws Exception
+    {
+        IContext context = templateEngine.createContext();
+        context.put( "name", "XDocReport" );
+        StringWriter writer = new StringWriter();
+        templateEngine.process( "", context, new StringReader( "Project: ${name}" ), writer );
+        return writer.toString();
+    }
+}
@@ -36,4 +36,6 @@ public interface VelocityConstants
     String DESCRIPTION_DISCOVERY = "Manage Velocity template engine.";
 
     String VELOCITY_TEMPLATE_ENGINE_KEY = "velocityTemplateEngine";
+
+    String VELOCITY_RUNTIME_SERVICES_KEY = "velocityRuntimeServices";
 }
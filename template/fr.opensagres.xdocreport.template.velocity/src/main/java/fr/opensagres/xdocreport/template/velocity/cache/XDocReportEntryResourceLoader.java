@@ -55,6 +55,8 @@ public class XDocReportEntryResourceLoader
     {
         super.commonInit( rs, configuration );
         this.templateEngine = (ITemplateEngine) rs.getProperty( VELOCITY_TEMPLATE_ENGINE_KEY );
+        // publish the runtime services to the template engine which uses it to compile inline templates.
+        rs.setApplicationAttribute( VELOCITY_RUNTIME_SERVICES_KEY, rs );
     }
 
     @Override
@@ -27,16 +27,22 @@ package fr.opensagres.xdocreport.template.velocity.internal;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 import java.util.Properties;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.parser.ParseException;
 
 import fr.opensagres.xdocreport.core.EncodingConstants;
 import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.cache.BoundedCacheStorage;
 import fr.opensagres.xdocreport.core.io.IOUtils;
 import fr.opensagres.xdocreport.template.AbstractTemplateEngine;
 import fr.opensagres.xdocreport.template.FieldsExtractor;
@@ -56,14 +62,30 @@ public class VelocityTemplateEngine
     implements VelocityConstants
 {
 
+    /**
+     * System property to set the max number of parsed templates merged without the template cache (see
+     * {@link #processNoCache(String, IContext, Reader, Writer)}) cached by content digest. 0 disables the cache.
+     */
+    public static final String PARSED_TEMPLATE_CACHE_MAX_ENTRIES_PROPERTY =
+        "xdocreport.template.velocity.parsedCache.maxEntries";
+
+    private static final int DEFAULT_PARSED_TEMPLATE_CACHE_MAX_ENTRIES = 64;
+
     private static String ID = TemplateEngineKind.Velocity.name();
 
     private VelocityDocumentFormatter formatter = new VelocityDocumentFormatter();
 
-    private VelocityEngine velocityEngine;
+    private volatile VelocityEngine velocityEngine;
 
     private final Properties velocityEngineProperties;
 
+    // compiled inline templates (ex : text styling content with directives) by template content.
+    private final BoundedCacheStorage<String, Template> inlineTemplates = createInlineTemplateCache();
+
+    // parsed templates merged without the template cache (ex : report not registered) by digest of the template
+    // content.
+    private final BoundedCacheStorage<String, Template> parsedTemplates = createParsedTemplateCache();
+
     public VelocityTemplateEngine( Properties velocityEngineProperties )
     {
         this.velocityEngineProperties = velocityEngineProperties;
@@ -101,27 +123,211 @@ public class VelocityTemplateEngine
         }
     }
 
+    @Override
+    protected void compileWithCache( String templateName )
+        throws XDocReportException, IOException
+    {
+        // the template is parsed and put in the resource cache of velocity
+        getVelocityEngine().getTemplate( templateName, EncodingConstants.UTF_8.name() );
+    }
+
     @Override
     protected void processNoCache( String templateName, IContext context, Reader reader, Writer writer )
         throws XDocReportException, IOException
     {
         VelocityEngine velocityEngine = getVelocityEngine();
-        velocityEngine.evaluate( (VelocityContext) context, writer, templateName, reader );
+        if ( parsedTemplates == null )
+        {
+            velocityEngine.evaluate( (VelocityContext) context, writer, templateName, reader );
+            return;
+        }
+        // reuse the parsed template if the same content was already merged (ex : report loaded several times without
+        // cache).
+        String content = IOUtils.toString( reader );
+        Template template = getParsedTemplate( templateName, content );
+        if ( template == null )
+        {
+            velocityEngine.evaluate( (VelocityContext) context, writer, templateName, content );
+            return;
+        }
+        template.merge( (VelocityContext) context, writer );
+    }
+
+    @Override
+    protected void processInline( String templateName, IContext context, String content, Writer writer )
+        throws XDocReportException, IOException
+    {
+        Template template = getInlineTemplate( templateName, content );
+        if ( template == null )
+        {
+            super.processInline( templateName, context, content, writer );
+            return;
+        }
+        template.merge( (VelocityContext) context, writer );
+    }
+
+    /**
+     * Returns the compiled template of the given content from the cache or parse it. Returns null if the cache is
+     * disabled or if the Velocity runtime services are not available (when the XDocReport resource loader is not
+     * used).
+     * 
+     * @param templateName
+     * @param content
+     * @return
+     * @throws XDocReportException
+     */
+    Template getInlineTemplate( String templateName, String content )
+        throws XDocReportException
+    {
+        if ( inlineTemplates == null )
+        {
+            return null;
+        }
+        Template template = inlineTemplates.get( content );
+        if ( template == null )
+        {
+            template = parseTemplate( templateName, content );
+            if ( template == null )
+            {
+                return null;
+            }
+            inlineTemplates.put( content, template );
+        }
+        return template;
+    }
+
+    /**
+     * Returns the parsed template of the given content from the cache (by digest of the content) or parse it. Returns
+     * null if the Velocity runtime services are not available.
+     * 
+     * @param templateName
+     * @param content
+     * @return
+     * @throws XDocReportException
+     */
+    Template getParsedTemplate( String templateName, String content )
+        throws XDocReportException
+    {
+        String digest = getDigest( content );
+        Template template = parsedTemplates.get( digest );
+        if ( template == null )
+        {
+            template = parseTemplate( templateName, content );
+            if ( template == null )
+            {
+                return null;
+            }
+            parsedTemplates.put( digest, template );
+        }
+        return template;
+    }
+
+    /**
+     * Parse and init the template like Velocity does for the cached templates : the compiled template can then be
+     * merged by several threads. Returns null if the Velocity runtime services are not available (when the XDocReport
+     * resource loader is not used).
+     * 
+     * @param templateName
+     * @param content
+     * @return
+     * @throws XDocReportException
+     */
+    private Template parseTemplate( String templateName, String content )
+        throws XDocReportException
+    {
+        RuntimeServices runtimeServices =
+            (RuntimeServices) getVelocityEngine().getApplicationAttribute( VELOCITY_RUNTIME_SERVICES_KEY );
+        if ( runtimeServices == null )
+        {
+            return null;
+        }
+        try
+        {
+            Template template = new Template();
+            template.setRuntimeServices( runtimeServices );
+            template.setName( templateName );
+            template.setEncoding( EncodingConstants.UTF_8.name() );
+            template.setData( runtimeServices.parse( new StringReader( content ), templateName ) );
+            template.initDocument();
+            return template;
+        }
+        catch ( ParseException e )
+        {
+            throw new XDocReportException( e );
+        }
+    }
+
+    private static String getDigest( String content )
+        throws XDocReportException
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance( "SHA-1" ).digest( content.getBytes( EncodingConstants.UTF_8 ) );
+            StringBuilder hex = new StringBuilder( digest.length * 2 );
+            for ( byte b : digest )
+            {
+                hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+            }
+            return hex.toString();
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new XDocReportException( e );
+        }
+    }
+
+    /**
+     * Create the cache of parsed templates merged without the template cache, bounded with
+     * {@link #PARSED_TEMPLATE_CACHE_MAX_ENTRIES_PROPERTY}, or null if this cache is disabled.
+     * 
+     * @return
+     */
+    private static BoundedCacheStorage<String, Template> createParsedTemplateCache()
+    {
+        int maxEntries =
+            Integer.getInteger( PARSED_TEMPLATE_CACHE_MAX_ENTRIES_PROPERTY, DEFAULT_PARSED_TEMPLATE_CACHE_MAX_ENTRIES );
+        if ( maxEntries <= 0 )
+        {
+            return null;
+        }
+        return new BoundedCacheStorage<String, Template>( maxEntries, 0, 0 );
     }
 
-    protected synchronized VelocityEngine getVelocityEngine()
+    /**
+     * Returns the velocity engine and initialize it the first time. The engine is published only when it's
+     * initialized, so the threads which merge templates don't synchronize once the engine is created.
+     * 
+     * @return
+     * @throws XDocReportException
+     */
+    protected VelocityEngine getVelocityEngine()
         throws XDocReportException
     {
-        if ( velocityEngine == null )
+        VelocityEngine engine = this.velocityEngine;
+        if ( engine == null )
         {
-            velocityEngine = new VelocityEngine();
-            initializeVelocityEngine( velocityEngineProperties );
+            synchronized ( this )
+            {
+                engine = this.velocityEngine;
+                if ( engine == null )
+                {
+                    engine = new VelocityEngine();
+                    initializeVelocityEngine( engine, velocityEngineProperties );
+                    this.velocityEngine = engine;
+                }
+            }
         }
-        return velocityEngine;
+        return engine;
     }
 
     public void initializeVelocityEngine( Properties velocityEngineProperties )
         throws XDocReportException
+    {
+        initializeVelocityEngine( velocityEngine, velocityEngineProperties );
+    }
+
+    private void initializeVelocityEngine( VelocityEngine velocityEngine, Properties velocityEngineProperties )
+        throws XDocReportException
     {
         ClassLoader backupCL = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader( VelocityTemplateEngine.class.getClassLoader() );
@@ -135,7 +341,10 @@ public class VelocityTemplateEngine
         {
             throw new XDocReportException( e );
         }
-        Thread.currentThread().setContextClassLoader( backupCL );
+        finally
+        {
+            Thread.currentThread().setContextClassLoader( backupCL );
+        }
     }
 
     @Override
@@ -147,6 +356,14 @@ public class VelocityTemplateEngine
             velocityEngineProperties.setProperty( "eventhandler.referenceinsertion.class",
                                                   XDocReportEscapeReference.class.getName() );
         }
+        if ( inlineTemplates != null )
+        {
+            inlineTemplates.clear();
+        }
+        if ( parsedTemplates != null )
+        {
+            parsedTemplates.clear();
+        }
 
     }
 
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.template.velocity.internal;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.velocity.Template;
+
+import fr.opensagres.xdocreport.template.IContext;
+import fr.opensagres.xdocreport.template.ITemplateEngine;
+import fr.opensagres.xdocreport.template.velocity.discovery.VelocityTemplateEngineDiscovery;
+
+/**
+ * Test case for the merge of templates without the template cache, whose parsed template is cached by digest of the
+ * template content.
+ */
+public class VelocityTemplateEngineNoCacheTestCase
+    extends TestCase
+{
+
+    private static final String CONTENT = "Project: $project.name. Users: #foreach ($user in $users)$user #end";
+
+    public void testParsedOnce()
+        throws Exception
+    {
+        VelocityTemplateEngine templateEngine =
+            (VelocityTemplateEngine) new VelocityTemplateEngineDiscovery().createTemplateEngine();
+
+        assertEquals( "Project: XDocReport0. Users: Angelo Pascal ", process( templateEngine, 0 ) );
+        Template template = templateEngine.getParsedTemplate( "word/document.xml", CONTENT );
+        assertNotNull( template );
+        assertEquals( "Project: XDocReport1. Users: Angelo Pascal ", process( templateEngine, 1 ) );
+        assertSame( template, templateEngine.getParsedTemplate( "word/document.xml", CONTENT ) );
+        assertNotSame( template, templateEngine.getParsedTemplate( "word/document.xml", "$project.name" ) );
+    }
+
+    public void testSameContentInSeveralThreads()
+        throws Exception
+    {
+        final ITemplateEngine templateEngine = new VelocityTemplateEngineDiscovery().createTemplateEngine();
+        final Throwable[] errors = new Throwable[4];
+        Thread[] threads = new Thread[errors.length];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int j = 0; j < 50; j++ )
+                        {
+                            assertEquals( "Project: XDocReport" + index + ". Users: Angelo Pascal ",
+                                          process( templateEngine, index ) );
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        errors[index] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            threads[i].join();
+            assertNull( errors[i] );
+        }
+    }
+
+    private static String process( ITemplateEngine templateEngine, int index )
+        throws Exception
+    {
+        IContext context = templateEngine.createContext();
+        context.put( "project.name", "XDocReport" + index );
+        context.put( "users", Arrays.asList( "Angelo", "Pascal" ) );
+        StringWriter writer = new StringWriter();
+        templateEngine.process( "word/document.xml", context, new StringReader( CONTENT ), writer );
+        return writer.toString();
+    }
+}
@@ -31,12 +31,21 @@ import static java.lang.String.format;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import fr.opensagres.xdocreport.core.XDocReportException;
+import fr.opensagres.xdocreport.core.cache.BoundedCacheStorage;
+import fr.opensagres.xdocreport.core.io.IEntryInfo;
 import fr.opensagres.xdocreport.core.io.IEntryReaderProvider;
 import fr.opensagres.xdocreport.core.io.IEntryWriterProvider;
 import fr.opensagres.xdocreport.core.io.IOUtils;
@@ -49,10 +58,31 @@ public abstract class AbstractTemplateEngine
     implements ITemplateEngine
 {
 
+    /**
+     * System property to set the max number of compiled inline templates (see
+     * {@link #process(String, IContext, String, Writer)}) cached by a template engine. 0 disables the cache.
+     */
+    public static final String INLINE_TEMPLATE_CACHE_MAX_ENTRIES_PROPERTY =
+        "xdocreport.template.inlineCache.maxEntries";
+
+    private static final int DEFAULT_INLINE_TEMPLATE_CACHE_MAX_ENTRIES = 256;
+
     private ITemplateCacheInfoProvider templateCacheInfoProvider;
 
     private ITemplateEngineConfiguration configuration;
 
+    /**
+     * Compilations of cached templates in progress (by template name), used to compile a template only once when
+     * several threads need it at the same time.
+     */
+    private final ConcurrentMap<String, FutureTask<Long>> compilations =
+        new ConcurrentHashMap<String, FutureTask<Long>>();
+
+    /**
+     * Last modified of the entry of the compiled cached templates (by template name).
+     */
+    private final ConcurrentMap<String, Long> compiledTemplates = new ConcurrentHashMap<String, Long>();
+
     public ITemplateCacheInfoProvider getTemplateCacheInfoProvider()
     {
         return templateCacheInfoProvider;
@@ -108,7 +138,9 @@ public abstract class AbstractTemplateEngine
             String templateName = getCachedTemplateName( reportId, entryName );
             if ( useTemplateCache )
             {
-                // cache template is used, process it
+                // cache template is used, compile it if needed (or wait for its compilation by an other thread) and
+                // process it
+                compileIfNeeded( reportId, entryName, templateName );
                 processWithCache( templateName, context, writer );
             }
             else
@@ -164,6 +196,118 @@ public abstract class AbstractTemplateEngine
         }
     }
 
+    public void compile( String reportId, String entryName )
+        throws XDocReportException, IOException
+    {
+        if ( isUseTemplateCache( reportId ) )
+        {
+            compileIfNeeded( reportId, entryName, getCachedTemplateName( reportId, entryName ) );
+        }
+    }
+
+    /**
+     * Compile the cached template of the given entry if it was not compiled since the last modification of the entry.
+     * When several threads call this method for the same template, the template is compiled by the first thread and
+     * the other threads wait for the end of the compilation.
+     * 
+     * @param reportId
+     * @param entryName
+     * @param templateName
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    private void compileIfNeeded( final String reportId, final String entryName, final String templateName )
+        throws XDocReportException, IOException
+    {
+        Long compiledLastModified = compiledTemplates.get( templateName );
+        if ( compiledLastModified != null
+            && compiledLastModified.longValue() == getLastModified( reportId, entryName ) )
+        {
+            // template is already compiled
+            return;
+        }
+        FutureTask<Long> compilation = new FutureTask<Long>( new Callable<Long>()
+        {
+            public Long call()
+                throws Exception
+            {
+                long lastModified = getLastModified( reportId, entryName );
+                if ( compiledTemplates.containsKey( templateName ) )
+                {
+                    // the entry was modified, remove the old template from the cache of the template engine in case
+                    // the template engine doesn't check the modification of the templates.
+                    removeTemplateFromCache( templateName );
+                }
+                compileWithCache( templateName );
+                return lastModified;
+            }
+        } );
+        FutureTask<Long> currentCompilation = compilations.putIfAbsent( templateName, compilation );
+        if ( currentCompilation == null )
+        {
+            // compile the template
+            currentCompilation = compilation;
+            try
+            {
+                compilation.run();
+            }
+            finally
+            {
+                compilations.remove( templateName, compilation );
+            }
+        }
+        try
+        {
+            compiledTemplates.put( templateName, currentCompilation.get() );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new XDocReportException( e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof XDocReportException )
+            {
+                throw (XDocReportException) cause;
+            }
+            throw new XDocReportException( cause );
+        }
+    }
+
+    public void removeTemplatesFromCache( String reportId )
+    {
+        String prefix = getCachedTemplateName( reportId, "" );
+        for ( Iterator<String> templateNames = compiledTemplates.keySet().iterator(); templateNames.hasNext(); )
+        {
+            String templateName = templateNames.next();
+            if ( templateName.startsWith( prefix ) )
+            {
+                templateNames.remove();
+                removeTemplateFromCache( templateName );
+            }
+        }
+    }
+
+    private long getLastModified( String reportId, String entryName )
+    {
+        IEntryInfo entryInfo = getTemplateCacheInfoProvider().getTemplateCacheInfo( reportId, entryName );
+        return entryInfo != null ? entryInfo.getLastModified() : -1;
+    }
+
     public void process( String entryName, IContext context, Reader reader, Writer writer )
         throws XDocReportException, IOException
     {
@@ -185,6 +329,56 @@ public abstract class AbstractTemplateEngine
 
     }
 
+    public void process( String entryName, IContext context, String content, Writer writer )
+        throws XDocReportException, IOException
+    {
+        try
+        {
+            processInline( entryName, context, content, writer );
+        }
+        finally
+        {
+            if ( writer != null )
+            {
+                IOUtils.closeQuietly( writer );
+            }
+        }
+    }
+
+    /**
+     * Merge the given template content with the Java model. This implementation parses the content for each call,
+     * template engine implementations override it to reuse the compiled template of a content already merged.
+     * 
+     * @param templateName
+     * @param context
+     * @param content
+     * @param writer
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    protected void processInline( String templateName, IContext context, String content, Writer writer )
+        throws XDocReportException, IOException
+    {
+        processNoCache( templateName, context, new StringReader( content ), writer );
+    }
+
+    /**
+     * Create the cache of compiled inline templates (by template content) bounded with
+     * {@link #INLINE_TEMPLATE_CACHE_MAX_ENTRIES_PROPERTY}, or null if this cache is disabled.
+     * 
+     * @return
+     */
+    protected static <T> BoundedCacheStorage<String, T> createInlineTemplateCache()
+    {
+        int maxEntries =
+            Integer.getInteger( INLINE_TEMPLATE_CACHE_MAX_ENTRIES_PROPERTY, DEFAULT_INLINE_TEMPLATE_CACHE_MAX_ENTRIES );
+        if ( maxEntries <= 0 )
+        {
+            return null;
+        }
+        return new BoundedCacheStorage<String, T>( maxEntries, 0, 0 );
+    }
+
     public void extractFields( IEntryReaderProvider readerProvider, String entryName, FieldsExtractor extractor )
         throws XDocReportException
     {
@@ -221,6 +415,30 @@ public abstract class AbstractTemplateEngine
     protected abstract void processWithCache( String templateName, IContext context, Writer writer )
         throws XDocReportException, IOException;
 
+    /**
+     * Compile the given template and put it in the cache of the template engine, so the next call of
+     * {@link #processWithCache(String, IContext, Writer)} doesn't parse the template. This implementation does nothing,
+     * template engine implementations override it to load the template from their cache.
+     * 
+     * @param templateName the template name.
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    protected void compileWithCache( String templateName )
+        throws XDocReportException, IOException
+    {
+    }
+
+    /**
+     * Remove the given template from the cache of the template engine. This implementation does nothing, template
+     * engine implementations override it if their cache can be invalidated.
+     * 
+     * @param templateName the template name.
+     */
+    protected void removeTemplateFromCache( String templateName )
+    {
+    }
+
     /**
      * Merge the given template with the given context and writes the result in the given writer.
      * 
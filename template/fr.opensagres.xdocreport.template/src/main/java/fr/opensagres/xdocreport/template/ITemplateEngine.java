@@ -26,6 +26,7 @@ package fr.opensagres.xdocreport.template;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
 import java.util.Map;
 
@@ -99,6 +100,34 @@ public interface ITemplateEngine
                   IContext context )
         throws XDocReportException, IOException;
 
+    /**
+     * Compile the template of the XML file entryName and put it in the cache of the template engine, so the first merge
+     * of the entry doesn't parse the template. This method does nothing if the template cache is not used for the
+     * report. When several threads compile the same template (or merge it for the first time) at the same time, the
+     * template is compiled only once. The default implementation does nothing : the template is compiled by its first
+     * merge.
+     * 
+     * @param reportId {@link IXDocReport#getId()}.
+     * @param entryName entry name of the XML file from the document archive.
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    default void compile( String reportId, String entryName )
+        throws XDocReportException, IOException
+    {
+    }
+
+    /**
+     * Remove the compiled templates of the given report from the cache of the template engine. This method is called
+     * by the {@link XDocReportRegistry} when a report is reloaded or removed from the registry. The default
+     * implementation does nothing.
+     * 
+     * @param reportId {@link IXDocReport#getId()}.
+     */
+    default void removeTemplatesFromCache( String reportId )
+    {
+    }
+
     /**
      * Merge Java model coming from the given context with the given reader and register the merge result in the given
      * writer.
@@ -113,6 +142,26 @@ public interface ITemplateEngine
     void process( String entryName, IContext context, Reader reader, Writer writer )
         throws XDocReportException, IOException;
 
+    /**
+     * Merge Java model coming from the given context with the given template content and register the merge result in
+     * the given writer. Contrary to {@link #process(String, IContext, Reader, Writer)}, the template engine can cache
+     * the compiled template of the content, so this method should be used when the same small template (ex : content
+     * of a text styling field with directives) is merged a lot of times. The default implementation merges the content
+     * with {@link #process(String, IContext, Reader, Writer)} without caching it.
+     * 
+     * @param entryName template name
+     * @param context Java model context
+     * @param content template content to merge
+     * @param writer merge result writer
+     * @throws XDocReportException
+     * @throws IOException
+     */
+    default void process( String entryName, IContext context, String content, Writer writer )
+        throws XDocReportException, IOException
+    {
+        process( entryName, context, new StringReader( content ), writer );
+    }
+
     void extractFields( Reader reader, String entryName, FieldsExtractor extractor )
         throws XDocReportException;
 
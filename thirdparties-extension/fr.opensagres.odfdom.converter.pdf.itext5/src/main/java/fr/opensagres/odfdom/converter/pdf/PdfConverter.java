@@ -24,7 +24,6 @@
  */
 package fr.opensagres.odfdom.converter.pdf;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
@@ -61,22 +60,9 @@ public class PdfConverter
             // process styles
             StyleEngineForIText styleEngine = processStyles( odfDocument, options );
 
-            // process content
-            ByteArrayOutputStream tempOut = new ByteArrayOutputStream();
-            ElementVisitorForIText visitorForIText = processBody( odfDocument, tempOut, styleEngine, options, null );
-            Integer expectedPageCount = visitorForIText.getExpectedPageCount();
-            int actualPageCount = visitorForIText.getActualPageCount();
-            if ( expectedPageCount == null || expectedPageCount == actualPageCount )
-            {
-                // page count not required or correct, copy temp stream to output stream
-                out.write( tempOut.toByteArray() );
-                out.close();
-            }
-            else
-            {
-                // page count inconsistent, do second visit with forced page count
-                processBody( odfDocument, out, styleEngine, options, actualPageCount );
-            }
+            // process content : the total page count (text:page-count) is filled when the PDF document is closed,
+            // so the document is laid out once and written directly to the output stream.
+            processBody( odfDocument, out, styleEngine, options );
         }
         catch ( Exception e )
         {
@@ -109,8 +95,7 @@ public class PdfConverter
     }
 
     private ElementVisitorForIText processBody( OdfDocument odfDocument, OutputStream out,
-                                                StyleEngineForIText styleEngine, PdfOptions options,
-                                                Integer forcedPageCount )
+                                                StyleEngineForIText styleEngine, PdfOptions options )
         throws Exception
     {
         ElementVisitorForIText visitorForIText;
@@ -118,12 +103,12 @@ public class PdfConverter
         if ( options != null && options instanceof PdfAOptions )
         {
             visitorForIText =
-                new ElementVisitorForIText( odfDocument, out, styleEngine, ( PdfAOptions ) options, forcedPageCount );
+                new ElementVisitorForIText( odfDocument, out, styleEngine, ( PdfAOptions ) options );
         }
         else
         {
             visitorForIText =
-                new ElementVisitorForIText( odfDocument, out, styleEngine, options, forcedPageCount );
+                new ElementVisitorForIText( odfDocument, out, styleEngine, options );
         }
 
         OdfOfficeMasterStyles masterStyles = odfDocument.getOfficeMasterStyles();
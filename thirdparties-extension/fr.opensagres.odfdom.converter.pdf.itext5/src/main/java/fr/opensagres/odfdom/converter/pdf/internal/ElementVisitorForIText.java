@@ -73,6 +73,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.Text;
 
 import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
 import com.itextpdf.text.Font;
 import com.itextpdf.text.Image;
 
@@ -103,6 +104,7 @@ import fr.opensagres.odfdom.converter.pdf.internal.stylable.StylableTable;
 import fr.opensagres.odfdom.converter.pdf.internal.stylable.StylableTableCell;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.Style;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.StyleTextProperties;
+import fr.opensagres.xdocreport.itext.extension.font.FontGroup;
 import fr.opensagres.xdocreport.utils.StringUtils;
 
 /**
@@ -133,16 +135,11 @@ public class ElementVisitorForIText
 
     private StylableList previousList; // list processing
 
-    private Integer forcedPageCount; // page count processing
-
-    private Integer expectedPageCount; // page count processing
-
     public ElementVisitorForIText( OdfDocument odfDocument, OutputStream out, StyleEngineForIText styleEngine,
-                                   PdfOptions options, Integer forcedPageCount )
+                                   PdfOptions options )
     {
         super( odfDocument, options.getExtractor(), out, null );
         this.styleEngine = styleEngine;
-        this.forcedPageCount = forcedPageCount;
         // this.options = options != null ? options : PDFViaITextOptions.create();
         // Create document
         try
@@ -156,11 +153,10 @@ public class ElementVisitorForIText
     }
 
     public ElementVisitorForIText( OdfDocument odfDocument, OutputStream out, StyleEngineForIText styleEngine,
-                                   PdfAOptions options, Integer forcedPageCount )
+                                   PdfAOptions options )
     {
         super( odfDocument, options.getExtractor(), out, null );
         this.styleEngine = styleEngine;
-        this.forcedPageCount = forcedPageCount;
 
         try
         {
@@ -172,23 +168,6 @@ public class ElementVisitorForIText
         }
     }
 
-    public Integer getExpectedPageCount()
-    {
-        return expectedPageCount;
-    }
-
-    public int getActualPageCount()
-    {
-        if ( document.isOpen() )
-        {
-            return document.getPageNumber();
-        }
-        else
-        {
-            return document.getPageNumber() - 1;
-        }
-    }
-
     // ---------------------- visit root
     // styles.xml//office:document-styles/office:master-styles/style:master-page
 
@@ -757,31 +736,22 @@ public class ElementVisitorForIText
     @Override
     public void visit( TextPageCountElement ele )
     {
-        if ( forcedPageCount != null )
+        // the total page count is filled when the PDF document is closed, so the document is laid out once (the
+        // chunk reserves the width of the text content of the element, computed by the office application, or of
+        // the widest page count expected if it is wider).
+        StylableChunk chunk = document.createChunk( currentContainer, ele.getTextContent(), FontGroup.WESTERN );
+        Style style = currentContainer.getLastStyleApplied();
+        if ( style != null )
         {
-            createAndAddChunk( forcedPageCount.toString(), null, false );
+            chunk.applyStyles( style );
         }
-        else
+        try
         {
-            String textContent = ele.getTextContent();
-            try
-            {
-                int pageCount = Integer.parseInt( textContent );
-                if ( expectedPageCount == null || expectedPageCount == pageCount )
-                {
-                    expectedPageCount = pageCount;
-                }
-                else if ( expectedPageCount != pageCount )
-                {
-                    expectedPageCount = -1;
-                }
-            }
-            catch ( NumberFormatException e )
-            {
-                expectedPageCount = -1;
-            }
-            textContent = expectedPageCount != null & expectedPageCount >= 0 ? expectedPageCount.toString() : "#";
-            createAndAddChunk( textContent, null, false );
+            currentContainer.addElement( document.createPageCountChunk( chunk, getParagraphAlignment() ) );
+        }
+        catch ( DocumentException e )
+        {
+            addITextElement( chunk );
         }
     }
 
@@ -923,4 +893,16 @@ public class ElementVisitorForIText
         }
         return null;
     }
+
+    private int getParagraphAlignment()
+    {
+        for ( IStylableContainer c = currentContainer; c != null; c = c.getParent() )
+        {
+            if ( c instanceof StylableParagraph )
+            {
+                return ( (StylableParagraph) c ).getAlignment();
+            }
+        }
+        return Element.ALIGN_LEFT;
+    }
 }
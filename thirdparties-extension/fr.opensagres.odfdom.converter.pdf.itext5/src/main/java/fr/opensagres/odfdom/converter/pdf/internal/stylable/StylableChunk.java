@@ -35,6 +35,7 @@ import fr.opensagres.odfdom.converter.pdf.internal.styles.Style;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.StyleTextProperties;
 import fr.opensagres.xdocreport.itext.extension.ExtendedChunk;
 import fr.opensagres.xdocreport.itext.extension.font.FontGroup;
+import fr.opensagres.xdocreport.itext.extension.font.FontGroupRun;
 
 public class StylableChunk
     extends ExtendedChunk
@@ -115,7 +116,6 @@ public class StylableChunk
                                                     String textContent )
     {
         List<StylableChunk> list = new ArrayList<StylableChunk>();
-        StringBuilder sbuf = new StringBuilder();
         Font font = null;
         Font fontAsian = null;
         Font fontComplex = null;
@@ -129,30 +129,11 @@ public class StylableChunk
                 fontComplex = textProperties.getFontComplex();
             }
         }
-        FontGroup currentGroup = FontGroup.WESTERN;
-        for ( int i = 0; i < textContent.length(); i++ )
+        for ( FontGroupRun run : FontGroup.split( textContent, font, fontAsian, fontComplex ) )
         {
-            char ch = textContent.charAt( i );
-            FontGroup group = FontGroup.getUnicodeGroup( ch, font, fontAsian, fontComplex );
-            if ( sbuf.length() == 0 || currentGroup.equals( group ) )
-            {
-                // continue current chunk
-                sbuf.append( ch );
-            }
-            else
-            {
-                // end chunk
-                StylableChunk chunk = ownerDocument.createChunk( parent, sbuf.toString(), currentGroup );
-                list.add( chunk );
-                // start new chunk
-                sbuf.setLength( 0 );
-                sbuf.append( ch );
-            }
-            currentGroup = group;
+            StylableChunk chunk = ownerDocument.createChunk( parent, run.getText(), run.getGroup() );
+            list.add( chunk );
         }
-        // end chunk
-        StylableChunk chunk = ownerDocument.createChunk( parent, sbuf.toString(), currentGroup );
-        list.add( chunk );
         return list;
     }
 }
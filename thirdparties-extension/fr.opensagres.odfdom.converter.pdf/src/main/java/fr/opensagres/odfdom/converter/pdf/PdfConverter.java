@@ -24,7 +24,6 @@
  */
 package fr.opensagres.odfdom.converter.pdf;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
@@ -61,33 +60,10 @@ public class PdfConverter
             // process styles
             StyleEngineForIText styleEngine = processStyles( odfDocument, options );
 
-            // process content
-            ByteArrayOutputStream tempOut = new ByteArrayOutputStream();
-            ElementVisitorForIText visitorForIText = processBody( odfDocument, tempOut, styleEngine, options, null );
-            Integer expectedPageCount = visitorForIText.getExpectedPageCount();
-            int actualPageCount = visitorForIText.getActualPageCount();
-
-            if ( expectedPageCount == null || expectedPageCount == actualPageCount )
-            {
-                // page count not required or correct, copy temp stream to output stream
-                if (styleEngine.getBackgroundImage() != null) {
-                	tempOut = styleEngine.getBackgroundImage().insert(tempOut);
-                }
-                out.write( tempOut.toByteArray() );
-                out.close();
-            }
-            else
-            {
-                // page count inconsistent, do second visit with forced page count
-            	tempOut = new ByteArrayOutputStream();
-                processBody( odfDocument, tempOut, styleEngine, options, actualPageCount );
-                if (styleEngine.getBackgroundImage() != null) {
-                	tempOut = styleEngine.getBackgroundImage().insert(tempOut);
-                }
-                out.write( tempOut.toByteArray() );
-                out.close();
-            }
-
+            // process content : the total page count (text:page-count) is filled when the PDF document is closed and
+            // the background image is drawn when each page is started, so the document is laid out once and written
+            // directly to the output stream.
+            processBody( odfDocument, out, styleEngine, options );
         }
         catch ( Exception e )
         {
@@ -118,13 +94,12 @@ public class PdfConverter
         return styleEngine;
     }
 
-    private ElementVisitorForIText processBody( OdfDocument odfDocument, ByteArrayOutputStream out,
-                                                StyleEngineForIText styleEngine, PdfOptions options,
-                                                Integer forcedPageCount )
+    private ElementVisitorForIText processBody( OdfDocument odfDocument, OutputStream out,
+                                                StyleEngineForIText styleEngine, PdfOptions options )
         throws Exception
     {
         ElementVisitorForIText visitorForIText =
-            new ElementVisitorForIText( odfDocument, out, styleEngine, options, forcedPageCount );
+            new ElementVisitorForIText( odfDocument, out, styleEngine, options );
 
         OdfOfficeMasterStyles masterStyles = odfDocument.getOfficeMasterStyles();
         OdfElement contentRoot = odfDocument.getContentRoot();
@@ -24,12 +24,11 @@
  */
 package fr.opensagres.odfdom.converter.pdf.internal;
 
-import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.lowagie.text.Image;
 import com.lowagie.text.pdf.PdfContentByte;
-import com.lowagie.text.pdf.PdfReader;
-import com.lowagie.text.pdf.PdfStamper;
 
 /**
  * A pojo containing all the information of a background image.
@@ -48,6 +47,8 @@ public class BackgroundImage {
 	private final Float topMargin;
 	private final Float bottomMargin;
 
+	private List<Image> images;
+
 	/**
 	 * A type of background image.
 	 */
@@ -188,101 +189,91 @@ public class BackgroundImage {
 	}
 
 	/**
-	 * Insert the backgroundImage in the given OutputStream.
-	 * @param out the pdf as a ByteArrayOutputStream
+	 * Draw the background image in the given canvas (the under content of a page). The images to draw are computed the
+	 * first time, so they are shared by all the pages of the PDF.
+	 * @param canvas the canvas of the page
 	 */
-	public ByteArrayOutputStream insert(ByteArrayOutputStream out) {
+	public void draw(PdfContentByte canvas) {
 
 		try {
-			Image image = Image.getInstance(imageBytes);
-			float imageWidth = image.getWidth() * DEFAULT_DPI / image.getDpiX();
-			float imageHeight = image.getHeight() * DEFAULT_DPI / image.getDpiY();
-			switch (repeat) {
-			case BOTH:
-				ByteArrayOutputStream stream = out;
-				//TODO: maybe we could get better results if we tiled the byteArray instead of the images themselves.
-				for (float x = leftMargin; x < pageWidth - rightMargin; x += imageWidth) {
-					for (float y = pageHeight - topMargin; y > bottomMargin; y -= imageHeight) {
-
-						if (x + imageWidth > pageWidth - rightMargin || y - imageHeight < bottomMargin) {
-							byte[] data = new byte[(int)imageWidth * (int)imageHeight];
-							for (int k = 0; k < (int)imageHeight; k++) {
-								for (int i = 0; i < imageWidth; i++) {
-									if (x + i < pageWidth - rightMargin && y - k > bottomMargin) {
-										data[i + k * (int)imageWidth] = (byte) 0xff;
-									}
-								}
-							}
-
-							Image clone = Image.getInstance(image);
-							Image mask = Image.getInstance((int)imageWidth, (int)imageHeight, 1, 8, data);
-							mask.makeMask();
-							clone.setImageMask(mask);
-							clone.setAbsolutePosition(x, y - imageHeight);
-							stream = insertImage(stream, clone);
-						} else {
-							image.setAbsolutePosition(x, y - imageHeight);
-							image.scaleAbsolute(imageWidth, imageHeight);
-							stream = insertImage(stream, image);
-						}
-					}
-				}
-				return stream;
-			case NONE:
-
-				float y;
-				if (position.name().split("_")[0].equals("TOP")) {
-					y = pageHeight - imageHeight - topMargin;
-				} else if (position.name().split("_")[0].equals("CENTER")) {
-					y = (pageHeight - imageHeight - topMargin) / 2;
-				} else if (position.name().split("_")[0].equals("BOTTOM")) {
-					y = bottomMargin;
-				} else {
-					throw new UnsupportedOperationException(position + " is not supported");
-				}
-				float x;
-				if (position.name().split("_")[1].equals("LEFT")) {
-					x = leftMargin;
-				} else if (position.name().split("_")[1].equals("CENTER")) {
-					x = (pageWidth - imageWidth - rightMargin) / 2;
-				} else if (position.name().split("_")[1].equals("RIGHT")) {
-					x = pageWidth - imageWidth - rightMargin;
-				} else {
-					throw new UnsupportedOperationException(position + " is not supported");
-				}
-
-				image.setAbsolutePosition(x, y);
-				image.scaleAbsolute(imageWidth, imageHeight);
-				return insertImage(out, image);
-			case STRETCH:
-				image.setAbsolutePosition(leftMargin, bottomMargin);
-				image.scaleAbsolute(pageWidth - leftMargin - rightMargin, pageHeight - topMargin - bottomMargin);
-				return insertImage(out, image);
-			default:
-				throw new UnsupportedOperationException(repeat + " is not implemented");
+			if (images == null) {
+				images = createImages();
+			}
+			for (Image image : images) {
+				canvas.addImage(image);
 			}
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	private ByteArrayOutputStream insertImage(ByteArrayOutputStream out, Image image) {
-
-
-		try {
-			ByteArrayOutputStream os = new ByteArrayOutputStream(out.size());
-			PdfReader reader = new PdfReader(out.toByteArray());
-			PdfStamper stamper = new PdfStamper(reader, os);
+	private List<Image> createImages() throws Exception {
+
+		List<Image> images = new ArrayList<Image>();
+		Image image = Image.getInstance(imageBytes);
+		float imageWidth = image.getWidth() * DEFAULT_DPI / image.getDpiX();
+		float imageHeight = image.getHeight() * DEFAULT_DPI / image.getDpiY();
+		switch (repeat) {
+		case BOTH:
+			//TODO: maybe we could get better results if we tiled the byteArray instead of the images themselves.
+			for (float x = leftMargin; x < pageWidth - rightMargin; x += imageWidth) {
+				for (float y = pageHeight - topMargin; y > bottomMargin; y -= imageHeight) {
+
+					Image tile = Image.getInstance(image);
+					if (x + imageWidth > pageWidth - rightMargin || y - imageHeight < bottomMargin) {
+						byte[] data = new byte[(int)imageWidth * (int)imageHeight];
+						for (int k = 0; k < (int)imageHeight; k++) {
+							for (int i = 0; i < imageWidth; i++) {
+								if (x + i < pageWidth - rightMargin && y - k > bottomMargin) {
+									data[i + k * (int)imageWidth] = (byte) 0xff;
+								}
+							}
+						}
 
-			for (int i = 1; i <= reader.getNumberOfPages(); i++) {
-				PdfContentByte canvas = stamper.getUnderContent(i);
-				canvas.addImage(image);
+						Image mask = Image.getInstance((int)imageWidth, (int)imageHeight, 1, 8, data);
+						mask.makeMask();
+						tile.setImageMask(mask);
+					}
+					tile.setAbsolutePosition(x, y - imageHeight);
+					tile.scaleAbsolute(imageWidth, imageHeight);
+					images.add(tile);
+				}
 			}
-			reader.close();
-			stamper.close();
-			return os;
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+			return images;
+		case NONE:
+
+			float y;
+			if (position.name().split("_")[0].equals("TOP")) {
+				y = pageHeight - imageHeight - topMargin;
+			} else if (position.name().split("_")[0].equals("CENTER")) {
+				y = (pageHeight - imageHeight - topMargin) / 2;
+			} else if (position.name().split("_")[0].equals("BOTTOM")) {
+				y = bottomMargin;
+			} else {
+				throw new UnsupportedOperationException(position + " is not supported");
+			}
+			float x;
+			if (position.name().split("_")[1].equals("LEFT")) {
+				x = leftMargin;
+			} else if (position.name().split("_")[1].equals("CENTER")) {
+				x = (pageWidth - imageWidth - rightMargin) / 2;
+			} else if (position.name().split("_")[1].equals("RIGHT")) {
+				x = pageWidth - imageWidth - rightMargin;
+			} else {
+				throw new UnsupportedOperationException(position + " is not supported");
+			}
+
+			image.setAbsolutePosition(x, y);
+			image.scaleAbsolute(imageWidth, imageHeight);
+			images.add(image);
+			return images;
+		case STRETCH:
+			image.setAbsolutePosition(leftMargin, bottomMargin);
+			image.scaleAbsolute(pageWidth - leftMargin - rightMargin, pageHeight - topMargin - bottomMargin);
+			images.add(image);
+			return images;
+		default:
+			throw new UnsupportedOperationException(repeat + " is not implemented");
 		}
 	}
 }
@@ -29,6 +29,7 @@ import java.util.List;
 
 import org.odftoolkit.odfdom.dom.style.OdfStyleFamily;
 
+import com.lowagie.text.Document;
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.Element;
 import com.lowagie.text.Image;
@@ -36,8 +37,11 @@ import com.lowagie.text.Rectangle;
 import com.lowagie.text.pdf.ColumnText;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfPageEventHelper;
+import com.lowagie.text.pdf.PdfWriter;
 
 import fr.opensagres.odfdom.converter.core.ODFConverterException;
+import fr.opensagres.odfdom.converter.pdf.internal.BackgroundImage;
 import fr.opensagres.odfdom.converter.pdf.internal.StyleEngineForIText;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.Style;
 import fr.opensagres.odfdom.converter.pdf.internal.styles.StylePageLayoutProperties;
@@ -75,6 +79,20 @@ public class StylableDocument
     {
         super( out, configuration );
         this.styleEngine = styleEngine;
+        final BackgroundImage backgroundImage = styleEngine.getBackgroundImage();
+        if ( backgroundImage != null )
+        {
+            // the background image is drawn under the content (and the header/footer) of each page when the page is
+            // started, so the PDF is streamed to the output stream without being post-processed.
+            writer.setPageEvent( new PdfPageEventHelper()
+            {
+                @Override
+                public void onStartPage( PdfWriter writer, Document document )
+                {
+                    backgroundImage.draw( writer.getDirectContentUnder() );
+                }
+            } );
+        }
     }
 
     //
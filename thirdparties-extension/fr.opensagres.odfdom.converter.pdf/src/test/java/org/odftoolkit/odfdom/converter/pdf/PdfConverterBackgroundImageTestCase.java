@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.odftoolkit.odfdom.converter.pdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+import org.odftoolkit.odfdom.doc.OdfTextDocument;
+
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+
+import fr.opensagres.odfdom.converter.pdf.PdfConverter;
+import fr.opensagres.odfdom.converter.pdf.PdfOptions;
+
+/**
+ * Test case for the background image of the pages, which is drawn by a page event while the PDF is written to the
+ * output stream.
+ */
+public class PdfConverterBackgroundImageTestCase
+{
+
+    private static final int PARAGRAPHS = 200;
+
+    @Test
+    public void backgroundImageOnEachPage()
+        throws Exception
+    {
+        OdfTextDocument document =
+            OdfTextDocument.loadDocument( new ByteArrayInputStream( createDocumentWithBackgroundImage() ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfConverter.getInstance().convert( document, out, PdfOptions.create() );
+
+        PdfReader reader = new PdfReader( out.toByteArray() );
+        try
+        {
+            int pages = reader.getNumberOfPages();
+            assertTrue( "The document must have several pages", pages > 1 );
+            for ( int i = 1; i <= pages; i++ )
+            {
+                assertEquals( "Images of the page " + i, 1, getImageCount( reader, i ) );
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private static int getImageCount( PdfReader reader, int pageNumber )
+    {
+        PdfDictionary page = reader.getPageN( pageNumber );
+        PdfDictionary resources = (PdfDictionary) PdfReader.getPdfObject( page.get( PdfName.RESOURCES ) );
+        assertNotNull( resources );
+        PdfDictionary xobjects = (PdfDictionary) PdfReader.getPdfObject( resources.get( PdfName.XOBJECT ) );
+        if ( xobjects == null )
+        {
+            return 0;
+        }
+        int count = 0;
+        for ( Object key : xobjects.getKeys() )
+        {
+            PdfObject xobject = PdfReader.getPdfObject( xobjects.get( (PdfName) key ) );
+            if ( xobject instanceof PdfDictionary
+                && PdfName.IMAGE.equals( ( (PdfDictionary) xobject ).get( PdfName.SUBTYPE ) ) )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns an ODT whose page layout has a stretched background image and whose text is several pages long.
+     */
+    private static byte[] createDocumentWithBackgroundImage()
+        throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        content.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" );
+        content.append( "<office:document-content" );
+        content.append( " xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\"" );
+        content.append( " xmlns:text=\"urn:oasis:names:tc:opendocument:xmlns:text:1.0\" office:version=\"1.2\">" );
+        content.append( "<office:body><office:text>" );
+        for ( int i = 0; i < PARAGRAPHS; i++ )
+        {
+            content.append( "<text:p>Paragraph " ).append( i ).append( "</text:p>" );
+        }
+        content.append( "</office:text></office:body></office:document-content>" );
+
+        StringBuilder styles = new StringBuilder();
+        styles.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" );
+        styles.append( "<office:document-styles" );
+        styles.append( " xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\"" );
+        styles.append( " xmlns:style=\"urn:oasis:names:tc:opendocument:xmlns:style:1.0\"" );
+        styles.append( " xmlns:fo=\"urn:oasis:names:tc:opendocument:xmlns:xsl-fo-compatible:1.0\"" );
+        styles.append( " xmlns:xlink=\"http://www.w3.org/1999/xlink\" office:version=\"1.2\">" );
+        styles.append( "<office:automatic-styles><style:page-layout style:name=\"pm1\">" );
+        styles.append( "<style:page-layout-properties fo:page-width=\"21cm\" fo:page-height=\"29.7cm\"" );
+        styles.append( " fo:margin-top=\"2cm\" fo:margin-bottom=\"2cm\"" );
+        styles.append( " fo:margin-left=\"2cm\" fo:margin-right=\"2cm\">" );
+        styles.append( "<style:background-image xlink:href=\"Pictures/background.png\" xlink:type=\"simple\"" );
+        styles.append( " xlink:actuate=\"onLoad\" style:repeat=\"stretch\" style:position=\"center\"/>" );
+        styles.append( "</style:page-layout-properties></style:page-layout></office:automatic-styles>" );
+        styles.append( "<office:master-styles>" );
+        styles.append( "<style:master-page style:name=\"Standard\" style:page-layout-name=\"pm1\"/>" );
+        styles.append( "</office:master-styles></office:document-styles>" );
+
+        StringBuilder manifest = new StringBuilder();
+        manifest.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" );
+        manifest.append( "<manifest:manifest" );
+        manifest.append( " xmlns:manifest=\"urn:oasis:names:tc:opendocument:xmlns:manifest:1.0\">" );
+        manifest.append( "<manifest:file-entry manifest:full-path=\"/\"" );
+        manifest.append( " manifest:media-type=\"application/vnd.oasis.opendocument.text\"/>" );
+        manifest.append( "<manifest:file-entry manifest:full-path=\"content.xml\" manifest:media-type=\"text/xml\"/>" );
+        manifest.append( "<manifest:file-entry manifest:full-path=\"styles.xml\" manifest:media-type=\"text/xml\"/>" );
+        manifest.append( "<manifest:file-entry manifest:full-path=\"Pictures/background.png\"" );
+        manifest.append( " manifest:media-type=\"image/png\"/>" );
+        manifest.append( "</manifest:manifest>" );
+
+        BufferedImage image = new BufferedImage( 20, 20, BufferedImage.TYPE_INT_RGB );
+        image.setRGB( 10, 10, 0xff0000 );
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write( image, "png", png );
+
+        ByteArrayOutputStream odt = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream( odt );
+        // the mimetype must be the first entry and must not be compressed
+        byte[] mimetype = "application/vnd.oasis.opendocument.text".getBytes( "UTF-8" );
+        ZipEntry entry = new ZipEntry( "mimetype" );
+        entry.setMethod( ZipEntry.STORED );
+        entry.setSize( mimetype.length );
+        CRC32 crc = new CRC32();
+        crc.update( mimetype );
+        entry.setCrc( crc.getValue() );
+        zip.putNextEntry( entry );
+        zip.write( mimetype );
+        addEntry( zip, "META-INF/manifest.xml", manifest.toString().getBytes( "UTF-8" ) );
+        addEntry( zip, "content.xml", content.toString().getBytes( "UTF-8" ) );
+        addEntry( zip, "styles.xml", styles.toString().getBytes( "UTF-8" ) );
+        addEntry( zip, "Pictures/background.png", png.toByteArray() );
+        zip.close();
+        return odt.toByteArray();
+    }
+
+    private static void addEntry( ZipOutputStream zip, String name, byte[] data )
+        throws IOException
+    {
+        zip.putNextEntry( new ZipEntry( name ) );
+        zip.write( data );
+        zip.closeEntry();
+    }
+}
@@ -87,6 +87,7 @@ import fr.opensagres.xdocreport.itext.extension.ExtendedPdfPCell;
 import fr.opensagres.xdocreport.itext.extension.ExtendedPdfPTable;
 import fr.opensagres.xdocreport.itext.extension.IITextContainer;
 import fr.opensagres.xdocreport.itext.extension.font.FontGroup;
+import fr.opensagres.xdocreport.itext.extension.font.FontGroupRun;
 
 public class FastPdfMapper
     extends OpenXMlFormatsVisitor<IITextContainer, PdfOptions, StylableMasterPage>
@@ -489,34 +490,12 @@ public class FastPdfMapper
                                      BaseColor backgroundColor, boolean pageNumber, Font font, Font fontAsian,
                                      Font fontComplex )
     {
-        StringBuilder sbuf = new StringBuilder();
-        FontGroup currentGroup = FontGroup.WESTERN;
-        for ( int i = 0; i < textContent.length(); i++ )
+        for ( FontGroupRun run : FontGroup.split( textContent, font, fontAsian, fontComplex ) )
         {
-            char ch = textContent.charAt( i );
-            FontGroup group = FontGroup.getUnicodeGroup( ch, font, fontAsian, fontComplex );
-            if ( sbuf.length() == 0 || currentGroup.equals( group ) )
-            {
-                // continue current chunk
-                sbuf.append( ch );
-            }
-            else
-            {
-                // end chunk
-                Font chunkFont = getFont( font, fontAsian, fontComplex, currentGroup );
-                Chunk chunk =
-                    createTextChunk( sbuf.toString(), pageNumber, chunkFont, underlinePatterns, backgroundColor );
-                parent.addElement( chunk );
-                // start new chunk
-                sbuf.setLength( 0 );
-                sbuf.append( ch );
-            }
-            currentGroup = group;
+            Font chunkFont = getFont( font, fontAsian, fontComplex, run.getGroup() );
+            Chunk chunk = createTextChunk( run.getText(), pageNumber, chunkFont, underlinePatterns, backgroundColor );
+            parent.addElement( chunk );
         }
-        // end chunk
-        Font chunkFont = getFont( font, fontAsian, fontComplex, currentGroup );
-        Chunk chunk = createTextChunk( sbuf.toString(), pageNumber, chunkFont, underlinePatterns, backgroundColor );
-        parent.addElement( chunk );
     }
 
     private Font getFont( Font font, Font fontAsian, Font fontComplex, FontGroup group )
@@ -114,6 +114,7 @@ import fr.opensagres.xdocreport.itext.extension.ExtendedPdfPCell;
 import fr.opensagres.xdocreport.itext.extension.ExtendedPdfPTable;
 import fr.opensagres.xdocreport.itext.extension.IITextContainer;
 import fr.opensagres.xdocreport.itext.extension.font.FontGroup;
+import fr.opensagres.xdocreport.itext.extension.font.FontGroupRun;
 
 public class PdfMapper
     extends XWPFDocumentVisitor<IITextContainer, PdfOptions, StylableMasterPage>
@@ -147,16 +148,17 @@ public class PdfMapper
 
     private StylableHeaderFooter pdfFooter;
 
-    private Integer expectedPageCount;
+    private boolean totalPageCountChunkCreated;
 
     private Map<MultiValueTriplet<XWPFPictureData, Long, Long>, Image> imageCache;
 
-    public PdfMapper( XWPFDocument document, OutputStream out, PdfOptions options, Integer expectedPageCount )
+    private final Map<FontKey, Font> fontCache = new HashMap<FontKey, Font>();
+
+    public PdfMapper( XWPFDocument document, OutputStream out, PdfOptions options )
         throws Exception
     {
         super( document, options != null ? options : PdfOptions.getDefault() );
         this.out = out;
-        this.expectedPageCount = expectedPageCount;
     }
 
     // ------------------------- Document
@@ -556,7 +558,7 @@ public class PdfMapper
                                                    listItemFontColor != null ? listItemFontColor
                                          : Converter.toBaseColor( fontColor ) );
             Chunk symbol = createTextChunk( listItemText, false, listItemFont, currentRunUnderlinePatterns,
-                                            currentRunBackgroundColor );
+                                            currentRunBackgroundColor, Element.ALIGN_LEFT );
             pdfParagraph.add( symbol );
             pdfParagraph.setListItemText( null );
         }
@@ -587,7 +589,19 @@ public class PdfMapper
 
     private Font getFont( String fontFamily, Float fontSize, int fontStyle, Color fontColor )
     {
+        // the same fonts are used by the most part of the runs, so they are resolved once per conversion.
+        FontKey key = new FontKey( fontFamily, fontSize, fontStyle, fontColor );
+        Font font = fontCache.get( key );
+        if ( font == null )
+        {
+            font = resolveFont( fontFamily, fontSize, fontStyle, fontColor );
+            fontCache.put( key, font );
+        }
+        return font;
+    }
 
+    private Font resolveFont( String fontFamily, Float fontSize, int fontStyle, Color fontColor )
+    {
         String fontToUse = stylesDocument.getFontNameToUse( fontFamily );
         if ( StringUtils.isNotEmpty( fontToUse ) )
         {
@@ -656,19 +670,21 @@ public class PdfMapper
     }
 
     private Chunk createTextChunk( String text, boolean pageNumber, Font currentRunFont,
-                                   UnderlinePatterns currentRunUnderlinePatterns, Color currentRunBackgroundColor )
+                                   UnderlinePatterns currentRunUnderlinePatterns, Color currentRunBackgroundColor,
+                                   int alignment )
     {
         // Chunk textChunk =
         // pageNumber ? new ExtendedChunk( pdfDocument, true, currentRunFont ) :
         // new Chunk( text, currentRunFont );
 
         Chunk textChunk = null;
-        if ( processingTotalPageCountField && expectedPageCount != null )
+        if ( processingTotalPageCountField )
         {
-            textChunk = new Chunk( String.valueOf( expectedPageCount ), currentRunFont );
+            textChunk = createTotalPageCountChunk( text, currentRunFont, alignment );
         }
         else
         {
+            totalPageCountChunkCreated = false;
             textChunk =
                 pageNumber ? new ExtendedChunk( pdfDocument, true, currentRunFont ) : new Chunk( text, currentRunFont );
         }
@@ -703,39 +719,48 @@ public class PdfMapper
         return textChunk;
     }
 
+    /**
+     * Create the chunk of the NUMPAGES field. The total page count is filled when the PDF document is closed, so the
+     * document is laid out once (the chunk reserves the width of the text of the field, computed by Word, or of the
+     * widest page count expected if it is wider).
+     * 
+     * @param text
+     * @param currentRunFont
+     * @param alignment the alignment of the paragraph, used to align the total page count in the chunk.
+     * @return
+     */
+    private Chunk createTotalPageCountChunk( String text, Font currentRunFont, int alignment )
+    {
+        if ( totalPageCountChunkCreated )
+        {
+            // the text of the field is split in several runs, the total page count is displayed by the first run.
+            return new Chunk( "", currentRunFont );
+        }
+        Chunk textChunk = new Chunk( text, currentRunFont );
+        try
+        {
+            textChunk = pdfDocument.createPageCountChunk( textChunk, alignment );
+            totalPageCountChunkCreated = true;
+        }
+        catch ( DocumentException e )
+        {
+            LOGGER.severe( e.getMessage() );
+        }
+        return textChunk;
+    }
+
     private void createAndAddChunks( IITextContainer parent, String textContent, UnderlinePatterns underlinePatterns,
                                      Color backgroundColor, boolean pageNumber, Font font, Font fontAsian,
                                      Font fontComplex )
     {
-        StringBuilder sbuf = new StringBuilder();
-        FontGroup currentGroup = FontGroup.WESTERN;
-        for ( int i = 0; i < textContent.length(); i++ )
+        int alignment = parent instanceof Paragraph ? ( (Paragraph) parent ).getAlignment() : Element.ALIGN_LEFT;
+        for ( FontGroupRun run : FontGroup.split( textContent, font, fontAsian, fontComplex ) )
         {
-            char ch = textContent.charAt( i );
-            FontGroup group = FontGroup.getUnicodeGroup( ch, font, fontAsian, fontComplex );
-            if ( sbuf.length() == 0 || currentGroup.equals( group ) )
-            {
-                // continue current chunk
-                sbuf.append( ch );
-            }
-            else
-            {
-                // end chunk
-                Font chunkFont = getFont( font, fontAsian, fontComplex, currentGroup );
-                Chunk chunk =
-                    createTextChunk( sbuf.toString(), pageNumber, chunkFont, underlinePatterns, backgroundColor );
-                parent.addElement( chunk );
-                // start new chunk
-                sbuf.setLength( 0 );
-                sbuf.append( ch );
-            }
-            currentGroup = group;
+            Font chunkFont = getFont( font, fontAsian, fontComplex, run.getGroup() );
+            String text = run.getText().length() == 0 ? " " : run.getText();
+            Chunk chunk = createTextChunk( text, pageNumber, chunkFont, underlinePatterns, backgroundColor, alignment );
+            parent.addElement( chunk );
         }
-        // end chunk
-        Font chunkFont = getFont( font, fontAsian, fontComplex, currentGroup );
-        Chunk chunk = createTextChunk( textContent.isEmpty() ? " " : sbuf.toString(), pageNumber, chunkFont,
-                                       underlinePatterns, backgroundColor );
-        parent.addElement( chunk );
     }
 
     private Font getFont( Font font, Font fontAsian, Font fontComplex, FontGroup group )
@@ -1436,21 +1461,49 @@ public class PdfMapper
         }
     }
 
-    public int getPageCount()
+    /**
+     * Key of the fonts cache.
+     */
+    private static class FontKey
     {
-        if ( pdfDocument.isOpen() )
+        private final String fontFamily;
+
+        private final Float fontSize;
+
+        private final int fontStyle;
+
+        private final Integer fontColor;
+
+        public FontKey( String fontFamily, Float fontSize, int fontStyle, Color fontColor )
         {
-            return pdfDocument.getPageNumber();
+            this.fontFamily = fontFamily;
+            this.fontSize = fontSize;
+            this.fontStyle = fontStyle;
+            this.fontColor = fontColor != null ? fontColor.getRGB() : null;
         }
-        else
+
+        @Override
+        public boolean equals( Object object )
         {
-            return pdfDocument.getPageNumber() - 1;
+            if ( !( object instanceof FontKey ) )
+            {
+                return false;
+            }
+            FontKey key = (FontKey) object;
+            return fontStyle == key.fontStyle
+                && ( fontFamily == null ? key.fontFamily == null : fontFamily.equals( key.fontFamily ) )
+                && ( fontSize == null ? key.fontSize == null : fontSize.equals( key.fontSize ) )
+                && ( fontColor == null ? key.fontColor == null : fontColor.equals( key.fontColor ) );
         }
-    }
 
-    public boolean useTotalPageField()
-    {
-        return totalPageFieldUsed;
+        @Override
+        public int hashCode()
+        {
+            int hashCode = fontStyle;
+            hashCode = 31 * hashCode + ( fontFamily == null ? 0 : fontFamily.hashCode() );
+            hashCode = 31 * hashCode + ( fontSize == null ? 0 : fontSize.hashCode() );
+            hashCode = 31 * hashCode + ( fontColor == null ? 0 : fontColor.hashCode() );
+            return hashCode;
+        }
     }
-
 }
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.apache.poi.xwpf.converter.pdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.poi.xwpf.usermodel.BreakType;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.junit.Test;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STFldCharType;
+
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.CMapAwareDocumentFont;
+import com.lowagie.text.pdf.PRIndirectReference;
+import com.lowagie.text.pdf.PRStream;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+
+import fr.opensagres.poi.xwpf.converter.pdf.PdfConverter;
+import fr.opensagres.poi.xwpf.converter.pdf.PdfOptions;
+import fr.opensagres.xdocreport.itext.extension.ExtendedDocument;
+
+/**
+ * Test case for the NUMPAGES field: the total page count is filled when the PDF document is closed, the width of the
+ * field must be reserved when the document is laid out even if the total page count has more digits than the text
+ * of the field computed by Word.
+ */
+public class PdfConverterPageCountTestCase
+{
+
+    private static final Pattern FONT_AND_SIZE = Pattern.compile( "/(\\S+) ([0-9.]+) Tf" );
+
+    @Test
+    public void totalPageCountWiderThanFieldText()
+        throws Exception
+    {
+        // the cached text of the field is "1" but the document has 12 pages
+        XWPFDocument document = createDocument( "1", 12 );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfConverter.getInstance().convert( document, out, PdfOptions.create() );
+
+        PdfReader reader = new PdfReader( out.toByteArray() );
+        assertEquals( 12, reader.getNumberOfPages() );
+
+        PRStream pageCount = findPageCountTemplate( reader, "(12)" );
+        assertNotNull( "The template which displays the total page count is not found", pageCount );
+        String content = new String( PdfReader.getStreamBytes( pageCount ), "ISO-8859-1" );
+        Matcher matcher = FONT_AND_SIZE.matcher( content );
+        assertTrue( matcher.find() );
+        PdfDictionary fonts = pageCount.getAsDict( PdfName.RESOURCES ).getAsDict( PdfName.FONT );
+        CMapAwareDocumentFont font =
+            new CMapAwareDocumentFont( (PRIndirectReference) fonts.get( new PdfName( matcher.group( 1 ) ) ) );
+        float size = Float.parseFloat( matcher.group( 2 ) );
+
+        // the width of the template is the width reserved when the document was laid out: it must not have been
+        // enlarged to display the total page count, otherwise the total page count overlaps the following text.
+        Rectangle box = PdfReader.getNormalizedRectangle( pageCount.getAsArray( PdfName.BBOX ) );
+        float reservedWidth = font.getWidthPoint( ExtendedDocument.PAGE_COUNT_RESERVED_TEXT, size );
+        assertTrue( font.getWidthPoint( "12", size ) < reservedWidth );
+        assertEquals( reservedWidth, box.getWidth(), 0.01f );
+    }
+
+    private static XWPFDocument createDocument( String pageCountText, int pageCount )
+    {
+        XWPFDocument document = new XWPFDocument();
+        XWPFParagraph paragraph = document.createParagraph();
+        paragraph.createRun().setText( "Page count: " );
+        // <w:fldChar w:fldCharType="begin"/> <w:instrText>NUMPAGES</w:instrText> <w:fldChar w:fldCharType="separate"/>
+        // <w:t>1</w:t> <w:fldChar w:fldCharType="end"/>
+        paragraph.createRun().getCTR().addNewFldChar().setFldCharType( STFldCharType.BEGIN );
+        paragraph.createRun().getCTR().addNewInstrText().setStringValue( " NUMPAGES " );
+        paragraph.createRun().getCTR().addNewFldChar().setFldCharType( STFldCharType.SEPARATE );
+        paragraph.createRun().setText( pageCountText );
+        paragraph.createRun().getCTR().addNewFldChar().setFldCharType( STFldCharType.END );
+        paragraph.createRun().setText( " pages." );
+        for ( int i = 1; i < pageCount; i++ )
+        {
+            XWPFRun run = document.createParagraph().createRun();
+            run.addBreak( BreakType.PAGE );
+            run.setText( "Page " + ( i + 1 ) );
+        }
+        return document;
+    }
+
+    private static PRStream findPageCountTemplate( PdfReader reader, String text )
+        throws IOException
+    {
+        PdfDictionary xObjects = reader.getPageN( 1 ).getAsDict( PdfName.RESOURCES ).getAsDict( PdfName.XOBJECT );
+        if ( xObjects == null )
+        {
+            return null;
+        }
+        for ( Object key : xObjects.getKeys() )
+        {
+            PdfObject xObject = PdfReader.getPdfObject( xObjects.get( (PdfName) key ) );
+            if ( xObject instanceof PRStream && PdfName.FORM.equals( ( (PRStream) xObject ).get( PdfName.SUBTYPE ) ) )
+            {
+                PRStream stream = (PRStream) xObject;
+                if ( new String( PdfReader.getStreamBytes( stream ), "ISO-8859-1" ).contains( text ) )
+                {
+                    return stream;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -25,10 +25,17 @@
 package fr.opensagres.xdocreport.itext.extension.font;
 
 import java.awt.Color;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.lowagie.text.ExceptionConverter;
 import com.lowagie.text.Font;
 import com.lowagie.text.FontFactory;
+import com.lowagie.text.pdf.BaseFont;
 import com.lowagie.text.pdf.PdfName;
 import com.lowagie.text.pdf.Type3Font;
 
@@ -39,35 +46,167 @@ public abstract class AbstractFontRegistry
 
     private String systemEncoding;
 
-    private static boolean fontRegistryInitialized = false;
+    /**
+     * System property which defines the list of font directories (separated with the path separator) used instead of
+     * the system font directories scanned by {@link FontFactory#registerDirectories()}. When this property is
+     * defined, the fonts of the directories are indexed with {@link FontDirectoryIndex} and the font files are opened
+     * only when the fonts are used.
+     */
+    public static final String FONT_DIRECTORIES_PROPERTY = "xdocreport.font.directories";
+
+    /**
+     * System property which defines the file where the {@link FontDirectoryIndex} is stored, to avoid scanning the font
+     * directories at each start. When this property is defined without {@link #FONT_DIRECTORIES_PROPERTY}, the system
+     * font directories are indexed.
+     */
+    public static final String FONT_INDEX_PROPERTY = "xdocreport.font.index";
+
+    private static volatile boolean fontRegistryInitialized = false;
+
+    private static FontDirectoryIndex fontDirectoryIndex;
+
+    /**
+     * Max number of resolved fonts kept in the cache of a font registry.
+     */
+    private static final int MAX_RESOLVED_FONTS = 256;
+
+    private final Map<FontKey, Font> resolvedFonts =
+        Collections.synchronizedMap( new ResolvedFontCache( MAX_RESOLVED_FONTS ) );
 
     public Font getFont( String familyName, String encoding, float size, int style, Color color )
     {
         initFontRegistryIfNeeded();
+        // resolving a font with the FontFactory is costly, so the resolved fonts (base font and style) are cached by
+        // family name, encoding and style. A font which is not found (without base font) is not cached, to use it
+        // when it is registered later.
+        FontKey key = new FontKey( familyName, encoding, style );
+        Font resolvedFont = resolvedFonts.get( key );
+        if ( resolvedFont == null )
+        {
+            resolvedFont = resolveFont( familyName, encoding, style );
+            if ( resolvedFont.getBaseFont() != null )
+            {
+                resolvedFonts.put( key, resolvedFont );
+            }
+        }
+        // a new font is returned because an iText font is mutable
+        BaseFont baseFont = resolvedFont.getBaseFont();
+        if ( baseFont != null )
+        {
+            return new Font( baseFont, size, resolvedFont.getStyle(), color );
+        }
+        return new Font( resolvedFont.getFamily(), size, resolvedFont.getStyle(), color );
+    }
+
+    private Font resolveFont( String familyName, String encoding, int style )
+    {
         if ( familyName != null )
         {
             familyName = resolveFamilyName( familyName, style );
+            if ( fontDirectoryIndex != null )
+            {
+                Font font = fontDirectoryIndex.getFont( familyName, encoding, style );
+                if ( font != null )
+                {
+                    return font;
+                }
+            }
         }
         try
         {
-            return FontFactory.getFont( familyName, encoding, size, style, color );
+            return FontFactory.getFont( familyName, encoding, Font.UNDEFINED, style, null );
         }
         catch ( ExceptionConverter e )
         {
             // TODO manage options of font not found + add some logs
-            return new Font( Font.UNDEFINED, size, style, color );
+            return new Font( Font.UNDEFINED, Font.UNDEFINED, style, null );
         }
     }
 
+    /**
+     * Clear the cache of the resolved fonts. The fonts which are not found are not cached, so this method must be
+     * called only when a font registered in the iText FontFactory replaces a font already resolved by this font
+     * registry.
+     */
+    public void clearFontCache()
+    {
+        resolvedFonts.clear();
+    }
+
     private void initFontRegistryIfNeeded()
     {
         if ( !fontRegistryInitialized )
         {
-            // clear built-in fonts which may clash with document fonts
-            ExtendedBaseFont.clearBuiltinFonts();
-            // register fonts from files (ex : for windows, load files from C:\WINDOWS\Fonts)
-            FontFactory.registerDirectories();
-            fontRegistryInitialized = true;
+            synchronized ( AbstractFontRegistry.class )
+            {
+                if ( !fontRegistryInitialized )
+                {
+                    // clear built-in fonts which may clash with document fonts
+                    ExtendedBaseFont.clearBuiltinFonts();
+                    String directories = System.getProperty( FONT_DIRECTORIES_PROPERTY );
+                    String indexFile = System.getProperty( FONT_INDEX_PROPERTY );
+                    if ( directories == null && indexFile == null )
+                    {
+                        // register fonts from files (ex : for windows, load files from C:\WINDOWS\Fonts)
+                        FontFactory.registerDirectories();
+                    }
+                    else
+                    {
+                        // index the fonts of the configured directories, font files are opened on first use
+                        fontDirectoryIndex =
+                            FontDirectoryIndex.getIndex( getFontDirectories( directories ),
+                                                         indexFile != null ? new File( indexFile ) : null );
+                    }
+                    fontRegistryInitialized = true;
+                }
+            }
+        }
+    }
+
+    private static List<File> getFontDirectories( String directories )
+    {
+        List<File> files = new ArrayList<File>();
+        if ( directories == null )
+        {
+            for ( String directory : FontDirectoryIndex.SYSTEM_FONT_DIRECTORIES )
+            {
+                files.add( new File( directory ) );
+            }
+        }
+        else
+        {
+            for ( String directory : directories.split( File.pathSeparator ) )
+            {
+                if ( directory.trim().length() > 0 )
+                {
+                    files.add( new File( directory.trim() ) );
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Cache of the resolved fonts which removes the least recently used font when it contains more than the max number
+     * of fonts.
+     */
+    private static class ResolvedFontCache
+        extends LinkedHashMap<FontKey, Font>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxFonts;
+
+        public ResolvedFontCache( int maxFonts )
+        {
+            super( 16, 0.75f, true );
+            this.maxFonts = maxFonts;
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<FontKey, Font> eldest )
+        {
+            return size() > maxFonts;
         }
     }
 
@@ -173,4 +312,45 @@ public abstract class AbstractFontRegistry
     }
 
     protected abstract String resolveFamilyName( String familyName, int style );
+
+    /**
+     * Key of the resolved fonts cache.
+     */
+    private static class FontKey
+    {
+        private final String familyName;
+
+        private final String encoding;
+
+        private final int style;
+
+        public FontKey( String familyName, String encoding, int style )
+        {
+            this.familyName = familyName;
+            this.encoding = encoding;
+            this.style = style;
+        }
+
+        @Override
+        public boolean equals( Object object )
+        {
+            if ( !( object instanceof FontKey ) )
+            {
+                return false;
+            }
+            FontKey key = (FontKey) object;
+            return style == key.style
+                && ( familyName == null ? key.familyName == null : familyName.equals( key.familyName ) )
+                && ( encoding == null ? key.encoding == null : encoding.equals( key.encoding ) );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hashCode = style;
+            hashCode = 31 * hashCode + ( familyName == null ? 0 : familyName.hashCode() );
+            hashCode = 31 * hashCode + ( encoding == null ? 0 : encoding.hashCode() );
+            return hashCode;
+        }
+    }
 }
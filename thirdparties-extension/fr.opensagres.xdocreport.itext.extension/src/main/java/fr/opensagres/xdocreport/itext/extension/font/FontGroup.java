@@ -24,6 +24,9 @@
  */
 package fr.opensagres.xdocreport.itext.extension.font;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.lowagie.text.Font;
 
 public enum FontGroup
@@ -32,26 +35,66 @@ public enum FontGroup
 
     public static FontGroup getUnicodeGroup( char ch, Font font, Font fontAsian, Font fontComplex )
     {
-        if ( font != null && font.getBaseFont() != null )
+        return getUnicodeGroup( ch, GlyphCoverage.getCoverage( font ), GlyphCoverage.getCoverage( fontAsian ),
+                                GlyphCoverage.getCoverage( fontComplex ) );
+    }
+
+    /**
+     * Split the given text in runs of characters which belong to the same font group. The glyph coverages of the fonts
+     * are retrieved once for the whole text and a text which belongs to one font group is not copied.
+     * 
+     * @param text
+     * @param font
+     * @param fontAsian
+     * @param fontComplex
+     * @return
+     */
+    public static List<FontGroupRun> split( String text, Font font, Font fontAsian, Font fontComplex )
+    {
+        return split( text, GlyphCoverage.getCoverage( font ), GlyphCoverage.getCoverage( fontAsian ),
+                      GlyphCoverage.getCoverage( fontComplex ) );
+    }
+
+    static List<FontGroupRun> split( String text, GlyphCoverage coverage, GlyphCoverage coverageAsian,
+                                     GlyphCoverage coverageComplex )
+    {
+        List<FontGroupRun> runs = new ArrayList<FontGroupRun>( 1 );
+        int length = text.length();
+        if ( length == 0 )
         {
-            if ( font.getBaseFont().charExists( ch ) )
-            {
-                return WESTERN;
-            }
+            runs.add( new FontGroupRun( text, WESTERN ) );
+            return runs;
         }
-        if ( fontAsian != null && fontAsian.getBaseFont() != null )
+        int start = 0;
+        FontGroup currentGroup = getUnicodeGroup( text.charAt( 0 ), coverage, coverageAsian, coverageComplex );
+        for ( int i = 1; i < length; i++ )
         {
-            if ( fontAsian.getBaseFont().charExists( ch ) )
+            FontGroup group = getUnicodeGroup( text.charAt( i ), coverage, coverageAsian, coverageComplex );
+            if ( group != currentGroup )
             {
-                return ASIAN;
+                runs.add( new FontGroupRun( text.substring( start, i ), currentGroup ) );
+                start = i;
+                currentGroup = group;
             }
         }
-        if ( fontComplex != null && fontComplex.getBaseFont() != null )
+        runs.add( new FontGroupRun( start == 0 ? text : text.substring( start ), currentGroup ) );
+        return runs;
+    }
+
+    private static FontGroup getUnicodeGroup( char ch, GlyphCoverage coverage, GlyphCoverage coverageAsian,
+                                              GlyphCoverage coverageComplex )
+    {
+        if ( coverage != null && coverage.charExists( ch ) )
         {
-            if ( fontComplex.getBaseFont().charExists( ch ) )
-            {
-                return COMPLEX;
-            }
+            return WESTERN;
+        }
+        if ( coverageAsian != null && coverageAsian.charExists( ch ) )
+        {
+            return ASIAN;
+        }
+        if ( coverageComplex != null && coverageComplex.charExists( ch ) )
+        {
+            return COMPLEX;
         }
         return WESTERN;
     }
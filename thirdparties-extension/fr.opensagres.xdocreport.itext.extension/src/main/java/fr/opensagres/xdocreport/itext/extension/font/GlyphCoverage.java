@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.itext.extension.font;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.BaseFont;
+
+/**
+ * Glyph coverage of a {@link BaseFont} for the characters of the Basic Multilingual Plane. The coverage is stored in a
+ * bitset computed by blocks of 256 characters the first time a character of the block is tested, so
+ * {@link BaseFont#charExists(int)} is called once per character and font.
+ */
+public class GlyphCoverage
+{
+    private static final Map<BaseFont, GlyphCoverage> COVERAGES =
+        Collections.synchronizedMap( new WeakHashMap<BaseFont, GlyphCoverage>() );
+
+    private static final int BLOCK_SIZE = 256;
+
+    private static final int BLOCK_COUNT = ( Character.MAX_VALUE + 1 ) / BLOCK_SIZE;
+
+    private final WeakReference<BaseFont> baseFont;
+
+    private final AtomicReferenceArray<long[]> blocks = new AtomicReferenceArray<long[]>( BLOCK_COUNT );
+
+    GlyphCoverage( BaseFont baseFont )
+    {
+        // the base font is the key of the coverages map, so it must be weakly referenced.
+        this.baseFont = new WeakReference<BaseFont>( baseFont );
+    }
+
+    /**
+     * Returns the glyph coverage of the base font of the given font and null if the font has no base font.
+     * 
+     * @param font
+     * @return
+     */
+    public static GlyphCoverage getCoverage( Font font )
+    {
+        if ( font == null )
+        {
+            return null;
+        }
+        BaseFont baseFont = font.getBaseFont();
+        if ( baseFont == null )
+        {
+            return null;
+        }
+        GlyphCoverage coverage = COVERAGES.get( baseFont );
+        if ( coverage == null )
+        {
+            coverage = new GlyphCoverage( baseFont );
+            COVERAGES.put( baseFont, coverage );
+        }
+        return coverage;
+    }
+
+    /**
+     * Returns true if the base font has a glyph for the given character and false otherwise.
+     * 
+     * @param ch
+     * @return
+     */
+    public boolean charExists( char ch )
+    {
+        int blockIndex = ch / BLOCK_SIZE;
+        long[] block = blocks.get( blockIndex );
+        if ( block == null )
+        {
+            block = computeBlock( blockIndex );
+            blocks.set( blockIndex, block );
+        }
+        int index = ch % BLOCK_SIZE;
+        return ( block[index >> 6] & ( 1L << index ) ) != 0;
+    }
+
+    private long[] computeBlock( int blockIndex )
+    {
+        long[] block = new long[BLOCK_SIZE / 64];
+        int start = blockIndex * BLOCK_SIZE;
+        for ( int index = 0; index < BLOCK_SIZE; index++ )
+        {
+            if ( baseFontCharExists( start + index ) )
+            {
+                block[index >> 6] |= 1L << index;
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Returns true if the base font has a glyph for the given character. This method is called once per character
+     * when the block of the character is computed.
+     * 
+     * @param ch
+     * @return
+     */
+    boolean baseFontCharExists( int ch )
+    {
+        BaseFont baseFont = this.baseFont.get();
+        return baseFont != null && baseFont.charExists( ch );
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.itext.extension.font;
+
+import java.awt.Color;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.BaseFont;
+
+/**
+ * Test case for the cache of the resolved fonts of {@link AbstractFontRegistry}.
+ */
+public class AbstractFontRegistryTestCase
+    extends TestCase
+{
+
+    public void testCachedFontHasRequestedSizeAndColor()
+    {
+        CountingFontRegistry registry = new CountingFontRegistry();
+
+        Font font1 = registry.getFont( BaseFont.HELVETICA, BaseFont.WINANSI, 10, Font.NORMAL, Color.RED );
+        assertNotNull( font1.getBaseFont() );
+        assertEquals( 10f, font1.getSize() );
+        assertEquals( Color.RED, font1.getColor() );
+        assertEquals( 1, registry.resolutions );
+
+        // the second font is resolved from the cache but has its own size and color
+        Font font2 = registry.getFont( BaseFont.HELVETICA, BaseFont.WINANSI, 14, Font.NORMAL, Color.BLUE );
+        assertEquals( 1, registry.resolutions );
+        assertNotSame( font1, font2 );
+        assertSame( font1.getBaseFont(), font2.getBaseFont() );
+        assertEquals( font1.getStyle(), font2.getStyle() );
+        assertEquals( 14f, font2.getSize() );
+        assertEquals( Color.BLUE, font2.getColor() );
+        assertEquals( 10f, font1.getSize() );
+        assertEquals( Color.RED, font1.getColor() );
+
+        // a font returned by the registry can be modified without changing the next fonts
+        font2.setSize( 20 );
+        font2.setColor( Color.GREEN );
+        font2.setStyle( Font.UNDERLINE );
+        Font font3 = registry.getFont( BaseFont.HELVETICA, BaseFont.WINANSI, 8, Font.NORMAL, null );
+        assertEquals( 1, registry.resolutions );
+        assertEquals( 8f, font3.getSize() );
+        assertNull( font3.getColor() );
+        assertEquals( font1.getStyle(), font3.getStyle() );
+    }
+
+    public void testCacheKey()
+    {
+        CountingFontRegistry registry = new CountingFontRegistry();
+
+        registry.getFont( BaseFont.HELVETICA, BaseFont.WINANSI, 10, Font.NORMAL, null );
+        registry.getFont( BaseFont.HELVETICA, BaseFont.WINANSI, 10, Font.BOLD, null );
+        registry.getFont( BaseFont.HELVETICA, BaseFont.CP1250, 10, Font.NORMAL, null );
+        assertEquals( 3, registry.resolutions );
+
+        registry.clearFontCache();
+        registry.getFont( BaseFont.HELVETICA, BaseFont.WINANSI, 10, Font.NORMAL, null );
+        assertEquals( 4, registry.resolutions );
+    }
+
+    public void testFontNotFoundIsNotCached()
+    {
+        CountingFontRegistry registry = new CountingFontRegistry();
+
+        Font font = registry.getFont( "Unknown font", BaseFont.WINANSI, 10, Font.NORMAL, Color.RED );
+        assertNull( font.getBaseFont() );
+        assertEquals( 10f, font.getSize() );
+        assertEquals( Color.RED, font.getColor() );
+
+        registry.getFont( "Unknown font", BaseFont.WINANSI, 10, Font.NORMAL, Color.RED );
+        assertEquals( 2, registry.resolutions );
+    }
+
+    /**
+     * Font registry which counts the fonts which are resolved.
+     */
+    private static class CountingFontRegistry
+        extends AbstractFontRegistry
+    {
+        private int resolutions;
+
+        @Override
+        protected String resolveFamilyName( String familyName, int style )
+        {
+            resolutions++;
+            return familyName;
+        }
+    }
+}
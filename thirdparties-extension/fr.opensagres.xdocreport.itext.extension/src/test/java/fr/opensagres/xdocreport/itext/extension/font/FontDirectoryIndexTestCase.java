@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.itext.extension.font;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Font;
+
+/**
+ * Test case for {@link FontDirectoryIndex}. The fonts of the tests are TrueType fonts which contain only a "name"
+ * table, which is enough to be indexed (the font files are opened by iText only when a font is used).
+ */
+public class FontDirectoryIndexTestCase
+    extends TestCase
+{
+
+    private File directory;
+
+    private File fontsDirectory;
+
+    private List<File> directories;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        directory = File.createTempFile( "xdocreport", "fonts" );
+        directory.delete();
+        fontsDirectory = new File( directory, "fonts" );
+        fontsDirectory.mkdirs();
+        directories = Arrays.asList( fontsDirectory );
+
+        writeFile( new File( fontsDirectory, "TestSans.ttf" ), createFont( 0, "Test Sans", "Test Sans", "TestSans" ) );
+        writeFile( new File( fontsDirectory, "TestSans-Bold.ttf" ),
+                   createFont( 0, "Test Sans", "Test Sans Bold", "TestSans-Bold" ) );
+        writeFile( new File( fontsDirectory, "TestSans-BoldItalic.ttf" ),
+                   createFont( 0, "Test Sans", "Test Sans Bold Italic", "TestSans-BoldItalic" ) );
+        File subDirectory = new File( fontsDirectory, "sub" );
+        subDirectory.mkdirs();
+        writeFile( new File( subDirectory, "TestSerif.ttc" ),
+                   createCollection( new String[] { "Test Serif", "Test Serif", "TestSerif" }, new String[] {
+                       "Test Serif Condensed", "Test Serif Condensed", "TestSerif-Condensed" } ) );
+        writeFile( new File( subDirectory, "readme.txt" ), new byte[] { 'a' } );
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        delete( directory );
+    }
+
+    public void testBuild()
+        throws Exception
+    {
+        FontDirectoryIndex index = FontDirectoryIndex.build( directories );
+
+        // font names (full name and postscript name) are indexed case insensitive
+        String path = new File( fontsDirectory, "TestSans-Bold.ttf" ).getPath();
+        assertEquals( path, index.getPath( "Test Sans Bold" ) );
+        assertEquals( path, index.getPath( "testsans-bold" ) );
+        assertNull( index.getPath( "Unknown" ) );
+        assertNull( index.getPath( "readme.txt" ) );
+        assertTrue( index.isUpToDate( directories ) );
+    }
+
+    public void testStyle()
+        throws Exception
+    {
+        FontDirectoryIndex index = FontDirectoryIndex.build( directories );
+
+        assertEquals( "Test Sans", index.getFullName( "Test Sans", Font.NORMAL ) );
+        assertEquals( "Test Sans", index.getFullName( "test sans", Font.UNDEFINED ) );
+        assertEquals( "Test Sans Bold", index.getFullName( "Test Sans", Font.BOLD ) );
+        assertEquals( "Test Sans Bold", index.getFullName( "Test Sans", Font.BOLD | Font.UNDERLINE ) );
+        assertEquals( "Test Sans Bold Italic", index.getFullName( "Test Sans", Font.BOLDITALIC ) );
+        // no italic font in the family
+        assertNull( index.getFullName( "Test Sans", Font.ITALIC ) );
+        assertNull( index.getFullName( "Unknown", Font.NORMAL ) );
+    }
+
+    public void testTrueTypeCollection()
+        throws Exception
+    {
+        FontDirectoryIndex index = FontDirectoryIndex.build( directories );
+
+        String path = new File( new File( fontsDirectory, "sub" ), "TestSerif.ttc" ).getPath();
+        assertEquals( path + ",0", index.getPath( "Test Serif" ) );
+        assertEquals( path + ",1", index.getPath( "Test Serif Condensed" ) );
+        assertEquals( path + ",1", index.getPath( "TestSerif-Condensed" ) );
+    }
+
+    public void testSaveAndLoad()
+        throws Exception
+    {
+        FontDirectoryIndex index = FontDirectoryIndex.build( directories );
+        File indexFile = new File( new File( directory, "index" ), "fonts.idx" );
+        index.save( indexFile );
+        // the index file replaces the temporary file
+        assertEquals( Arrays.asList( "fonts.idx" ), Arrays.asList( indexFile.getParentFile().list() ) );
+
+        FontDirectoryIndex loaded = FontDirectoryIndex.load( indexFile );
+        assertTrue( loaded.isUpToDate( directories ) );
+        assertEquals( index.getPath( "Test Sans Bold" ), loaded.getPath( "Test Sans Bold" ) );
+        assertEquals( index.getPath( "Test Serif Condensed" ), loaded.getPath( "Test Serif Condensed" ) );
+        assertEquals( "Test Sans Bold Italic", loaded.getFullName( "Test Sans", Font.BOLDITALIC ) );
+
+        // save again over the existing index
+        loaded.save( indexFile );
+        assertEquals( Arrays.asList( "fonts.idx" ), Arrays.asList( indexFile.getParentFile().list() ) );
+        assertTrue( FontDirectoryIndex.load( indexFile ).isUpToDate( directories ) );
+    }
+
+    public void testGetIndex()
+        throws Exception
+    {
+        File indexFile = new File( directory, "fonts.idx" );
+        FontDirectoryIndex index = FontDirectoryIndex.getIndex( directories, indexFile );
+        assertTrue( indexFile.exists() );
+        assertEquals( new File( fontsDirectory, "TestSans.ttf" ).getPath(), index.getPath( "Test Sans" ) );
+
+        // a font added in the directory is indexed
+        writeFile( new File( fontsDirectory, "TestMono.ttf" ), createFont( 0, "Test Mono", "Test Mono", "TestMono" ) );
+        fontsDirectory.setLastModified( fontsDirectory.lastModified() + 2000 );
+        index = FontDirectoryIndex.getIndex( directories, indexFile );
+        assertEquals( new File( fontsDirectory, "TestMono.ttf" ).getPath(), index.getPath( "Test Mono" ) );
+        assertTrue( FontDirectoryIndex.load( indexFile ).isUpToDate( directories ) );
+    }
+
+    public void testModifiedDirectory()
+        throws Exception
+    {
+        FontDirectoryIndex index = FontDirectoryIndex.build( directories );
+
+        File subDirectory = new File( fontsDirectory, "sub" );
+        subDirectory.setLastModified( subDirectory.lastModified() + 2000 );
+        assertFalse( index.isUpToDate( directories ) );
+    }
+
+    public void testNotIndexedDirectory()
+        throws Exception
+    {
+        FontDirectoryIndex index = FontDirectoryIndex.build( directories );
+
+        File otherDirectory = new File( directory, "other" );
+        otherDirectory.mkdirs();
+        assertFalse( index.isUpToDate( Arrays.asList( fontsDirectory, otherDirectory ) ) );
+        // a directory which doesn't exist is ignored
+        assertTrue( index.isUpToDate( Arrays.asList( fontsDirectory, new File( directory, "unknown" ) ) ) );
+    }
+
+    public void testReplacedFontFile()
+        throws Exception
+    {
+        FontDirectoryIndex index = FontDirectoryIndex.build( directories );
+
+        // the font file is replaced without modifying its directory
+        File file = new File( fontsDirectory, "TestSans-Bold.ttf" );
+        long directoryModified = fontsDirectory.lastModified();
+        writeFile( file, createFont( 0, "Test Sans", "Test Sans Semibold", "TestSans-Semibold" ) );
+        fontsDirectory.setLastModified( directoryModified );
+        assertFalse( index.isUpToDate( directories ) );
+
+        // a font file with the same length but another last modified date
+        index = FontDirectoryIndex.build( directories );
+        file.setLastModified( file.lastModified() + 2000 );
+        assertFalse( index.isUpToDate( directories ) );
+
+        // a font file which has been deleted
+        index = FontDirectoryIndex.build( directories );
+        file.delete();
+        fontsDirectory.setLastModified( directoryModified );
+        assertFalse( index.isUpToDate( directories ) );
+    }
+
+    /**
+     * Returns a TrueType font which contains only a "name" table with the family name, the full name and the
+     * postscript name of the font (Windows platform, Unicode BMP encoding, US English).
+     * 
+     * @param offset the offset of the font in the font file (the table offsets are relative to the file).
+     */
+    private static byte[] createFont( int offset, String familyName, String fullName, String postscriptName )
+        throws IOException
+    {
+        String[] names = { familyName, fullName, postscriptName };
+        int[] nameIds = { 1, 4, 6 };
+
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        ByteArrayOutputStream nameTable = new ByteArrayOutputStream();
+        DataOutputStream table = new DataOutputStream( nameTable );
+        table.writeShort( 0 ); // format
+        table.writeShort( names.length );
+        table.writeShort( 6 + 12 * names.length ); // offset of the strings
+        for ( int i = 0; i < names.length; i++ )
+        {
+            byte[] name = names[i].getBytes( "UTF-16BE" );
+            table.writeShort( 3 ); // platform
+            table.writeShort( 1 ); // encoding
+            table.writeShort( 1033 ); // language
+            table.writeShort( nameIds[i] );
+            table.writeShort( name.length );
+            table.writeShort( strings.size() );
+            strings.write( name );
+        }
+        table.write( strings.toByteArray() );
+
+        ByteArrayOutputStream font = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( font );
+        out.writeInt( 0x00010000 ); // version
+        out.writeShort( 1 ); // number of tables
+        out.writeShort( 16 ); // search range
+        out.writeShort( 0 ); // entry selector
+        out.writeShort( 0 ); // range shift
+        out.writeBytes( "name" );
+        out.writeInt( 0 ); // checksum
+        out.writeInt( offset + 28 );
+        out.writeInt( nameTable.size() );
+        out.write( nameTable.toByteArray() );
+        return font.toByteArray();
+    }
+
+    /**
+     * Returns a TrueType collection of the given fonts (family name, full name, postscript name).
+     */
+    private static byte[] createCollection( String[]... fonts )
+        throws IOException
+    {
+        ByteArrayOutputStream collection = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( collection );
+        out.writeBytes( "ttcf" );
+        out.writeInt( 0x00010000 ); // version
+        out.writeInt( fonts.length );
+        int offset = 12 + 4 * fonts.length;
+        byte[][] data = new byte[fonts.length][];
+        for ( int i = 0; i < fonts.length; i++ )
+        {
+            data[i] = createFont( offset, fonts[i][0], fonts[i][1], fonts[i][2] );
+            out.writeInt( offset );
+            offset += data[i].length;
+        }
+        for ( byte[] font : data )
+        {
+            out.write( font );
+        }
+        return collection.toByteArray();
+    }
+
+    private static void writeFile( File file, byte[] content )
+        throws IOException
+    {
+        FileOutputStream out = new FileOutputStream( file );
+        try
+        {
+            out.write( content );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static void delete( File file )
+    {
+        File[] files = file.listFiles();
+        if ( files != null )
+        {
+            for ( File child : files )
+            {
+                delete( child );
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.itext.extension.font;
+
+import java.util.BitSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Font;
+
+import fr.opensagres.xdocreport.itext.extension.font.GlyphCoverageTestCase.TestGlyphCoverage;
+
+/**
+ * Test case for {@link FontGroup#split(String, Font, Font, Font)}.
+ */
+public class FontGroupTestCase
+    extends TestCase
+{
+
+    private static final String CHINESE = "\u4e2d\u6587";
+
+    private static final String HEBREW = "\u05e9\u05dc\u05d5\u05dd";
+
+    private GlyphCoverage coverage;
+
+    private GlyphCoverage coverageAsian;
+
+    private GlyphCoverage coverageComplex;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        BitSet chars = new BitSet();
+        chars.set( 0x20, 0x7f );
+        coverage = new TestGlyphCoverage( chars );
+        BitSet charsAsian = new BitSet();
+        charsAsian.set( 0x20, 0x7f );
+        charsAsian.set( 0x4e00, 0xa000 );
+        coverageAsian = new TestGlyphCoverage( charsAsian );
+        BitSet charsComplex = new BitSet();
+        charsComplex.set( 0x0590, 0x0600 );
+        coverageComplex = new TestGlyphCoverage( charsComplex );
+    }
+
+    public void testEmptyText()
+    {
+        List<FontGroupRun> runs = FontGroup.split( "", coverage, coverageAsian, coverageComplex );
+        assertEquals( 1, runs.size() );
+        assertRun( "", FontGroup.WESTERN, runs.get( 0 ) );
+    }
+
+    public void testOneGroup()
+    {
+        String text = "Hello world";
+        List<FontGroupRun> runs = FontGroup.split( text, coverage, coverageAsian, coverageComplex );
+        assertEquals( 1, runs.size() );
+        assertRun( text, FontGroup.WESTERN, runs.get( 0 ) );
+        // the text is not copied
+        assertSame( text, runs.get( 0 ).getText() );
+
+        runs = FontGroup.split( CHINESE, coverage, coverageAsian, coverageComplex );
+        assertEquals( 1, runs.size() );
+        assertRun( CHINESE, FontGroup.ASIAN, runs.get( 0 ) );
+    }
+
+    public void testGroupSwitches()
+    {
+        List<FontGroupRun> runs =
+            FontGroup.split( "a " + CHINESE + " b" + HEBREW + CHINESE, coverage, coverageAsian, coverageComplex );
+        assertEquals( 5, runs.size() );
+        // the western font is preferred when it has the glyph (the spaces)
+        assertRun( "a ", FontGroup.WESTERN, runs.get( 0 ) );
+        assertRun( CHINESE, FontGroup.ASIAN, runs.get( 1 ) );
+        assertRun( " b", FontGroup.WESTERN, runs.get( 2 ) );
+        assertRun( HEBREW, FontGroup.COMPLEX, runs.get( 3 ) );
+        assertRun( CHINESE, FontGroup.ASIAN, runs.get( 4 ) );
+    }
+
+    public void testCharWithoutGlyph()
+    {
+        // a character which has no glyph in the fonts belongs to the western group
+        List<FontGroupRun> runs =
+            FontGroup.split( CHINESE + "\u00e9" + CHINESE, coverage, coverageAsian, coverageComplex );
+        assertEquals( 3, runs.size() );
+        assertRun( CHINESE, FontGroup.ASIAN, runs.get( 0 ) );
+        assertRun( "\u00e9", FontGroup.WESTERN, runs.get( 1 ) );
+        assertRun( CHINESE, FontGroup.ASIAN, runs.get( 2 ) );
+    }
+
+    public void testNoCoverage()
+    {
+        // without western font, the latin characters use the asian font which has their glyphs
+        List<FontGroupRun> runs = FontGroup.split( "a" + CHINESE + HEBREW, null, coverageAsian, null );
+        assertEquals( 2, runs.size() );
+        assertRun( "a" + CHINESE, FontGroup.ASIAN, runs.get( 0 ) );
+        assertRun( HEBREW, FontGroup.WESTERN, runs.get( 1 ) );
+    }
+
+    public void testFontsWithoutBaseFont()
+    {
+        String text = "a" + CHINESE + HEBREW;
+        List<FontGroupRun> runs = FontGroup.split( text, new Font(), new Font(), null );
+        assertEquals( 1, runs.size() );
+        assertRun( text, FontGroup.WESTERN, runs.get( 0 ) );
+    }
+
+    private static void assertRun( String text, FontGroup group, FontGroupRun run )
+    {
+        assertEquals( text, run.getText() );
+        assertEquals( group, run.getGroup() );
+    }
+}
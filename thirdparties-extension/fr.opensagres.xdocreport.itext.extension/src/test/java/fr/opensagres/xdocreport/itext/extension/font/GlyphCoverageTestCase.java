@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.itext.extension.font;
+
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.BaseFont;
+
+/**
+ * Test case for {@link GlyphCoverage}.
+ */
+public class GlyphCoverageTestCase
+    extends TestCase
+{
+
+    public void testCharExists()
+    {
+        // characters at the bounds of the 64 bits words and of the 256 characters blocks
+        BitSet chars = new BitSet();
+        chars.set( 0 );
+        chars.set( 63 );
+        chars.set( 64 );
+        chars.set( 127 );
+        chars.set( 128 );
+        chars.set( 191 );
+        chars.set( 192 );
+        chars.set( 255 );
+        chars.set( 256 );
+        chars.set( 0x4e2d );
+        chars.set( Character.MAX_VALUE );
+        TestGlyphCoverage coverage = new TestGlyphCoverage( chars );
+
+        for ( int ch = 0; ch <= Character.MAX_VALUE; ch++ )
+        {
+            assertEquals( "U+" + Integer.toHexString( ch ), chars.get( ch ), coverage.charExists( (char) ch ) );
+        }
+        // the base font is called once per character
+        assertEquals( Character.MAX_VALUE + 1, coverage.calls );
+    }
+
+    public void testBlockComputedOnce()
+    {
+        BitSet chars = new BitSet();
+        chars.set( 'a', 'z' + 1 );
+        TestGlyphCoverage coverage = new TestGlyphCoverage( chars );
+
+        assertTrue( coverage.charExists( 'a' ) );
+        assertEquals( 256, coverage.calls );
+        assertTrue( coverage.charExists( 'z' ) );
+        assertFalse( coverage.charExists( 'A' ) );
+        assertFalse( coverage.charExists( (char) 0xe9 ) );
+        assertEquals( 256, coverage.calls );
+
+        assertFalse( coverage.charExists( (char) 0x100 ) );
+        assertEquals( 512, coverage.calls );
+    }
+
+    public void testNoBaseFont()
+    {
+        assertNull( GlyphCoverage.getCoverage( null ) );
+        assertNull( GlyphCoverage.getCoverage( new Font() ) );
+    }
+
+    public void testBaseFont()
+        throws Exception
+    {
+        BaseFont baseFont = BaseFont.createFont( BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED );
+        GlyphCoverage coverage = GlyphCoverage.getCoverage( new Font( baseFont ) );
+        assertNotNull( coverage );
+        // the coverage is shared by the fonts of the base font
+        assertSame( coverage, GlyphCoverage.getCoverage( new Font( baseFont, 12 ) ) );
+
+        assertTrue( coverage.charExists( 'A' ) );
+        assertTrue( coverage.charExists( (char) 0xe9 ) );
+        assertFalse( coverage.charExists( (char) 0x4e2d ) );
+    }
+
+    /**
+     * Glyph coverage of the given characters which counts the calls to the base font.
+     */
+    static class TestGlyphCoverage
+        extends GlyphCoverage
+    {
+        private final BitSet chars;
+
+        int calls;
+
+        TestGlyphCoverage( BitSet chars )
+        {
+            super( null );
+            this.chars = chars;
+        }
+
+        @Override
+        boolean baseFontCharExists( int ch )
+        {
+            calls++;
+            return chars.get( ch );
+        }
+    }
+}
@@ -25,19 +25,32 @@
 package fr.opensagres.xdocreport.itext.extension;
 
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Chunk;
 import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.pdf.BaseFont;
 import com.itextpdf.text.pdf.PdfAWriter;
+import com.itextpdf.text.pdf.PdfTemplate;
 import com.itextpdf.text.pdf.PdfWriter;
 
 public class ExtendedDocument
     extends Document
     implements IITextContainer
 {
+    /**
+     * Text whose width is reserved for the chunks which display the total page count of the document.
+     */
+    public static final String PAGE_COUNT_RESERVED_TEXT = "9999";
+
     private Map<String, IMasterPage> masterPagesCache = new HashMap<String, IMasterPage>();
 
     private IMasterPage defaultMasterPage;
@@ -56,6 +69,8 @@ public class ExtendedDocument
 
     private PageOrientation orientation = PageOrientation.Portrait;
 
+    private final List<PageCountTemplate> pageCountTemplates = new ArrayList<PageCountTemplate>();
+
     public ExtendedDocument( OutputStream out )
         throws DocumentException
     {
@@ -106,6 +121,85 @@ public class ExtendedDocument
         return writer.getCurrentPageNumber();
     }
 
+    /**
+     * Create a chunk which displays the total page count of the document with the font and the attributes of the given
+     * text chunk. The total page count is not known while the document is laid out, so the returned chunk contains a
+     * template which is filled when the document is closed. As the text which follows the chunk is laid out before the
+     * total page count is known, the width of the chunk is reserved up front: it is the width of the content of the
+     * text chunk (the estimated page count) or the width of {@link #PAGE_COUNT_RESERVED_TEXT} if it is wider. The total
+     * page count is aligned in the chunk like the paragraph, so that a centered or right aligned "Page 1 of 3" is not
+     * shifted by the reserved width.
+     * 
+     * @param textChunk the text chunk which contains the estimated page count.
+     * @param alignment the alignment of the paragraph which contains the chunk ({@link Element#ALIGN_LEFT},
+     *            {@link Element#ALIGN_CENTER}, {@link Element#ALIGN_RIGHT}...).
+     * @return
+     * @throws DocumentException
+     */
+    public Chunk createPageCountChunk( Chunk textChunk, int alignment )
+        throws DocumentException
+    {
+        Font font = textChunk.getFont();
+        BaseFont baseFont = font.getCalculatedBaseFont( false );
+        float size = font.getCalculatedSize();
+        String estimatedPageCount = textChunk.getContent();
+        if ( !isNumber( estimatedPageCount ) )
+        {
+            estimatedPageCount = "00";
+        }
+        float ascent = baseFont.getFontDescriptor( BaseFont.ASCENT, size );
+        float descent = baseFont.getFontDescriptor( BaseFont.DESCENT, size );
+        float width =
+            Math.max( baseFont.getWidthPoint( estimatedPageCount, size ),
+                      baseFont.getWidthPoint( PAGE_COUNT_RESERVED_TEXT, size ) );
+        PdfTemplate template = writer.getDirectContent().createTemplate( width, ascent - descent );
+        pageCountTemplates.add( new PageCountTemplate( template, baseFont, size, font.getColor(), descent,
+                                                       alignment ) );
+
+        Chunk chunk = new Chunk( Image.getInstance( template ), 0, descent, false );
+        chunk.setFont( font );
+        if ( textChunk.getAttributes() != null )
+        {
+            // keep the background, underline, text rise... of the text chunk
+            HashMap<String, Object> attributes = new HashMap<String, Object>( textChunk.getAttributes() );
+            attributes.putAll( chunk.getAttributes() );
+            chunk.setAttributes( attributes );
+        }
+        return chunk;
+    }
+
+    /**
+     * Fill the templates of the chunks created with {@link #createPageCountChunk(Chunk, int)} with the total page count
+     * of the document. This method is called when the document is closed.
+     * 
+     * @param pageCount the total page count.
+     */
+    public void fillPageCountTemplates( int pageCount )
+    {
+        String text = String.valueOf( pageCount );
+        for ( PageCountTemplate pageCountTemplate : pageCountTemplates )
+        {
+            pageCountTemplate.fill( text );
+        }
+        pageCountTemplates.clear();
+    }
+
+    private static boolean isNumber( String text )
+    {
+        if ( text == null || text.length() == 0 )
+        {
+            return false;
+        }
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            if ( !Character.isDigit( text.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean setOriginalMargins( float marginLeft, float marginRight, float marginTop, float marginBottom )
     {
         this.originMarginTop = marginTop;
@@ -222,4 +316,62 @@ public class ExtendedDocument
         }
         this.orientation = orientation;
     }
+
+    /**
+     * Template which displays the total page count of the document.
+     */
+    private static class PageCountTemplate
+    {
+        private final PdfTemplate template;
+
+        private final BaseFont baseFont;
+
+        private final float size;
+
+        private final BaseColor color;
+
+        private final float descent;
+
+        private final int alignment;
+
+        public PageCountTemplate( PdfTemplate template, BaseFont baseFont, float size, BaseColor color, float descent,
+                                  int alignment )
+        {
+            this.template = template;
+            this.baseFont = baseFont;
+            this.size = size;
+            this.color = color;
+            this.descent = descent;
+            this.alignment = alignment;
+        }
+
+        public void fill( String text )
+        {
+            // the reserved width is too small only for a document of more than 9999 pages: enlarge the template
+            // (the text which follows the chunk is not moved), else align the text in the reserved width.
+            float width = baseFont.getWidthPoint( text, size );
+            float x = 0;
+            if ( width > template.getWidth() )
+            {
+                template.setWidth( width );
+            }
+            else if ( alignment == Element.ALIGN_RIGHT )
+            {
+                x = template.getWidth() - width;
+            }
+            else if ( alignment == Element.ALIGN_CENTER )
+            {
+                x = ( template.getWidth() - width ) / 2;
+            }
+            template.beginText();
+            template.setFontAndSize( baseFont, size );
+            if ( color != null )
+            {
+                template.setColorFill( color );
+            }
+            template.setTextMatrix( x, -descent );
+            template.showText( text );
+            template.endText();
+        }
+    }
 }
@@ -38,6 +38,8 @@ public class ExtendedHeaderFooter
 
     private IMasterPage masterPage;
 
+    private int pageCount;
+
     public ExtendedHeaderFooter( ExtendedDocument document )
     {
         this.document = document;
@@ -85,6 +87,28 @@ public class ExtendedHeaderFooter
         }
     }
 
+    /**
+     * Count the pages of the document.
+     * 
+     * @see com.itextpdf.text.pdf.PdfPageEventHelper#onEndPage(com.itextpdf.text.pdf.PdfWriter, com.itextpdf.text.Document)
+     */
+    @Override
+    public void onEndPage( PdfWriter writer, Document doc )
+    {
+        pageCount++;
+    }
+
+    /**
+     * Fill the total page count of the document.
+     * 
+     * @see com.itextpdf.text.pdf.PdfPageEventHelper#onCloseDocument(com.itextpdf.text.pdf.PdfWriter, com.itextpdf.text.Document)
+     */
+    @Override
+    public void onCloseDocument( PdfWriter writer, Document doc )
+    {
+        document.fillPageCountTemplates( pageCount );
+    }
+
     protected float getFooterY( IMasterPageHeaderFooter footer )
     {
         return document.getOriginMarginBottom() + footer.getTotalHeight();
@@ -0,0 +1,549 @@
+/**
+ * Copyright (C) 2011-2015 The XDocReport Team <xdocreport@googlegroups.com>
+ *
+ * All rights reserved.
+ *
+ * Permission is hereby granted, free  of charge, to any person obtaining
+ * a  copy  of this  software  and  associated  documentation files  (the
+ * "Software"), to  deal in  the Software without  restriction, including
+ * without limitation  the rights to  use, copy, modify,  merge, publish,
+ * distribute,  sublicense, and/or sell  copies of  the Software,  and to
+ * permit persons to whom the Software  is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The  above  copyright  notice  and  this permission  notice  shall  be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE  SOFTWARE IS  PROVIDED  "AS  IS", WITHOUT  WARRANTY  OF ANY  KIND,
+ * EXPRESS OR  IMPLIED, INCLUDING  BUT NOT LIMITED  TO THE  WARRANTIES OF
+ * MERCHANTABILITY,    FITNESS    FOR    A   PARTICULAR    PURPOSE    AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE,  ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package fr.opensagres.xdocreport.itext.extension.font;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.pdf.BaseFont;
+
+/**
+ * Index of the TrueType/OpenType fonts (.ttf, .otf, .ttc) of a list of directories. The index contains the names of
+ * the fonts and their families with the path of the font file (with the index of the font for a TrueType collection),
+ * so fonts can be resolved without registering the font files in the iText FontFactory (which parses each font file).
+ * The font files are opened only when a font is used.
+ * <p>
+ * The index can be stored in a file and loaded the next time, it is rebuilt when a font directory or a font file has
+ * been modified (see {@link #isUpToDate(List)}).
+ * </p>
+ */
+public class FontDirectoryIndex
+{
+    private static final Logger LOGGER = Logger.getLogger( FontDirectoryIndex.class.getName() );
+
+    private static final int VERSION = 2;
+
+    /**
+     * Font directories scanned by {@link FontFactory#registerDirectories()}.
+     */
+    public static final String[] SYSTEM_FONT_DIRECTORIES = { "c:/windows/fonts", "c:/winnt/fonts",
+        "d:/windows/fonts", "d:/winnt/fonts", "/usr/share/X11/fonts", "/usr/X/lib/X11/fonts",
+        "/usr/openwin/lib/X11/fonts", "/usr/share/fonts", "/usr/X11R6/lib/X11/fonts", "/Library/Fonts",
+        "/System/Library/Fonts" };
+
+    // platform, encoding and language of the names used to register the family of a font (same order as iText)
+    private static final String[] TT_FAMILY_ORDER = { "3", "1", "1033", "3", "0", "1033", "1", "0", "0", "0", "3",
+        "0" };
+
+    // scanned directories with their last modified date
+    private final Map<String, Long> directories;
+
+    // indexed font files with their length and their last modified date
+    private final Map<String, long[]> files;
+
+    // lower case font name -> font path
+    private final Map<String, String> fonts;
+
+    // lower case family name -> full names of the fonts of the family
+    private final Map<String, List<String>> families;
+
+    private FontDirectoryIndex( Map<String, Long> directories, Map<String, long[]> files, Map<String, String> fonts,
+                                Map<String, List<String>> families )
+    {
+        this.directories = directories;
+        this.files = files;
+        this.fonts = fonts;
+        this.families = families;
+    }
+
+    /**
+     * Returns the index of the fonts of the given directories. The index is loaded from the given index file if it
+     * exists and if the directories have not been modified, otherwise the index is built and stored in the index file.
+     * 
+     * @param directories the font directories.
+     * @param indexFile the file of the index (can be null).
+     * @return
+     */
+    public static FontDirectoryIndex getIndex( List<File> directories, File indexFile )
+    {
+        if ( indexFile != null && indexFile.exists() )
+        {
+            try
+            {
+                FontDirectoryIndex index = load( indexFile );
+                if ( index.isUpToDate( directories ) )
+                {
+                    return index;
+                }
+            }
+            catch ( IOException e )
+            {
+                LOGGER.log( Level.WARNING, "Cannot load the font index " + indexFile, e );
+            }
+        }
+        FontDirectoryIndex index = build( directories );
+        if ( indexFile != null )
+        {
+            try
+            {
+                index.save( indexFile );
+            }
+            catch ( IOException e )
+            {
+                LOGGER.log( Level.WARNING, "Cannot save the font index " + indexFile, e );
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Build the index of the fonts of the given directories (sub directories are scanned too).
+     * 
+     * @param directories
+     * @return
+     */
+    public static FontDirectoryIndex build( List<File> directories )
+    {
+        FontDirectoryIndex index =
+            new FontDirectoryIndex( new LinkedHashMap<String, Long>(), new LinkedHashMap<String, long[]>(),
+                                    new HashMap<String, String>(), new HashMap<String, List<String>>() );
+        for ( File directory : directories )
+        {
+            index.addDirectory( directory );
+        }
+        return index;
+    }
+
+    private void addDirectory( File directory )
+    {
+        if ( !directory.isDirectory() || directories.containsKey( directory.getAbsolutePath() ) )
+        {
+            return;
+        }
+        directories.put( directory.getAbsolutePath(), directory.lastModified() );
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            if ( file.isDirectory() )
+            {
+                addDirectory( file );
+            }
+            else
+            {
+                String path = file.getPath();
+                String name = path.toLowerCase();
+                boolean ttc = name.endsWith( ".ttc" );
+                if ( !ttc && !name.endsWith( ".ttf" ) && !name.endsWith( ".otf" ) )
+                {
+                    continue;
+                }
+                // the invalid font files are tracked too, they are indexed if they are replaced by a valid font
+                this.files.put( path, new long[] { file.length(), file.lastModified() } );
+                try
+                {
+                    if ( !ttc )
+                    {
+                        addFont( path );
+                    }
+                    else
+                    {
+                        String[] names = BaseFont.enumerateTTCNames( path );
+                        for ( int i = 0; i < names.length; i++ )
+                        {
+                            addFont( path + "," + i );
+                        }
+                    }
+                }
+                catch ( Exception e )
+                {
+                    // the font file is not valid, ignore it
+                    LOGGER.log( Level.FINE, "Cannot index the font " + path, e );
+                }
+            }
+        }
+    }
+
+    /**
+     * Index the names of the given font like {@link FontFactory#register(String)}.
+     * 
+     * @param path
+     * @throws DocumentException
+     * @throws IOException
+     */
+    private void addFont( String path )
+        throws DocumentException, IOException
+    {
+        Object[] allNames = BaseFont.getAllFontNames( path, BaseFont.WINANSI, null );
+        fonts.put( ( (String) allNames[0] ).toLowerCase(), path );
+        String[][] fullNames = (String[][]) allNames[2];
+        for ( String[] fullName : fullNames )
+        {
+            fonts.put( fullName[3].toLowerCase(), path );
+        }
+        String familyName = getName( (String[][]) allNames[1] );
+        if ( familyName != null )
+        {
+            String lastName = "";
+            for ( String[] name : fullNames )
+            {
+                if ( isFamilyName( name ) && !name[3].equals( lastName ) )
+                {
+                    lastName = name[3];
+                    addFamily( familyName.toLowerCase(), name[3] );
+                }
+            }
+        }
+    }
+
+    private static String getName( String[][] names )
+    {
+        for ( int k = 0; k < TT_FAMILY_ORDER.length; k += 3 )
+        {
+            for ( String[] name : names )
+            {
+                if ( TT_FAMILY_ORDER[k].equals( name[0] ) && TT_FAMILY_ORDER[k + 1].equals( name[1] )
+                    && TT_FAMILY_ORDER[k + 2].equals( name[2] ) )
+                {
+                    return name[3];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isFamilyName( String[] name )
+    {
+        for ( int k = 0; k < TT_FAMILY_ORDER.length; k += 3 )
+        {
+            if ( TT_FAMILY_ORDER[k].equals( name[0] ) && TT_FAMILY_ORDER[k + 1].equals( name[1] )
+                && TT_FAMILY_ORDER[k + 2].equals( name[2] ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addFamily( String familyName, String fullName )
+    {
+        List<String> fullNames = families.get( familyName );
+        if ( fullNames == null )
+        {
+            fullNames = new ArrayList<String>();
+            families.put( familyName, fullNames );
+        }
+        // the shortest names first like the iText FontFactory
+        int index = 0;
+        while ( index < fullNames.size() && fullNames.get( index ).length() < fullName.length() )
+        {
+            index++;
+        }
+        fullNames.add( index, fullName );
+    }
+
+    /**
+     * Returns true if the given directories are the indexed directories and if they have not been modified since the
+     * index was built. The last modified date of the directories is compared to detect the added and removed font
+     * files, and the length and the last modified date of each indexed font file is compared to detect the font files
+     * which are replaced (the content of a font file is not read).
+     * 
+     * @param directories
+     * @return
+     */
+    public boolean isUpToDate( List<File> directories )
+    {
+        for ( File directory : directories )
+        {
+            if ( directory.isDirectory() && !this.directories.containsKey( directory.getAbsolutePath() ) )
+            {
+                return false;
+            }
+        }
+        for ( Map.Entry<String, Long> directory : this.directories.entrySet() )
+        {
+            File file = new File( directory.getKey() );
+            if ( !file.isDirectory() || file.lastModified() != directory.getValue() )
+            {
+                return false;
+            }
+        }
+        for ( Map.Entry<String, long[]> font : this.files.entrySet() )
+        {
+            File file = new File( font.getKey() );
+            if ( !file.isFile() || file.length() != font.getValue()[0] || file.lastModified() != font.getValue()[1] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the font of the given family name or font name with the given style and null if the font is not indexed.
+     * The returned font has an undefined size and no color. The style is resolved like
+     * {@link FontFactory#getFont(String, String, float, int)} : when the family contains a font with the bold/italic
+     * style, this font is used and the style is removed from the style of the returned font.
+     * 
+     * @param familyName
+     * @param encoding
+     * @param style
+     * @return
+     */
+    public Font getFont( String familyName, String encoding, int style )
+    {
+        String fontName = familyName;
+        String fullName = getFullName( familyName, style );
+        if ( fullName != null )
+        {
+            fontName = fullName;
+            if ( style != Font.UNDEFINED )
+            {
+                style &= ~getStyle( fullName );
+            }
+        }
+        String path = getPath( fontName );
+        if ( path == null )
+        {
+            return null;
+        }
+        try
+        {
+            // the font file is opened the first time the font is used (base fonts are cached by iText)
+            BaseFont baseFont = BaseFont.createFont( path, encoding, FontFactory.defaultEmbedding );
+            return new Font( baseFont, Font.UNDEFINED, style, null );
+        }
+        catch ( Exception e )
+        {
+            LOGGER.log( Level.WARNING, "Cannot load the font " + path, e );
+            return null;
+        }
+    }
+
+    /**
+     * Returns the full name of the font of the given family which has the bold/italic style of the given style and
+     * null if the family is not indexed or if it has no font with this style.
+     * 
+     * @param familyName
+     * @param style
+     * @return
+     */
+    String getFullName( String familyName, int style )
+    {
+        List<String> fullNames = families.get( familyName.toLowerCase() );
+        if ( fullNames != null )
+        {
+            int s = style == Font.UNDEFINED ? Font.NORMAL : style;
+            for ( String fullName : fullNames )
+            {
+                if ( ( s & Font.BOLDITALIC ) == getStyle( fullName ) )
+                {
+                    return fullName;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int getStyle( String fullName )
+    {
+        String name = fullName.toLowerCase();
+        int style = Font.NORMAL;
+        if ( name.indexOf( "bold" ) != -1 )
+        {
+            style |= Font.BOLD;
+        }
+        if ( name.indexOf( "italic" ) != -1 || name.indexOf( "oblique" ) != -1 )
+        {
+            style |= Font.ITALIC;
+        }
+        return style;
+    }
+
+    /**
+     * Returns the path of the font file of the given font name (with the index of the font for a TrueType collection)
+     * and null if the font is not indexed.
+     * 
+     * @param fontName
+     * @return
+     */
+    String getPath( String fontName )
+    {
+        return fonts.get( fontName.toLowerCase() );
+    }
+
+    /**
+     * Load an index stored with {@link #save(File)}.
+     * 
+     * @param indexFile
+     * @return
+     * @throws IOException
+     */
+    public static FontDirectoryIndex load( File indexFile )
+        throws IOException
+    {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( indexFile ) ) );
+        try
+        {
+            if ( in.readInt() != VERSION )
+            {
+                throw new IOException( "Unsupported font index version" );
+            }
+            int size = in.readInt();
+            Map<String, Long> directories = new LinkedHashMap<String, Long>( size * 2 );
+            for ( int i = 0; i < size; i++ )
+            {
+                directories.put( in.readUTF(), in.readLong() );
+            }
+            size = in.readInt();
+            Map<String, long[]> files = new LinkedHashMap<String, long[]>( size * 2 );
+            for ( int i = 0; i < size; i++ )
+            {
+                files.put( in.readUTF(), new long[] { in.readLong(), in.readLong() } );
+            }
+            size = in.readInt();
+            Map<String, String> fonts = new HashMap<String, String>( size * 2 );
+            for ( int i = 0; i < size; i++ )
+            {
+                fonts.put( in.readUTF(), in.readUTF() );
+            }
+            size = in.readInt();
+            Map<String, List<String>> families = new HashMap<String, List<String>>( size * 2 );
+            for ( int i = 0; i < size; i++ )
+            {
+                String familyName = in.readUTF();
+                int count = in.readInt();
+                List<String> fullNames = new ArrayList<String>( count );
+                for ( int j = 0; j < count; j++ )
+                {
+                    fullNames.add( in.readUTF() );
+                }
+                families.put( familyName, fullNames );
+            }
+            return new FontDirectoryIndex( directories, files, fonts, families );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Store the index in the given file. The index is written in a temporary file of the directory of the index file
+     * which replaces the index file when it's complete, so several JVM can store the same index at the same time.
+     * 
+     * @param indexFile
+     * @throws IOException
+     */
+    public void save( File indexFile )
+        throws IOException
+    {
+        File parent = indexFile.getAbsoluteFile().getParentFile();
+        if ( !parent.exists() && !parent.mkdirs() && !parent.exists() )
+        {
+            throw new IOException( "Cannot create the directory " + parent );
+        }
+        File tempFile = File.createTempFile( "fontindex", ".tmp", parent );
+        try
+        {
+            write( tempFile );
+            if ( !tempFile.renameTo( indexFile ) )
+            {
+                // the index was perhaps stored by an other JVM at the same time.
+                indexFile.delete();
+                if ( !tempFile.renameTo( indexFile ) && !indexFile.exists() )
+                {
+                    throw new IOException( "Cannot rename " + tempFile + " to " + indexFile );
+                }
+            }
+        }
+        finally
+        {
+            tempFile.delete();
+        }
+    }
+
+    private void write( File file )
+        throws IOException
+    {
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) );
+        try
+        {
+            out.writeInt( VERSION );
+            out.writeInt( directories.size() );
+            for ( Map.Entry<String, Long> directory : directories.entrySet() )
+            {
+                out.writeUTF( directory.getKey() );
+                out.writeLong( directory.getValue() );
+            }
+            out.writeInt( files.size() );
+            for ( Map.Entry<String, long[]> fontFile : files.entrySet() )
+            {
+                out.writeUTF( fontFile.getKey() );
+                out.writeLong( fontFile.getValue()[0] );
+                out.writeLong( fontFile.getValue()[1] );
+            }
+            out.writeInt( fonts.size() );
+            for ( Map.Entry<String, String> font : fonts.entrySet() )
+            {
+                out.writeUTF( font.getKey() );
+                out.writeUTF( font.getValue() );
+            }
+            out.writeInt( families.size() );
+            for ( Map.Entry<String, List<String>> family : families.entrySet() )
+            {
+                out.writeUTF( family.getKey() );
+                out.writeInt( family.getValue().size() );
+                for ( String fullName : family.getValue() )
+                {
+                    out.writeUTF( fullName );
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}